@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.github.hiwepy.jwt.stream.JwtStreamWriter;
+import com.github.hiwepy.jwt.utils.StringUtils;
+
+/**
+ * 声明模板：签发者、接收者、角色权限等静态声明只序列化一次，签发时仅拼接随令牌变化的 jti、sub、iat、nbf、exp。
+ * <p>模板由各实现的工具类（如 NimbusdsUtils、JJwtUtils）以其原有的声明构建方式生成一个样例 JSON 编译而来：
+ * 静态部分取自样例本身，编译时再以相同的样例参数渲染模板并与样例逐项比较，二者语义不一致时拒绝创建模板，
+ * 从而保证模板输出与原有构建方式得到的 JSON 等价。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class ClaimsTemplate {
+
+	/**
+	 * 编译模板时生成样例 JSON 所用的动态参数
+	 */
+	public static final String SAMPLE_JWT_ID = "claims-template-jti";
+	public static final String SAMPLE_SUBJECT = "claims-template-sub";
+	public static final long SAMPLE_ISSUED_AT = 1500000000000L;
+	public static final long SAMPLE_PERIOD = 3600000L;
+
+	/**
+	 * 签发时拼接的动态声明
+	 */
+	public static final Set<String> DYNAMIC_CLAIMS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("jti", "sub", "iat", "nbf", "exp")));
+
+	private final String dialect;
+	private final String issuer;
+	private final Set<String> audience;
+	private final Map<String, Object> claims;
+	/**
+	 * 是否输出 nbf（与原有构建方式一致）
+	 */
+	private final boolean notBefore;
+	/**
+	 * 是否输出空白的 sub（nimbus 仅省略 null，jjwt 同时省略空白字符串）
+	 */
+	private final boolean blankSubject;
+	/**
+	 * 预序列化的静态声明（不含首尾花括号）
+	 */
+	private final String staticMembers;
+
+	private ClaimsTemplate(String dialect, String issuer, Set<String> audience, Map<String, Object> claims,
+			boolean notBefore, boolean blankSubject, String staticMembers) {
+		this.dialect = dialect;
+		this.issuer = issuer;
+		this.audience = audience == null ? null : Collections.unmodifiableSet(new HashSet<>(audience));
+		this.claims = claims == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(claims));
+		this.notBefore = notBefore;
+		this.blankSubject = blankSubject;
+		this.staticMembers = staticMembers;
+	}
+
+	/**
+	 * Compile the template from a sample claims set JSON
+	 * @param dialect 		: The implementation that built the sample, e.g. "nimbus" or "jjwt"
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param claims 		: Jwt Claims
+	 * @param sampleJson 	: The claims set JSON built the original way from the arguments above and
+	 * {@link #SAMPLE_JWT_ID}, {@link #SAMPLE_SUBJECT}, {@link #SAMPLE_ISSUED_AT}, {@link #SAMPLE_PERIOD}
+	 * @return The claims template
+	 * @throws IllegalArgumentException If the rendered template is not equivalent to the sample,
+	 * e.g. the claims override one of the {@link #DYNAMIC_CLAIMS}
+	 */
+	public static ClaimsTemplate compile(String dialect, String issuer, Set<String> audience, Map<String, Object> claims,
+			String sampleJson) {
+		return compile(dialect, issuer, audience, claims, sampleJson, true);
+	}
+
+	/**
+	 * Compile the template from a sample claims set JSON
+	 * @param dialect 		: The implementation that built the sample, e.g. "nimbus" or "jjwt"
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param claims 		: Jwt Claims
+	 * @param sampleJson 	: The claims set JSON built the original way from the arguments above and
+	 * {@link #SAMPLE_JWT_ID}, {@link #SAMPLE_SUBJECT}, {@link #SAMPLE_ISSUED_AT}, {@link #SAMPLE_PERIOD}
+	 * @param blankSubject 	: Whether the original way keeps an empty or blank subject, only a null subject is omitted otherwise
+	 * @return The claims template
+	 * @throws IllegalArgumentException If the rendered template is not equivalent to the sample,
+	 * e.g. the claims override one of the {@link #DYNAMIC_CLAIMS}
+	 */
+	public static ClaimsTemplate compile(String dialect, String issuer, Set<String> audience, Map<String, Object> claims,
+			String sampleJson, boolean blankSubject) {
+		JSONObject sample = JSON.parseObject(sampleJson);
+		JSONObject statics = new JSONObject();
+		for (Map.Entry<String, Object> entry : sample.entrySet()) {
+			if (!DYNAMIC_CLAIMS.contains(entry.getKey())) {
+				statics.put(entry.getKey(), entry.getValue());
+			}
+		}
+		String members = JSON.toJSONString(statics);
+		ClaimsTemplate template = new ClaimsTemplate(dialect, issuer, audience, claims, sample.containsKey("nbf"), blankSubject,
+				members.substring(1, members.length() - 1));
+		// 以样例参数渲染模板，确认与原有构建方式的输出等价
+		String rendered = template.toJson(SAMPLE_JWT_ID, SAMPLE_SUBJECT, SAMPLE_ISSUED_AT, SAMPLE_PERIOD);
+		if (!sample.equals(JSON.parseObject(rendered))) {
+			throw new IllegalArgumentException(String.format("The claims template %s is not equivalent to the claims set %s", rendered, sampleJson));
+		}
+		return template;
+	}
+
+	/**
+	 * Render the claims set JSON
+	 * @param jwtId 	: Jwt Id
+	 * @param subject 	: Jwt Subject
+	 * @param issuedAt 	: The issue time in milliseconds
+	 * @param period 	: Jwt Expiration Cycle, a negative value for no expiration
+	 * @return The claims set JSON
+	 */
+	public String toJson(String jwtId, String subject, long issuedAt, long period) {
+		StringBuilder builder = new StringBuilder(staticMembers.length() + 128).append('{');
+		if (StringUtils.isNotBlank(jwtId)) {
+			appendString(builder, "jti", jwtId);
+		}
+		if (this.hasSubject(subject)) {
+			appendString(builder, "sub", subject);
+		}
+		if (!staticMembers.isEmpty()) {
+			separator(builder).append(staticMembers);
+		}
+		appendNumber(builder, "iat", issuedAt / 1000L);
+		if (notBefore) {
+			appendNumber(builder, "nbf", issuedAt / 1000L);
+		}
+		if (period >= 0) {
+			appendNumber(builder, "exp", (issuedAt + period) / 1000L);
+		}
+		return builder.append('}').toString();
+	}
+
+	/**
+	 * Render the claims set JSON as UTF-8 bytes
+	 * @param jwtId 	: Jwt Id
+	 * @param subject 	: Jwt Subject
+	 * @param issuedAt 	: The issue time in milliseconds
+	 * @param period 	: Jwt Expiration Cycle, a negative value for no expiration
+	 * @return The claims set JSON bytes
+	 */
+	public byte[] toBytes(String jwtId, String subject, long issuedAt, long period) {
+		return this.toJson(jwtId, subject, issuedAt, period).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Render the claims set JSON members into the writer, the writer must be inside the claims object
+	 * @param writer 	: The stream writer
+	 * @param jwtId 	: Jwt Id
+	 * @param subject 	: Jwt Subject
+	 * @param issuedAt 	: The issue time in milliseconds
+	 * @param period 	: Jwt Expiration Cycle, a negative value for no expiration
+	 */
+	public void writeTo(JwtStreamWriter writer, String jwtId, String subject, long issuedAt, long period) {
+		if (StringUtils.isNotBlank(jwtId)) {
+			writer.member("jti", jwtId);
+		}
+		if (this.hasSubject(subject)) {
+			writer.member("sub", subject);
+		}
+		writer.members(staticMembers);
+		writer.member("iat", issuedAt / 1000L);
+		if (notBefore) {
+			writer.member("nbf", issuedAt / 1000L);
+		}
+		if (period >= 0) {
+			writer.member("exp", (issuedAt + period) / 1000L);
+		}
+	}
+
+	private boolean hasSubject(String subject) {
+		return subject != null && (blankSubject || StringUtils.isNotBlank(subject));
+	}
+
+	private static StringBuilder separator(StringBuilder builder) {
+		return builder.length() > 1 ? builder.append(',') : builder;
+	}
+
+	private static void appendNumber(StringBuilder builder, String name, long value) {
+		separator(builder).append('"').append(name).append("\":").append(value);
+	}
+
+	private static void appendString(StringBuilder builder, String name, String value) {
+		separator(builder).append('"').append(name).append("\":\"");
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			switch (ch) {
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if (ch < 0x20 || ch == 0x2028 || ch == 0x2029) {
+						builder.append(String.format("\\u%04x", (int) ch));
+					} else {
+						builder.append(ch);
+					}
+			}
+		}
+		builder.append('"');
+	}
+
+	public String getDialect() {
+		return dialect;
+	}
+
+	public String getIssuer() {
+		return issuer;
+	}
+
+	public Set<String> getAudience() {
+		return audience;
+	}
+
+	public Map<String, Object> getClaims() {
+		return claims;
+	}
+
+	public boolean isNotBefore() {
+		return notBefore;
+	}
+
+	public boolean isBlankSubject() {
+		return blankSubject;
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量签发中的一条签发请求：签名/加密密钥与签发参数
+ * <p>声明的取值优先级：{@link #getTemplate()} 不为空时使用声明模板，其次使用 {@link #getClaims()}，否则使用角色与权限。</p>
+ * <p>请求对象可变且可复用：{@link #clear()} 后可放回对象池，或通过 {@link #current()} 使用当前线程复用的实例，避免每次签发都创建请求及参数对象。</p>
+ * @param <S> 签名密钥类型
+ * @param <E> 加密密钥类型，无加密时忽略
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class IssueRequest<S, E> {
+
+	private static final ThreadLocal<IssueRequest<Object, Object>> CURRENT = ThreadLocal.withInitial(IssueRequest::new);
+
+	/**
+	 * 签名密钥
+	 */
+	private S signingKey;
+	/**
+	 * 加密密钥（JwtKeyPairRepository）
+	 */
+	private E secretKey;
+	/**
+	 * 密钥ID（JwtKeyResolverRepository）
+	 */
+	private String keyId;
+	private String jwtId;
+	private String subject;
+	private String issuer;
+	private Set<String> audience;
+	private String roles;
+	private String permissions;
+	private Map<String, Object> claims;
+	private ClaimsTemplate template;
+	private String algorithm;
+	private long period;
+
+	public IssueRequest() {
+	}
+
+	public static <S, E> IssueRequest<S, E> of(S signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+			Map<String, Object> claims, String algorithm, long period) {
+		IssueRequest<S, E> request = new IssueRequest<S, E>();
+		request.setSigningKey(signingKey);
+		request.setJwtId(jwtId);
+		request.setSubject(subject);
+		request.setIssuer(issuer);
+		request.setAudience(audience);
+		request.setClaims(claims);
+		request.setAlgorithm(algorithm);
+		request.setPeriod(period);
+		return request;
+	}
+
+	public static <S, E> IssueRequest<S, E> of(S signingKey, E secretKey, String jwtId, String subject, String issuer, Set<String> audience,
+			Map<String, Object> claims, String algorithm, long period) {
+		IssueRequest<S, E> request = of(signingKey, jwtId, subject, issuer, audience, claims, algorithm, period);
+		request.setSecretKey(secretKey);
+		return request;
+	}
+
+	/**
+	 * Get the request of the current thread, cleared for a new token
+	 * <p>The request is valid until the next call on the same thread, do not keep it or hand it to other threads (e.g. in a batch).</p>
+	 * @param <S> The signing key type
+	 * @param <E> The encryption key type
+	 * @return The request
+	 */
+	@SuppressWarnings("unchecked")
+	public static <S, E> IssueRequest<S, E> current() {
+		return (IssueRequest<S, E>) (IssueRequest<?, ?>) CURRENT.get().clear();
+	}
+
+	/**
+	 * Clear all the fields for reuse
+	 * @return This request
+	 */
+	public IssueRequest<S, E> clear() {
+		this.signingKey = null;
+		this.secretKey = null;
+		this.keyId = null;
+		this.jwtId = null;
+		this.subject = null;
+		this.issuer = null;
+		this.audience = null;
+		this.roles = null;
+		this.permissions = null;
+		this.claims = null;
+		this.template = null;
+		this.algorithm = null;
+		this.period = 0;
+		return this;
+	}
+
+	public S getSigningKey() {
+		return signingKey;
+	}
+
+	public void setSigningKey(S signingKey) {
+		this.signingKey = signingKey;
+	}
+
+	public E getSecretKey() {
+		return secretKey;
+	}
+
+	public void setSecretKey(E secretKey) {
+		this.secretKey = secretKey;
+	}
+
+	public String getKeyId() {
+		return keyId;
+	}
+
+	public void setKeyId(String keyId) {
+		this.keyId = keyId;
+	}
+
+	public String getJwtId() {
+		return jwtId;
+	}
+
+	public void setJwtId(String jwtId) {
+		this.jwtId = jwtId;
+	}
+
+	public String getSubject() {
+		return subject;
+	}
+
+	public void setSubject(String subject) {
+		this.subject = subject;
+	}
+
+	public String getIssuer() {
+		return issuer;
+	}
+
+	public void setIssuer(String issuer) {
+		this.issuer = issuer;
+	}
+
+	public Set<String> getAudience() {
+		return audience;
+	}
+
+	public void setAudience(Set<String> audience) {
+		this.audience = audience;
+	}
+
+	public String getRoles() {
+		return roles;
+	}
+
+	public void setRoles(String roles) {
+		this.roles = roles;
+	}
+
+	public String getPermissions() {
+		return permissions;
+	}
+
+	public void setPermissions(String permissions) {
+		this.permissions = permissions;
+	}
+
+	public Map<String, Object> getClaims() {
+		return claims;
+	}
+
+	public void setClaims(Map<String, Object> claims) {
+		this.claims = claims;
+	}
+
+	public ClaimsTemplate getTemplate() {
+		return template;
+	}
+
+	public void setTemplate(ClaimsTemplate template) {
+		this.template = template;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public void setAlgorithm(String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	public long getPeriod() {
+		return period;
+	}
+
+	public void setPeriod(long period) {
+		this.period = period;
+	}
+
+}
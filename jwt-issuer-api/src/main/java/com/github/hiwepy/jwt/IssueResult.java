@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt;
+
+/**
+ * 批量签发中一条请求的结果（不可变）：签发的令牌或失败原因
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public final class IssueResult {
+
+	private final String token;
+	private final Throwable error;
+
+	private IssueResult(String token, Throwable error) {
+		this.token = token;
+		this.error = error;
+	}
+
+	public static IssueResult success(String token) {
+		return new IssueResult(token, null);
+	}
+
+	public static IssueResult failure(Throwable error) {
+		return new IssueResult(null, error);
+	}
+
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public Throwable getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess() ? "IssueResult[success]" : "IssueResult[failure: " + error + "]";
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.github.hiwepy.jwt.exception.ExpiredJwtException;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.NotObtainedJwtException;
+
+/**
+ * 令牌一次性解析、验证的结果（不可变）：状态、原因、载荷、头部
+ * <p>一次调用完成解析、解密、验签与有效期校验，调用方无需再先 verify 再 getPlayload。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public final class VerificationResult {
+
+	public enum Status {
+		/**
+		 * 验证通过
+		 */
+		VALID,
+		/**
+		 * 签名无效或无法验证
+		 */
+		INVALID,
+		/**
+		 * 令牌已过期
+		 */
+		EXPIRED,
+		/**
+		 * 令牌尚未生效（nbf）
+		 */
+		NOT_YET_VALID,
+		/**
+		 * 令牌格式错误，无法解析
+		 */
+		MALFORMED
+	}
+
+	private final Status status;
+	private final String reason;
+	private final JwtPayload payload;
+	private final Map<String, Object> header;
+	private final Throwable cause;
+
+	private VerificationResult(Status status, String reason, JwtPayload payload, Map<String, Object> header,
+			Throwable cause) {
+		this.status = status;
+		this.reason = reason;
+		this.payload = payload;
+		this.header = header == null ? Collections.emptyMap() : Collections.unmodifiableMap(header);
+		this.cause = cause;
+	}
+
+	public static VerificationResult valid(JwtPayload payload, Map<String, Object> header) {
+		return new VerificationResult(Status.VALID, null, payload, header, null);
+	}
+
+	public static VerificationResult of(Status status, String reason, JwtPayload payload, Map<String, Object> header,
+			Throwable cause) {
+		return new VerificationResult(status, reason, payload, header, cause);
+	}
+
+	/**
+	 * 将仓库抛出的异常转换为验证结果
+	 * @param ex 		: The exception thrown by the repository
+	 * @param header 	: The (unverified) header of the token
+	 * @return The failed verification result
+	 */
+	public static VerificationResult failure(RuntimeException ex, Map<String, Object> header) {
+		Status status = Status.INVALID;
+		if (ex instanceof ExpiredJwtException) {
+			status = Status.EXPIRED;
+		} else if (ex instanceof NotObtainedJwtException) {
+			status = Status.NOT_YET_VALID;
+		} else if (ex instanceof IncorrectJwtException) {
+			status = Status.MALFORMED;
+		}
+		return new VerificationResult(status, ex.getMessage(), null, header, ex);
+	}
+
+	public boolean isValid() {
+		return status == Status.VALID;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	/**
+	 * @return The payload, present when valid (and for expired tokens when the library exposes the claims)
+	 */
+	public JwtPayload getPayload() {
+		return payload;
+	}
+
+	public Map<String, Object> getHeader() {
+		return header;
+	}
+
+	public Throwable getCause() {
+		return cause;
+	}
+
+	@Override
+	public String toString() {
+		return "VerificationResult [status=" + status + ", reason=" + reason + "]";
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.batch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import com.github.hiwepy.jwt.IssueResult;
+
+/**
+ * 批量签发：按区间二分拆成 fork/join 任务在多核上并行签名，结果按输入顺序返回，单条请求的失败只体现在对应位置的 {@link IssueResult} 上。
+ * <p>被多条请求共用的密钥，先在调用线程上签发其第一条请求，使签名器、加密器等按密钥缓存的状态只构建一次，
+ * 其余请求再并行签发，避免多个工作线程同时为同一密钥构建状态。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtBatchIssuer {
+
+	/**
+	 * 每个叶子任务至少处理的请求数，避免拆分过细
+	 */
+	public static final int MINIMUM_BATCH_SIZE = 4;
+
+	/**
+	 * Issue the tokens in parallel
+	 * @param <R> 		: The request type
+	 * @param pool 		: The fork/join pool to run the issuance in
+	 * @param requests 	: The requests, in order
+	 * @param keyOf 	: The key state of a request (e.g. the signing key), requests with equal keys share the state
+	 * @param issuer 	: The issuance of a single request
+	 * @return The results, in the order of the requests
+	 */
+	public static <R> List<IssueResult> invokeAll(ForkJoinPool pool, List<? extends R> requests, Function<? super R, ?> keyOf,
+			Function<? super R, String> issuer) {
+		if (requests == null || requests.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Object[] input = requests.toArray();
+		IssueResult[] output = new IssueResult[input.length];
+		// 密钥 -> 首次出现的位置，出现多次的密钥先在当前线程签发一次
+		Map<Object, Integer> first = new HashMap<>();
+		Map<Object, Boolean> shared = new HashMap<>();
+		for (int i = 0; i < input.length; i++) {
+			Object key = keyOf.apply(cast(input[i]));
+			if (first.putIfAbsent(key, i) != null) {
+				shared.put(key, Boolean.TRUE);
+			}
+		}
+		for (Object key : shared.keySet()) {
+			int index = first.get(key);
+			output[index] = issue(cast(input[index]), issuer);
+		}
+		int threshold = Math.max(MINIMUM_BATCH_SIZE, input.length / (pool.getParallelism() * 4));
+		pool.invoke(new IssueAction<R>(input, output, 0, input.length, threshold, issuer));
+		return Arrays.asList(output);
+	}
+
+	/**
+	 * Run the issuance of a single request, convert the exceptions into the failed result
+	 */
+	private static <R> IssueResult issue(R request, Function<? super R, String> issuer) {
+		try {
+			return IssueResult.success(issuer.apply(request));
+		} catch (RuntimeException e) {
+			return IssueResult.failure(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <R> R cast(Object request) {
+		return (R) request;
+	}
+
+	@SuppressWarnings("serial")
+	private static final class IssueAction<R> extends RecursiveAction {
+
+		private final Object[] input;
+		private final IssueResult[] output;
+		private final int from;
+		private final int to;
+		private final int threshold;
+		private final Function<? super R, String> issuer;
+
+		IssueAction(Object[] input, IssueResult[] output, int from, int to, int threshold, Function<? super R, String> issuer) {
+			this.input = input;
+			this.output = output;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.issuer = issuer;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				for (int i = from; i < to; i++) {
+					// 已在调用线程上签发的请求
+					if (output[i] == null) {
+						output[i] = issue(cast(input[i]), issuer);
+					}
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new IssueAction<R>(input, output, from, middle, threshold, issuer),
+					new IssueAction<R>(input, output, middle, to, threshold, issuer));
+		}
+
+	}
+
+}
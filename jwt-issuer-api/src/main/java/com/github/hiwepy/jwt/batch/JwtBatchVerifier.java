@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.utils.JwtHeaderUtils;
+
+/**
+ * 批量验证：将令牌集合按区间二分拆成 fork/join 任务并行验证，结果按输入顺序返回；
+ * 单个令牌的失败只体现在对应位置的 {@link VerificationResult} 上，不会中断整个批次。
+ * <p>各仓库的签名器、验证器、解密器缓存均为线程安全，工作线程之间共享同一份密钥状态。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtBatchVerifier {
+
+	/**
+	 * 每个叶子任务至少处理的令牌数，避免拆分过细
+	 */
+	public static final int MINIMUM_BATCH_SIZE = 8;
+
+	/**
+	 * Verify the tokens in parallel
+	 * @param pool 		: The fork/join pool to run the verification in
+	 * @param tokens 	: The tokens, in order
+	 * @param verifier 	: The verification of a single token
+	 * @return The results, in the order of the input tokens
+	 */
+	public static List<VerificationResult> invokeAll(ForkJoinPool pool, Collection<String> tokens,
+			Function<String, VerificationResult> verifier) {
+		if (tokens == null || tokens.isEmpty()) {
+			return Collections.emptyList();
+		}
+		String[] input = tokens.toArray(new String[0]);
+		VerificationResult[] output = new VerificationResult[input.length];
+		int threshold = Math.max(MINIMUM_BATCH_SIZE, input.length / (pool.getParallelism() * 4));
+		pool.invoke(new VerifyAction(input, output, 0, input.length, threshold, verifier));
+		return Arrays.asList(output);
+	}
+
+	/**
+	 * Verify the tokens in parallel, chunk by chunk, for verifiers that amortize work across a chunk
+	 * (e.g. batch signature verification)
+	 * @param pool 			: The fork/join pool to run the verification in
+	 * @param tokens 		: The tokens, in order
+	 * @param batchSize 	: The number of tokens per chunk
+	 * @param verifier 		: The verification of a chunk, must return one result per token in order
+	 * @return The results, in the order of the input tokens
+	 * @throws IllegalArgumentException If the batch size is not positive
+	 */
+	public static List<VerificationResult> invokeAll(ForkJoinPool pool, Collection<String> tokens, int batchSize,
+			Function<List<String>, List<VerificationResult>> verifier) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		if (tokens == null || tokens.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<String> input = new ArrayList<>(tokens);
+		List<List<String>> chunks = new ArrayList<>();
+		for (int from = 0; from < input.size(); from += batchSize) {
+			chunks.add(input.subList(from, Math.min(input.size(), from + batchSize)));
+		}
+		List<ForkJoinTask<List<VerificationResult>>> tasks = new ArrayList<>(chunks.size());
+		for (List<String> chunk : chunks) {
+			tasks.add(pool.submit(() -> verify(chunk, verifier)));
+		}
+		List<VerificationResult> results = new ArrayList<>(input.size());
+		for (ForkJoinTask<List<VerificationResult>> task : tasks) {
+			results.addAll(task.join());
+		}
+		return results;
+	}
+
+	/**
+	 * Run the verification of a chunk, convert the exceptions into the failed results
+	 */
+	private static List<VerificationResult> verify(List<String> chunk, Function<List<String>, List<VerificationResult>> verifier) {
+		try {
+			List<VerificationResult> results = verifier.apply(chunk);
+			if (results != null && results.size() == chunk.size()) {
+				return results;
+			}
+		} catch (RuntimeException e) {
+			// fall back to the token by token verification below
+		}
+		List<VerificationResult> results = new ArrayList<>(chunk.size());
+		for (String token : chunk) {
+			results.add(verify(token, one -> verifier.apply(Collections.singletonList(one)).get(0)));
+		}
+		return results;
+	}
+
+	/**
+	 * Run the verification of a single token, convert the exceptions into the failed result
+	 */
+	private static VerificationResult verify(String token, Function<String, VerificationResult> verifier) {
+		try {
+			return verifier.apply(token);
+		} catch (RuntimeException e) {
+			return VerificationResult.failure(e, JwtHeaderUtils.header(token));
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final class VerifyAction extends RecursiveAction {
+
+		private final String[] input;
+		private final VerificationResult[] output;
+		private final int from;
+		private final int to;
+		private final int threshold;
+		private final Function<String, VerificationResult> verifier;
+
+		VerifyAction(String[] input, VerificationResult[] output, int from, int to, int threshold,
+				Function<String, VerificationResult> verifier) {
+			this.input = input;
+			this.output = output;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.verifier = verifier;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				for (int i = from; i < to; i++) {
+					output[i] = verify(input[i], verifier);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new VerifyAction(input, output, from, middle, threshold, verifier),
+					new VerifyAction(input, output, middle, to, threshold, verifier));
+		}
+
+	}
+
+}
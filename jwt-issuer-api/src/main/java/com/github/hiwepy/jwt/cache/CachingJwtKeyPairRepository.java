@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.token.JwtKeyPairRepository;
+
+/**
+ * 带已验证令牌缓存的 JwtKeyPairRepository 装饰器，命中时同时比较签名密钥与加密密钥
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CachingJwtKeyPairRepository<S, E> implements JwtKeyPairRepository<S, E> {
+
+	private final JwtKeyPairRepository<S, E> delegate;
+	private final JwtPayloadCache payloadCache;
+
+	public CachingJwtKeyPairRepository(JwtKeyPairRepository<S, E> delegate) {
+		this(delegate, new JwtPayloadCache());
+	}
+
+	public CachingJwtKeyPairRepository(JwtKeyPairRepository<S, E> delegate, JwtPayloadCache payloadCache) {
+		this.delegate = delegate;
+		this.payloadCache = payloadCache;
+	}
+
+	@Override
+	public String issueJwt(S signingKey, E secretKey, String jwtId, String subject, String issuer,
+			Set<String> audience, String roles, String permissions, String algorithm, long period)
+			throws JwtException {
+		return delegate.issueJwt(signingKey, secretKey, jwtId, subject, issuer, audience, roles, permissions,
+				algorithm, period);
+	}
+
+	@Override
+	public String issueJwt(S signingKey, E secretKey, String jwtId, String subject, String issuer,
+			Set<String> audience, Map<String, Object> claims, String algorithm, long period) throws JwtException {
+		return delegate.issueJwt(signingKey, secretKey, jwtId, subject, issuer, audience, claims, algorithm, period);
+	}
+
+	@Override
+	public boolean verify(S signingKey, E secretKey, String token, boolean checkExpiry) throws JwtException {
+		ByteBuffer digest = payloadCache.digest(token);
+		Object key = Arrays.asList(signingKey, secretKey);
+		if (payloadCache.get(digest, key) != null) {
+			return true;
+		}
+		// 单次解析、验证并缓存载荷；失败时由验证结果得出返回值或异常，不再重复验证
+		VerificationResult result = delegate.validate(signingKey, secretKey, token, checkExpiry);
+		if (result.isValid()) {
+			payloadCache.put(digest, token, key, result.getPayload());
+			return true;
+		}
+		return CachingJwtRepository.verified(result);
+	}
+
+	@Override
+	public JwtPayload getPlayload(S signingKey, E secretKey, String token, boolean checkExpiry)
+			throws JwtException {
+		ByteBuffer digest = payloadCache.digest(token);
+		Object key = Arrays.asList(signingKey, secretKey);
+		JwtPayload payload = payloadCache.get(digest, key);
+		if (payload == null) {
+			payload = delegate.getPlayload(signingKey, secretKey, token, checkExpiry);
+			payloadCache.put(digest, token, key, payload);
+		}
+		return payload;
+	}
+
+	public JwtKeyPairRepository<S, E> getDelegate() {
+		return delegate;
+	}
+
+	public JwtPayloadCache getPayloadCache() {
+		return payloadCache;
+	}
+
+}
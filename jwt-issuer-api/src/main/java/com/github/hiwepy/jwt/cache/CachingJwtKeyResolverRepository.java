@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.token.JwtKeyResolverRepository;
+
+/**
+ * 带已验证令牌缓存的 JwtKeyResolverRepository 装饰器
+ * <p>密钥由被装饰的仓库按 kid 解析，轮换密钥时应调用 {@link JwtPayloadCache#invalidateByKeyId(String)}。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CachingJwtKeyResolverRepository<S> implements JwtKeyResolverRepository<S> {
+
+	private final JwtKeyResolverRepository<S> delegate;
+	private final JwtPayloadCache payloadCache;
+
+	public CachingJwtKeyResolverRepository(JwtKeyResolverRepository<S> delegate) {
+		this(delegate, new JwtPayloadCache());
+	}
+
+	public CachingJwtKeyResolverRepository(JwtKeyResolverRepository<S> delegate, JwtPayloadCache payloadCache) {
+		this.delegate = delegate;
+		this.payloadCache = payloadCache;
+	}
+
+	@Override
+	public String issueJwt(S signingKey, String keyId, String jwtId, String subject, String issuer,
+			Set<String> audience, String roles, String permissions, String algorithm, long period)
+			throws JwtException {
+		return delegate.issueJwt(signingKey, keyId, jwtId, subject, issuer, audience, roles, permissions, algorithm,
+				period);
+	}
+
+	@Override
+	public String issueJwt(S signingKey, String keyId, String jwtId, String subject, String issuer,
+			Set<String> audience, Map<String, Object> claims, String algorithm, long period) throws JwtException {
+		return delegate.issueJwt(signingKey, keyId, jwtId, subject, issuer, audience, claims, algorithm, period);
+	}
+
+	@Override
+	public boolean verify(String token, boolean checkExpiry) throws JwtException {
+		ByteBuffer digest = payloadCache.digest(token);
+		if (payloadCache.get(digest, null) != null) {
+			return true;
+		}
+		// 单次解析、验证并缓存载荷；失败时由验证结果得出返回值或异常，不再重复验证
+		VerificationResult result = delegate.validate(token, checkExpiry);
+		if (result.isValid()) {
+			payloadCache.put(digest, token, null, result.getPayload());
+			return true;
+		}
+		return CachingJwtRepository.verified(result);
+	}
+
+	@Override
+	public JwtPayload getPlayload(String token, boolean checkExpiry) throws JwtException {
+		ByteBuffer digest = payloadCache.digest(token);
+		JwtPayload payload = payloadCache.get(digest, null);
+		if (payload == null) {
+			payload = delegate.getPlayload(token, checkExpiry);
+			payloadCache.put(digest, token, null, payload);
+		}
+		return payload;
+	}
+
+	public JwtKeyResolverRepository<S> getDelegate() {
+		return delegate;
+	}
+
+	public JwtPayloadCache getPayloadCache() {
+		return payloadCache;
+	}
+
+}
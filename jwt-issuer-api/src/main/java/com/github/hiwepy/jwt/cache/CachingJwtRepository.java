@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.token.JwtRepository;
+
+/**
+ * 带已验证令牌缓存的 JwtRepository 装饰器：verify/getPlayload 成功后缓存 JwtPayload，
+ * 同一令牌再次 verify/getPlayload 时直接返回，不再重复解析与验签
+ * <p>未命中时 verify 只调用一次被装饰仓库的 validate：签名无效返回 false，过期、未生效或格式错误时抛出其异常。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CachingJwtRepository<S> implements JwtRepository<S> {
+
+	private final JwtRepository<S> delegate;
+	private final JwtPayloadCache payloadCache;
+
+	public CachingJwtRepository(JwtRepository<S> delegate) {
+		this(delegate, new JwtPayloadCache());
+	}
+
+	public CachingJwtRepository(JwtRepository<S> delegate, JwtPayloadCache payloadCache) {
+		this.delegate = delegate;
+		this.payloadCache = payloadCache;
+	}
+
+	@Override
+	public String issueJwt(S signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+			String roles, String permissions, String algorithm, long period) throws JwtException {
+		return delegate.issueJwt(signingKey, jwtId, subject, issuer, audience, roles, permissions, algorithm, period);
+	}
+
+	@Override
+	public String issueJwt(S signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+			Map<String, Object> claims, String algorithm, long period) throws JwtException {
+		return delegate.issueJwt(signingKey, jwtId, subject, issuer, audience, claims, algorithm, period);
+	}
+
+	@Override
+	public boolean verify(S signingKey, String token, boolean checkExpiry) throws JwtException {
+		ByteBuffer digest = payloadCache.digest(token);
+		if (payloadCache.get(digest, signingKey) != null) {
+			return true;
+		}
+		// 单次解析、验证并缓存载荷；失败时由验证结果得出返回值或异常，不再重复验证
+		VerificationResult result = delegate.validate(signingKey, token, checkExpiry);
+		if (result.isValid()) {
+			payloadCache.put(digest, token, signingKey, result.getPayload());
+			return true;
+		}
+		return verified(result);
+	}
+
+	@Override
+	public JwtPayload getPlayload(S signingKey, String token, boolean checkExpiry) throws JwtException {
+		ByteBuffer digest = payloadCache.digest(token);
+		JwtPayload payload = payloadCache.get(digest, signingKey);
+		if (payload == null) {
+			payload = delegate.getPlayload(signingKey, token, checkExpiry);
+			payloadCache.put(digest, token, signingKey, payload);
+		}
+		return payload;
+	}
+
+	/**
+	 * The outcome of verify for the failed result: false if the signature is invalid or could not be verified,
+	 * the cause is thrown for the expired, not yet valid and malformed tokens
+	 * @param result 	: The failed verification result
+	 * @return false
+	 * @throws JwtException If the token is expired, not yet valid or malformed
+	 */
+	static boolean verified(VerificationResult result) throws JwtException {
+		if (result.getStatus() == VerificationResult.Status.INVALID) {
+			return false;
+		}
+		if (result.getCause() instanceof RuntimeException) {
+			throw (RuntimeException) result.getCause();
+		}
+		if (result.getStatus() == VerificationResult.Status.MALFORMED) {
+			throw new IncorrectJwtException(result.getReason(), result.getCause());
+		}
+		throw new JwtException(result.getReason(), result.getCause());
+	}
+
+	public JwtRepository<S> getDelegate() {
+		return delegate;
+	}
+
+	public JwtPayloadCache getPayloadCache() {
+		return payloadCache;
+	}
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.JwtHeaderUtils;
+
+/**
+ * 已验证令牌的 JwtPayload 缓存
+ * <p>以令牌的 SHA-256 摘要为键，条目在令牌过期时间（exp）失效，超出容量时按 LRU 淘汰；
+ * 没有 exp 的令牌最多缓存 maximumTtl 毫秒。</p>
+ * <p>命中时会比较校验所用的密钥，不同密钥不会命中同一条目。缓存的 JwtPayload 为共享实例，调用方不应修改。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtPayloadCache {
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+	public static final long DEFAULT_MAXIMUM_TTL = TimeUnit.MINUTES.toMillis(30);
+
+	private static final int SEGMENTS = 16;
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private final Segment[] segments;
+	private final long maximumTtl;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+
+	public JwtPayloadCache() {
+		this(DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_TTL);
+	}
+
+	/**
+	 * @param maximumSize 	: 最大缓存条目数
+	 * @param maximumTtl 	: 没有 exp 的令牌的最长缓存时间（毫秒）
+	 */
+	public JwtPayloadCache(int maximumSize, long maximumTtl) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be positive");
+		}
+		int capacity = Math.max(1, maximumSize / SEGMENTS);
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			this.segments[i] = new Segment(capacity);
+		}
+		this.maximumTtl = maximumTtl;
+	}
+
+	/**
+	 * Compute the cache key of the token
+	 * @param token : JSON Web Token (JWT)
+	 * @return The SHA-256 digest of the token
+	 */
+	public ByteBuffer digest(String token) {
+		MessageDigest digest = SHA256.get();
+		digest.reset();
+		return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Get the cached payload of the token
+	 * @param digest 	: The token digest, see {@link #digest(String)}
+	 * @param key 		: The key the token is verified with
+	 * @return The cached payload, or null if absent, expired or verified with another key
+	 */
+	public JwtPayload get(ByteBuffer digest, Object key) {
+		Segment segment = this.segmentFor(digest);
+		long now = this.getTimeProvider().now();
+		CacheEntry entry;
+		synchronized (segment) {
+			entry = segment.get(digest);
+			if (entry != null && entry.expiresAt <= now) {
+				segment.remove(digest);
+				evictionCount.increment();
+				entry = null;
+			}
+		}
+		if (entry == null || !Objects.equals(entry.key, key) || (entry.notBefore > 0 && now <= entry.notBefore)) {
+			missCount.increment();
+			return null;
+		}
+		hitCount.increment();
+		return entry.payload;
+	}
+
+	/**
+	 * Cache the payload of a verified token, tokens out of their validity period are ignored
+	 * @param digest 	: The token digest, see {@link #digest(String)}
+	 * @param token 	: JSON Web Token (JWT), used to read the kid of the header
+	 * @param key 		: The key the token is verified with
+	 * @param payload 	: The verified payload
+	 */
+	public void put(ByteBuffer digest, String token, Object key, JwtPayload payload) {
+		if (payload == null) {
+			return;
+		}
+		long now = this.getTimeProvider().now();
+		long expiresAt = now + maximumTtl;
+		if (payload.getExpiration() != null) {
+			expiresAt = Math.min(expiresAt, payload.getExpiration().getTime());
+		}
+		long notBefore = payload.getNotBefore() != null ? payload.getNotBefore().getTime() : 0;
+		if (expiresAt <= now || now <= notBefore) {
+			return;
+		}
+		CacheEntry entry = new CacheEntry(payload, key, JwtHeaderUtils.keyId(token), notBefore, expiresAt);
+		Segment segment = this.segmentFor(digest);
+		synchronized (segment) {
+			segment.put(digest, entry);
+		}
+	}
+
+	/**
+	 * Remove the cached payload of the token
+	 * @param token : JSON Web Token (JWT)
+	 */
+	public void invalidate(String token) {
+		ByteBuffer digest = this.digest(token);
+		Segment segment = this.segmentFor(digest);
+		synchronized (segment) {
+			segment.remove(digest);
+		}
+	}
+
+	/**
+	 * Remove all the cached payloads of the tokens signed with the key id, e.g. when the key is rotated
+	 * @param keyId : The kid of the JWT header
+	 * @return The number of removed entries
+	 */
+	public int invalidateByKeyId(String keyId) {
+		int removed = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				for (Iterator<CacheEntry> it = segment.values().iterator(); it.hasNext();) {
+					if (Objects.equals(keyId, it.next().keyId)) {
+						it.remove();
+						removed++;
+					}
+				}
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Remove all the cached payloads
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	public JwtTimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	public void setTimeProvider(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	private Segment segmentFor(ByteBuffer digest) {
+		// SHA-256 已经是均匀分布，直接取首字节
+		return segments[(digest.get(0) & 0xFF) % SEGMENTS];
+	}
+
+	private static final class CacheEntry {
+
+		private final JwtPayload payload;
+		private final Object key;
+		private final String keyId;
+		private final long notBefore;
+		private final long expiresAt;
+
+		CacheEntry(JwtPayload payload, Object key, String keyId, long notBefore, long expiresAt) {
+			this.payload = payload;
+			this.key = key;
+			this.keyId = keyId;
+			this.notBefore = notBefore;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	@SuppressWarnings("serial")
+	private final class Segment extends LinkedHashMap<ByteBuffer, CacheEntry> {
+
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CacheEntry> eldest) {
+			if (size() > capacity) {
+				evictionCount.increment();
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.compression;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 池化的 DEFLATE（RFC 1951，无 zlib 头尾）压缩器：Deflater/Inflater 连同各自的输出缓冲区在线程间复用，
+ * 压缩与解压每次只分配结果数组；可选预置字典（preset dictionary），两端必须使用相同的字典。
+ * <p>池的容量有限，超出容量归还的实例直接释放本地内存，而不是按线程常驻。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class DeflateCompressor {
+
+	/**
+	 * 默认的解压后最大长度（字节），防止压缩炸弹
+	 */
+	public static final int DEFAULT_MAX_INFLATED_SIZE = 1 << 20;
+	/**
+	 * 默认的池容量
+	 */
+	public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+	private final byte[] dictionary;
+	private final int dictionaryId;
+	private final int level;
+	private final int maxInflatedSize;
+	private final Pool<DeflaterEntry> deflaters;
+	private final Pool<InflaterEntry> inflaters;
+
+	public DeflateCompressor() {
+		this(null);
+	}
+
+	public DeflateCompressor(byte[] dictionary) {
+		this(dictionary, Deflater.DEFAULT_COMPRESSION, DEFAULT_MAX_INFLATED_SIZE, DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * @param dictionary 		: The preset dictionary, or null
+	 * @param level 			: The compression level (0-9), or {@link Deflater#DEFAULT_COMPRESSION}
+	 * @param maxInflatedSize 	: The maximum length of the decompressed data
+	 * @param poolSize 			: The maximum number of the idle deflaters and inflaters kept each
+	 */
+	public DeflateCompressor(byte[] dictionary, int level, int maxInflatedSize, int poolSize) {
+		if (maxInflatedSize <= 0) {
+			throw new IllegalArgumentException("The maximum inflated size must be positive: " + maxInflatedSize);
+		}
+		this.dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary.clone();
+		this.dictionaryId = dictionaryId(this.dictionary);
+		this.level = level;
+		this.maxInflatedSize = maxInflatedSize;
+		this.deflaters = new Pool<>(poolSize);
+		this.inflaters = new Pool<>(poolSize);
+	}
+
+	/**
+	 * Compress the data
+	 * @param input 	: The data
+	 * @return The compressed data
+	 */
+	public byte[] deflate(byte[] input) {
+		return deflate(input, 0, input.length, 0);
+	}
+
+	/**
+	 * Compress the data, leaving room for a prefix written by the caller
+	 * @param input 	: The data
+	 * @param offset 	: The start offset of the data
+	 * @param length 	: The length of the data
+	 * @param headroom 	: The number of bytes left unwritten at the start of the result
+	 * @return The compressed data, starting at index headroom
+	 */
+	public byte[] deflate(byte[] input, int offset, int length, int headroom) {
+		DeflaterEntry entry = deflaters.poll();
+		if (entry == null) {
+			entry = new DeflaterEntry(new Deflater(level, true));
+		}
+		try {
+			Deflater deflater = entry.deflater;
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(input, offset, length);
+			deflater.finish();
+			// DEFLATE 的最坏情况：每 16383 字节的存储块多 5 字节
+			byte[] buffer = entry.buffer(length + 5 * (length / 16383 + 1) + 6);
+			int size = 0;
+			while (!deflater.finished()) {
+				if (size == buffer.length) {
+					buffer = entry.grow(buffer.length * 2);
+				}
+				size += deflater.deflate(buffer, size, buffer.length - size);
+			}
+			byte[] ret = new byte[headroom + size];
+			System.arraycopy(buffer, 0, ret, headroom, size);
+			return ret;
+		} finally {
+			entry.deflater.reset();
+			if (!deflaters.offer(entry)) {
+				entry.deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * Decompress the data
+	 * @param input 	: The compressed data
+	 * @return The data
+	 * @throws DataFormatException If the compressed data is corrupt, needs another dictionary or exceeds the maximum inflated size
+	 */
+	public byte[] inflate(byte[] input) throws DataFormatException {
+		return inflate(input, 0, input.length);
+	}
+
+	/**
+	 * Decompress the data
+	 * @param input 	: The compressed data
+	 * @param offset 	: The start offset of the compressed data
+	 * @param length 	: The length of the compressed data
+	 * @return The data
+	 * @throws DataFormatException If the compressed data is corrupt, needs another dictionary or exceeds the maximum inflated size
+	 */
+	public byte[] inflate(byte[] input, int offset, int length) throws DataFormatException {
+		InflaterEntry entry = inflaters.poll();
+		if (entry == null) {
+			entry = new InflaterEntry(new Inflater(true));
+		}
+		try {
+			Inflater inflater = entry.inflater;
+			if (dictionary != null) {
+				// 原始 DEFLATE 流不携带字典 Id，直接预置
+				inflater.setDictionary(dictionary);
+			}
+			inflater.setInput(input, offset, length);
+			byte[] buffer = entry.buffer(Math.min(maxInflatedSize, Math.max(256, length * 4)));
+			int size = 0;
+			while (!inflater.finished()) {
+				if (size == buffer.length) {
+					if (size >= maxInflatedSize) {
+						throw new DataFormatException("The inflated data exceeds " + maxInflatedSize + " bytes");
+					}
+					buffer = entry.grow(Math.min(maxInflatedSize, buffer.length * 2));
+				}
+				int count = inflater.inflate(buffer, size, buffer.length - size);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new DataFormatException("The compressed data is truncated");
+				}
+				size += count;
+			}
+			return Arrays.copyOf(buffer, size);
+		} finally {
+			entry.inflater.reset();
+			if (!inflaters.offer(entry)) {
+				entry.inflater.end();
+			}
+		}
+	}
+
+	/**
+	 * The Adler-32 checksum of the dictionary, as the DICTID of zlib (RFC 1950)
+	 */
+	private static int dictionaryId(byte[] dictionary) {
+		if (dictionary == null) {
+			return 0;
+		}
+		Adler32 adler = new Adler32();
+		adler.update(dictionary, 0, dictionary.length);
+		return (int) adler.getValue();
+	}
+
+	/**
+	 * Get the id of the preset dictionary, the raw DEFLATE data does not carry it
+	 * @return The Adler-32 checksum of the dictionary, or 0 without dictionary
+	 */
+	public int getDictionaryId() {
+		return dictionaryId;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getMaxInflatedSize() {
+		return maxInflatedSize;
+	}
+
+	private abstract static class Entry {
+
+		private byte[] buffer = new byte[0];
+
+		byte[] buffer(int length) {
+			if (buffer.length < length) {
+				buffer = new byte[length];
+			}
+			return buffer;
+		}
+
+		byte[] grow(int length) {
+			buffer = Arrays.copyOf(buffer, length);
+			return buffer;
+		}
+
+	}
+
+	private static final class DeflaterEntry extends Entry {
+
+		private final Deflater deflater;
+
+		DeflaterEntry(Deflater deflater) {
+			this.deflater = deflater;
+		}
+
+	}
+
+	private static final class InflaterEntry extends Entry {
+
+		private final Inflater inflater;
+
+		InflaterEntry(Inflater inflater) {
+			this.inflater = inflater;
+		}
+
+	}
+
+	/**
+	 * 有界的无锁对象池
+	 */
+	private static final class Pool<T> {
+
+		private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger size = new AtomicInteger();
+		private final int capacity;
+
+		Pool(int capacity) {
+			this.capacity = capacity;
+		}
+
+		T poll() {
+			T ret = idle.poll();
+			if (ret != null) {
+				size.decrementAndGet();
+			}
+			return ret;
+		}
+
+		boolean offer(T value) {
+			if (size.incrementAndGet() > capacity) {
+				size.decrementAndGet();
+				return false;
+			}
+			idle.offer(value);
+			return true;
+		}
+
+	}
+
+}
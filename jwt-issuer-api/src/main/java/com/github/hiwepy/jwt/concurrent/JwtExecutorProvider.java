@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 默认异步执行器的提供者（Java 8 版本）：使用公共 ForkJoinPool。
+ * <p>Java 21 及以上由多版本 JAR（META-INF/versions/21）中的同名类替换为虚拟线程执行器。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+final class JwtExecutorProvider {
+
+	private JwtExecutorProvider() {
+	}
+
+	static Executor newDefaultExecutor() {
+		return ForkJoinPool.commonPool();
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 异步 API（issueJwtAsync、verifyAsync、getPlayloadAsync）使用的默认执行器。
+ * <p>Java 8 ~ 20 默认为公共 ForkJoinPool，Java 21 及以上默认为虚拟线程执行器（多版本 JAR）；
+ * 可通过 {@link #setDefaultExecutor(Executor)} 全局替换，或在仓库实现中覆盖 getAsyncExecutor() 单独指定。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public final class JwtExecutors {
+
+	private static volatile Executor defaultExecutor = JwtExecutorProvider.newDefaultExecutor();
+
+	private JwtExecutors() {
+	}
+
+	public static Executor getDefaultExecutor() {
+		return defaultExecutor;
+	}
+
+	public static void setDefaultExecutor(Executor executor) {
+		defaultExecutor = Objects.requireNonNull(executor, "executor");
+	}
+
+	/**
+	 * 在指定执行器上异步执行，失败时以原始异常（而非 CompletionException 包装）完成返回的 Future，
+	 * 执行器拒绝任务时以 RejectedExecutionException 完成
+	 * @param <T> 结果类型
+	 * @param supplier 任务
+	 * @param executor 执行器
+	 * @return 异步结果
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+		Objects.requireNonNull(supplier, "supplier");
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					future.complete(supplier.get());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+}
@@ -21,6 +21,11 @@ package com.github.hiwepy.jwt.exception;
  */
 @SuppressWarnings("serial")
 public class ExpiredJwtException extends JwtException {
+
+	/**
+	 * 共享的无堆栈实例，仅在关闭堆栈时由 {@link #expired()} 返回
+	 */
+	private static final ExpiredJwtException SHARED_INSTANCE = new ExpiredJwtException("Expired JWT value. ", null, false, false);
 	
 	public ExpiredJwtException() {
 		super();
@@ -37,5 +42,17 @@ public class ExpiredJwtException extends JwtException {
 	public ExpiredJwtException(Throwable cause) {
 		super(cause);
 	}
-	
+
+	protected ExpiredJwtException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+	}
+
+	/**
+	 * 过期异常：关闭堆栈时返回共享实例，否则创建带完整堆栈的新实例
+	 * @return The expired exception
+	 */
+	public static ExpiredJwtException expired() {
+		return isStackTraceEnabled() ? new ExpiredJwtException("Expired JWT value. ") : SHARED_INSTANCE;
+	}
+
 }
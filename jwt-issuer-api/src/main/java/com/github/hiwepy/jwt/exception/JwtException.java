@@ -17,6 +17,13 @@ package com.github.hiwepy.jwt.exception;
 
 public class JwtException extends RuntimeException {
 
+	/**
+	 * 系统属性：设置为 true 时验证失败的异常不再填充堆栈（默认填充，便于调试）
+	 */
+	public static final String STACKLESS_PROPERTY = "jwt.exception.stackless";
+
+	private static volatile boolean stackTraceEnabled = !Boolean.getBoolean(STACKLESS_PROPERTY);
+
 	/**
      * Creates a new AuthenticationException.
      */
@@ -51,5 +58,39 @@ public class JwtException extends RuntimeException {
     public JwtException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    /**
+     * Constructs a new exception with suppression and stack trace disabled, used for the shared instances.
+     *
+     * @param message the reason for the exception
+     * @param cause   the underlying Throwable that caused this exception to be thrown.
+     * @param enableSuppression whether or not suppression is enabled or disabled
+     * @param writableStackTrace whether or not the stack trace should be writable
+     */
+    protected JwtException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+    /**
+     * Skip filling the stack trace when the stackless mode is enabled,
+     * rejected tokens on the hot path then cost only the allocation.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return stackTraceEnabled ? super.fillInStackTrace() : this;
+    }
+
+    public static boolean isStackTraceEnabled() {
+        return stackTraceEnabled;
+    }
+
+    /**
+     * Enable (debug) or disable (stackless) the stack traces of the JWT exceptions
+     *
+     * @param stackTraceEnabled false to skip fillInStackTrace and use the shared instances
+     */
+    public static void setStackTraceEnabled(boolean stackTraceEnabled) {
+        JwtException.stackTraceEnabled = stackTraceEnabled;
+    }
 	
 }
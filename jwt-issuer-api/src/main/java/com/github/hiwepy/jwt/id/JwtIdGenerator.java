@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.id;
+
+import java.util.UUID;
+
+import com.github.hiwepy.jwt.utils.StringUtils;
+
+/**
+ * Jwt Id（jti）生成器：签发时未传入 jwtId 的情况下由仓库调用生成
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public interface JwtIdGenerator {
+
+	/**
+	 * 不生成 Jwt Id，未传入 jwtId 时令牌不包含 jti（各仓库的默认值）
+	 */
+	public static final JwtIdGenerator NONE = () -> null;
+
+	/**
+	 * 36 位的 {@link UUID#randomUUID()}，所有线程共享同一个 SecureRandom
+	 */
+	public static final JwtIdGenerator RANDOM_UUID = () -> UUID.randomUUID().toString();
+
+	/**
+	 * 22 个 URL 安全字符、字符串按时间有序的 UUIDv7，每个线程独立生成，无锁
+	 */
+	public static final JwtIdGenerator TIME_ORDERED = new TimeOrderedJwtIdGenerator();
+
+	/**
+	 * Generate a new Jwt Id
+	 * @return The Jwt Id, or null if no Jwt Id should be issued
+	 */
+	String generate();
+
+	/**
+	 * Get the given Jwt Id, or generate a new one if it is blank
+	 * @param jwtId : The Jwt Id passed by the caller
+	 * @return The Jwt Id to issue
+	 */
+	default String getOrGenerate(String jwtId) {
+		return StringUtils.isNotBlank(jwtId) ? jwtId : this.generate();
+	}
+
+}
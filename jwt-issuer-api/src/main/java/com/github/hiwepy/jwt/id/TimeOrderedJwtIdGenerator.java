@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.id;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+
+/**
+ * 按时间有序的 Jwt Id 生成器：按 RFC 9562 UUIDv7 布局（48 位毫秒时间戳 + 12 位计数器 + 62 位随机数），
+ * 每 6 位编码为 1 个字符，共 22 个字符（{@link UUID#toString()} 为 36 个字符）。
+ * <p>字母表与 Base64URL 的字符相同（URL 安全），但按 ASCII 顺序排列（-0-9A-Z_a-z），Id 字符串的字典序即时间顺序，
+ * 不是标准的 Base64URL 编码。</p>
+ * <p>每个线程持有独立的随机数生成器（由 SecureRandom 播种一次）与计数器，生成过程无锁、无共享状态；
+ * 同一线程内生成的 Id 严格递增，时钟回拨时沿用上一次的时间戳。</p>
+ * <p>随机部分不是密码学安全的，Jwt Id 需要不可预测时请使用 {@link JwtIdGenerator#RANDOM_UUID}。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class TimeOrderedJwtIdGenerator implements JwtIdGenerator {
+
+	/**
+	 * 编码后的长度
+	 */
+	public static final int LENGTH = 22;
+
+	/**
+	 * 保持字典序的 64 字符字母表，按 ASCII 升序
+	 */
+	private static final char[] ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
+	private static final int[] VALUES = new int[128];
+	static {
+		Arrays.fill(VALUES, -1);
+		for (int i = 0; i < ALPHABET.length; i++) {
+			VALUES[ALPHABET[i]] = i;
+		}
+	}
+
+	/**
+	 * 12 位计数器的最大值
+	 */
+	private static final int MAX_COUNTER = 0xFFF;
+	private static final SecureRandom SEEDER = new SecureRandom();
+
+	private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+	private final JwtTimeProvider timeProvider;
+
+	public TimeOrderedJwtIdGenerator() {
+		this(JwtTimeProvider.DEFAULT_TIME_PROVIDER);
+	}
+
+	public TimeOrderedJwtIdGenerator(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	@Override
+	public String generate() {
+		State state = states.get();
+		long millis = timeProvider.now();
+		if (millis > state.millis) {
+			state.millis = millis;
+			// 新的毫秒从计数器的下半区随机起步，同一毫秒内至少还能递增 2048 次
+			state.counter = state.random.nextInt(MAX_COUNTER >>> 1);
+		} else if (++state.counter > MAX_COUNTER) {
+			// 同一毫秒内计数器用尽：借用下一毫秒，保持递增
+			state.millis++;
+			state.counter = 0;
+		}
+		long msb = (state.millis << 16) | 0x7000L | state.counter;
+		long lsb = (state.random.nextLong() >>> 2) | 0x8000000000000000L;
+		return encode(msb, lsb);
+	}
+
+	/**
+	 * Get the issue time of the Jwt Id
+	 * @param jwtId : The Jwt Id generated by this generator
+	 * @return The unix epoch milliseconds encoded in the first 8 characters (48 bits)
+	 * @throws IllegalArgumentException If the Jwt Id is not encoded by this generator
+	 */
+	public static long timestamp(String jwtId) {
+		if (jwtId == null || jwtId.length() < 8) {
+			throw new IllegalArgumentException("Illegal time ordered Jwt Id: " + jwtId);
+		}
+		long ret = 0;
+		for (int i = 0; i < 8; i++) {
+			ret = (ret << 6) | value(jwtId, i);
+		}
+		return ret;
+	}
+
+	/**
+	 * Decode the Jwt Id into the UUIDv7
+	 * @param jwtId : The Jwt Id generated by this generator
+	 * @return The UUID
+	 * @throws IllegalArgumentException If the Jwt Id is not a 22 characters value encoded by this generator
+	 */
+	public static UUID toUUID(String jwtId) {
+		if (jwtId == null || jwtId.length() != LENGTH) {
+			throw new IllegalArgumentException("Illegal time ordered Jwt Id: " + jwtId);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		for (int i = 0; i < 20; i += 4) {
+			int group = (value(jwtId, i) << 18) | (value(jwtId, i + 1) << 12) | (value(jwtId, i + 2) << 6) | value(jwtId, i + 3);
+			buffer.put((byte) (group >>> 16)).put((byte) (group >>> 8)).put((byte) group);
+		}
+		int last = value(jwtId, 21);
+		if ((last & 0xF) != 0) {
+			throw new IllegalArgumentException("Illegal time ordered Jwt Id: " + jwtId);
+		}
+		buffer.put((byte) ((value(jwtId, 20) << 2) | (last >>> 4)));
+		buffer.flip();
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+
+	/**
+	 * 16 字节按 3 字节一组编码：前 15 字节为 20 个字符，最后 1 字节为 2 个字符
+	 */
+	private static String encode(long msb, long lsb) {
+		char[] chars = new char[LENGTH];
+		int index = 0;
+		for (int i = 0; i < 15; i += 3) {
+			int group = (byteAt(msb, lsb, i) << 16) | (byteAt(msb, lsb, i + 1) << 8) | byteAt(msb, lsb, i + 2);
+			chars[index++] = ALPHABET[group >>> 18];
+			chars[index++] = ALPHABET[(group >>> 12) & 0x3F];
+			chars[index++] = ALPHABET[(group >>> 6) & 0x3F];
+			chars[index++] = ALPHABET[group & 0x3F];
+		}
+		int last = byteAt(msb, lsb, 15);
+		chars[index++] = ALPHABET[last >>> 2];
+		chars[index] = ALPHABET[(last & 0x3) << 4];
+		return new String(chars);
+	}
+
+	private static int value(String jwtId, int index) {
+		char c = jwtId.charAt(index);
+		int ret = c < VALUES.length ? VALUES[c] : -1;
+		if (ret < 0) {
+			throw new IllegalArgumentException("Illegal time ordered Jwt Id: " + jwtId);
+		}
+		return ret;
+	}
+
+	private static int byteAt(long msb, long lsb, int index) {
+		long bits = index < 8 ? msb >>> (56 - index * 8) : lsb >>> (56 - (index - 8) * 8);
+		return (int) (bits & 0xFF);
+	}
+
+	private static final class State {
+
+		private final SplittableRandom random = new SplittableRandom(SEEDER.nextLong());
+		private long millis;
+		private int counter;
+
+	}
+
+}
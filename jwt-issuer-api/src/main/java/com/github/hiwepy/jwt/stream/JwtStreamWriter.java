@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.stream;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import com.alibaba.fastjson2.JSONObject;
+
+/**
+ * 流式令牌写出器：将 JSON 声明直接以 Base64URL 编码写入可复用的字节缓冲区，并在写出签名输入（header.payload）的同时
+ * 分块交给 {@link SigningSink}，签名完成后在同一缓冲区追加签名段，一次得到紧凑序列化的令牌。
+ * <p>声明值按 JWT 的习惯写出：{@link Date} 写为秒级时间戳，Map、集合、数组递归写出，其他对象（POJO）经 fastjson2 转为 Map 后写出。</p>
+ * <p>实例不是线程安全的，通过 {@link #current()} 获取当前线程复用的实例。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtStreamWriter {
+
+	/**
+	 * 每累积多少字节的签名输入交给签名引擎一次
+	 */
+	public static final int SIGNING_CHUNK_SIZE = 4096;
+
+	/**
+	 * 超过此大小的缓冲区不在线程内保留，避免偶发的超大令牌长期占用内存
+	 */
+	public static final int MAXIMUM_RETAINED_CAPACITY = 64 * 1024;
+
+	private static final byte[] BASE64URL_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+			.getBytes(StandardCharsets.US_ASCII);
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final ThreadLocal<JwtStreamWriter> CURRENT = ThreadLocal.withInitial(JwtStreamWriter::new);
+
+	private byte[] buffer = new byte[1024];
+	private int count;
+	/**
+	 * 已交给签名引擎的字节数
+	 */
+	private int signed;
+	private SigningSink sink;
+	/**
+	 * Base64URL 编码状态：待编码的字节及其个数（0-2）
+	 */
+	private boolean encoding;
+	private int pending;
+	private int pendingBytes;
+	/**
+	 * JSON 状态：当前层级是否需要写出逗号
+	 */
+	private boolean comma;
+	/**
+	 * 整数转十进制时的临时缓冲区
+	 */
+	private final byte[] digits = new byte[20];
+
+	/**
+	 * Get the writer of the current thread, reset for a new token
+	 * @return The writer
+	 */
+	public static JwtStreamWriter current() {
+		JwtStreamWriter writer = CURRENT.get();
+		if (writer.buffer.length > MAXIMUM_RETAINED_CAPACITY) {
+			writer.buffer = new byte[1024];
+		}
+		return writer.reset(null);
+	}
+
+	/**
+	 * Reset the writer for a new token
+	 * @param sink : The receiver of the signing input, or null
+	 * @return This writer
+	 */
+	public JwtStreamWriter reset(SigningSink sink) {
+		this.sink = sink;
+		this.count = 0;
+		this.signed = 0;
+		this.encoding = false;
+		this.pending = 0;
+		this.pendingBytes = 0;
+		this.comma = false;
+		return this;
+	}
+
+	/**
+	 * Write an already encoded ASCII segment (e.g. the pre-encoded header) or a delimiter
+	 * @param ascii : The ASCII characters
+	 * @return This writer
+	 */
+	public JwtStreamWriter writeAscii(CharSequence ascii) {
+		int length = ascii.length();
+		this.ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			buffer[count++] = (byte) ascii.charAt(i);
+		}
+		return this.feed();
+	}
+
+	public JwtStreamWriter writeAscii(char ch) {
+		this.ensureCapacity(1);
+		buffer[count++] = (byte) ch;
+		return this.feed();
+	}
+
+	/**
+	 * Start a Base64URL encoded segment, the following bytes are encoded until {@link #endBase64()}
+	 * @return This writer
+	 */
+	public JwtStreamWriter beginBase64() {
+		this.encoding = true;
+		this.pending = 0;
+		this.pendingBytes = 0;
+		return this;
+	}
+
+	/**
+	 * End the Base64URL encoded segment, without padding
+	 * @return This writer
+	 */
+	public JwtStreamWriter endBase64() {
+		this.ensureCapacity(3);
+		if (pendingBytes == 1) {
+			buffer[count++] = BASE64URL_ALPHABET[(pending >> 2) & 0x3F];
+			buffer[count++] = BASE64URL_ALPHABET[(pending << 4) & 0x3F];
+		} else if (pendingBytes == 2) {
+			buffer[count++] = BASE64URL_ALPHABET[(pending >> 10) & 0x3F];
+			buffer[count++] = BASE64URL_ALPHABET[(pending >> 4) & 0x3F];
+			buffer[count++] = BASE64URL_ALPHABET[(pending << 2) & 0x3F];
+		}
+		this.encoding = false;
+		this.pending = 0;
+		this.pendingBytes = 0;
+		return this.feed();
+	}
+
+	/**
+	 * Write the bytes as a complete Base64URL segment, e.g. the signature
+	 * @param bytes : The bytes
+	 * @return This writer
+	 */
+	public JwtStreamWriter writeBase64(byte[] bytes) {
+		this.beginBase64();
+		for (byte b : bytes) {
+			this.write(b);
+		}
+		return this.endBase64();
+	}
+
+	/**
+	 * Hand the rest of the signing input to the sink, the following bytes are not signed
+	 * @return This writer
+	 */
+	public JwtStreamWriter endSigningInput() {
+		if (sink != null && count > signed) {
+			sink.update(buffer, signed, count - signed);
+		}
+		this.signed = count;
+		this.sink = null;
+		return this;
+	}
+
+	public JwtStreamWriter beginObject() {
+		this.write('{');
+		this.comma = false;
+		return this;
+	}
+
+	public JwtStreamWriter endObject() {
+		this.write('}');
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * Write a member of the current object
+	 * @param name 	: The member name
+	 * @param value : The member value
+	 * @return This writer
+	 */
+	public JwtStreamWriter member(String name, Object value) {
+		this.name(name);
+		this.value(value);
+		return this;
+	}
+
+	/**
+	 * Write a member of the current object with an integer value, without boxing
+	 * @param name 	: The member name
+	 * @param value : The member value
+	 * @return This writer
+	 */
+	public JwtStreamWriter member(String name, long value) {
+		this.name(name);
+		this.number(value);
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * Write the pre-serialized members of the current object, e.g. the static claims of a claims template
+	 * @param members : The JSON members without the surrounding braces, written as is
+	 * @return This writer
+	 */
+	public JwtStreamWriter members(CharSequence members) {
+		if (members == null || members.length() == 0) {
+			return this;
+		}
+		if (comma) {
+			this.write(',');
+		}
+		this.utf8(members, false);
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * Write a member name of the current object
+	 * @param name : The member name
+	 * @return This writer
+	 */
+	public JwtStreamWriter name(String name) {
+		if (comma) {
+			this.write(',');
+		}
+		this.string(name);
+		this.write(':');
+		this.comma = false;
+		return this;
+	}
+
+	/**
+	 * Write a JSON value
+	 * @param value : String, Number, Boolean, Date, Map, Iterable, array, Enum, POJO or null
+	 * @return This writer
+	 */
+	@SuppressWarnings("unchecked")
+	public JwtStreamWriter value(Object value) {
+		if (value == null) {
+			this.ascii("null");
+		} else if (value instanceof CharSequence) {
+			this.string(value.toString());
+		} else if (value instanceof Number) {
+			this.number((Number) value);
+		} else if (value instanceof Boolean) {
+			this.ascii(value.toString());
+		} else if (value instanceof Date) {
+			this.number(((Date) value).getTime() / 1000L);
+		} else if (value instanceof Map) {
+			this.beginObject();
+			for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+				this.member(String.valueOf(entry.getKey()), entry.getValue());
+			}
+			this.endObject();
+		} else if (value instanceof Iterable) {
+			this.write('[');
+			this.comma = false;
+			for (Object element : (Iterable<Object>) value) {
+				this.element(element);
+			}
+			this.write(']');
+		} else if (value.getClass().isArray()) {
+			this.write('[');
+			this.comma = false;
+			for (int i = 0, length = Array.getLength(value); i < length; i++) {
+				this.element(Array.get(value, i));
+			}
+			this.write(']');
+		} else if (value instanceof Enum) {
+			this.string(((Enum<?>) value).name());
+		} else if (value instanceof Character) {
+			this.string(value.toString());
+		} else {
+			this.value((Object) JSONObject.from(value));
+		}
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * The number of bytes written
+	 * @return The size
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * The internal buffer, valid until the next use of the writer
+	 * @return The buffer, the token is in [0, {@link #size()})
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Get a copy of the bytes written
+	 * @return The bytes
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, count);
+	}
+
+	@Override
+	public String toString() {
+		return new String(buffer, 0, count, StandardCharsets.US_ASCII);
+	}
+
+	private void element(Object element) {
+		if (comma) {
+			this.write(',');
+		}
+		this.value(element);
+	}
+
+	private void number(Number number) {
+		if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+			this.number(number.longValue());
+			return;
+		}
+		if (number instanceof Double || number instanceof Float) {
+			double value = number.doubleValue();
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				throw new IllegalArgumentException("JSON does not allow the number " + value);
+			}
+		}
+		this.ascii(number instanceof BigDecimal ? ((BigDecimal) number).toString() : number.toString());
+	}
+
+	private void number(long value) {
+		if (value == Long.MIN_VALUE) {
+			this.ascii(Long.toString(value));
+			return;
+		}
+		if (value < 0) {
+			this.write('-');
+			value = -value;
+		}
+		int index = digits.length;
+		do {
+			digits[--index] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		while (index < digits.length) {
+			this.write(digits[index++]);
+		}
+	}
+
+	private void ascii(String ascii) {
+		for (int i = 0; i < ascii.length(); i++) {
+			this.write(ascii.charAt(i));
+		}
+	}
+
+	private void string(String value) {
+		this.write('"');
+		this.utf8(value, true);
+		this.write('"');
+	}
+
+	/**
+	 * Write the characters as UTF-8, escaped as the content of a JSON string or as is
+	 */
+	private void utf8(CharSequence value, boolean escape) {
+		for (int i = 0, length = value.length(); i < length; i++) {
+			char ch = value.charAt(i);
+			if (escape && (ch == '"' || ch == '\\')) {
+				this.write('\\');
+				this.write(ch);
+			} else if (escape && (ch < 0x20 || ch == 0x2028 || ch == 0x2029)) {
+				this.escape(ch);
+			} else if (ch < 0x80) {
+				this.write(ch);
+			} else if (ch < 0x800) {
+				this.write(0xC0 | (ch >> 6));
+				this.write(0x80 | (ch & 0x3F));
+			} else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(ch, value.charAt(++i));
+				this.write(0xF0 | (codePoint >> 18));
+				this.write(0x80 | ((codePoint >> 12) & 0x3F));
+				this.write(0x80 | ((codePoint >> 6) & 0x3F));
+				this.write(0x80 | (codePoint & 0x3F));
+			} else if (Character.isSurrogate(ch)) {
+				// 不成对的代理字符
+				this.escape(ch);
+			} else {
+				this.write(0xE0 | (ch >> 12));
+				this.write(0x80 | ((ch >> 6) & 0x3F));
+				this.write(0x80 | (ch & 0x3F));
+			}
+		}
+	}
+
+	private void escape(char ch) {
+		switch (ch) {
+			case '\n':
+				this.ascii("\\n");
+				break;
+			case '\r':
+				this.ascii("\\r");
+				break;
+			case '\t':
+				this.ascii("\\t");
+				break;
+			default:
+				this.ascii("\\u");
+				this.write(HEX[(ch >> 12) & 0xF]);
+				this.write(HEX[(ch >> 8) & 0xF]);
+				this.write(HEX[(ch >> 4) & 0xF]);
+				this.write(HEX[ch & 0xF]);
+		}
+	}
+
+	/**
+	 * Write a byte, Base64URL encoded inside a segment
+	 */
+	private void write(int b) {
+		if (!encoding) {
+			this.ensureCapacity(1);
+			buffer[count++] = (byte) b;
+			return;
+		}
+		pending = (pending << 8) | (b & 0xFF);
+		if (++pendingBytes == 3) {
+			this.ensureCapacity(4);
+			buffer[count++] = BASE64URL_ALPHABET[(pending >> 18) & 0x3F];
+			buffer[count++] = BASE64URL_ALPHABET[(pending >> 12) & 0x3F];
+			buffer[count++] = BASE64URL_ALPHABET[(pending >> 6) & 0x3F];
+			buffer[count++] = BASE64URL_ALPHABET[pending & 0x3F];
+			pending = 0;
+			pendingBytes = 0;
+			if (count - signed >= SIGNING_CHUNK_SIZE) {
+				this.feed();
+			}
+		}
+	}
+
+	/**
+	 * Hand the encoded bytes since the last update to the sink
+	 */
+	private JwtStreamWriter feed() {
+		if (sink != null && count > signed) {
+			sink.update(buffer, signed, count - signed);
+			signed = count;
+		}
+		return this;
+	}
+
+	private void ensureCapacity(int length) {
+		if (count + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, count + length));
+		}
+	}
+
+}
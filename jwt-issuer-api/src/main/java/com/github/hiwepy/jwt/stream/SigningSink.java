@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.stream;
+
+/**
+ * 签名输入的接收方：{@link JwtStreamWriter} 在写出 JWS 签名输入（header.payload）的同时，分块将已编码的字节交给签名引擎
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@FunctionalInterface
+public interface SigningSink {
+
+	/**
+	 * Update the signature with the encoded bytes of the signing input
+	 * @param input 	: The buffer
+	 * @param offset 	: The offset of the first byte
+	 * @param length 	: The number of bytes
+	 */
+	void update(byte[] input, int offset, int length);
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.time;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 粗粒度缓存时钟：后台线程按固定间隔刷新当前时间快照（毫秒与秒），
+ * 签发与校验读取时间只是一次 volatile 读，不再调用 System.currentTimeMillis()。
+ * <p>{@link #nowDate()} 每次返回新的 Date：Date 可变，且会被 nimbus、jjwt 的声明对象直接持有，不能在调用方之间共享。</p>
+ * <p>JWT 的时间声明精度为秒，刷新间隔（默认 {@value #DEFAULT_TICK_INTERVAL} 毫秒）带来的滞后不影响 iat/nbf/exp。
+ * 关闭后退回到系统时钟。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CachedJwtTimeProvider implements JwtTimeProvider, Closeable {
+
+	/**
+	 * 默认刷新间隔（毫秒）
+	 */
+	public static final long DEFAULT_TICK_INTERVAL = 50;
+
+	private final ScheduledExecutorService scheduler;
+	/**
+	 * 当前时间快照，关闭后为 null
+	 */
+	private volatile Tick tick;
+
+	public CachedJwtTimeProvider() {
+		this(DEFAULT_TICK_INTERVAL);
+	}
+
+	/**
+	 * Start the ticker
+	 * @param tickInterval : The refresh interval in milliseconds, e.g. 10 - 100
+	 */
+	public CachedJwtTimeProvider(long tickInterval) {
+		if (tickInterval <= 0) {
+			throw new IllegalArgumentException("The tick interval must be positive: " + tickInterval);
+		}
+		this.tick = new Tick(System.currentTimeMillis());
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "jwt-time-provider");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleAtFixedRate(this::tick, tickInterval, tickInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get the shared instance ticking every {@value #DEFAULT_TICK_INTERVAL} milliseconds, started on first use
+	 * @return The shared instance
+	 */
+	public static CachedJwtTimeProvider getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	@Override
+	public long now() {
+		Tick tick = this.tick;
+		return tick != null ? tick.millis : System.currentTimeMillis();
+	}
+
+	@Override
+	public long nowSeconds() {
+		Tick tick = this.tick;
+		return tick != null ? tick.seconds : System.currentTimeMillis() / 1000L;
+	}
+
+	/**
+	 * Stop the ticker, the provider then reads the system clock
+	 */
+	@Override
+	public synchronized void close() {
+		scheduler.shutdownNow();
+		this.tick = null;
+	}
+
+	private synchronized void tick() {
+		if (!scheduler.isShutdown()) {
+			this.tick = new Tick(System.currentTimeMillis());
+		}
+	}
+
+	private static final class Tick {
+
+		private final long millis;
+		private final long seconds;
+
+		Tick(long millis) {
+			this.millis = millis;
+			this.seconds = millis / 1000L;
+		}
+
+	}
+
+	private static final class Holder {
+
+		private static final CachedJwtTimeProvider INSTANCE = new CachedJwtTimeProvider();
+
+	}
+
+}
@@ -15,6 +15,8 @@
  */
 package com.github.hiwepy.jwt.time;
 
+import java.util.Date;
+
 /**
  * 时间提供者，解决节点时间不同步问题
  * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
@@ -24,5 +26,21 @@ public interface JwtTimeProvider {
 	public static final JwtTimeProvider DEFAULT_TIME_PROVIDER = new DefaultJwtTimeProvider();
 	
 	long now();
+
+	/**
+	 * The current time in seconds, the precision of the JWT NumericDate (iat/nbf/exp)
+	 * @return The epoch seconds
+	 */
+	default long nowSeconds() {
+		return this.now() / 1000L;
+	}
+
+	/**
+	 * The current time as a new Date, the instance is handed to the claims set builders and must not be shared
+	 * @return The current time
+	 */
+	default Date nowDate() {
+		return new Date(this.now());
+	}
 	
 }
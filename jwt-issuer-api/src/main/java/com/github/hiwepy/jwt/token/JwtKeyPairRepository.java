@@ -1,10 +1,27 @@
 package com.github.hiwepy.jwt.token;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
+import com.github.hiwepy.jwt.batch.JwtBatchIssuer;
+import com.github.hiwepy.jwt.batch.JwtBatchVerifier;
+import com.github.hiwepy.jwt.concurrent.JwtExecutors;
 import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.utils.JwtHeaderUtils;
+import com.github.hiwepy.jwt.utils.JwtTokenUtils;
+import com.github.hiwepy.jwt.ClaimsTemplate;
+import com.github.hiwepy.jwt.IssueRequest;
+import com.github.hiwepy.jwt.IssueResult;
 import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.VerificationResult.Status;
 
 /**
  * JWT令牌存储库
@@ -48,6 +65,60 @@ public interface JwtKeyPairRepository<S, E> {
 	String issueJwt(S signingKey, E secretKey, String jwtId, String subject, String issuer, Set<String> audience,
 			Map<String, Object> claims, String algorithm, long period) throws JwtException;
 
+	/**
+	 * 基于声明模板生成JWT令牌：默认按原有方式构建声明，支持模板的实现只拼接 jti、sub 及时间声明
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param template 声明模板
+	 * @param jwtId 令牌ID
+	 * @param subject 主题
+	 * @param algorithm 算法
+	 * @param period 有效期
+	 * @return JWT令牌
+	 * @throws JwtException Jwt异常
+	 */
+	default String issueJwt(S signingKey, E secretKey, ClaimsTemplate template, String jwtId, String subject, String algorithm, long period) throws JwtException {
+		return this.issueJwt(signingKey, secretKey, jwtId, subject, template.getIssuer(), template.getAudience(), template.getClaims(), algorithm, period);
+	}
+
+	/**
+	 * 按签发请求生成JWT令牌：请求包含声明模板时使用模板，其次使用声明，否则使用角色与权限
+	 * @param request 签发请求
+	 * @return JWT令牌
+	 * @throws JwtException Jwt异常
+	 */
+	default String issueJwt(IssueRequest<S, E> request) throws JwtException {
+		if (request.getTemplate() != null) {
+			return this.issueJwt(request.getSigningKey(), request.getSecretKey(), request.getTemplate(), request.getJwtId(), request.getSubject(),
+					request.getAlgorithm(), request.getPeriod());
+		}
+		if (request.getClaims() != null) {
+			return this.issueJwt(request.getSigningKey(), request.getSecretKey(), request.getJwtId(), request.getSubject(), request.getIssuer(),
+					request.getAudience(), request.getClaims(), request.getAlgorithm(), request.getPeriod());
+		}
+		return this.issueJwt(request.getSigningKey(), request.getSecretKey(), request.getJwtId(), request.getSubject(), request.getIssuer(),
+				request.getAudience(), request.getRoles(), request.getPermissions(), request.getAlgorithm(), request.getPeriod());
+	}
+
+	/**
+	 * 批量签发JWT令牌（使用公共 ForkJoinPool 并行签名）
+	 * @param requests 签发请求
+	 * @return 按输入顺序排列的签发结果，单条请求失败不影响其他请求
+	 */
+	default List<IssueResult> issueJwts(List<? extends IssueRequest<S, E>> requests) {
+		return this.issueJwts(requests, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 批量签发JWT令牌：同一密钥的签名器、加密器状态只构建一次，之后在多核上并行签名
+	 * @param requests 签发请求
+	 * @param pool 执行签发的 ForkJoinPool
+	 * @return 按输入顺序排列的签发结果，单条请求失败不影响其他请求
+	 */
+	default List<IssueResult> issueJwts(List<? extends IssueRequest<S, E>> requests, ForkJoinPool pool) {
+		return JwtBatchIssuer.invokeAll(pool, requests, request -> Arrays.asList(request.getSigningKey(), request.getSecretKey()), request -> this.issueJwt(request));
+	}
+
 	/**
 	 * 验证JWT令牌
 	 * @param signingKey 签名密钥
@@ -71,4 +142,203 @@ public interface JwtKeyPairRepository<S, E> {
 	 */
 	JwtPayload getPlayload(S signingKey, E secretKey, String token, boolean checkExpiry)
 			throws JwtException;
+
+	/**
+	 * 一次性解析、验证JWT令牌并返回结果，避免先 verify 再 getPlayload 重复解析、解密与验签
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param token 令牌
+	 * @param checkExpiry 是否检查过期
+	 * @return 验证结果（状态、原因、载荷、头部）
+	 */
+	default VerificationResult validate(S signingKey, E secretKey, String token, boolean checkExpiry) {
+		try {
+			return VerificationResult.valid(this.getPlayload(signingKey, secretKey, token, checkExpiry), JwtHeaderUtils.header(token));
+		} catch (RuntimeException e) {
+			return VerificationResult.failure(e, JwtHeaderUtils.header(token));
+		}
+	}
+
+
+	/**
+	 * 验证JWT令牌（ASCII 字节区间输入，可带 "Bearer " 前缀，如直接传入 Authorization 请求头的原始字节）
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param token 令牌字节
+	 * @param offset 起始位置
+	 * @param length 字节长度
+	 * @param checkExpiry 是否检查过期
+	 * @return 是否验证通过
+	 * @throws JwtException Jwt异常
+	 */
+	default boolean verifyBytes(S signingKey, E secretKey, byte[] token, int offset, int length, boolean checkExpiry) throws JwtException {
+		return this.verify(signingKey, secretKey, JwtTokenUtils.token(token, offset, length), checkExpiry);
+	}
+
+	/**
+	 * 验证JWT令牌（ByteBuffer 输入，读取 position 到 limit 之间的 ASCII 字节，不改变缓冲区的 position，可带 "Bearer " 前缀）
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param token 令牌缓冲区
+	 * @param checkExpiry 是否检查过期
+	 * @return 是否验证通过
+	 * @throws JwtException Jwt异常
+	 */
+	default boolean verifyBuffer(S signingKey, E secretKey, ByteBuffer token, boolean checkExpiry) throws JwtException {
+		return this.verify(signingKey, secretKey, JwtTokenUtils.token(token), checkExpiry);
+	}
+
+	/**
+	 * 获取JWT内容（ASCII 字节区间输入，可带 "Bearer " 前缀，如直接传入 Authorization 请求头的原始字节）
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param token 令牌字节
+	 * @param offset 起始位置
+	 * @param length 字节长度
+	 * @param checkExpiry 是否检查过期
+	 * @return JWT内容
+	 * @throws JwtException Jwt异常
+	 */
+	default JwtPayload getPlayloadBytes(S signingKey, E secretKey, byte[] token, int offset, int length, boolean checkExpiry) throws JwtException {
+		return this.getPlayload(signingKey, secretKey, JwtTokenUtils.token(token, offset, length), checkExpiry);
+	}
+
+	/**
+	 * 获取JWT内容（ByteBuffer 输入，读取 position 到 limit 之间的 ASCII 字节，不改变缓冲区的 position，可带 "Bearer " 前缀）
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param token 令牌缓冲区
+	 * @param checkExpiry 是否检查过期
+	 * @return JWT内容
+	 * @throws JwtException Jwt异常
+	 */
+	default JwtPayload getPlayloadBuffer(S signingKey, E secretKey, ByteBuffer token, boolean checkExpiry) throws JwtException {
+		return this.getPlayload(signingKey, secretKey, JwtTokenUtils.token(token), checkExpiry);
+	}
+
+
+	/**
+	 * 批量验证JWT令牌（使用公共 ForkJoinPool 并行验证）
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param tokens 令牌集合
+	 * @param checkExpiry 是否检查过期
+	 * @return 按输入顺序排列的验证结果，单个令牌失败不影响其他令牌
+	 */
+	default List<VerificationResult> verifyAll(S signingKey, E secretKey, Collection<String> tokens, boolean checkExpiry) {
+		return this.verifyAll(signingKey, secretKey, tokens, checkExpiry, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 批量验证JWT令牌
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param tokens 令牌集合
+	 * @param checkExpiry 是否检查过期
+	 * @param pool 执行验证的 ForkJoinPool
+	 * @return 按输入顺序排列的验证结果（不含载荷），单个令牌失败不影响其他令牌
+	 */
+	default List<VerificationResult> verifyAll(S signingKey, E secretKey, Collection<String> tokens, boolean checkExpiry, ForkJoinPool pool) {
+		return JwtBatchVerifier.invokeAll(pool, tokens, token -> this.verify(signingKey, secretKey, token, checkExpiry)
+				? VerificationResult.of(Status.VALID, null, null, JwtHeaderUtils.header(token), null)
+				: VerificationResult.of(Status.INVALID, "Invalid JSON Web Token (JWT)", null, JwtHeaderUtils.header(token), null));
+	}
+
+	/**
+	 * 批量获取JWT内容（使用公共 ForkJoinPool 并行解析）
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param tokens 令牌集合
+	 * @param checkExpiry 是否检查过期
+	 * @return 按输入顺序排列的验证结果（含载荷），单个令牌失败不影响其他令牌
+	 */
+	default List<VerificationResult> getPayloadsAll(S signingKey, E secretKey, Collection<String> tokens, boolean checkExpiry) {
+		return this.getPayloadsAll(signingKey, secretKey, tokens, checkExpiry, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 批量获取JWT内容
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param tokens 令牌集合
+	 * @param checkExpiry 是否检查过期
+	 * @param pool 执行解析的 ForkJoinPool
+	 * @return 按输入顺序排列的验证结果（含载荷），单个令牌失败不影响其他令牌
+	 */
+	default List<VerificationResult> getPayloadsAll(S signingKey, E secretKey, Collection<String> tokens, boolean checkExpiry, ForkJoinPool pool) {
+		return JwtBatchVerifier.invokeAll(pool, tokens, token -> this.validate(signingKey, secretKey, token, checkExpiry));
+	}
+
+
+	/**
+	 * 异步 API 使用的执行器，默认为 {@link JwtExecutors#getDefaultExecutor()}，实现类可覆盖以单独指定
+	 * @return 执行器
+	 */
+	default Executor getAsyncExecutor() {
+		return JwtExecutors.getDefaultExecutor();
+	}
+
+	/**
+	 * 异步生成JWT令牌
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param jwtId 令牌ID
+	 * @param subject 主题
+	 * @param issuer 签发者
+	 * @param audience 接收者
+	 * @param roles 角色
+	 * @param permissions 权限
+	 * @param algorithm 算法
+	 * @param period 有效期
+	 * @return JWT令牌，失败时直接以 JwtException（不经 CompletionException 包装）异常完成
+	 */
+	default CompletableFuture<String> issueJwtAsync(S signingKey, E secretKey, String jwtId, String subject, String issuer, Set<String> audience,
+			String roles, String permissions, String algorithm, long period) {
+		return JwtExecutors.supplyAsync(() -> this.issueJwt(signingKey, secretKey, jwtId, subject, issuer, audience, roles, permissions, algorithm, period),
+				this.getAsyncExecutor());
+	}
+
+	/**
+	 * 异步生成JWT令牌
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param jwtId 令牌ID
+	 * @param subject 主题
+	 * @param issuer 签发者
+	 * @param audience 接收者
+	 * @param claims 声明
+	 * @param algorithm 算法
+	 * @param period 有效期
+	 * @return JWT令牌，失败时直接以 JwtException（不经 CompletionException 包装）异常完成
+	 */
+	default CompletableFuture<String> issueJwtAsync(S signingKey, E secretKey, String jwtId, String subject, String issuer, Set<String> audience,
+			Map<String, Object> claims, String algorithm, long period) {
+		return JwtExecutors.supplyAsync(() -> this.issueJwt(signingKey, secretKey, jwtId, subject, issuer, audience, claims, algorithm, period),
+				this.getAsyncExecutor());
+	}
+
+	/**
+	 * 异步验证JWT令牌
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param token 令牌
+	 * @param checkExpiry 是否检查过期
+	 * @return 是否验证通过，失败时直接以 JwtException（不经 CompletionException 包装）异常完成
+	 */
+	default CompletableFuture<Boolean> verifyAsync(S signingKey, E secretKey, String token, boolean checkExpiry) {
+		return JwtExecutors.supplyAsync(() -> this.verify(signingKey, secretKey, token, checkExpiry), this.getAsyncExecutor());
+	}
+
+	/**
+	 * 异步获取JWT内容
+	 * @param signingKey 签名密钥
+	 * @param secretKey 加密密钥
+	 * @param token 令牌
+	 * @param checkExpiry 是否检查过期
+	 * @return JWT内容，失败时直接以 JwtException（不经 CompletionException 包装）异常完成
+	 */
+	default CompletableFuture<JwtPayload> getPlayloadAsync(S signingKey, E secretKey, String token, boolean checkExpiry) {
+		return JwtExecutors.supplyAsync(() -> this.getPlayload(signingKey, secretKey, token, checkExpiry), this.getAsyncExecutor());
+	}
+
 }
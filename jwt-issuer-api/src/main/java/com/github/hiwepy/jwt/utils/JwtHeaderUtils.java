@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.utils;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+
+/**
+ * JWT（JWS/JWE 紧凑格式）头部解析工具，只解码第一段，不做任何验签或解密
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtHeaderUtils {
+
+	public static final String KEY_ID = "kid";
+
+	/**
+	 * Decode the (unverified) header of the compact serialized token
+	 * @param token : JSON Web Token (JWT)
+	 * @return The header parameters, empty if the header could not be decoded
+	 */
+	public static Map<String, Object> header(String token) {
+		int index = token == null ? -1 : JwtTokenUtils.headerEnd(token);
+		if (index <= 0) {
+			return Collections.emptyMap();
+		}
+		try {
+			// Decode the header segment in place, without the substring
+			JSONObject header = JSON.parseObject(JwtTokenUtils.decodeSegment(token, 0, index));
+			return header == null ? Collections.emptyMap() : header;
+		} catch (RuntimeException e) {
+			return Collections.emptyMap();
+		}
+	}
+
+	/**
+	 * Read the kid of the (unverified) header
+	 * @param token : JSON Web Token (JWT)
+	 * @return The key id, or null if absent
+	 */
+	public static String keyId(String token) {
+		Object keyId = header(token).get(KEY_ID);
+		return keyId == null ? null : keyId.toString();
+	}
+
+}
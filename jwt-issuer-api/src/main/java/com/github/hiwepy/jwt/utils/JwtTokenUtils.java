@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+
+/**
+ * 令牌输入工具：直接在 CharSequence、byte[]、ByteBuffer 上定位令牌区间（去除 "Bearer " 前缀与首尾空白）、
+ * 校验分段结构，并可原地解码 Base64URL 分段，不产生中间子串。
+ * <p>格式错误的输入在分配任何 String 之前即被拒绝；合法令牌只物化一次为 String 交给底层 JOSE 库。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtTokenUtils {
+
+	public static final String BEARER_PREFIX = "Bearer ";
+
+	private static final byte[] BASE64URL_DECODE_TABLE = new byte[128];
+
+	static {
+		Arrays.fill(BASE64URL_DECODE_TABLE, (byte) -1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+		for (int i = 0; i < alphabet.length(); i++) {
+			BASE64URL_DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
+		}
+	}
+
+	/**
+	 * Get the token of the input, strip the "Bearer " prefix and surrounding whitespace
+	 * @param token : The token, or the Authorization header value
+	 * @return The compact serialized token, the same instance if the input is already a bare token String
+	 * @throws IncorrectJwtException If the input is not a compact serialized JWS/JWE
+	 */
+	public static String token(CharSequence token) throws IncorrectJwtException {
+		if (token == null) {
+			throw new IncorrectJwtException("JWT String argument cannot be null or empty.");
+		}
+		int end = trimEnd(token, 0, token.length());
+		int start = tokenStart(token, 0, end);
+		checkSegments(token, start, end);
+		if (start == 0 && end == token.length() && token instanceof String) {
+			return (String) token;
+		}
+		return token.subSequence(start, end).toString();
+	}
+
+	/**
+	 * Get the token of the ASCII bytes, strip the "Bearer " prefix and surrounding whitespace
+	 * @param token 	: The token bytes, or the Authorization header value bytes
+	 * @param offset 	: The offset of the first byte
+	 * @param length 	: The number of bytes
+	 * @return The compact serialized token
+	 * @throws IncorrectJwtException If the input is not a compact serialized JWS/JWE
+	 */
+	public static String token(byte[] token, int offset, int length) throws IncorrectJwtException {
+		if (token == null || offset < 0 || length < 0 || offset + length > token.length) {
+			throw new IncorrectJwtException("JWT bytes argument cannot be null or out of bounds.");
+		}
+		AsciiSequence sequence = new AsciiSequence(ByteBuffer.wrap(token), offset, offset + length);
+		int end = trimEnd(sequence, 0, length);
+		int start = tokenStart(sequence, 0, end);
+		checkSegments(sequence, start, end);
+		return new String(token, offset + start, end - start, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Get the token of the remaining ASCII bytes of the buffer, the position and limit of the buffer are not changed
+	 * @param token : The token buffer, or the Authorization header value buffer
+	 * @return The compact serialized token
+	 * @throws IncorrectJwtException If the input is not a compact serialized JWS/JWE
+	 */
+	public static String token(ByteBuffer token) throws IncorrectJwtException {
+		if (token == null) {
+			throw new IncorrectJwtException("JWT buffer argument cannot be null.");
+		}
+		if (token.hasArray()) {
+			return token(token.array(), token.arrayOffset() + token.position(), token.remaining());
+		}
+		AsciiSequence sequence = new AsciiSequence(token, token.position(), token.limit());
+		int end = trimEnd(sequence, 0, sequence.length());
+		int start = tokenStart(sequence, 0, end);
+		checkSegments(sequence, start, end);
+		return sequence.subSequence(start, end).toString();
+	}
+
+	/**
+	 * Decode a Base64URL segment of the token in place, without creating a substring
+	 * @param token : The compact serialized token
+	 * @param start : The start index of the segment (inclusive)
+	 * @param end 	: The end index of the segment (exclusive)
+	 * @return The decoded bytes
+	 * @throws IllegalArgumentException If the segment is not valid Base64URL
+	 */
+	public static byte[] decodeSegment(CharSequence token, int start, int end) {
+		while (end > start && token.charAt(end - 1) == '=') {
+			end--;
+		}
+		int length = end - start;
+		if (length % 4 == 1) {
+			throw new IllegalArgumentException("Illegal Base64URL length: " + length);
+		}
+		byte[] ret = new byte[length * 3 / 4];
+		int bits = 0, buffer = 0, index = 0;
+		for (int i = start; i < end; i++) {
+			buffer = (buffer << 6) | decode(token.charAt(i));
+			bits += 6;
+			if (bits >= 8) {
+				bits -= 8;
+				ret[index++] = (byte) (buffer >> bits);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Get the end index of the first segment (the header) of the token
+	 * @param token : The compact serialized token
+	 * @return The index of the first '.', or -1 if absent
+	 */
+	public static int headerEnd(CharSequence token) {
+		for (int i = 0, length = token.length(); i < length; i++) {
+			if (token.charAt(i) == '.') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int decode(char ch) {
+		int value = ch < 128 ? BASE64URL_DECODE_TABLE[ch] : -1;
+		if (value < 0) {
+			throw new IllegalArgumentException("Illegal Base64URL character: " + ch);
+		}
+		return value;
+	}
+
+	private static int trimEnd(CharSequence token, int start, int end) {
+		while (end > start && Character.isWhitespace(token.charAt(end - 1))) {
+			end--;
+		}
+		return end;
+	}
+
+	private static int tokenStart(CharSequence token, int start, int end) {
+		while (start < end && Character.isWhitespace(token.charAt(start))) {
+			start++;
+		}
+		int prefix = BEARER_PREFIX.length();
+		if (end - start >= prefix && regionMatches(token, start, BEARER_PREFIX)) {
+			start += prefix;
+			while (start < end && Character.isWhitespace(token.charAt(start))) {
+				start++;
+			}
+		}
+		return start;
+	}
+
+	private static boolean regionMatches(CharSequence token, int start, String prefix) {
+		for (int i = 0; i < prefix.length(); i++) {
+			if (Character.toLowerCase(token.charAt(start + i)) != Character.toLowerCase(prefix.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * JWS compact serialization has 3 segments, JWE compact serialization has 5 segments,
+	 * '=' is only allowed as trailing padding (at most 2) of a segment
+	 */
+	private static void checkSegments(CharSequence token, int start, int end) {
+		if (start >= end) {
+			throw new IncorrectJwtException("JWT String argument cannot be null or empty.");
+		}
+		int dots = 0, padding = 0;
+		for (int i = start; i < end; i++) {
+			char ch = token.charAt(i);
+			if (ch == '.') {
+				dots++;
+				padding = 0;
+			} else if (ch == '=' ? ++padding > 2 : padding > 0 || ch >= 128 || BASE64URL_DECODE_TABLE[ch] < 0) {
+				throw new IncorrectJwtException("Invalid JWT character at index " + (i - start));
+			}
+		}
+		if (dots != 2 && dots != 4) {
+			throw new IncorrectJwtException("Invalid serialized JWT object: Missing part delimiters");
+		}
+	}
+
+	/**
+	 * Read-only ASCII view of a buffer region, indexes are relative to the start of the region
+	 */
+	private static final class AsciiSequence implements CharSequence {
+
+		private final ByteBuffer buffer;
+		private final int start;
+		private final int end;
+
+		AsciiSequence(ByteBuffer buffer, int start, int end) {
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("index: " + index + ", length: " + (end - start));
+			}
+			return (char) (buffer.get(start + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to) {
+				throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + (end - start));
+			}
+			return new AsciiSequence(buffer, start + from, start + to);
+		}
+
+		@Override
+		public String toString() {
+			char[] chars = new char[end - start];
+			for (int i = start; i < end; i++) {
+				chars[i - start] = (char) (buffer.get(i) & 0xFF);
+			}
+			return new String(chars);
+		}
+
+	}
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * 默认异步执行器的提供者（Java 21 版本）：每个任务一个虚拟线程。
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+final class JwtExecutorProvider {
+
+	private JwtExecutorProvider() {
+	}
+
+	static Executor newDefaultExecutor() {
+		return Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+}
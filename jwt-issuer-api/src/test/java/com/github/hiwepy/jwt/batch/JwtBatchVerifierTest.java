@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.VerificationResult.Status;
+
+/**
+ * {@link JwtBatchVerifier} 测试：结果顺序、异常转换、分块回退与非法批大小
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtBatchVerifierTest {
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private final List<String> tokens = IntStream.range(0, 100).mapToObj(i -> "token-" + i).collect(Collectors.toList());
+
+	@AfterEach
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	private static VerificationResult verify(String token) {
+		if (token.endsWith("7")) {
+			throw new IllegalStateException("boom");
+		}
+		return VerificationResult.of(Status.VALID, token, null, null, null);
+	}
+
+	@Test
+	public void resultsKeepTheInputOrder() {
+		List<VerificationResult> results = JwtBatchVerifier.invokeAll(pool, tokens, JwtBatchVerifierTest::verify);
+		assertEquals(100, results.size());
+		for (int i = 0; i < 100; i++) {
+			if (i % 10 == 7) {
+				assertFalse(results.get(i).isValid());
+			} else {
+				assertEquals("token-" + i, results.get(i).getReason());
+			}
+		}
+	}
+
+	@Test
+	public void chunksKeepTheInputOrder() {
+		List<VerificationResult> results = JwtBatchVerifier.invokeAll(pool, tokens, 16,
+				chunk -> chunk.stream().map(token -> VerificationResult.of(Status.VALID, token, null, null, null))
+						.collect(Collectors.toList()));
+		for (int i = 0; i < 100; i++) {
+			assertEquals("token-" + i, results.get(i).getReason());
+		}
+	}
+
+	@Test
+	public void failedChunkFallsBackTokenByToken() {
+		List<VerificationResult> results = JwtBatchVerifier.invokeAll(pool, tokens, 16, chunk -> {
+			if (chunk.size() > 1) {
+				// the wrong number of results, falls back to one by one
+				return new ArrayList<>();
+			}
+			return Collections.singletonList(verify(chunk.get(0)));
+		});
+		assertEquals(100, results.size());
+		assertTrue(results.get(0).isValid());
+		assertFalse(results.get(7).isValid());
+		assertEquals("token-99", results.get(99).getReason());
+	}
+
+	@Test
+	public void rejectsNonPositiveBatchSize() {
+		assertThrows(IllegalArgumentException.class, () -> JwtBatchVerifier.invokeAll(pool, tokens, 0, chunk -> null));
+		assertThrows(IllegalArgumentException.class, () -> JwtBatchVerifier.invokeAll(pool, tokens, -1, chunk -> null));
+	}
+
+	@Test
+	public void emptyInput() {
+		assertTrue(JwtBatchVerifier.invokeAll(pool, Collections.emptyList(), JwtBatchVerifierTest::verify).isEmpty());
+		assertTrue(JwtBatchVerifier.invokeAll(pool, null, 8, chunk -> null).isEmpty());
+	}
+
+}
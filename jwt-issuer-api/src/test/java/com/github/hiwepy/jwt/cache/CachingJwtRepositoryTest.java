@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.text.ParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.VerificationResult.Status;
+import com.github.hiwepy.jwt.exception.ExpiredJwtException;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.exception.NotObtainedJwtException;
+import com.github.hiwepy.jwt.token.JwtRepository;
+
+/**
+ * {@link CachingJwtRepository} 测试：verify 与 getPlayload 均填充缓存，失败时只验证一次并由结果得出返回值或异常
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CachingJwtRepositoryTest {
+
+	private static final String VALID = JwtPayloadCacheTest.token("k1", 1);
+	private static final String INVALID = JwtPayloadCacheTest.token("k1", 2);
+	private static final String EXPIRED = JwtPayloadCacheTest.token("k1", 3);
+
+	private final AtomicInteger verifications = new AtomicInteger();
+
+	private final JwtRepository<String> delegate = new JwtRepository<String>() {
+
+		@Override
+		public String issueJwt(String signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+				String roles, String permissions, String algorithm, long period) throws JwtException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String issueJwt(String signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+				Map<String, Object> claims, String algorithm, long period) throws JwtException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean verify(String signingKey, String token, boolean checkExpiry) throws JwtException {
+			verifications.incrementAndGet();
+			return VALID.equals(token);
+		}
+
+		@Override
+		public JwtPayload getPlayload(String signingKey, String token, boolean checkExpiry) throws JwtException {
+			verifications.incrementAndGet();
+			if (EXPIRED.equals(token)) {
+				throw ExpiredJwtException.expired();
+			}
+			if (!VALID.equals(token)) {
+				throw new JwtException("Invalid JSON Web Token (JWT)");
+			}
+			return JwtPayloadCacheTest.payload(System.currentTimeMillis() + 60_000, null);
+		}
+
+	};
+
+	@Test
+	public void verifyPopulatesCache() {
+		CachingJwtRepository<String> repository = new CachingJwtRepository<>(delegate);
+		assertTrue(repository.verify("key", VALID, true));
+		assertEquals(1, repository.getPayloadCache().size());
+		assertTrue(repository.verify("key", VALID, true));
+		JwtPayload payload = repository.getPlayload("key", VALID, true);
+		assertSame(payload, repository.getPlayload("key", VALID, true));
+		assertEquals(1, verifications.get());
+	}
+
+	@Test
+	public void getPlayloadPopulatesCache() {
+		CachingJwtRepository<String> repository = new CachingJwtRepository<>(delegate);
+		repository.getPlayload("key", VALID, true);
+		assertTrue(repository.verify("key", VALID, true));
+		assertEquals(1, verifications.get());
+	}
+
+	@Test
+	public void otherKeyIsVerifiedAgain() {
+		CachingJwtRepository<String> repository = new CachingJwtRepository<>(delegate);
+		repository.verify("key", VALID, true);
+		repository.verify("other", VALID, true);
+		assertEquals(2, verifications.get());
+	}
+
+	@Test
+	public void failureIsVerifiedOnce() {
+		CachingJwtRepository<String> repository = new CachingJwtRepository<>(delegate);
+		assertFalse(repository.verify("key", INVALID, true));
+		assertEquals(1, verifications.get());
+		assertThrows(ExpiredJwtException.class, () -> repository.verify("key", EXPIRED, true));
+		assertEquals(2, verifications.get());
+		assertThrows(JwtException.class, () -> repository.getPlayload("key", INVALID, true));
+		assertEquals(3, verifications.get());
+		assertEquals(0, repository.getPayloadCache().size());
+	}
+
+	@Test
+	public void failureIsDerivedFromTheResult() {
+		assertFalse(CachingJwtRepository.verified(VerificationResult.of(Status.INVALID, "signature", null, null, new JwtException("signature"))));
+		assertThrows(NotObtainedJwtException.class, () -> CachingJwtRepository.verified(
+				VerificationResult.failure(new NotObtainedJwtException("nbf"), null)));
+		assertThrows(IncorrectJwtException.class, () -> CachingJwtRepository.verified(
+				VerificationResult.of(Status.MALFORMED, "json", null, null, new ParseException("json", 0))));
+		assertThrows(JwtException.class, () -> CachingJwtRepository.verified(VerificationResult.of(Status.EXPIRED, "exp", null, null, null)));
+	}
+
+}
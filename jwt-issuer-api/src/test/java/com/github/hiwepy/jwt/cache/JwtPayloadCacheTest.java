@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.JwtPayload;
+
+/**
+ * {@link JwtPayloadCache} 测试：过期、生效时间、LRU 淘汰与按 kid 失效
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtPayloadCacheTest {
+
+	private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+
+	static String token(String keyId, int n) {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String header = "{\"alg\":\"HS256\"" + (keyId == null ? "" : ",\"kid\":\"" + keyId + "\"") + "}";
+		return encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+				+ encoder.encodeToString(("{\"n\":" + n + "}").getBytes(StandardCharsets.UTF_8)) + ".sig";
+	}
+
+	static JwtPayload payload(Long expiration, Long notBefore) {
+		JwtPayload payload = new JwtPayload();
+		payload.setExpiration(expiration == null ? null : new Date(expiration));
+		payload.setNotBefore(notBefore == null ? null : new Date(notBefore));
+		return payload;
+	}
+
+	private JwtPayloadCache cache(int maximumSize, long maximumTtl) {
+		JwtPayloadCache cache = new JwtPayloadCache(maximumSize, maximumTtl);
+		cache.setTimeProvider(clock::get);
+		return cache;
+	}
+
+	@Test
+	public void hitUntilExpiration() {
+		JwtPayloadCache cache = this.cache(100, 60_000);
+		String token = token("k1", 1);
+		ByteBuffer digest = cache.digest(token);
+		JwtPayload payload = payload(clock.get() + 1_000, null);
+		cache.put(digest, token, "key", payload);
+
+		assertSame(payload, cache.get(digest, "key"));
+		clock.addAndGet(1_000);
+		assertNull(cache.get(digest, "key"));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void maximumTtlBoundsTokensWithoutExpiration() {
+		JwtPayloadCache cache = this.cache(100, 500);
+		String token = token(null, 1);
+		ByteBuffer digest = cache.digest(token);
+		cache.put(digest, token, "key", payload(null, null));
+
+		clock.addAndGet(499);
+		assertNotNull(cache.get(digest, "key"));
+		clock.addAndGet(1);
+		assertNull(cache.get(digest, "key"));
+	}
+
+	@Test
+	public void expiredOrNotYetValidTokensAreNotCached() {
+		JwtPayloadCache cache = this.cache(100, 60_000);
+		String token = token("k1", 1);
+		cache.put(cache.digest(token), token, "key", payload(clock.get(), null));
+		cache.put(cache.digest(token), token, "key", payload(clock.get() + 10_000, clock.get() + 5_000));
+		cache.put(cache.digest(token), token, "key", null);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void otherKeyMisses() {
+		JwtPayloadCache cache = this.cache(100, 60_000);
+		String token = token("k1", 1);
+		ByteBuffer digest = cache.digest(token);
+		cache.put(digest, token, "key", payload(clock.get() + 10_000, null));
+
+		assertNull(cache.get(digest, "other"));
+		assertNull(cache.get(digest, null));
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		// 16 个分段，每段容量 1
+		JwtPayloadCache cache = this.cache(16, 60_000);
+		for (int i = 0; i < 1000; i++) {
+			String token = token("k1", i);
+			cache.put(cache.digest(token), token, "key", payload(clock.get() + 10_000, null));
+			assertTrue(cache.size() <= 16);
+		}
+		assertTrue(cache.getEvictionCount() >= 1000 - 16);
+	}
+
+	@Test
+	public void invalidateByKeyIdMatchesExactly() {
+		JwtPayloadCache cache = this.cache(1000, 60_000);
+		for (int i = 0; i < 10; i++) {
+			String t1 = token("k1", i);
+			String t10 = token("k10", i);
+			cache.put(cache.digest(t1), t1, "key", payload(clock.get() + 10_000, null));
+			cache.put(cache.digest(t10), t10, "key", payload(clock.get() + 10_000, null));
+		}
+		assertEquals(10, cache.invalidateByKeyId("k1"));
+		assertEquals(10, cache.size());
+		cache.invalidate(token("k10", 0));
+		assertEquals(9, cache.size());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void rejectsNonPositiveMaximumSize() {
+		assertThrows(IllegalArgumentException.class, () -> new JwtPayloadCache(0, 1000));
+	}
+
+}
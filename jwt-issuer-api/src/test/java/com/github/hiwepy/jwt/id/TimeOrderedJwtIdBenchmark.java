@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.id;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TimeOrderedJwtIdGenerator} 与 {@link JwtIdGenerator#RANDOM_UUID} 的生成耗时对比
+ * <p>多线程下 {@link java.util.UUID#randomUUID()} 共享同一个 SecureRandom，时间有序生成器每个线程独立生成。</p>
+ * <pre>
+ * java -cp ... com.github.hiwepy.jwt.id.TimeOrderedJwtIdBenchmark [iterations] [threads]
+ * </pre>
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class TimeOrderedJwtIdBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+		JwtIdGenerator timeOrdered = new TimeOrderedJwtIdGenerator();
+		System.out.printf("%-16s %8s %14s %14s%n", "generator", "length", "1 thread ns/op", threads + " threads ns/op");
+		run("randomUUID", JwtIdGenerator.RANDOM_UUID, iterations, threads);
+		run("time ordered", timeOrdered, iterations, threads);
+	}
+
+	private static void run(String name, JwtIdGenerator generator, int iterations, int threads) throws Exception {
+		// warm up
+		generate(generator, Math.min(iterations, 100_000));
+		long start = System.nanoTime();
+		generate(generator, iterations);
+		double single = (System.nanoTime() - start) / (double) iterations;
+
+		CountDownLatch ready = new CountDownLatch(threads);
+		CountDownLatch go = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				ready.countDown();
+				try {
+					go.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				generate(generator, iterations / threads);
+				done.countDown();
+			}).start();
+		}
+		ready.await();
+		start = System.nanoTime();
+		go.countDown();
+		done.await(5, TimeUnit.MINUTES);
+		// wall time per id over all threads
+		double multi = (System.nanoTime() - start) / (double) (iterations / threads * threads);
+
+		System.out.printf("%-16s %8d %14.1f %14.1f%n", name, generator.generate().length(), single, multi);
+	}
+
+	private static int generate(JwtIdGenerator generator, int iterations) {
+		int ret = 0;
+		for (int i = 0; i < iterations; i++) {
+			ret += generator.generate().length();
+		}
+		return ret;
+	}
+
+}
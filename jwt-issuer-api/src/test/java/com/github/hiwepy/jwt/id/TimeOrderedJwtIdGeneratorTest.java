@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link TimeOrderedJwtIdGenerator} 测试：唯一性、线程内严格递增（Id 字符串与 UUID）、字符串字典序即时间顺序与 UUIDv7 布局
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class TimeOrderedJwtIdGeneratorTest {
+
+	private static final long NOW = 1_700_000_000_000L;
+
+	/**
+	 * 1M 个 Id 由 4 个线程生成，线程内严格递增且全局唯一
+	 */
+	@Test
+	public void millionIdsAreUniqueAndOrderedPerThread() throws Exception {
+		TimeOrderedJwtIdGenerator generator = new TimeOrderedJwtIdGenerator();
+		int threads = 4;
+		int perThread = 250_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<UUID[]>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit((Callable<UUID[]>) () -> {
+					UUID[] ids = new UUID[perThread];
+					String previous = null;
+					for (int i = 0; i < perThread; i++) {
+						String jwtId = generator.generate();
+						ids[i] = TimeOrderedJwtIdGenerator.toUUID(jwtId);
+						if (i > 0) {
+							assertTrue(previous.compareTo(jwtId) < 0, "Not strictly increasing at " + i);
+							assertTrue(compare(ids[i - 1], ids[i]) < 0, "Not strictly increasing at " + i);
+						}
+						previous = jwtId;
+					}
+					return ids;
+				}));
+			}
+			UUID[] all = new UUID[threads * perThread];
+			for (int t = 0; t < threads; t++) {
+				System.arraycopy(futures.get(t).get(), 0, all, t * perThread, perThread);
+			}
+			Arrays.sort(all);
+			for (int i = 1; i < all.length; i++) {
+				assertTrue(!all[i - 1].equals(all[i]), "Duplicate Jwt Id: " + all[i]);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void layoutIsUuidVersion7() {
+		TimeOrderedJwtIdGenerator generator = new TimeOrderedJwtIdGenerator(() -> NOW);
+		String jwtId = generator.generate();
+		assertEquals(TimeOrderedJwtIdGenerator.LENGTH, jwtId.length());
+		assertTrue(jwtId.matches("[A-Za-z0-9_-]{22}"), jwtId);
+
+		UUID uuid = TimeOrderedJwtIdGenerator.toUUID(jwtId);
+		assertEquals(7, uuid.version());
+		assertEquals(2, uuid.variant());
+		assertEquals(NOW, uuid.getMostSignificantBits() >>> 16);
+		assertEquals(NOW, TimeOrderedJwtIdGenerator.timestamp(jwtId));
+	}
+
+	/**
+	 * The raw strings sort by time, across the whole 48 bits timestamp range
+	 */
+	@Test
+	public void stringsSortByTime() {
+		AtomicLong clock = new AtomicLong();
+		SplittableRandom random = new SplittableRandom(20);
+		long[] times = new long[10_000];
+		String[] ids = new String[times.length];
+		for (int i = 0; i < times.length; i++) {
+			// a fresh generator per time, the clock of a single generator never goes back
+			times[i] = random.nextLong(1L << 48);
+			clock.set(times[i]);
+			ids[i] = new TimeOrderedJwtIdGenerator(clock::get).generate();
+		}
+		for (int i = 1; i < times.length; i++) {
+			assertEquals(Long.signum(Long.compare(times[i - 1], times[i])), Integer.signum(ids[i - 1].compareTo(ids[i])),
+					ids[i - 1] + " / " + ids[i]);
+			assertEquals(times[i], TimeOrderedJwtIdGenerator.timestamp(ids[i]));
+		}
+	}
+
+	@Test
+	public void counterOverflowBorrowsTheNextMillisecond() {
+		TimeOrderedJwtIdGenerator generator = new TimeOrderedJwtIdGenerator(() -> NOW);
+		String previousId = generator.generate();
+		UUID previous = TimeOrderedJwtIdGenerator.toUUID(previousId);
+		// 12 位计数器在同一毫秒内最多 4096 个值
+		for (int i = 0; i < 10_000; i++) {
+			String nextId = generator.generate();
+			UUID next = TimeOrderedJwtIdGenerator.toUUID(nextId);
+			assertTrue(previousId.compareTo(nextId) < 0);
+			assertTrue(compare(previous, next) < 0);
+			previousId = nextId;
+			previous = next;
+		}
+		assertTrue(previous.getMostSignificantBits() >>> 16 > NOW);
+	}
+
+	@Test
+	public void clockRollbackKeepsTheOrder() {
+		AtomicLong clock = new AtomicLong(NOW);
+		TimeOrderedJwtIdGenerator generator = new TimeOrderedJwtIdGenerator(clock::get);
+		String first = generator.generate();
+		clock.addAndGet(-5_000);
+		String second = generator.generate();
+		assertTrue(first.compareTo(second) < 0);
+		assertTrue(compare(TimeOrderedJwtIdGenerator.toUUID(first), TimeOrderedJwtIdGenerator.toUUID(second)) < 0);
+		assertEquals(NOW, TimeOrderedJwtIdGenerator.timestamp(second));
+	}
+
+	@Test
+	public void illegalJwtIdIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedJwtIdGenerator.toUUID(null));
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedJwtIdGenerator.toUUID(UUID.randomUUID().toString()));
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedJwtIdGenerator.toUUID("!!!!!!!!!!!!!!!!!!!!!!"));
+		// the last character only carries 2 bits
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedJwtIdGenerator.toUUID("---------------------1"));
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedJwtIdGenerator.timestamp("-----"));
+	}
+
+	/**
+	 * UUID 按无符号 128 位整数比较，{@link UUID#compareTo(UUID)} 是有符号比较
+	 */
+	private static int compare(UUID a, UUID b) {
+		int ret = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+		return ret != 0 ? ret : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.time;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link CachedJwtTimeProvider} 测试：按间隔刷新、nowDate 不共享实例、关闭后退回系统时钟
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CachedJwtTimeProviderTest {
+
+	@Test
+	public void ticksWithTheSystemClock() throws Exception {
+		try (CachedJwtTimeProvider provider = new CachedJwtTimeProvider(5)) {
+			long first = provider.now();
+			long deadline = System.currentTimeMillis() + 5000;
+			while (provider.now() == first && System.currentTimeMillis() < deadline) {
+				Thread.sleep(1);
+			}
+			long now = provider.now();
+			assertTrue(now > first);
+			assertTrue(now <= System.currentTimeMillis());
+			long seconds = provider.nowSeconds();
+			assertTrue(seconds == now / 1000L || seconds == provider.now() / 1000L);
+		}
+	}
+
+	@Test
+	public void nowDateIsNotShared() {
+		try (CachedJwtTimeProvider provider = new CachedJwtTimeProvider(60000)) {
+			Date date = provider.nowDate();
+			assertEquals(provider.now(), date.getTime());
+			date.setTime(0L);
+			Date next = provider.nowDate();
+			assertNotSame(date, next);
+			assertEquals(provider.now(), next.getTime());
+		}
+	}
+
+	@Test
+	public void closeFallsBackToTheSystemClock() throws Exception {
+		CachedJwtTimeProvider provider = new CachedJwtTimeProvider(60000);
+		long cached = provider.now();
+		Thread.sleep(20);
+		// 刷新间隔内读取的是快照
+		assertEquals(cached, provider.now());
+		provider.close();
+		long before = System.currentTimeMillis();
+		long now = provider.now();
+		long seconds = provider.nowSeconds();
+		long date = provider.nowDate().getTime();
+		long after = System.currentTimeMillis();
+		assertTrue(before <= now && now <= after);
+		assertTrue(before / 1000L <= seconds && seconds <= after / 1000L);
+		assertTrue(before <= date && date <= after);
+		// 重复关闭无副作用
+		provider.close();
+		assertTrue(provider.now() >= now);
+	}
+
+	@Test
+	public void tickIntervalMustBePositive() {
+		assertThrows(IllegalArgumentException.class, () -> new CachedJwtTimeProvider(0));
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.concurrent.JwtExecutors;
+import com.github.hiwepy.jwt.exception.ExpiredJwtException;
+import com.github.hiwepy.jwt.exception.JwtException;
+
+/**
+ * {@link JwtRepository} 异步 API 测试：失败时 Future 直接以仓库抛出的 JwtException 完成
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtRepositoryAsyncTest {
+
+	private static final ExpiredJwtException EXPIRED = ExpiredJwtException.expired();
+
+	private final JwtRepository<String> repository = new JwtRepository<String>() {
+
+		@Override
+		public String issueJwt(String signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+				String roles, String permissions, String algorithm, long period) throws JwtException {
+			return jwtId;
+		}
+
+		@Override
+		public String issueJwt(String signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+				Map<String, Object> claims, String algorithm, long period) throws JwtException {
+			throw new JwtException("issue");
+		}
+
+		@Override
+		public boolean verify(String signingKey, String token, boolean checkExpiry) throws JwtException {
+			throw EXPIRED;
+		}
+
+		@Override
+		public JwtPayload getPlayload(String signingKey, String token, boolean checkExpiry) throws JwtException {
+			throw EXPIRED;
+		}
+
+		@Override
+		public Executor getAsyncExecutor() {
+			return Runnable::run;
+		}
+
+	};
+
+	@Test
+	public void successCompletesNormally() throws Exception {
+		assertEquals("jti", repository.issueJwtAsync("key", "jti", null, null, null, null, null, null, 0).get());
+	}
+
+	@Test
+	public void failureIsNotWrapped() {
+		CompletableFuture<Boolean> future = repository.verifyAsync("key", "token", true);
+		AtomicReference<Throwable> seen = new AtomicReference<>();
+		future.whenComplete((value, e) -> seen.set(e));
+		assertSame(EXPIRED, seen.get());
+		assertSame(EXPIRED, future.handle((value, e) -> e).join());
+		ExecutionException e = assertThrows(ExecutionException.class, future::get);
+		assertSame(EXPIRED, e.getCause());
+		assertSame(EXPIRED, assertThrows(ExecutionException.class,
+				() -> repository.getPlayloadAsync("key", "token", true).get()).getCause());
+		assertEquals("issue", assertThrows(ExecutionException.class,
+				() -> repository.issueJwtAsync("key", "jti", null, null, null, (Map<String, Object>) null, null, 0).get()).getCause().getMessage());
+	}
+
+	@Test
+	public void rejectionCompletesExceptionally() {
+		RejectedExecutionException rejected = new RejectedExecutionException("shutdown");
+		CompletableFuture<String> future = JwtExecutors.supplyAsync(() -> "value", command -> {
+			throw rejected;
+		});
+		assertTrue(future.isCompletedExceptionally());
+		assertSame(rejected, future.handle((value, e) -> e).join());
+	}
+
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.reactive;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.concurrent.JwtExecutors;
+import com.github.hiwepy.jwt.token.JwtKeyPairRepository;
+import com.github.hiwepy.jwt.token.JwtKeyResolverRepository;
+import com.github.hiwepy.jwt.token.JwtRepository;
+import com.github.hiwepy.jwt.utils.JwtHeaderUtils;
+
+/**
+ * 令牌验证流处理器：订阅上游令牌流，按微批（batchSize）在执行器上并行验证（最多 parallelism 个批次同时进行），
+ * 向下游发布 {@link VerificationResult}。
+ * <p>背压：上游请求量受 batchSize * parallelism 的容量限制，已接收但未被下游消费的令牌计入容量，
+ * 下游不请求时不再向上游请求；结果可按输入顺序发布（ordered），也可按完成顺序发布。</p>
+ * <p>微批在同一个任务中连续验证一批令牌，摊薄任务调度开销，并使同一批令牌复用仓库中已缓存的签名器、验证器与解密器。</p>
+ * <p>仅支持一个下游订阅者。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtVerificationProcessor implements Flow.Processor<String, VerificationResult> {
+
+	public static final int DEFAULT_BATCH_SIZE = 32;
+	public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	private final Function<List<String>, List<VerificationResult>> batchVerifier;
+	private final Executor executor;
+	private final int batchSize;
+	private final int parallelism;
+	private final int capacity;
+	private final boolean ordered;
+
+	private final Object lock = new Object();
+	private final AtomicInteger wip = new AtomicInteger();
+	/**
+	 * 已提交的批次（有序模式下按提交顺序排列，队首完成后才能发布）
+	 */
+	private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+	/**
+	 * 可发布给下游的结果
+	 */
+	private final ArrayDeque<VerificationResult> ready = new ArrayDeque<>();
+	private List<String> pending;
+
+	private Flow.Subscription upstream;
+	private Flow.Subscriber<? super VerificationResult> downstream;
+	/**
+	 * 下游尚未满足的请求数
+	 */
+	private long requested;
+	/**
+	 * 已向上游请求但尚未到达的令牌数
+	 */
+	private long outstanding;
+	/**
+	 * 已从上游接收但尚未发布给下游的令牌数
+	 */
+	private long held;
+	/**
+	 * 正在执行的批次数
+	 */
+	private int active;
+	private boolean upstreamDone;
+	private Throwable error;
+	private boolean cancelled;
+	private boolean terminated;
+	private Throwable downstreamError;
+
+	protected JwtVerificationProcessor(Builder builder) {
+		this.batchVerifier = Objects.requireNonNull(builder.batchVerifier, "verifier");
+		this.executor = builder.executor != null ? builder.executor : JwtExecutors.getDefaultExecutor();
+		this.batchSize = builder.batchSize;
+		this.parallelism = builder.parallelism;
+		this.capacity = builder.batchSize * builder.parallelism;
+		this.ordered = builder.ordered;
+		this.pending = new ArrayList<>(batchSize);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super VerificationResult> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		synchronized (lock) {
+			if (downstream == null) {
+				downstream = subscriber;
+				subscriber = null;
+			}
+		}
+		if (subscriber != null) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+				}
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("JwtVerificationProcessor allows only a single subscriber"));
+			return;
+		}
+		downstream.onSubscribe(new DownstreamSubscription());
+		this.drain();
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription, "subscription");
+		synchronized (lock) {
+			if (upstream == null && !cancelled) {
+				upstream = subscription;
+				subscription = null;
+			}
+		}
+		if (subscription != null) {
+			subscription.cancel();
+			return;
+		}
+		this.drain();
+	}
+
+	@Override
+	public void onNext(String token) {
+		List<Batch> dispatched;
+		synchronized (lock) {
+			if (upstreamDone || cancelled) {
+				return;
+			}
+			outstanding--;
+			held++;
+			pending.add(token);
+			// 有空闲的并行度时提交；否则继续积攒，由完成的批次带走
+			dispatched = this.dispatch();
+		}
+		this.submit(dispatched);
+		this.drain();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		List<Batch> dispatched;
+		synchronized (lock) {
+			if (upstreamDone) {
+				return;
+			}
+			error = Objects.requireNonNull(throwable, "throwable");
+			upstreamDone = true;
+			dispatched = this.dispatch();
+		}
+		this.submit(dispatched);
+		this.drain();
+	}
+
+	@Override
+	public void onComplete() {
+		List<Batch> dispatched;
+		synchronized (lock) {
+			if (upstreamDone) {
+				return;
+			}
+			upstreamDone = true;
+			dispatched = this.dispatch();
+		}
+		this.submit(dispatched);
+		this.drain();
+	}
+
+	/**
+	 * 取出积攒的令牌作为新批次（须持有锁）：同时执行的批次不超过 parallelism 个，每批不超过 batchSize 个令牌，
+	 * 批次按提交顺序登记
+	 */
+	private List<Batch> dispatch() {
+		List<Batch> dispatched = null;
+		while (!cancelled && active < parallelism && !pending.isEmpty()) {
+			Batch batch;
+			if (pending.size() <= batchSize) {
+				batch = new Batch(pending);
+				pending = new ArrayList<>(batchSize);
+			} else {
+				List<String> head = pending.subList(0, batchSize);
+				batch = new Batch(new ArrayList<>(head));
+				head.clear();
+			}
+			batches.add(batch);
+			active++;
+			if (dispatched == null) {
+				dispatched = new ArrayList<>(2);
+			}
+			dispatched.add(batch);
+		}
+		return dispatched;
+	}
+
+	private void submit(List<Batch> dispatched) {
+		if (dispatched != null) {
+			for (Batch batch : dispatched) {
+				this.submit(batch);
+			}
+		}
+	}
+
+	private void submit(Batch batch) {
+		try {
+			executor.execute(() -> this.complete(batch, this.verify(batch.tokens)));
+		} catch (RuntimeException e) {
+			// 执行器拒绝任务：该批次的每个令牌都记为失败，不中断整个流
+			this.complete(batch, this.failure(batch.tokens, e));
+		}
+	}
+
+	private List<VerificationResult> verify(List<String> tokens) {
+		try {
+			List<VerificationResult> results = batchVerifier.apply(tokens);
+			if (results == null || results.size() != tokens.size()) {
+				throw new IllegalStateException("The batch verifier must return one result per token");
+			}
+			return results;
+		} catch (RuntimeException e) {
+			return this.failure(tokens, e);
+		}
+	}
+
+	private List<VerificationResult> failure(List<String> tokens, RuntimeException e) {
+		List<VerificationResult> results = new ArrayList<>(tokens.size());
+		for (String token : tokens) {
+			results.add(VerificationResult.failure(e, JwtHeaderUtils.header(token)));
+		}
+		return results;
+	}
+
+	private void complete(Batch batch, List<VerificationResult> results) {
+		List<Batch> dispatched;
+		synchronized (lock) {
+			batch.results = results;
+			active--;
+			if (!ordered) {
+				batches.remove(batch);
+				ready.addAll(results);
+			}
+			// 释放的并行度带走完成期间积攒的令牌
+			dispatched = this.dispatch();
+		}
+		this.submit(dispatched);
+		this.drain();
+	}
+
+	/**
+	 * 串行化的发布循环：在锁内计算要发布的结果、要向上游请求的数量与终止信号，在锁外调用订阅者
+	 */
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		for (;;) {
+			List<VerificationResult> emits = null;
+			long toRequest = 0;
+			Flow.Subscription subscription;
+			Flow.Subscriber<? super VerificationResult> subscriber;
+			boolean complete = false;
+			Throwable failure = null;
+			synchronized (lock) {
+				subscription = upstream;
+				subscriber = downstream;
+				if (downstreamError != null && !terminated) {
+					terminated = true;
+					failure = downstreamError;
+				}
+				if (cancelled) {
+					batches.clear();
+					ready.clear();
+					pending.clear();
+				} else if (subscriber != null && !terminated) {
+					while (!batches.isEmpty() && batches.peekFirst().results != null) {
+						ready.addAll(batches.pollFirst().results);
+					}
+					while (requested > 0 && !ready.isEmpty()) {
+						if (emits == null) {
+							emits = new ArrayList<>();
+						}
+						emits.add(ready.pollFirst());
+						requested--;
+						held--;
+					}
+					if (!upstreamDone && subscription != null && held + outstanding < capacity) {
+						toRequest = capacity - held - outstanding;
+						outstanding += toRequest;
+					}
+					if (upstreamDone && held == 0 && batches.isEmpty()) {
+						terminated = true;
+						complete = error == null;
+						failure = error;
+					}
+				}
+			}
+			if (emits != null) {
+				for (VerificationResult result : emits) {
+					subscriber.onNext(result);
+				}
+			}
+			if (toRequest > 0) {
+				subscription.request(toRequest);
+			}
+			if (complete) {
+				subscriber.onComplete();
+			} else if (failure != null) {
+				subscriber.onError(failure);
+			}
+			missed = wip.addAndGet(-missed);
+			if (missed == 0) {
+				return;
+			}
+		}
+	}
+
+	private static final class Batch {
+
+		private final List<String> tokens;
+		private volatile List<VerificationResult> results;
+
+		Batch(List<String> tokens) {
+			this.tokens = tokens;
+		}
+
+	}
+
+	private final class DownstreamSubscription implements Flow.Subscription {
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				// Reactive Streams §3.9：非正数请求以 IllegalArgumentException 终止
+				Flow.Subscription subscription;
+				synchronized (lock) {
+					downstreamError = new IllegalArgumentException("Non-positive request: " + n);
+					cancelled = true;
+					subscription = upstream;
+				}
+				if (subscription != null) {
+					subscription.cancel();
+				}
+				drain();
+				return;
+			}
+			synchronized (lock) {
+				requested += n;
+				if (requested < 0) {
+					requested = Long.MAX_VALUE;
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			Flow.Subscription subscription;
+			synchronized (lock) {
+				cancelled = true;
+				subscription = upstream;
+			}
+			if (subscription != null) {
+				subscription.cancel();
+			}
+			drain();
+		}
+
+	}
+
+	public static class Builder {
+
+		private Function<List<String>, List<VerificationResult>> batchVerifier;
+		private Executor executor;
+		private int batchSize = DEFAULT_BATCH_SIZE;
+		private int parallelism = DEFAULT_PARALLELISM;
+		private boolean ordered = true;
+
+		/**
+		 * 使用 JwtRepository 验证（一次性解析与验签，结果含载荷）
+		 * @param <S> 签名密钥类型
+		 * @param repository 仓库
+		 * @param signingKey 签名密钥
+		 * @param checkExpiry 是否检查过期
+		 * @return this
+		 */
+		public <S> Builder repository(JwtRepository<S> repository, S signingKey, boolean checkExpiry) {
+			return this.verifier(token -> repository.validate(signingKey, token, checkExpiry));
+		}
+
+		/**
+		 * 使用 JwtKeyPairRepository 验证（一次性解密、验签，结果含载荷）
+		 * @param <S> 签名密钥类型
+		 * @param <E> 加密密钥类型
+		 * @param repository 仓库
+		 * @param signingKey 签名密钥
+		 * @param secretKey 加密密钥
+		 * @param checkExpiry 是否检查过期
+		 * @return this
+		 */
+		public <S, E> Builder repository(JwtKeyPairRepository<S, E> repository, S signingKey, E secretKey, boolean checkExpiry) {
+			return this.verifier(token -> repository.validate(signingKey, secretKey, token, checkExpiry));
+		}
+
+		/**
+		 * 使用 JwtKeyResolverRepository 验证（按令牌头部的 kid 解析密钥）
+		 * @param repository 仓库
+		 * @param checkExpiry 是否检查过期
+		 * @return this
+		 */
+		public Builder repository(JwtKeyResolverRepository<?> repository, boolean checkExpiry) {
+			return this.verifier(token -> repository.validate(token, checkExpiry));
+		}
+
+		/**
+		 * 单个令牌的验证函数，微批内逐个调用
+		 * @param verifier 验证函数
+		 * @return this
+		 */
+		public Builder verifier(Function<String, VerificationResult> verifier) {
+			Objects.requireNonNull(verifier, "verifier");
+			return this.batchVerifier(tokens -> {
+				List<VerificationResult> results = new ArrayList<>(tokens.size());
+				for (String token : tokens) {
+					try {
+						results.add(verifier.apply(token));
+					} catch (RuntimeException e) {
+						results.add(VerificationResult.failure(e, JwtHeaderUtils.header(token)));
+					}
+				}
+				return results;
+			});
+		}
+
+		/**
+		 * 整批令牌的验证函数，须按输入顺序为每个令牌返回一个结果（可在批内按 kid 分组、复用已解析的密钥）
+		 * @param batchVerifier 批量验证函数
+		 * @return this
+		 */
+		public Builder batchVerifier(Function<List<String>, List<VerificationResult>> batchVerifier) {
+			this.batchVerifier = batchVerifier;
+			return this;
+		}
+
+		/**
+		 * @param executor 执行验证的执行器，默认为 {@link JwtExecutors#getDefaultExecutor()}
+		 * @return this
+		 */
+		public Builder executor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * @param batchSize 微批大小
+		 * @return this
+		 */
+		public Builder batchSize(int batchSize) {
+			if (batchSize <= 0) {
+				throw new IllegalArgumentException("batchSize must be positive");
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		/**
+		 * @param parallelism 同时验证的最大批次数
+		 * @return this
+		 */
+		public Builder parallelism(int parallelism) {
+			if (parallelism <= 0) {
+				throw new IllegalArgumentException("parallelism must be positive");
+			}
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * @param ordered 是否按输入顺序发布结果（默认 true），false 时按完成顺序发布
+		 * @return this
+		 */
+		public Builder ordered(boolean ordered) {
+			this.ordered = ordered;
+			return this;
+		}
+
+		public JwtVerificationProcessor build() {
+			return new JwtVerificationProcessor(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.VerificationResult.Status;
+
+/**
+ * {@link JwtVerificationProcessor} 测试：并行度与批大小上限、有序发布、背压与错误传播
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JwtVerificationProcessorTest {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(16);
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger maxActive = new AtomicInteger();
+	private final AtomicInteger maxBatchSize = new AtomicInteger();
+
+	@AfterEach
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private List<VerificationResult> verify(List<String> tokens) {
+		int current = active.incrementAndGet();
+		maxActive.accumulateAndGet(current, Math::max);
+		maxBatchSize.accumulateAndGet(tokens.size(), Math::max);
+		try {
+			Thread.sleep(2);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		List<VerificationResult> results = new ArrayList<>(tokens.size());
+		for (String token : tokens) {
+			results.add(VerificationResult.of(Status.VALID, token, null, null, null));
+		}
+		active.decrementAndGet();
+		return results;
+	}
+
+	private JwtVerificationProcessor.Builder builder(int batchSize, int parallelism) {
+		return JwtVerificationProcessor.builder().batchVerifier(this::verify).executor(executor)
+				.batchSize(batchSize).parallelism(parallelism);
+	}
+
+	private static Collector publish(JwtVerificationProcessor processor, int count, long request) throws Exception {
+		Collector collector = new Collector(request);
+		processor.subscribe(collector);
+		try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>(Executors.newSingleThreadExecutor(), 256)) {
+			publisher.subscribe(processor);
+			for (int i = 0; i < count; i++) {
+				publisher.submit("token-" + i);
+			}
+		}
+		assertTrue(collector.done.await(30, TimeUnit.SECONDS), "the stream did not complete");
+		return collector;
+	}
+
+	@Test
+	public void neverExceedsParallelismOrBatchSize() throws Exception {
+		Collector collector = publish(this.builder(4, 2).build(), 2000, Long.MAX_VALUE);
+
+		assertNull(collector.error);
+		assertEquals(2000, collector.results.size());
+		assertTrue(maxActive.get() <= 2, "active batches: " + maxActive.get());
+		assertTrue(maxBatchSize.get() <= 4, "batch size: " + maxBatchSize.get());
+		for (int i = 0; i < 2000; i++) {
+			assertEquals("token-" + i, collector.results.get(i).getReason());
+		}
+	}
+
+	@Test
+	public void unorderedPublishesEveryResult() throws Exception {
+		Collector collector = publish(this.builder(8, 3).ordered(false).build(), 1000, Long.MAX_VALUE);
+
+		assertEquals(1000, collector.results.size());
+		Set<String> reasons = new HashSet<>();
+		collector.results.forEach(result -> reasons.add(result.getReason()));
+		assertEquals(1000, reasons.size());
+		assertTrue(maxActive.get() <= 3);
+	}
+
+	@Test
+	public void slowSubscriberBoundsUpstreamDemand() throws Exception {
+		Collector collector = publish(this.builder(2, 2).build(), 200, 1);
+
+		assertEquals(200, collector.results.size());
+		assertTrue(maxActive.get() <= 2);
+		assertTrue(maxBatchSize.get() <= 2);
+	}
+
+	@Test
+	public void failingVerifierFailsEachToken() throws Exception {
+		JwtVerificationProcessor processor = JwtVerificationProcessor.builder().executor(executor)
+				.batchVerifier(tokens -> {
+					throw new IllegalStateException("boom");
+				}).build();
+		Collector collector = publish(processor, 10, Long.MAX_VALUE);
+
+		assertEquals(10, collector.results.size());
+		collector.results.forEach(result -> assertEquals(Status.INVALID, result.getStatus()));
+	}
+
+	@Test
+	public void upstreamErrorIsPropagatedAfterTheResults() throws Exception {
+		JwtVerificationProcessor processor = this.builder(4, 2).build();
+		Collector collector = new Collector(Long.MAX_VALUE);
+		processor.subscribe(collector);
+		processor.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+			}
+			@Override
+			public void cancel() {
+			}
+		});
+		for (int i = 0; i < 10; i++) {
+			processor.onNext("token-" + i);
+		}
+		processor.onError(new IllegalStateException("upstream"));
+
+		assertTrue(collector.done.await(30, TimeUnit.SECONDS));
+		assertEquals(10, collector.results.size());
+		assertEquals("upstream", collector.error.getMessage());
+	}
+
+	@Test
+	public void secondSubscriberIsRejected() throws Exception {
+		JwtVerificationProcessor processor = this.builder(4, 2).build();
+		processor.subscribe(new Collector(1));
+		Collector second = new Collector(1);
+		processor.subscribe(second);
+		assertTrue(second.done.await(1, TimeUnit.SECONDS));
+		assertTrue(second.error instanceof IllegalStateException);
+	}
+
+	@Test
+	public void rejectsNonPositiveSizes() {
+		assertThrows(IllegalArgumentException.class, () -> JwtVerificationProcessor.builder().batchSize(0));
+		assertThrows(IllegalArgumentException.class, () -> JwtVerificationProcessor.builder().parallelism(-1));
+	}
+
+	private static final class Collector implements Flow.Subscriber<VerificationResult> {
+
+		private final List<VerificationResult> results = Collections.synchronizedList(new ArrayList<>());
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final long request;
+		private Flow.Subscription subscription;
+		private volatile Throwable error;
+
+		Collector(long request) {
+			this.request = request;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(request);
+		}
+
+		@Override
+		public void onNext(VerificationResult item) {
+			results.add(item);
+			if (request != Long.MAX_VALUE) {
+				subscription.request(request);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			done.countDown();
+		}
+
+	}
+
+}
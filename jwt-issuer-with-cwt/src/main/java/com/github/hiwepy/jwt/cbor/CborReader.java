@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cbor;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CBOR（RFC 8949）解码器：按顺序读取数据项，长度在分配之前与剩余字节数比较，嵌套深度有上限，
+ * 截断或畸形的输入都抛出 {@link CborException}。不支持不定长（indefinite length）的数据项。
+ * <p>{@link #read()} 映射到 Java 类型：整数为 Integer/Long（超出 64 位有符号范围时为 BigInteger），浮点数为 Double，
+ * 字节串为 byte[]，文本为 String，数组为 List，映射为 LinkedHashMap，标签只保留其内容。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CborReader {
+
+	/**
+	 * 默认的最大嵌套深度
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 16;
+
+	private final byte[] data;
+	private final int end;
+	private final int maxDepth;
+	private int position;
+
+	public CborReader(byte[] data) {
+		this(data, 0, data.length, DEFAULT_MAX_DEPTH);
+	}
+
+	public CborReader(byte[] data, int offset, int length, int maxDepth) {
+		if (offset < 0 || length < 0 || offset + length > data.length) {
+			throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+		}
+		this.data = data;
+		this.position = offset;
+		this.end = offset + length;
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Get the major type of the next data item without consuming it
+	 * @return The major type (0-7)
+	 */
+	public int peekMajorType() {
+		require(1);
+		return (data[position] & 0xFF) >>> 5;
+	}
+
+	/**
+	 * Read the tag number if the next data item is tagged
+	 * @return The tag number, or -1 if the next data item is not tagged
+	 */
+	public long readTagIfPresent() {
+		return hasNext() && peekMajorType() == CborWriter.MAJOR_TAG ? readHead(CborWriter.MAJOR_TAG) : -1;
+	}
+
+	public int readArrayHeader() {
+		return count(readHead(CborWriter.MAJOR_ARRAY));
+	}
+
+	public int readMapHeader() {
+		return count(readHead(CborWriter.MAJOR_MAP));
+	}
+
+	public byte[] readBytes() {
+		int length = length(readHead(CborWriter.MAJOR_BYTES));
+		byte[] ret = Arrays.copyOfRange(data, position, position + length);
+		position += length;
+		return ret;
+	}
+
+	public String readString() {
+		int length = length(readHead(CborWriter.MAJOR_TEXT));
+		String ret = new String(data, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return ret;
+	}
+
+	public long readLong() {
+		int major = peekMajorType();
+		if (major != CborWriter.MAJOR_UNSIGNED && major != CborWriter.MAJOR_NEGATIVE) {
+			throw new CborException("Expected an integer but found the major type " + major);
+		}
+		long value = readHead(major);
+		if (value < 0) {
+			throw new CborException("The integer exceeds the 64-bit range");
+		}
+		return major == CborWriter.MAJOR_UNSIGNED ? value : -1L - value;
+	}
+
+	/**
+	 * Read the next data item as the Java value
+	 * @return The value
+	 */
+	public Object read() {
+		return read(0);
+	}
+
+	/**
+	 * Skip the next data item
+	 */
+	public void skip() {
+		read(0);
+	}
+
+	public boolean hasNext() {
+		return position < end;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	private Object read(int depth) {
+		if (depth > maxDepth) {
+			throw new CborException("The nesting depth exceeds " + maxDepth);
+		}
+		int major = peekMajorType();
+		switch (major) {
+		case CborWriter.MAJOR_UNSIGNED: {
+			long value = readHead(major);
+			if (value < 0) {
+				// 2^63 及以上的无符号整数
+				return new BigInteger(Long.toUnsignedString(value));
+			}
+			return integer(value);
+		}
+		case CborWriter.MAJOR_NEGATIVE: {
+			long value = readHead(major);
+			if (value < 0) {
+				return BigInteger.valueOf(-1L).subtract(new BigInteger(Long.toUnsignedString(value)));
+			}
+			return integer(-1L - value);
+		}
+		case CborWriter.MAJOR_BYTES:
+			return readBytes();
+		case CborWriter.MAJOR_TEXT:
+			return readString();
+		case CborWriter.MAJOR_ARRAY: {
+			int size = readArrayHeader();
+			List<Object> ret = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				ret.add(read(depth + 1));
+			}
+			return ret;
+		}
+		case CborWriter.MAJOR_MAP: {
+			int size = readMapHeader();
+			Map<Object, Object> ret = new LinkedHashMap<>(size * 4 / 3 + 1);
+			for (int i = 0; i < size; i++) {
+				Object key = read(depth + 1);
+				ret.put(key, read(depth + 1));
+			}
+			return ret;
+		}
+		case CborWriter.MAJOR_TAG:
+			readHead(major);
+			return read(depth + 1);
+		default:
+			return readSimple();
+		}
+	}
+
+	private Object readSimple() {
+		int info = data[position++] & 0x1F;
+		switch (info) {
+		case 20:
+			return Boolean.FALSE;
+		case 21:
+			return Boolean.TRUE;
+		case 22:
+		case 23:
+			return null;
+		case 25:
+			return halfToDouble((int) readBigEndian(2));
+		case 26:
+			return (double) Float.intBitsToFloat((int) readBigEndian(4));
+		case 27:
+			return Double.longBitsToDouble(readBigEndian(8));
+		default:
+			throw new CborException("Unsupported simple value: " + info);
+		}
+	}
+
+	/**
+	 * Read the argument of the data item of the expected major type, the values of 2^63 and above are negative
+	 */
+	private long readHead(int major) {
+		require(1);
+		int initial = data[position] & 0xFF;
+		if (initial >>> 5 != major) {
+			throw new CborException("Expected the major type " + major + " but found " + (initial >>> 5));
+		}
+		position++;
+		int info = initial & 0x1F;
+		if (info < 24) {
+			return info;
+		}
+		switch (info) {
+		case 24:
+			return readBigEndian(1);
+		case 25:
+			return readBigEndian(2);
+		case 26:
+			return readBigEndian(4);
+		case 27:
+			return readBigEndian(8);
+		case 31:
+			throw new CborException("Indefinite length items are not supported");
+		default:
+			throw new CborException("Reserved additional information: " + info);
+		}
+	}
+
+	private long readBigEndian(int length) {
+		require(length);
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			value = (value << 8) | (data[position++] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * The length of the string, must fit in the remaining bytes
+	 */
+	private int length(long length) {
+		if (length < 0 || length > end - position) {
+			throw new CborException("The data is truncated");
+		}
+		return (int) length;
+	}
+
+	/**
+	 * The number of the array elements or map entries, each takes one byte at least
+	 */
+	private int count(long count) {
+		if (count < 0 || count > end - position) {
+			throw new CborException("The data is truncated");
+		}
+		return (int) count;
+	}
+
+	private void require(int length) {
+		if (end - position < length) {
+			throw new CborException("The data is truncated");
+		}
+	}
+
+	private static Object integer(long value) {
+		if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+			return Integer.valueOf((int) value);
+		}
+		return Long.valueOf(value);
+	}
+
+	private static double halfToDouble(int half) {
+		int exponent = (half >>> 10) & 0x1F;
+		int mantissa = half & 0x3FF;
+		double value;
+		if (exponent == 0) {
+			value = Math.scalb((double) mantissa, -24);
+		} else if (exponent != 31) {
+			value = Math.scalb((double) (mantissa + 1024), exponent - 25);
+		} else {
+			value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+		}
+		return (half & 0x8000) != 0 ? -value : value;
+	}
+
+}
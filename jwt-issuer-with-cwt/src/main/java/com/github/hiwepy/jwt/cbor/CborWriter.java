@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cbor;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * CBOR（RFC 8949）编码器：数据项写入可增长的字节数组，整数与长度总是使用最短编码，
+ * 只输出定长的字符串、数组与映射（COSE 的待签名结构要求确定性编码）。
+ * <p>非线程安全，可在同一线程内通过 {@link #reset()} 复用。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CborWriter {
+
+	public static final int MAJOR_UNSIGNED = 0;
+	public static final int MAJOR_NEGATIVE = 1;
+	public static final int MAJOR_BYTES = 2;
+	public static final int MAJOR_TEXT = 3;
+	public static final int MAJOR_ARRAY = 4;
+	public static final int MAJOR_MAP = 5;
+	public static final int MAJOR_TAG = 6;
+	public static final int MAJOR_SIMPLE = 7;
+
+	private byte[] buf;
+	private int count;
+
+	public CborWriter() {
+		this(256);
+	}
+
+	public CborWriter(int capacity) {
+		this.buf = new byte[Math.max(16, capacity)];
+	}
+
+	public CborWriter writeArrayHeader(int size) {
+		writeHead(MAJOR_ARRAY, size);
+		return this;
+	}
+
+	public CborWriter writeMapHeader(int size) {
+		writeHead(MAJOR_MAP, size);
+		return this;
+	}
+
+	public CborWriter writeTag(long tag) {
+		writeHead(MAJOR_TAG, tag);
+		return this;
+	}
+
+	public CborWriter writeInt(long value) {
+		if (value < 0) {
+			// -1 - n 的编码
+			writeHead(MAJOR_NEGATIVE, -1L - value);
+		} else {
+			writeHead(MAJOR_UNSIGNED, value);
+		}
+		return this;
+	}
+
+	public CborWriter writeBoolean(boolean value) {
+		ensure(1);
+		buf[count++] = (byte) (value ? 0xF5 : 0xF4);
+		return this;
+	}
+
+	public CborWriter writeNull() {
+		ensure(1);
+		buf[count++] = (byte) 0xF6;
+		return this;
+	}
+
+	/**
+	 * Write the floating-point number, as single precision when it is lossless
+	 * @param value : The number
+	 * @return this writer
+	 */
+	public CborWriter writeDouble(double value) {
+		float single = (float) value;
+		if (single == value || Double.isNaN(value)) {
+			ensure(5);
+			buf[count++] = (byte) 0xFA;
+			writeBigEndian(Float.floatToIntBits(single), 4);
+		} else {
+			ensure(9);
+			buf[count++] = (byte) 0xFB;
+			writeBigEndian(Double.doubleToLongBits(value), 8);
+		}
+		return this;
+	}
+
+	public CborWriter writeBytes(byte[] value) {
+		return writeBytes(value, 0, value.length);
+	}
+
+	public CborWriter writeBytes(byte[] value, int offset, int length) {
+		writeHead(MAJOR_BYTES, length);
+		writeRaw(value, offset, length);
+		return this;
+	}
+
+	public CborWriter writeString(String value) {
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			if (value.charAt(i) >= 0x80) {
+				byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+				writeHead(MAJOR_TEXT, utf8.length);
+				writeRaw(utf8, 0, utf8.length);
+				return this;
+			}
+		}
+		// ASCII 文本逐字符写入，不经过中间的字节数组
+		writeHead(MAJOR_TEXT, length);
+		ensure(length);
+		for (int i = 0; i < length; i++) {
+			buf[count++] = (byte) value.charAt(i);
+		}
+		return this;
+	}
+
+	/**
+	 * Write the pre-encoded data items as they are
+	 * @param encoded 	: The encoded data items
+	 * @return this writer
+	 */
+	public CborWriter writeEncoded(byte[] encoded) {
+		writeRaw(encoded, 0, encoded.length);
+		return this;
+	}
+
+	/**
+	 * Write the Java value as the CBOR data item:
+	 * <p>String, Character, Enum : text string; byte[] : byte string; Boolean; null;</p>
+	 * <p>integral numbers : integer; other numbers : floating-point; Date : integer NumericDate (epoch seconds);</p>
+	 * <p>Map : map; Collection and Object[] : array; other values : the text string of toString()</p>
+	 * @param value : The value
+	 * @return this writer
+	 */
+	public CborWriter writeObject(Object value) {
+		if (value == null) {
+			return writeNull();
+		}
+		if (value instanceof String) {
+			return writeString((String) value);
+		}
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return writeInt(((Number) value).longValue());
+		}
+		if (value instanceof Boolean) {
+			return writeBoolean((Boolean) value);
+		}
+		if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			writeMapHeader(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeObject(entry.getKey());
+				writeObject(entry.getValue());
+			}
+			return this;
+		}
+		if (value instanceof Collection) {
+			Collection<?> collection = (Collection<?>) value;
+			writeArrayHeader(collection.size());
+			for (Object item : collection) {
+				writeObject(item);
+			}
+			return this;
+		}
+		if (value instanceof Object[]) {
+			return writeObject(Arrays.asList((Object[]) value));
+		}
+		if (value instanceof byte[]) {
+			return writeBytes((byte[]) value);
+		}
+		if (value instanceof Date) {
+			return writeInt(((Date) value).getTime() / 1000L);
+		}
+		if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+			return writeInt(((BigInteger) value).longValue());
+		}
+		if (value instanceof BigDecimal || value instanceof BigInteger) {
+			// 超出 64 位的整数与任意精度小数以文本保存，避免精度丢失
+			return writeString(value.toString());
+		}
+		if (value instanceof Number) {
+			return writeDouble(((Number) value).doubleValue());
+		}
+		if (value instanceof Enum) {
+			return writeString(((Enum<?>) value).name());
+		}
+		return writeString(value.toString());
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buf, count);
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public void reset() {
+		count = 0;
+	}
+
+	/**
+	 * The initial byte and the shortest argument of the data item
+	 */
+	private void writeHead(int major, long value) {
+		ensure(9);
+		int type = major << 5;
+		if (value < 0) {
+			throw new CborException("The argument must not be negative: " + value);
+		}
+		if (value < 24) {
+			buf[count++] = (byte) (type | (int) value);
+		} else if (value <= 0xFFL) {
+			buf[count++] = (byte) (type | 24);
+			buf[count++] = (byte) value;
+		} else if (value <= 0xFFFFL) {
+			buf[count++] = (byte) (type | 25);
+			writeBigEndian(value, 2);
+		} else if (value <= 0xFFFFFFFFL) {
+			buf[count++] = (byte) (type | 26);
+			writeBigEndian(value, 4);
+		} else {
+			buf[count++] = (byte) (type | 27);
+			writeBigEndian(value, 8);
+		}
+	}
+
+	private void writeBigEndian(long value, int length) {
+		for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+			buf[count++] = (byte) (value >>> shift);
+		}
+	}
+
+	private void writeRaw(byte[] value, int offset, int length) {
+		ensure(length);
+		System.arraycopy(value, offset, buf, count, length);
+		count += length;
+	}
+
+	private void ensure(int length) {
+		if (count + length > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cose;
+
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+
+import com.github.hiwepy.jwt.cbor.CborWriter;
+
+/**
+ * COSE 算法（RFC 9053 及 IANA COSE Algorithms 注册表）：名称与 JOSE 一致，便于沿用现有的 algorithm 参数
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public enum CoseAlgorithm {
+
+	/**
+	 * HMAC w/ SHA-256 truncated to 64 bits, for the constrained links
+	 */
+	HMAC_256_64(4, "HS256/64", "HmacSHA256", 8, Type.MAC),
+	HMAC_256(5, "HS256", "HmacSHA256", 32, Type.MAC),
+	HMAC_384(6, "HS384", "HmacSHA384", 48, Type.MAC),
+	HMAC_512(7, "HS512", "HmacSHA512", 64, Type.MAC),
+	ES256(-7, "ES256", "SHA256withECDSA", 32, Type.SIGNATURE),
+	ES384(-35, "ES384", "SHA384withECDSA", 48, Type.SIGNATURE),
+	ES512(-36, "ES512", "SHA512withECDSA", 66, Type.SIGNATURE),
+	/**
+	 * EdDSA (Ed25519 / Ed448), requires Java 15+
+	 */
+	EDDSA(-8, "EdDSA", "EdDSA", 0, Type.SIGNATURE),
+	PS256(-37, "PS256", "RSASSA-PSS", 32, Type.SIGNATURE),
+	PS384(-38, "PS384", "RSASSA-PSS", 48, Type.SIGNATURE),
+	PS512(-39, "PS512", "RSASSA-PSS", 64, Type.SIGNATURE),
+	RS256(-257, "RS256", "SHA256withRSA", 0, Type.SIGNATURE),
+	RS384(-258, "RS384", "SHA384withRSA", 0, Type.SIGNATURE),
+	RS512(-259, "RS512", "SHA512withRSA", 0, Type.SIGNATURE),
+	A128GCM(1, "A128GCM", "AES/GCM/NoPadding", 16, Type.ENCRYPTION),
+	A192GCM(2, "A192GCM", "AES/GCM/NoPadding", 24, Type.ENCRYPTION),
+	A256GCM(3, "A256GCM", "AES/GCM/NoPadding", 32, Type.ENCRYPTION);
+
+	public enum Type {
+		MAC, SIGNATURE, ENCRYPTION
+	}
+
+	private final int value;
+	private final String name;
+	private final String jcaName;
+	private final int length;
+	private final Type type;
+	/**
+	 * 预编码的受保护头部 {1: alg}，所有令牌共享
+	 */
+	private final byte[] protectedHeader;
+
+	/**
+	 * @param length : The tag length of MAC, the coordinate length of ECDSA, the hash length of RSASSA-PSS, the key length of AES
+	 */
+	CoseAlgorithm(int value, String name, String jcaName, int length, Type type) {
+		this.value = value;
+		this.name = name;
+		this.jcaName = jcaName;
+		this.length = length;
+		this.type = type;
+		this.protectedHeader = new CborWriter(8).writeMapHeader(1).writeInt(CoseMessage.HEADER_ALGORITHM).writeInt(value).toByteArray();
+	}
+
+	/**
+	 * Get the algorithm by the JOSE style name, e.g. HS256, ES256, A128GCM
+	 * @param name 	: The algorithm name
+	 * @param type 	: The expected algorithm type
+	 * @return The algorithm
+	 * @throws IllegalArgumentException If the name is unknown or of another type
+	 */
+	public static CoseAlgorithm fromName(String name, Type type) {
+		for (CoseAlgorithm algorithm : values()) {
+			if (algorithm.name.equalsIgnoreCase(name) && algorithm.type == type) {
+				return algorithm;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unsupported %s algorithm : %s", type, name));
+	}
+
+	/**
+	 * Get the algorithm by the COSE algorithm identifier
+	 * @param value : The value of the alg header parameter
+	 * @return The algorithm, or null if unknown
+	 */
+	public static CoseAlgorithm fromValue(long value) {
+		for (CoseAlgorithm algorithm : values()) {
+			if (algorithm.value == value) {
+				return algorithm;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the AES-GCM algorithm of the content encryption key
+	 * @param keyLength : The key length in bytes
+	 * @return The algorithm
+	 * @throws IllegalArgumentException If the key length is not 128, 192 or 256 bits
+	 */
+	public static CoseAlgorithm aesGcm(int keyLength) {
+		switch (keyLength) {
+		case 16:
+			return A128GCM;
+		case 24:
+			return A192GCM;
+		case 32:
+			return A256GCM;
+		default:
+			throw new IllegalArgumentException("The AES key must be 128, 192 or 256 bits: " + keyLength * 8);
+		}
+	}
+
+	/**
+	 * The parameters of the RSASSA-PSS signature, null for the other algorithms
+	 * @return The parameters or null
+	 */
+	public AlgorithmParameterSpec getParameterSpec() {
+		switch (this) {
+		case PS256:
+			return new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1);
+		case PS384:
+			return new PSSParameterSpec("SHA-384", "MGF1", MGF1ParameterSpec.SHA384, 48, 1);
+		case PS512:
+			return new PSSParameterSpec("SHA-512", "MGF1", MGF1ParameterSpec.SHA512, 64, 1);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * The encoded protected header, must not be modified
+	 */
+	byte[] protectedHeader() {
+		return protectedHeader;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getJcaName() {
+		return jcaName;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cose;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import com.github.hiwepy.jwt.cbor.CborException;
+import com.github.hiwepy.jwt.cbor.CborReader;
+import com.github.hiwepy.jwt.cbor.CborWriter;
+
+/**
+ * COSE_Encrypt0（RFC 9052 第 5.2 节）：直接使用对称密钥（AES-GCM）加密的单接收方消息，标签 {@value #TAG}。
+ * <p>IV 随机生成并放在非受保护头部，Enc_structure 作为 AAD 绑定受保护头部，认证标签附在密文之后。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CoseEncrypt0 extends CoseMessage {
+
+	public static final long TAG = 16;
+	private static final String CONTEXT = "Encrypt0";
+	private static final int IV_LENGTH = 12;
+	private static final int TAG_BITS = 128;
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private byte[] iv;
+	private byte[] plaintext;
+	private byte[] ciphertext;
+
+	/**
+	 * @param algorithm : The AES-GCM algorithm
+	 * @param keyId 	: The key id, or null
+	 * @param plaintext : The plaintext
+	 */
+	public CoseEncrypt0(CoseAlgorithm algorithm, byte[] keyId, byte[] plaintext) {
+		super(algorithm, CoseAlgorithm.Type.ENCRYPTION, keyId);
+		this.plaintext = plaintext;
+	}
+
+	private CoseEncrypt0(Headers headers, byte[] ciphertext) {
+		super(headers, CoseAlgorithm.Type.ENCRYPTION);
+		if (headers.iv() == null || headers.iv().length != IV_LENGTH) {
+			throw new CborException("The COSE_Encrypt0 message has no valid IV");
+		}
+		this.iv = headers.iv();
+		this.ciphertext = ciphertext;
+	}
+
+	/**
+	 * Parse the COSE_Encrypt0 message
+	 * @param message 	: The encoded message
+	 * @return The message, not decrypted yet
+	 * @throws CborException If the message is malformed
+	 */
+	public static CoseEncrypt0 parse(byte[] message) {
+		CborReader reader = new CborReader(message);
+		Headers headers = readHeaders(reader, TAG, 3);
+		byte[] ciphertext = reader.readBytes();
+		requireEnd(reader);
+		return new CoseEncrypt0(headers, ciphertext);
+	}
+
+	/**
+	 * Encrypt the plaintext with a random IV
+	 * @param key 	: The AES key of the algorithm's length
+	 * @throws CoseException If the key length does not match or the cipher is unavailable
+	 */
+	public void encrypt(SecretKey key) throws CoseException {
+		byte[] iv = new byte[IV_LENGTH];
+		RANDOM.nextBytes(iv);
+		try {
+			Cipher cipher = this.cipher(Cipher.ENCRYPT_MODE, key, iv);
+			this.ciphertext = cipher.doFinal(plaintext);
+			this.iv = iv;
+		} catch (GeneralSecurityException e) {
+			throw new CoseException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Decrypt and authenticate the ciphertext
+	 * @param key 	: The AES key of the algorithm's length
+	 * @return The plaintext
+	 * @throws CoseException If the authentication fails, the key length does not match or the cipher is unavailable
+	 */
+	public byte[] decrypt(SecretKey key) throws CoseException {
+		try {
+			Cipher cipher = this.cipher(Cipher.DECRYPT_MODE, key, iv);
+			this.plaintext = cipher.doFinal(ciphertext);
+			return plaintext;
+		} catch (AEADBadTagException e) {
+			throw new CoseException("AES/GCM/NoPadding decryption failed: Tag mismatch", e);
+		} catch (GeneralSecurityException e) {
+			throw new CoseException(e.getMessage(), e);
+		}
+	}
+
+	private Cipher cipher(int mode, SecretKey key, byte[] iv) throws GeneralSecurityException, CoseException {
+		byte[] secret = key.getEncoded();
+		if (secret != null && secret.length != getAlgorithm().getLength()) {
+			throw new CoseException(String.format("The key length must be %d bits for %s", getAlgorithm().getLength() * 8, getAlgorithm().getName()));
+		}
+		Cipher cipher = Cipher.getInstance(getAlgorithm().getJcaName());
+		cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, iv));
+		cipher.updateAAD(toBeAuthenticated(CONTEXT, null));
+		return cipher;
+	}
+
+	/**
+	 * Encode the tagged COSE_Encrypt0 message
+	 * @return The encoded message
+	 */
+	public byte[] serialize() {
+		if (ciphertext == null) {
+			throw new IllegalStateException("The COSE_Encrypt0 message must be encrypted first");
+		}
+		CborWriter writer = new CborWriter(ciphertext.length + 48);
+		writer.writeTag(TAG).writeArrayHeader(3);
+		writeHeaders(writer, iv);
+		writer.writeBytes(ciphertext);
+		return writer.toByteArray();
+	}
+
+	public byte[] getPlaintext() {
+		return plaintext;
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cose;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import com.github.hiwepy.jwt.cbor.CborReader;
+import com.github.hiwepy.jwt.cbor.CborWriter;
+
+/**
+ * COSE_Mac0（RFC 9052 第 6.2 节）：对称密钥 MAC 的单接收方消息，标签 {@value #TAG}
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CoseMac0 extends CoseMessage {
+
+	public static final long TAG = 17;
+	private static final String CONTEXT = "MAC0";
+
+	private final byte[] payload;
+	private byte[] tag;
+
+	/**
+	 * @param algorithm : The MAC algorithm
+	 * @param keyId 	: The key id, or null
+	 * @param payload 	: The payload
+	 */
+	public CoseMac0(CoseAlgorithm algorithm, byte[] keyId, byte[] payload) {
+		super(algorithm, CoseAlgorithm.Type.MAC, keyId);
+		this.payload = payload;
+	}
+
+	private CoseMac0(Headers headers, byte[] payload, byte[] tag) {
+		super(headers, CoseAlgorithm.Type.MAC);
+		this.payload = payload;
+		this.tag = tag;
+	}
+
+	/**
+	 * Parse the COSE_Mac0 message
+	 * @param message 	: The encoded message
+	 * @return The message, not verified yet
+	 * @throws com.github.hiwepy.jwt.cbor.CborException If the message is malformed
+	 */
+	public static CoseMac0 parse(byte[] message) {
+		CborReader reader = new CborReader(message);
+		Headers headers = readHeaders(reader, TAG, 4);
+		byte[] payload = reader.readBytes();
+		byte[] tag = reader.readBytes();
+		requireEnd(reader);
+		return new CoseMac0(headers, payload, tag);
+	}
+
+	/**
+	 * Compute the MAC tag
+	 * @param key 	: The secret key, at least as long as the hash output
+	 * @throws CoseException If the key is too short or the MAC is unavailable
+	 */
+	public void mac(SecretKey key) throws CoseException {
+		this.tag = this.compute(key);
+	}
+
+	/**
+	 * Verify the MAC tag in constant time
+	 * @param key 	: The secret key
+	 * @return true if the tag is valid
+	 * @throws CoseException If the key is too short or the MAC is unavailable
+	 */
+	public boolean verify(SecretKey key) throws CoseException {
+		return MessageDigest.isEqual(this.compute(key), tag);
+	}
+
+	private byte[] compute(SecretKey key) throws CoseException {
+		try {
+			Mac mac = Mac.getInstance(getAlgorithm().getJcaName());
+			byte[] secret = key.getEncoded();
+			if (secret != null && secret.length < mac.getMacLength()) {
+				throw new CoseException(String.format("The secret length must be at least %d bits for %s", mac.getMacLength() * 8, getAlgorithm().getName()));
+			}
+			mac.init(key);
+			byte[] ret = mac.doFinal(toBeAuthenticated(CONTEXT, payload));
+			// HMAC 256/64 等截断的标签
+			return ret.length == getAlgorithm().getLength() ? ret : Arrays.copyOf(ret, getAlgorithm().getLength());
+		} catch (GeneralSecurityException e) {
+			throw new CoseException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Encode the tagged COSE_Mac0 message
+	 * @return The encoded message
+	 */
+	public byte[] serialize() {
+		if (tag == null) {
+			throw new IllegalStateException("The COSE_Mac0 message must be MACed first");
+		}
+		CborWriter writer = new CborWriter(payload.length + tag.length + 32);
+		writer.writeTag(TAG).writeArrayHeader(4);
+		writeHeaders(writer, null);
+		writer.writeBytes(payload).writeBytes(tag);
+		return writer.toByteArray();
+	}
+
+	public byte[] getPayload() {
+		return payload;
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cose;
+
+import com.github.hiwepy.jwt.cbor.CborException;
+import com.github.hiwepy.jwt.cbor.CborReader;
+import com.github.hiwepy.jwt.cbor.CborWriter;
+
+/**
+ * 单接收方的 COSE 消息（RFC 9052）：受保护头部只包含 alg，且复用 {@link CoseAlgorithm} 预编码的字节；
+ * 非受保护头部可包含 kid 与 IV。解析时接受可选的 CWT 标签（61）及消息自身的标签。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public abstract class CoseMessage {
+
+	public static final int HEADER_ALGORITHM = 1;
+	public static final int HEADER_KEY_ID = 4;
+	public static final int HEADER_IV = 5;
+	/**
+	 * CWT 标签（RFC 8392 第 6 节）
+	 */
+	public static final long TAG_CWT = 61;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final CoseAlgorithm algorithm;
+	private final byte[] protectedHeader;
+	private final byte[] keyId;
+
+	protected CoseMessage(CoseAlgorithm algorithm, CoseAlgorithm.Type type, byte[] keyId) {
+		this(check(algorithm, type), algorithm.protectedHeader(), keyId);
+	}
+
+	protected CoseMessage(Headers headers, CoseAlgorithm.Type type) {
+		this(check(headers.algorithm, type), headers.protectedHeader, headers.keyId);
+	}
+
+	private CoseMessage(CoseAlgorithm algorithm, byte[] protectedHeader, byte[] keyId) {
+		this.algorithm = algorithm;
+		this.protectedHeader = protectedHeader;
+		this.keyId = keyId;
+	}
+
+	private static CoseAlgorithm check(CoseAlgorithm algorithm, CoseAlgorithm.Type type) {
+		if (algorithm.getType() != type) {
+			throw new CborException(String.format("The algorithm %s is not a %s algorithm", algorithm.getName(), type));
+		}
+		return algorithm;
+	}
+
+	/**
+	 * Encode the structure covered by the MAC, the signature or the AEAD:
+	 * [context, body_protected, external_aad (empty)] followed by the payload if not null
+	 * @param context 	: The context string, e.g. MAC0, Signature1, Encrypt0
+	 * @param payload 	: The payload, null for the Enc_structure
+	 * @return The encoded structure
+	 */
+	protected byte[] toBeAuthenticated(String context, byte[] payload) {
+		CborWriter writer = new CborWriter(protectedHeader.length + (payload == null ? 0 : payload.length) + 24);
+		writer.writeArrayHeader(payload == null ? 3 : 4).writeString(context).writeBytes(protectedHeader).writeBytes(EMPTY);
+		if (payload != null) {
+			writer.writeBytes(payload);
+		}
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Write the protected header and the unprotected header
+	 * @param writer 	: The writer
+	 * @param iv 		: The IV, or null
+	 */
+	protected void writeHeaders(CborWriter writer, byte[] iv) {
+		writer.writeBytes(protectedHeader);
+		writer.writeMapHeader((keyId != null ? 1 : 0) + (iv != null ? 1 : 0));
+		if (keyId != null) {
+			writer.writeInt(HEADER_KEY_ID).writeBytes(keyId);
+		}
+		if (iv != null) {
+			writer.writeInt(HEADER_IV).writeBytes(iv);
+		}
+	}
+
+	/**
+	 * Read the tags, the array header and the headers of the message
+	 * @param reader 	: The reader
+	 * @param tag 		: The tag of the message, e.g. 17 for COSE_Mac0
+	 * @param size 		: The number of the array elements
+	 * @return The headers
+	 */
+	protected static Headers readHeaders(CborReader reader, long tag, int size) {
+		long actual = reader.readTagIfPresent();
+		if (actual == TAG_CWT) {
+			actual = reader.readTagIfPresent();
+		}
+		if (actual != -1 && actual != tag) {
+			throw new CborException("Unexpected COSE message tag: " + actual);
+		}
+		if (reader.readArrayHeader() != size) {
+			throw new CborException("The COSE message must be an array of " + size + " elements");
+		}
+		Headers headers = new Headers();
+		headers.protectedHeader = reader.readBytes();
+		if (headers.protectedHeader.length > 0) {
+			CborReader header = new CborReader(headers.protectedHeader);
+			for (int i = header.readMapHeader(); i > 0; i--) {
+				if (isLabel(header.read(), HEADER_ALGORITHM)) {
+					headers.algorithm = CoseAlgorithm.fromValue(header.readLong());
+				} else {
+					header.skip();
+				}
+			}
+		}
+		for (int i = reader.readMapHeader(); i > 0; i--) {
+			Object label = reader.read();
+			if (isLabel(label, HEADER_KEY_ID)) {
+				headers.keyId = reader.readBytes();
+			} else if (isLabel(label, HEADER_IV)) {
+				headers.iv = reader.readBytes();
+			} else {
+				reader.skip();
+			}
+		}
+		if (headers.algorithm == null) {
+			throw new CborException("The protected header has no supported algorithm");
+		}
+		return headers;
+	}
+
+	protected static void requireEnd(CborReader reader) {
+		if (reader.hasNext()) {
+			throw new CborException("Unexpected data after the COSE message");
+		}
+	}
+
+	private static boolean isLabel(Object label, int value) {
+		return label instanceof Integer && ((Integer) label).intValue() == value;
+	}
+
+	public CoseAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public byte[] getKeyId() {
+		return keyId;
+	}
+
+	/**
+	 * 解析得到的头部参数
+	 */
+	protected static final class Headers {
+
+		private CoseAlgorithm algorithm;
+		private byte[] protectedHeader;
+		private byte[] keyId;
+		private byte[] iv;
+
+		byte[] iv() {
+			return iv;
+		}
+
+	}
+
+}
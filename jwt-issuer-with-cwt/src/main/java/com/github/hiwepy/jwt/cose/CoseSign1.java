@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cose;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+import com.github.hiwepy.jwt.cbor.CborReader;
+import com.github.hiwepy.jwt.cbor.CborWriter;
+
+/**
+ * COSE_Sign1（RFC 9052 第 4.2 节）：单签名者的签名消息，标签 {@value #TAG}。
+ * <p>ECDSA 签名按 COSE 的要求为 r||s 定长拼接，与 JCA 的 DER 编码在此转换。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CoseSign1 extends CoseMessage {
+
+	public static final long TAG = 18;
+	private static final String CONTEXT = "Signature1";
+
+	private final byte[] payload;
+	private byte[] signature;
+
+	/**
+	 * @param algorithm : The signature algorithm
+	 * @param keyId 	: The key id, or null
+	 * @param payload 	: The payload
+	 */
+	public CoseSign1(CoseAlgorithm algorithm, byte[] keyId, byte[] payload) {
+		super(algorithm, CoseAlgorithm.Type.SIGNATURE, keyId);
+		this.payload = payload;
+	}
+
+	private CoseSign1(Headers headers, byte[] payload, byte[] signature) {
+		super(headers, CoseAlgorithm.Type.SIGNATURE);
+		this.payload = payload;
+		this.signature = signature;
+	}
+
+	/**
+	 * Parse the COSE_Sign1 message
+	 * @param message 	: The encoded message
+	 * @return The message, not verified yet
+	 * @throws com.github.hiwepy.jwt.cbor.CborException If the message is malformed
+	 */
+	public static CoseSign1 parse(byte[] message) {
+		CborReader reader = new CborReader(message);
+		Headers headers = readHeaders(reader, TAG, 4);
+		byte[] payload = reader.readBytes();
+		byte[] signature = reader.readBytes();
+		requireEnd(reader);
+		return new CoseSign1(headers, payload, signature);
+	}
+
+	/**
+	 * Compute the signature
+	 * @param key 	: The private key
+	 * @throws CoseException If the key does not match the algorithm or the signature is unavailable
+	 */
+	public void sign(PrivateKey key) throws CoseException {
+		try {
+			Signature signer = this.signature();
+			signer.initSign(key);
+			signer.update(toBeAuthenticated(CONTEXT, payload));
+			byte[] ret = signer.sign();
+			this.signature = isEcdsa() ? toConcat(ret, getAlgorithm().getLength()) : ret;
+		} catch (GeneralSecurityException e) {
+			throw new CoseException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Verify the signature
+	 * @param key 	: The public key
+	 * @return true if the signature is valid
+	 * @throws CoseException If the key does not match the algorithm or the signature is unavailable
+	 */
+	public boolean verify(PublicKey key) throws CoseException {
+		byte[] signature = this.signature;
+		if (isEcdsa()) {
+			if (signature.length != getAlgorithm().getLength() * 2) {
+				return false;
+			}
+			signature = toDer(signature);
+		}
+		try {
+			Signature verifier = this.signature();
+			verifier.initVerify(key);
+			verifier.update(toBeAuthenticated(CONTEXT, payload));
+			return verifier.verify(signature);
+		} catch (GeneralSecurityException e) {
+			throw new CoseException(e.getMessage(), e);
+		}
+	}
+
+	private Signature signature() throws GeneralSecurityException {
+		Signature ret = Signature.getInstance(getAlgorithm().getJcaName());
+		AlgorithmParameterSpec parameterSpec = getAlgorithm().getParameterSpec();
+		if (parameterSpec != null) {
+			ret.setParameter(parameterSpec);
+		}
+		return ret;
+	}
+
+	private boolean isEcdsa() {
+		return getAlgorithm() == CoseAlgorithm.ES256 || getAlgorithm() == CoseAlgorithm.ES384 || getAlgorithm() == CoseAlgorithm.ES512;
+	}
+
+	/**
+	 * Transcode the DER encoded ECDSA signature (SEQUENCE of the INTEGERs r and s) to r||s
+	 */
+	private static byte[] toConcat(byte[] der, int length) throws GeneralSecurityException {
+		int offset = 2;
+		if (der.length < 8 || der[0] != 0x30) {
+			throw new GeneralSecurityException("Invalid ECDSA signature format");
+		}
+		if ((der[1] & 0xFF) == 0x81) {
+			offset = 3;
+		}
+		byte[] ret = new byte[length * 2];
+		offset = copyInteger(der, offset, ret, 0, length);
+		copyInteger(der, offset, ret, length, length);
+		return ret;
+	}
+
+	private static int copyInteger(byte[] der, int offset, byte[] dest, int destOffset, int length) throws GeneralSecurityException {
+		if (offset + 2 > der.length || der[offset] != 0x02) {
+			throw new GeneralSecurityException("Invalid ECDSA signature format");
+		}
+		int size = der[offset + 1] & 0xFF;
+		int start = offset + 2;
+		if (start + size > der.length) {
+			throw new GeneralSecurityException("Invalid ECDSA signature format");
+		}
+		// 去掉符号位补的前导 0
+		int from = start;
+		while (from < start + size - 1 && der[from] == 0) {
+			from++;
+		}
+		int count = start + size - from;
+		if (count > length) {
+			throw new GeneralSecurityException("Invalid ECDSA signature format");
+		}
+		System.arraycopy(der, from, dest, destOffset + length - count, count);
+		return start + size;
+	}
+
+	/**
+	 * Transcode the r||s ECDSA signature to DER
+	 */
+	private static byte[] toDer(byte[] concat) {
+		int length = concat.length / 2;
+		byte[] r = integer(concat, 0, length);
+		byte[] s = integer(concat, length, length);
+		int content = 2 + r.length + 2 + s.length;
+		byte[] ret = new byte[(content >= 0x80 ? 3 : 2) + content];
+		int offset = 0;
+		ret[offset++] = 0x30;
+		if (content >= 0x80) {
+			ret[offset++] = (byte) 0x81;
+		}
+		ret[offset++] = (byte) content;
+		ret[offset++] = 0x02;
+		ret[offset++] = (byte) r.length;
+		System.arraycopy(r, 0, ret, offset, r.length);
+		offset += r.length;
+		ret[offset++] = 0x02;
+		ret[offset++] = (byte) s.length;
+		System.arraycopy(s, 0, ret, offset, s.length);
+		return ret;
+	}
+
+	/**
+	 * The minimal DER INTEGER content of the unsigned big-endian value
+	 */
+	private static byte[] integer(byte[] value, int offset, int length) {
+		int from = offset;
+		while (from < offset + length - 1 && value[from] == 0) {
+			from++;
+		}
+		byte[] ret = Arrays.copyOfRange(value, from, offset + length);
+		if ((ret[0] & 0x80) != 0) {
+			byte[] padded = new byte[ret.length + 1];
+			System.arraycopy(ret, 0, padded, 1, ret.length);
+			return padded;
+		}
+		return ret;
+	}
+
+	/**
+	 * Encode the tagged COSE_Sign1 message
+	 * @return The encoded message
+	 */
+	public byte[] serialize() {
+		if (signature == null) {
+			throw new IllegalStateException("The COSE_Sign1 message must be signed first");
+		}
+		CborWriter writer = new CborWriter(payload.length + signature.length + 32);
+		writer.writeTag(TAG).writeArrayHeader(4);
+		writeHeaders(writer, null);
+		writer.writeBytes(payload).writeBytes(signature);
+		return writer.toByteArray();
+	}
+
+	public byte[] getPayload() {
+		return payload;
+	}
+
+}
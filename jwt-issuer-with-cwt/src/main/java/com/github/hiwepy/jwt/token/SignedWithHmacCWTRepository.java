@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.cbor.CborException;
+import com.github.hiwepy.jwt.cose.CoseAlgorithm;
+import com.github.hiwepy.jwt.cose.CoseException;
+import com.github.hiwepy.jwt.cose.CoseMac0;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.CwtUtils;
+import com.github.hiwepy.jwt.verifier.CWTClaimsTimeVerifier;
+
+/**
+ * <b> CBOR Web Token (CWT) with HMAC (COSE_Mac0) </b>
+ * https://www.rfc-editor.org/rfc/rfc8392
+ */
+public class SignedWithHmacCWTRepository implements JwtRepository<String> {
+
+	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	/**
+	 * 是否在 MAC 校验之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
+
+	/**
+	 * 接受的 MAC 算法，令牌受保护头部中的算法不在其中时拒绝，防止降级为截断的 HS256/64
+	 */
+	private Set<String> algorithms = CwtUtils.DEFAULT_MAC_ALGORITHMS;
+
+	/**
+	 * Issue CBOR Web Token (CWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param roles			: The Roles
+	 * @param permissions	: The Perms
+	 * @param algorithm		: Supported algorithms：
+	 * <p> HS256 - HMAC with SHA-256, requires 256+ bit secret, only verified once accepted by {@link #setAlgorithms(Set)} </p>
+	 * <p> HS256/64 - HMAC with SHA-256 truncated to 64 bits, requires 256+ bit secret, only verified once accepted by {@link #setAlgorithms(Set)} </p>
+	 * <p> HS384 - HMAC with SHA-384, requires 384+ bit secret </p>
+	 * <p> HS512 - HMAC with SHA-512, requires 512+ bit secret </p>
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return CBOR Web Token (CWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(String signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+			String roles, String permissions, String algorithm, long period)  throws JwtException {
+
+		Map<String, Object> claims =  new HashMap<String, Object>();
+		claims.put("roles", roles);
+		claims.put("perms", permissions);
+
+		return this.issueJwt(signingKey, jwtId, subject, issuer, audience, claims, algorithm, period);
+
+	}
+
+	/**
+	 * Issue CBOR Web Token (CWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param claims		: Jwt Claims
+	 * @param algorithm		: Supported algorithms, see {@link #issueJwt(String, String, String, String, Set, String, String, String, long)}
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return CBOR Web Token (CWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(String signingKey, String jwtId, String subject, String issuer,  Set<String> audience,
+			Map<String, Object> claims,	String algorithm, long period) throws JwtException {
+		try {
+
+			//-------------------- Step 1：Get ClaimsSet --------------------
+
+			// Encode the CWT claims set
+			byte[] claimsSet = CwtUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().now(), period);
+
+			//-------------------- Step 2：HMAC --------------------
+
+			// Compute the HMAC tag over the pre-encoded protected header and the claims set
+			CoseMac0 mac0 = new CoseMac0(CoseAlgorithm.fromName(algorithm, CoseAlgorithm.Type.MAC), null, claimsSet);
+			mac0.mac(CwtUtils.secretKey(signingKey, mac0.getAlgorithm()));
+
+			// Serialize to the Base64URL encoded COSE_Mac0 message
+			return CwtUtils.encode(mac0.serialize());
+		} catch (IllegalArgumentException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CborException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CoseException e) {
+			throw new IncorrectJwtException(e);
+		}
+	}
+
+	/**
+	 * Verify the validity of CWT
+	 * @author 				: <a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey 	: The same secret that the CWT was MACed with
+	 * @param token  		: CBOR Web Token (CWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @return If Validity
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public boolean verify(String signingKey, String token, boolean checkExpiry) throws JwtException {
+
+		try {
+
+			//-------------------- Step 1：CWT Parse --------------------
+
+			// On the consumer side, parse the COSE_Mac0 message
+			CoseMac0 mac0 = CoseMac0.parse(CwtUtils.decode(token));
+			CwtUtils.checkAlgorithm(mac0.getAlgorithm(), this.getAlgorithms(), null);
+			Map<Object, Object> claims = checkExpiry ? CwtUtils.claims(mac0.getPayload()) : null;
+
+			//-------------------- Step 2：HMAC Verify --------------------
+
+			// Reject expired/not-yet-valid tokens before the MAC verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				CWTClaimsTimeVerifier.verify(claims, this.getTimeProvider());
+			}
+
+			// Verify the HMAC tag
+			if(!mac0.verify(CwtUtils.secretKey(signingKey, mac0.getAlgorithm()))) {
+				return false;
+			}
+
+			// Check the validity period of the CWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				CWTClaimsTimeVerifier.verify(claims, this.getTimeProvider());
+			}
+			return true;
+		} catch (IllegalArgumentException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CborException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CoseException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
+	/**
+	 * Parser CBOR Web Token (CWT)
+	 * @author 		：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey 	: The same secret that the CWT was MACed with
+	 * @param token  		: CBOR Web Token (CWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @return JwtPlayload {@link JwtPayload}
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public JwtPayload getPlayload(String signingKey, String token, boolean checkExpiry)  throws JwtException {
+		try {
+
+			//-------------------- Step 1：CWT Parse --------------------
+
+			// On the consumer side, parse the COSE_Mac0 message
+			CoseMac0 mac0 = CoseMac0.parse(CwtUtils.decode(token));
+			CwtUtils.checkAlgorithm(mac0.getAlgorithm(), this.getAlgorithms(), null);
+			Map<Object, Object> claims = CwtUtils.claims(mac0.getPayload());
+
+			//-------------------- Step 2：HMAC Verify --------------------
+
+			// Reject expired/not-yet-valid tokens before the MAC verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				CWTClaimsTimeVerifier.verify(claims, this.getTimeProvider());
+			}
+
+			// Verify the HMAC tag
+			if(!mac0.verify(CwtUtils.secretKey(signingKey, mac0.getAlgorithm()))) {
+				throw new JwtException(String.format("Invalid CBOR Web Token (CWT) : %s", token));
+			}
+
+			// Check the validity period of the CWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				CWTClaimsTimeVerifier.verify(claims, this.getTimeProvider());
+			}
+
+			//-------------------- Step 3：Gets The Claims ---------------
+
+			// Retrieve CWT claims
+			return CwtUtils.payload(claims);
+		} catch (IllegalArgumentException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CborException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CoseException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
+	public JwtTimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	public void setTimeProvider(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
+
+	public Set<String> getAlgorithms() {
+		return algorithms;
+	}
+
+	public void setAlgorithms(Set<String> algorithms) {
+		this.algorithms = algorithms;
+	}
+
+}
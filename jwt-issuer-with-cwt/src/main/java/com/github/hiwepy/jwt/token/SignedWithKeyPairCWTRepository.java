@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import java.security.KeyPair;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.cbor.CborException;
+import com.github.hiwepy.jwt.cose.CoseAlgorithm;
+import com.github.hiwepy.jwt.cose.CoseException;
+import com.github.hiwepy.jwt.cose.CoseSign1;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.CwtUtils;
+import com.github.hiwepy.jwt.verifier.CWTClaimsTimeVerifier;
+
+/**
+ * <b> CBOR Web Token (CWT) with ECDSA / RSA / EdDSA signature (COSE_Sign1) </b>
+ * https://www.rfc-editor.org/rfc/rfc8392
+ */
+public class SignedWithKeyPairCWTRepository implements JwtRepository<KeyPair> {
+
+	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	/**
+	 * 是否在签名校验之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
+
+	/**
+	 * 接受的签名算法，null 时接受与公钥匹配的任一算法；令牌受保护头部中的算法始终需要与公钥匹配
+	 */
+	private Set<String> algorithms;
+
+	/**
+	 * Issue CBOR Web Token (CWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key pair, signed with the private key
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param roles			: The Roles
+	 * @param permissions	: The Perms
+	 * @param algorithm		: Supported algorithms：
+	 * <p> ES256 - ECDSA using P-256 and SHA-256 </p>
+	 * <p> ES384 - ECDSA using P-384 and SHA-384 </p>
+	 * <p> ES512 - ECDSA using P-521 and SHA-512 </p>
+	 * <p> EdDSA - Ed25519 / Ed448, requires Java 15+ </p>
+	 * <p> PS256, PS384, PS512 - RSASSA-PSS using SHA-2 and MGF1 with SHA-2 </p>
+	 * <p> RS256, RS384, RS512 - RSASSA-PKCS1-v1_5 using SHA-2 </p>
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return CBOR Web Token (CWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(KeyPair signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+			String roles, String permissions, String algorithm, long period)  throws JwtException {
+
+		Map<String, Object> claims =  new HashMap<String, Object>();
+		claims.put("roles", roles);
+		claims.put("perms", permissions);
+
+		return this.issueJwt(signingKey, jwtId, subject, issuer, audience, claims, algorithm, period);
+
+	}
+
+	/**
+	 * Issue CBOR Web Token (CWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key pair, signed with the private key
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param claims		: Jwt Claims
+	 * @param algorithm		: Supported algorithms, see {@link #issueJwt(KeyPair, String, String, String, Set, String, String, String, long)}
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return CBOR Web Token (CWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(KeyPair signingKey, String jwtId, String subject, String issuer,  Set<String> audience,
+			Map<String, Object> claims,	String algorithm, long period) throws JwtException {
+		try {
+
+			//-------------------- Step 1：Get ClaimsSet --------------------
+
+			// Encode the CWT claims set
+			byte[] claimsSet = CwtUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().now(), period);
+
+			//-------------------- Step 2：Signature --------------------
+
+			// Compute the signature over the pre-encoded protected header and the claims set
+			CoseSign1 sign1 = new CoseSign1(CoseAlgorithm.fromName(algorithm, CoseAlgorithm.Type.SIGNATURE), null, claimsSet);
+			sign1.sign(signingKey.getPrivate());
+
+			// Serialize to the Base64URL encoded COSE_Sign1 message
+			return CwtUtils.encode(sign1.serialize());
+		} catch (IllegalArgumentException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CborException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CoseException e) {
+			throw new IncorrectJwtException(e);
+		}
+	}
+
+	/**
+	 * Verify the validity of CWT
+	 * @author 				: <a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey 	: Signing key pair, verified with the public key
+	 * @param token  		: CBOR Web Token (CWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @return If Validity
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public boolean verify(KeyPair signingKey, String token, boolean checkExpiry) throws JwtException {
+
+		try {
+
+			//-------------------- Step 1：CWT Parse --------------------
+
+			// On the consumer side, parse the COSE_Sign1 message
+			CoseSign1 sign1 = CoseSign1.parse(CwtUtils.decode(token));
+			CwtUtils.checkAlgorithm(sign1.getAlgorithm(), this.getAlgorithms(), signingKey.getPublic());
+			Map<Object, Object> claims = checkExpiry ? CwtUtils.claims(sign1.getPayload()) : null;
+
+			//-------------------- Step 2：Signature Verify --------------------
+
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				CWTClaimsTimeVerifier.verify(claims, this.getTimeProvider());
+			}
+
+			// Verify the signature
+			if(!sign1.verify(signingKey.getPublic())) {
+				return false;
+			}
+
+			// Check the validity period of the CWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				CWTClaimsTimeVerifier.verify(claims, this.getTimeProvider());
+			}
+			return true;
+		} catch (IllegalArgumentException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CborException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CoseException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
+	/**
+	 * Parser CBOR Web Token (CWT)
+	 * @author 		：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey 	: Signing key pair, verified with the public key
+	 * @param token  		: CBOR Web Token (CWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @return JwtPlayload {@link JwtPayload}
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public JwtPayload getPlayload(KeyPair signingKey, String token, boolean checkExpiry)  throws JwtException {
+		try {
+
+			//-------------------- Step 1：CWT Parse --------------------
+
+			// On the consumer side, parse the COSE_Sign1 message
+			CoseSign1 sign1 = CoseSign1.parse(CwtUtils.decode(token));
+			CwtUtils.checkAlgorithm(sign1.getAlgorithm(), this.getAlgorithms(), signingKey.getPublic());
+			Map<Object, Object> claims = CwtUtils.claims(sign1.getPayload());
+
+			//-------------------- Step 2：Signature Verify --------------------
+
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				CWTClaimsTimeVerifier.verify(claims, this.getTimeProvider());
+			}
+
+			// Verify the signature
+			if(!sign1.verify(signingKey.getPublic())) {
+				throw new JwtException(String.format("Invalid CBOR Web Token (CWT) : %s", token));
+			}
+
+			// Check the validity period of the CWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				CWTClaimsTimeVerifier.verify(claims, this.getTimeProvider());
+			}
+
+			//-------------------- Step 3：Gets The Claims ---------------
+
+			// Retrieve CWT claims
+			return CwtUtils.payload(claims);
+		} catch (IllegalArgumentException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CborException e) {
+			throw new IncorrectJwtException(e);
+		} catch (CoseException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
+	public JwtTimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	public void setTimeProvider(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
+
+	public Set<String> getAlgorithms() {
+		return algorithms;
+	}
+
+	public void setAlgorithms(Set<String> algorithms) {
+		this.algorithms = algorithms;
+	}
+
+}
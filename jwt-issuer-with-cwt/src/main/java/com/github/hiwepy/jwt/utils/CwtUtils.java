@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.collections4.CollectionUtils;
+
+import com.github.hiwepy.jwt.JwtClaims;
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.cbor.CborException;
+import com.github.hiwepy.jwt.cbor.CborReader;
+import com.github.hiwepy.jwt.cbor.CborWriter;
+import com.github.hiwepy.jwt.cose.CoseAlgorithm;
+import com.github.hiwepy.jwt.cose.CoseException;
+
+/**
+ * CBOR Web Token (CWT, RFC 8392) 声明集的编码与解析：注册声明使用整数键（iss=1、sub=2、aud=3、exp=4、nbf=5、iat=6、cti=7），
+ * 其余声明（{@link JwtClaims} 的 roles、perms 等）保留原有的字符串键；解析时还原为 JWT 的声明名称，
+ * 使 {@link JwtPayload} 与 JSON 后端的结果一致。令牌为 COSE 消息的 Base64URL（无填充）编码。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CwtUtils {
+
+	public static final int ISSUER = 1;
+	public static final int SUBJECT = 2;
+	public static final int AUDIENCE = 3;
+	public static final int EXPIRATION = 4;
+	public static final int NOT_BEFORE = 5;
+	public static final int ISSUED_AT = 6;
+	public static final int CWT_ID = 7;
+
+	/**
+	 * 默认接受的 MAC 算法，截断为 64 位的 HS256/64 需要显式配置
+	 */
+	public static final Set<String> DEFAULT_MAC_ALGORITHMS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			CoseAlgorithm.HMAC_256.getName(), CoseAlgorithm.HMAC_384.getName(), CoseAlgorithm.HMAC_512.getName())));
+
+	/**
+	 * 注册声明整数键对应的 JWT 声明名称
+	 */
+	private static final String[] CLAIM_NAMES = { null, "iss", "sub", "aud", "exp", "nbf", "iat", "jti" };
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	/**
+	 * Encode the CWT claims set
+	 * @param jwtId 	: Jwt Id, encoded as the cti byte string
+	 * @param subject 	: Jwt Subject
+	 * @param issuer 	: Jwt Issuer
+	 * @param audience 	: Jwt Audience, a text string for the single audience
+	 * @param claims 	: Jwt Claims, the registered JWT names (jti, sub, aud, iss) are mapped to their integer keys
+	 * @param now 		: The issue time in milliseconds, also the not-before time
+	 * @param period 	: Jwt Expiration Cycle
+	 * @return The encoded claims set
+	 */
+	public static byte[] claimsSet(String jwtId, String subject, String issuer, Set<String> audience, Map<String, Object> claims,
+			long now, long period) {
+
+		Map<Object, Object> claimsSet = new LinkedHashMap<>();
+
+		// Jwt主键ID
+		if (StringUtils.isNoneBlank(jwtId)) {
+			claimsSet.put(CWT_ID, jwtId.getBytes(StandardCharsets.UTF_8));
+		}
+		// 用户名主题
+		if (subject != null) {
+			claimsSet.put(SUBJECT, subject);
+		}
+		// 接收对象
+		if (CollectionUtils.isNotEmpty(audience)) {
+			claimsSet.put(AUDIENCE, audience(audience));
+		}
+		// 签发者
+		if (StringUtils.isNoneBlank(issuer)) {
+			claimsSet.put(ISSUER, issuer);
+		}
+		// 声明信息
+		if (claims != null) {
+			for (Entry<String, Object> entry : claims.entrySet()) {
+				if (entry.getValue() != null) {
+					put(claimsSet, entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		return claimsSet(claimsSet, now, period);
+	}
+
+	public static byte[] claimsSet(String jwtId, String subject, String issuer, Set<String> audience, String roles,
+			String permissions, long now, long period) {
+		Map<String, Object> claims = new LinkedHashMap<>();
+		// 角色
+		if (StringUtils.isNoneBlank(roles)) {
+			claims.put(JwtClaims.ROLES, roles);
+		}
+		// 权限
+		if (StringUtils.isNoneBlank(permissions)) {
+			claims.put(JwtClaims.PERMS, permissions);
+		}
+		return claimsSet(jwtId, subject, issuer, audience, claims, now, period);
+	}
+
+	private static byte[] claimsSet(Map<Object, Object> claimsSet, long now, long period) {
+		long seconds = now / 1000L;
+		// 默认签发时间
+		claimsSet.put(ISSUED_AT, seconds);
+		// 默认有效期起始时间
+		claimsSet.put(NOT_BEFORE, seconds);
+		// Token过期时间
+		if (period >= 0) {
+			claimsSet.put(EXPIRATION, (now + period) / 1000L);
+		}
+		return new CborWriter(128 + claimsSet.size() * 16).writeObject(claimsSet).toByteArray();
+	}
+
+	/**
+	 * The custom claim named after a registered claim replaces it, except the time claims computed at issue
+	 */
+	private static void put(Map<Object, Object> claimsSet, String name, Object value) {
+		switch (name) {
+		case "jti":
+			claimsSet.put(CWT_ID, value.toString().getBytes(StandardCharsets.UTF_8));
+			break;
+		case "sub":
+			claimsSet.put(SUBJECT, value.toString());
+			break;
+		case "iss":
+			claimsSet.put(ISSUER, value.toString());
+			break;
+		case "aud":
+			claimsSet.put(AUDIENCE, value instanceof Collection ? audience((Collection<?>) value) : value.toString());
+			break;
+		case "iat":
+		case "nbf":
+		case "exp":
+			break;
+		default:
+			claimsSet.put(name, value);
+		}
+	}
+
+	private static Object audience(Collection<?> audience) {
+		return audience.size() == 1 ? String.valueOf(audience.iterator().next()) : audience;
+	}
+
+	/**
+	 * Decode the CWT claims set
+	 * @param claimsSet : The encoded claims set
+	 * @return The claims keyed by the integer or text labels
+	 * @throws CborException If the claims set is malformed
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<Object, Object> claims(byte[] claimsSet) {
+		CborReader reader = new CborReader(claimsSet);
+		if (reader.peekMajorType() != CborWriter.MAJOR_MAP) {
+			throw new CborException("The CWT claims set must be a map");
+		}
+		Map<Object, Object> ret = (Map<Object, Object>) reader.read();
+		if (reader.hasNext()) {
+			throw new CborException("Unexpected data after the CWT claims set");
+		}
+		return ret;
+	}
+
+	/**
+	 * Read the NumericDate claim, the integer label takes precedence over the text label, e.g. "exp"
+	 * @param claims 	: The decoded claims
+	 * @param key 		: The integer key, e.g. {@link #EXPIRATION}
+	 * @return The date, or null if absent
+	 * @throws CborException If the claim is not a NumericDate
+	 */
+	public static Date getDate(Map<Object, Object> claims, int key) {
+		Object value = claims.containsKey(key) ? claims.get(key) : claims.get(CLAIM_NAMES[key]);
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof Number) {
+			return new Date(((Number) value).longValue() * 1000L);
+		}
+		throw new CborException(String.format("The claim %s must be a NumericDate", CLAIM_NAMES[key]));
+	}
+
+	public static JwtPayload payload(Map<Object, Object> claims) {
+
+		Map<String, Object> jwtClaims = new LinkedHashMap<>(claims.size() * 4 / 3 + 1);
+		for (Entry<Object, Object> entry : claims.entrySet()) {
+			Object key = entry.getKey();
+			Object value = entry.getValue();
+			int label = label(key);
+			if (label > 0) {
+				// the text label of a registered claim, e.g. from another issuer, unless the integer label is present
+				if (key instanceof String && claims.containsKey(label)) {
+					continue;
+				}
+				switch (label) {
+				case CWT_ID:
+					value = value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+					break;
+				case AUDIENCE:
+					value = value instanceof List ? value : Collections.singletonList(String.valueOf(value));
+					break;
+				case EXPIRATION:
+				case NOT_BEFORE:
+				case ISSUED_AT:
+					value = getDate(claims, label);
+					break;
+				default:
+					value = String.valueOf(value);
+				}
+				jwtClaims.put(CLAIM_NAMES[label], value);
+			} else {
+				jwtClaims.put(String.valueOf(key), value);
+			}
+		}
+
+		JwtPayload payload = new JwtPayload();
+		payload.setTokenId((String) jwtClaims.get("jti"));
+		payload.setSubject((String) jwtClaims.get("sub"));// 用户名
+		payload.setIssuer((String) jwtClaims.get("iss"));// 签发者
+		payload.setIssuedAt((Date) jwtClaims.get("iat"));// 签发时间
+		payload.setExpiration((Date) jwtClaims.get("exp")); // 过期时间
+		payload.setNotBefore((Date) jwtClaims.get("nbf"));
+		payload.setAudience(audience(jwtClaims.get("aud")));// 接收方
+		payload.setClaims(jwtClaims); // 访问主张
+
+		return payload;
+	}
+
+	/**
+	 * The integer label of the registered claim, keyed by the integer or the text label, or 0 for the other claims
+	 */
+	private static int label(Object key) {
+		if (key instanceof Integer) {
+			int label = (Integer) key;
+			return label >= ISSUER && label <= CWT_ID ? label : 0;
+		}
+		for (int label = ISSUER; label <= CWT_ID; label++) {
+			if (CLAIM_NAMES[label].equals(key)) {
+				return label;
+			}
+		}
+		return 0;
+	}
+
+	private static Set<String> audience(Object audience) {
+		Set<String> ret = new HashSet<>();
+		if (audience instanceof List) {
+			for (Object item : (List<?>) audience) {
+				ret.add(String.valueOf(item));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * The HMAC key of the secret string, encoded as UTF-8 like the JSON backends
+	 * @param signingKey 	: The secret
+	 * @param algorithm 	: The MAC algorithm
+	 * @return The secret key
+	 */
+	public static SecretKey secretKey(String signingKey, CoseAlgorithm algorithm) {
+		return new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), algorithm.getJcaName());
+	}
+
+	/**
+	 * Check the algorithm of the received COSE message before the key is used, the algorithm is read from the
+	 * protected header and must not be trusted as is, e.g. to downgrade HS256 to the truncated HS256/64
+	 * @param algorithm 	: The algorithm of the message
+	 * @param algorithms 	: The accepted algorithm names, see {@link CoseAlgorithm#getName()}, or null to accept any
+	 * @param key 			: The public key to verify the signature with, or null for the MAC
+	 * @throws CoseException If the algorithm is not accepted or doesn't match the public key
+	 */
+	public static void checkAlgorithm(CoseAlgorithm algorithm, Set<String> algorithms, PublicKey key) throws CoseException {
+		if (algorithms != null && !algorithms.contains(algorithm.getName())) {
+			throw new CoseException("The algorithm is not accepted: " + algorithm.getName());
+		}
+		if (key != null && !isCompatible(algorithm, key)) {
+			throw new CoseException(String.format("The algorithm %s doesn't match the %s key", algorithm.getName(), key.getAlgorithm()));
+		}
+	}
+
+	/**
+	 * ES256/ES384/ES512 必须与 EC 公钥的曲线一致，RSA 公钥只接受 RS/PS，其他公钥（Ed25519/Ed448）只接受 EdDSA
+	 */
+	private static boolean isCompatible(CoseAlgorithm algorithm, PublicKey key) {
+		if (key instanceof ECPublicKey) {
+			int fieldSize = ((ECPublicKey) key).getParams().getCurve().getField().getFieldSize();
+			return algorithm == CoseAlgorithm.ES256 && fieldSize == 256 || algorithm == CoseAlgorithm.ES384 && fieldSize == 384
+					|| algorithm == CoseAlgorithm.ES512 && fieldSize == 521;
+		}
+		if (key instanceof RSAPublicKey) {
+			return algorithm.getName().startsWith("RS") || algorithm.getName().startsWith("PS");
+		}
+		return algorithm == CoseAlgorithm.EDDSA;
+	}
+
+	/**
+	 * Encode the COSE message as the compact token
+	 * @param message : The encoded COSE message
+	 * @return The Base64URL encoded token, without padding
+	 */
+	public static String encode(byte[] message) {
+		return ENCODER.encodeToString(message);
+	}
+
+	/**
+	 * Decode the compact token
+	 * @param token : The Base64URL encoded token
+	 * @return The encoded COSE message
+	 * @throws IllegalArgumentException If the token is not Base64URL encoded
+	 */
+	public static byte[] decode(String token) {
+		return DECODER.decode(token);
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.verifier;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hiwepy.jwt.exception.ExpiredJwtException;
+import com.github.hiwepy.jwt.exception.NotObtainedJwtException;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.CwtUtils;
+
+/**
+ * CWT 有效期校验（nbf/exp），与 JSON 后端的校验规则一致
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CWTClaimsTimeVerifier {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CWTClaimsTimeVerifier.class);
+
+	/**
+	 * Check the validity period of the CWT claims
+	 * @param claims 		: The decoded claims, see {@link CwtUtils#claims(byte[])}
+	 * @param timeProvider 	: The time provider
+	 * @throws NotObtainedJwtException If the CWT is used before the not-before time
+	 * @throws ExpiredJwtException If the CWT is expired
+	 */
+	public static void verify(Map<Object, Object> claims, JwtTimeProvider timeProvider) {
+
+		Date notBefore = CwtUtils.getDate(claims, CwtUtils.NOT_BEFORE);
+		Date expiration = CwtUtils.getDate(claims, CwtUtils.EXPIRATION);
+		long currentTimeMillis = timeProvider.now();
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("CWT NotBefore:" + notBefore);
+			LOG.debug("CWT Expiration:" + expiration);
+			LOG.debug("CWT Now:" + new Date(currentTimeMillis));
+		}
+
+		if(notBefore != null && currentTimeMillis <= notBefore.getTime()) {
+			throw new NotObtainedJwtException(String.format("CWT was not obtained before this timestamp : [%s].", notBefore));
+		}
+		if(expiration != null && expiration.getTime() < currentTimeMillis) {
+			throw ExpiredJwtException.expired();
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cbor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.cose.CoseMessageTest;
+
+/**
+ * {@link CborReader} 测试：编码往返、畸形输入（截断、超长长度、不定长、嵌套过深）与随机输入
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CborReaderTest {
+
+	@Test
+	public void writtenValuesRoundTrip() {
+		Map<Object, Object> value = new LinkedHashMap<>();
+		value.put(1, "coap://as.example.com");
+		value.put(-7, Long.MAX_VALUE);
+		value.put("roles", Arrays.asList("admin", true, null, 1.5d));
+		Object ret = new CborReader(new CborWriter(64).writeObject(value).toByteArray()).read();
+		assertEquals(value, ret);
+	}
+
+	@Test
+	public void malformedInputIsRejected() {
+		// truncated text string
+		assertThrows(CborException.class, () -> new CborReader(CoseMessageTest.hex("6568656c6c")).read());
+		// byte string claiming 2^32 - 1 bytes
+		assertThrows(CborException.class, () -> new CborReader(CoseMessageTest.hex("5affffffff00")).read());
+		// array claiming 2^64 - 1 elements
+		assertThrows(CborException.class, () -> new CborReader(CoseMessageTest.hex("9bffffffffffffffff")).read());
+		// indefinite length map
+		assertThrows(CborException.class, () -> new CborReader(CoseMessageTest.hex("bf6161f5ff")).read());
+		// reserved additional information
+		assertThrows(CborException.class, () -> new CborReader(CoseMessageTest.hex("1c")).read());
+		assertThrows(CborException.class, () -> new CborReader(new byte[0]).read());
+	}
+
+	@Test
+	public void deepNestingIsRejected() {
+		byte[] nested = new byte[1024];
+		Arrays.fill(nested, (byte) 0x81);
+		assertThrows(CborException.class, () -> new CborReader(nested).read());
+	}
+
+	/**
+	 * Random and mutated input is either decoded or rejected with {@link CborException}
+	 */
+	@Test
+	public void randomInputIsRejectedCleanly() {
+		Random random = new Random(8949);
+		byte[] claimsSet = CoseMessageTest.hex(CoseMessageTest.A1_CLAIMS_SET);
+		for (int i = 0; i < 20_000; i++) {
+			byte[] input;
+			if (i % 2 == 0) {
+				input = new byte[random.nextInt(64)];
+				random.nextBytes(input);
+			} else {
+				input = CoseMessageTest.mutate(random, claimsSet);
+			}
+			try {
+				new CborReader(input).read();
+			} catch (CborException e) {
+				// rejected
+			}
+		}
+	}
+
+}
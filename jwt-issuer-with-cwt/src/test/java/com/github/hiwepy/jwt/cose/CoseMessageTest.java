@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.cose;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.cbor.CborException;
+
+/**
+ * COSE 消息测试：RFC 8392 附录 A 的签名（A.3）与 MAC（A.4）示例、篡改与变异输入的解析
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CoseMessageTest {
+
+	/**
+	 * RFC 8392 A.1 Example CWT Claims Set
+	 */
+	public static final String A1_CLAIMS_SET = "a70175636f61703a2f2f61732e6578616d706c652e636f6d02656572696b77037818636f61703a2f2f6c696768"
+			+ "742e6578616d706c652e636f6d041a5612aeb0051a5610d9f0061a5610d9f007420b71";
+	/**
+	 * RFC 8392 A.2.3 Example ECDSA P-256 Key, the public coordinates
+	 */
+	public static final String A2_3_X = "143329cce7868e416927599cf65a34f3ce2ffda55a7eca69ed8919a394d42f0f";
+	public static final String A2_3_Y = "60f7f1a780d8a783bfb7a2dd6b2796e8128dbbcef9d3d168db9529971a36e7b9";
+	public static final String A2_3_D = "6c1382765aec5358f117733d281c1c7bdc39884d04a45a1e6c67c858bc206c19";
+	/**
+	 * RFC 8392 A.3 Example Signed CWT (COSE_Sign1, ES256)
+	 */
+	public static final String A3_SIGNED_CWT = "d28443a10126a104524173796d6d657472696345434453413235365850" + A1_CLAIMS_SET
+			+ "58405427c1ff28d23fbad1f29c4c7c6a555e601d6fa29f9179bc3d7438bacaca5acd08c8d4d4f96131680c429a01f85951ecee743a52b9b6"
+			+ "3632c57209120e1c9e30";
+	/**
+	 * RFC 8392 A.4 Example MACed CWT (CWT tag, COSE_Mac0, HS256/64)
+	 */
+	public static final String A4_MACED_CWT = "d83dd18443a10104a1044c53796d6d65747269633235365850" + A1_CLAIMS_SET + "48093101ef6d789200";
+
+	public static byte[] hex(String value) {
+		byte[] ret = new byte[value.length() / 2];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = (byte) Integer.parseInt(value.substring(i * 2, i * 2 + 2), 16);
+		}
+		return ret;
+	}
+
+	public static PublicKey a23PublicKey() throws Exception {
+		AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+		parameters.init(new ECGenParameterSpec("secp256r1"));
+		ECPoint point = new ECPoint(new BigInteger(1, hex(A2_3_X)), new BigInteger(1, hex(A2_3_Y)));
+		return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+	}
+
+	@Test
+	public void rfc8392SignedCwtIsVerified() throws Exception {
+		CoseSign1 sign1 = CoseSign1.parse(hex(A3_SIGNED_CWT));
+		assertEquals(CoseAlgorithm.ES256, sign1.getAlgorithm());
+		assertArrayEquals("AsymmetricECDSA256".getBytes(StandardCharsets.US_ASCII), sign1.getKeyId());
+		assertArrayEquals(hex(A1_CLAIMS_SET), sign1.getPayload());
+		assertTrue(sign1.verify(a23PublicKey()));
+
+		byte[] tampered = hex(A3_SIGNED_CWT);
+		tampered[40] ^= 0x01;
+		assertFalse(CoseSign1.parse(tampered).verify(a23PublicKey()));
+	}
+
+	/**
+	 * The tag of A.4 is not recomputed here, the structure and the algorithm are checked, see the repository tests for the pinning
+	 */
+	@Test
+	public void rfc8392MacedCwtIsParsed() {
+		CoseMac0 mac0 = CoseMac0.parse(hex(A4_MACED_CWT));
+		assertEquals(CoseAlgorithm.HMAC_256_64, mac0.getAlgorithm());
+		assertArrayEquals("Symmetric256".getBytes(StandardCharsets.US_ASCII), mac0.getKeyId());
+		assertArrayEquals(hex(A1_CLAIMS_SET), mac0.getPayload());
+	}
+
+	@Test
+	public void truncatedMacRoundTrips() throws Exception {
+		SecretKey key = new SecretKeySpec(new byte[32], "HmacSHA256");
+		CoseMac0 mac0 = new CoseMac0(CoseAlgorithm.HMAC_256_64, "Symmetric256".getBytes(StandardCharsets.US_ASCII), hex(A1_CLAIMS_SET));
+		mac0.mac(key);
+		byte[] message = mac0.serialize();
+		assertTrue(CoseMac0.parse(message).verify(key));
+		// 8 bytes tag, the bstr header takes one byte
+		message[message.length - 1] ^= 0x01;
+		assertFalse(CoseMac0.parse(message).verify(key));
+	}
+
+	@Test
+	public void messageOfAnotherTypeIsRejected() {
+		assertThrows(CborException.class, () -> CoseMac0.parse(hex(A3_SIGNED_CWT)));
+		assertThrows(CborException.class, () -> CoseSign1.parse(hex(A4_MACED_CWT)));
+		assertThrows(CborException.class, () -> CoseEncrypt0.parse(hex(A3_SIGNED_CWT)));
+	}
+
+	/**
+	 * Mutated messages are either parsed or rejected with {@link CborException}, never with another runtime exception
+	 */
+	@Test
+	public void mutatedMessagesAreRejectedCleanly() {
+		Random random = new Random(8392);
+		byte[][] seeds = { hex(A3_SIGNED_CWT), hex(A4_MACED_CWT) };
+		for (int i = 0; i < 20_000; i++) {
+			byte[] message = mutate(random, seeds[i % seeds.length]);
+			try {
+				if (i % 3 == 0) {
+					CoseSign1.parse(message);
+				} else if (i % 3 == 1) {
+					CoseMac0.parse(message);
+				} else {
+					CoseEncrypt0.parse(message);
+				}
+			} catch (CborException e) {
+				// rejected
+			}
+		}
+	}
+
+	/**
+	 * Flip a bit, change some bytes, truncate or extend the message at random
+	 */
+	public static byte[] mutate(Random random, byte[] seed) {
+		byte[] ret = seed.clone();
+		switch (random.nextInt(4)) {
+		case 0:
+			ret[random.nextInt(ret.length)] ^= 1 << random.nextInt(8);
+			return ret;
+		case 1:
+			// change up to 4 consecutive bytes, each of them differs from the original
+			for (int i = random.nextInt(ret.length), end = Math.min(ret.length, i + 1 + random.nextInt(4)); i < end; i++) {
+				ret[i] ^= 1 + random.nextInt(255);
+			}
+			return ret;
+		case 2:
+			return Arrays.copyOf(ret, random.nextInt(ret.length));
+		default:
+			byte[] extended = Arrays.copyOf(ret, ret.length + 1 + random.nextInt(8));
+			for (int i = ret.length; i < extended.length; i++) {
+				extended[i] = (byte) random.nextInt(256);
+			}
+			return extended;
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.github.hiwepy.jwt.utils.CwtUtils;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+
+/**
+ * CWT（COSE_Mac0 / COSE_Sign1 / COSE_Encrypt0）与 Nimbus JWT（JWS / JWE）在相同声明下的令牌长度、签发与解析耗时对比
+ * <p>两者的令牌都是 Base64URL 文本，CWT 另外给出二进制消息的字节数，即 CoAP 等二进制传输下的实际长度。</p>
+ * <p>解析时不校验有效期：同一令牌被反复解析，签发的那一秒内 nbf 校验可能拒绝它，且两边的有效期校验都是常数开销。</p>
+ * <pre>
+ * java -cp ... com.github.hiwepy.jwt.token.CwtSizeLatencyBenchmark [iterations]
+ * </pre>
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CwtSizeLatencyBenchmark {
+
+	private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+	private static final Set<String> AUDIENCE = Collections.singleton("app");
+	private static final long PERIOD = 3_600_000;
+
+	private static volatile Object sink;
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+		ECKey ecJWK = new ECKeyGenerator(Curve.P_256).generate();
+		KeyPair keyPair = ecJWK.toKeyPair();
+		SecretKey aesKey = new SecretKeySpec(Arrays.copyOf(SECRET.getBytes(StandardCharsets.UTF_8), 16), "AES");
+
+		SignedWithHamcJWTRepository jwtHmac = new SignedWithHamcJWTRepository();
+		SignedWithEcJWTRepository jwtEc = new SignedWithEcJWTRepository();
+		SignedWithHamcAndEncryptedWithAESJWTRepository jwtHmacAes = new SignedWithHamcAndEncryptedWithAESJWTRepository();
+		SignedWithEcAndEncryptedWithAESJWTRepository jwtEcAes = new SignedWithEcAndEncryptedWithAESJWTRepository();
+		SignedWithHmacCWTRepository cwtHmac = new SignedWithHmacCWTRepository();
+		cwtHmac.setAlgorithms(new HashSet<>(Arrays.asList("HS256", "HS256/64")));
+		SignedWithKeyPairCWTRepository cwtEc = new SignedWithKeyPairCWTRepository();
+		SignedWithHmacAndEncryptedWithAESCWTRepository cwtHmacAes = new SignedWithHmacAndEncryptedWithAESCWTRepository();
+		SignedWithKeyPairAndEncryptedWithAESCWTRepository cwtEcAes = new SignedWithKeyPairAndEncryptedWithAESCWTRepository();
+
+		Map<String, Object> small = new LinkedHashMap<>();
+		small.put("roles", "admin");
+		small.put("perms", "read");
+		Map<String, Object> medium = new LinkedHashMap<>();
+		medium.put("roles", "admin,user,guest,operator");
+		medium.put("perms", "user:read,user:write,order:read,order:write");
+		medium.put("uid", 12345);
+		medium.put("uname", "alice");
+		medium.put("bound", true);
+		medium.put("longitude", 121.47);
+		medium.put("latitude", 31.23);
+
+		for (Map<String, Object> claims : Arrays.asList(small, medium)) {
+			System.out.println(claims == small ? "== 2 custom claims, us/op" : "== 7 custom claims, us/op");
+			System.out.printf("%-28s %6s %6s %10s %10s%n", "token", "chars", "bytes", "issue", "verify");
+			run("JWS HS256", false, iterations,
+					() -> jwtHmac.issueJwt(SECRET, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "HS256", PERIOD),
+					token -> jwtHmac.getPlayload(SECRET, token, false));
+			run("CWT HS256 (Mac0)", true, iterations,
+					() -> cwtHmac.issueJwt(SECRET, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "HS256", PERIOD),
+					token -> cwtHmac.getPlayload(SECRET, token, false));
+			run("CWT HS256/64 (Mac0)", true, iterations,
+					() -> cwtHmac.issueJwt(SECRET, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "HS256/64", PERIOD),
+					token -> cwtHmac.getPlayload(SECRET, token, false));
+			run("JWS ES256", false, iterations / 20,
+					() -> jwtEc.issueJwt(ecJWK, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "ES256", PERIOD),
+					token -> jwtEc.getPlayload(ecJWK, token, false));
+			run("CWT ES256 (Sign1)", true, iterations / 20,
+					() -> cwtEc.issueJwt(keyPair, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "ES256", PERIOD),
+					token -> cwtEc.getPlayload(keyPair, token, false));
+			run("JWS HS256 + JWE A128GCM", false, iterations,
+					() -> jwtHmacAes.issueJwt(SECRET, aesKey, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "HS256", PERIOD),
+					token -> jwtHmacAes.getPlayload(SECRET, aesKey, token, false));
+			run("CWT HS256 + A128GCM", true, iterations,
+					() -> cwtHmacAes.issueJwt(SECRET, aesKey, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "HS256", PERIOD),
+					token -> cwtHmacAes.getPlayload(SECRET, aesKey, token, false));
+			run("JWS ES256 + JWE A128GCM", false, iterations / 20,
+					() -> jwtEcAes.issueJwt(ecJWK, aesKey, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "ES256", PERIOD),
+					token -> jwtEcAes.getPlayload(ecJWK, aesKey, token, false));
+			run("CWT ES256 + A128GCM", true, iterations / 20,
+					() -> cwtEcAes.issueJwt(keyPair, aesKey, "7f3c2a9e", "alice", "issuer", AUDIENCE, claims, "ES256", PERIOD),
+					token -> cwtEcAes.getPlayload(keyPair, aesKey, token, false));
+			System.out.println();
+		}
+	}
+
+	private static void run(String name, boolean binary, int iterations, Issuer issuer, Parser parser) throws Exception {
+		String token = issuer.issue();
+		// warm up
+		for (int i = 0; i < Math.min(iterations, 2000); i++) {
+			sink = parser.parse(issuer.issue());
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink = issuer.issue();
+		}
+		long issued = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink = parser.parse(token);
+		}
+		long verified = System.nanoTime();
+		System.out.printf("%-28s %6d %6s %10.2f %10.2f%n", name, token.length(), binary ? String.valueOf(CwtUtils.decode(token).length) : "-",
+				micros(issued - start, iterations), micros(verified - issued, iterations));
+	}
+
+	private static double micros(long nanos, int iterations) {
+		return nanos / 1000.0 / iterations;
+	}
+
+	private interface Issuer {
+
+		String issue() throws Exception;
+
+	}
+
+	private interface Parser {
+
+		Object parse(String token) throws Exception;
+
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+import com.github.hiwepy.jwt.exception.JwtException;
+
+/**
+ * {@link SignedWithHmacAndEncryptedWithAESCWTRepository} 测试：嵌套的 COSE_Mac0 同样锁定算法，篡改的密文无法解密
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class SignedWithHmacAndEncryptedWithAESCWTRepositoryTest {
+
+	private final SecretKey secretKey = new SecretKeySpec(new byte[16], "AES");
+
+	private String issue(SignedWithHmacAndEncryptedWithAESCWTRepository repository, String algorithm) {
+		return repository.issueJwt(SignedWithHmacCWTRepositoryTest.SECRET, secretKey, "7f3c2a9e", "alice", "issuer",
+				Collections.singleton("app"), "admin", "user:read", algorithm, 60_000);
+	}
+
+	@Test
+	public void issuedTokenRoundTrips() {
+		SignedWithHmacAndEncryptedWithAESCWTRepository repository = new SignedWithHmacAndEncryptedWithAESCWTRepository();
+		String token = this.issue(repository, "HS256");
+		assertTrue(repository.verify(SignedWithHmacCWTRepositoryTest.SECRET, secretKey, token, true));
+		assertEquals("alice", repository.getPlayload(SignedWithHmacCWTRepositoryTest.SECRET, secretKey, token, true).getSubject());
+	}
+
+	@Test
+	public void truncatedMacIsRejectedByDefault() {
+		SignedWithHmacAndEncryptedWithAESCWTRepository repository = new SignedWithHmacAndEncryptedWithAESCWTRepository();
+		String token = this.issue(repository, "HS256/64");
+		assertThrows(InvalidJwtToken.class, () -> repository.verify(SignedWithHmacCWTRepositoryTest.SECRET, secretKey, token, true));
+	}
+
+	@Test
+	public void tamperedCiphertextIsRejected() {
+		SignedWithHmacAndEncryptedWithAESCWTRepository repository = new SignedWithHmacAndEncryptedWithAESCWTRepository();
+		String token = SignedWithHmacCWTRepositoryTest.tamper(this.issue(repository, "HS256"), -1);
+		assertThrows(JwtException.class, () -> repository.verify(SignedWithHmacCWTRepositoryTest.SECRET, secretKey, token, true));
+	}
+
+}
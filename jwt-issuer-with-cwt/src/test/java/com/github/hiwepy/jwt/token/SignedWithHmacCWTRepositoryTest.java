@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.cbor.CborWriter;
+import com.github.hiwepy.jwt.cose.CoseAlgorithm;
+import com.github.hiwepy.jwt.cose.CoseMac0;
+import com.github.hiwepy.jwt.cose.CoseMessageTest;
+import com.github.hiwepy.jwt.exception.ExpiredJwtException;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.utils.CwtUtils;
+
+/**
+ * {@link SignedWithHmacCWTRepository} 测试：签发与解析、RFC 8392 示例、算法锁定、篡改、变异输入与有效期
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class SignedWithHmacCWTRepositoryTest {
+
+	static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+	private final AtomicLong clock = new AtomicLong(1_700_000_000_500L);
+
+	private SignedWithHmacCWTRepository repository() {
+		SignedWithHmacCWTRepository repository = new SignedWithHmacCWTRepository();
+		repository.setTimeProvider(clock::get);
+		return repository;
+	}
+
+	private String issue(SignedWithHmacCWTRepository repository, String algorithm) {
+		return repository.issueJwt(SECRET, "7f3c2a9e", "alice", "issuer", Collections.singleton("app"), "admin", "user:read",
+				algorithm, 60_000);
+	}
+
+	/**
+	 * Flip one bit of the decoded COSE message
+	 */
+	static String tamper(String token, int index) {
+		byte[] message = CwtUtils.decode(token);
+		int offset = index < 0 ? message.length + index : index;
+		message[offset] ^= 0x01;
+		return CwtUtils.encode(message);
+	}
+
+	@Test
+	public void issuedTokenRoundTrips() {
+		SignedWithHmacCWTRepository repository = this.repository();
+		String token = this.issue(repository, "HS256");
+		assertTrue(repository.verify(SECRET, token, true));
+		JwtPayload payload = repository.getPlayload(SECRET, token, true);
+		assertEquals("7f3c2a9e", payload.getTokenId());
+		assertEquals("alice", payload.getSubject());
+		assertEquals("issuer", payload.getIssuer());
+		assertEquals(Collections.singleton("app"), payload.getAudience());
+		assertEquals("admin", payload.getClaims().get("roles"));
+		assertEquals(clock.get() / 1000 * 1000 + 60_000, payload.getExpiration().getTime());
+	}
+
+	@Test
+	public void truncatedMacIsRejectedUnlessAccepted() {
+		SignedWithHmacCWTRepository repository = this.repository();
+		String token = this.issue(repository, "HS256/64");
+		assertThrows(InvalidJwtToken.class, () -> repository.verify(SECRET, token, true));
+		assertThrows(InvalidJwtToken.class, () -> repository.getPlayload(SECRET, token, true));
+
+		repository.setAlgorithms(new HashSet<>(Arrays.asList("HS256", "HS256/64")));
+		assertTrue(repository.verify(SECRET, token, true));
+	}
+
+	@Test
+	public void algorithmIsPinned() {
+		SignedWithHmacCWTRepository repository = this.repository();
+		repository.setAlgorithms(Collections.singleton("HS512"));
+		assertThrows(InvalidJwtToken.class, () -> repository.verify(SECRET, this.issue(repository, "HS256"), true));
+		assertTrue(repository.verify(SECRET, this.issue(repository, "HS512"), true));
+	}
+
+	@Test
+	public void tamperedTokenIsRejected() {
+		SignedWithHmacCWTRepository repository = this.repository();
+		String token = this.issue(repository, "HS256");
+		assertFalse(repository.verify(SECRET, tamper(token, -1), true));
+		// the last claim value (perms) is right before the 32 bytes tag and its 2 bytes header
+		assertFalse(repository.verify(SECRET, tamper(token, -35), true));
+		assertThrows(JwtException.class, () -> repository.getPlayload(SECRET, tamper(token, -1), true));
+		assertFalse(repository.verify("fedcba9876543210fedcba9876543210", token, true));
+	}
+
+	@Test
+	public void expiredTokenIsRejected() {
+		SignedWithHmacCWTRepository repository = this.repository();
+		String token = this.issue(repository, "HS256");
+		clock.addAndGet(61_000);
+		assertThrows(ExpiredJwtException.class, () -> repository.verify(SECRET, token, true));
+		repository.setTemporalPreCheck(true);
+		assertThrows(ExpiredJwtException.class, () -> repository.getPlayload(SECRET, token, true));
+		assertTrue(repository.verify(SECRET, token, false));
+	}
+
+	/**
+	 * RFC 8392 A.4 is MACed with HS256/64, rejected by default. The A.2.2 key is not used here, so the tag doesn't match
+	 */
+	@Test
+	public void rfc8392MacedCwtIsRejectedByDefault() {
+		SignedWithHmacCWTRepository repository = this.repository();
+		String token = CwtUtils.encode(CoseMessageTest.hex(CoseMessageTest.A4_MACED_CWT));
+		assertThrows(InvalidJwtToken.class, () -> repository.verify(SECRET, token, false));
+
+		repository.setAlgorithms(new HashSet<>(Arrays.asList("HS256", "HS256/64")));
+		assertFalse(repository.verify(SECRET, token, false));
+	}
+
+	/**
+	 * Mutated tokens are either rejected or raise a {@link JwtException}, never another runtime exception
+	 */
+	@Test
+	public void mutatedTokensRaiseJwtExceptionsOnly() {
+		SignedWithHmacCWTRepository repository = this.repository();
+		byte[] message = CwtUtils.decode(this.issue(repository, "HS256"));
+		Random random = new Random(8392);
+		for (int i = 0; i < 10_000; i++) {
+			String token = CwtUtils.encode(CoseMessageTest.mutate(random, message));
+			try {
+				assertFalse(repository.verify(SECRET, token, i % 2 == 0));
+			} catch (JwtException e) {
+				// rejected
+			}
+		}
+		for (String token : new String[] { "", "not a token", "2YQ", "*" }) {
+			assertThrows(JwtException.class, () -> repository.verify(SECRET, token, true));
+		}
+	}
+
+	/**
+	 * Authentic tokens with mutated claims sets, e.g. from a misbehaving issuer, are parsed or raise a {@link JwtException}
+	 */
+	@Test
+	public void malformedClaimsRaiseJwtExceptionsOnly() throws Exception {
+		SignedWithHmacCWTRepository repository = this.repository();
+		SecretKey key = CwtUtils.secretKey(SECRET, CoseAlgorithm.HMAC_256);
+		byte[] claimsSet = CwtUtils.claimsSet("7f3c2a9e", "alice", "issuer", Collections.singleton("app"), "admin", "user:read",
+				clock.get(), 60_000);
+		Random random = new Random(8949);
+		for (int i = 0; i < 10_000; i++) {
+			CoseMac0 mac0 = new CoseMac0(CoseAlgorithm.HMAC_256, null, CoseMessageTest.mutate(random, claimsSet));
+			mac0.mac(key);
+			try {
+				repository.getPlayload(SECRET, CwtUtils.encode(mac0.serialize()), i % 2 == 0);
+			} catch (JwtException e) {
+				// rejected
+			}
+		}
+	}
+
+	/**
+	 * The registered claims of other issuers may use the text labels, they are converted like the integer labels
+	 */
+	@Test
+	public void registeredClaimsWithTextLabelsAreConverted() throws Exception {
+		SignedWithHmacCWTRepository repository = this.repository();
+		Map<Object, Object> claims = new LinkedHashMap<>();
+		claims.put("jti", 42);
+		claims.put("sub", "alice");
+		claims.put("aud", "app");
+		claims.put("iat", 1_700_000_000);
+		String token = mac(claims);
+		JwtPayload payload = repository.getPlayload(SECRET, token, true);
+		assertEquals("42", payload.getTokenId());
+		assertEquals("alice", payload.getSubject());
+		assertEquals(Collections.singleton("app"), payload.getAudience());
+		assertEquals(1_700_000_000_000L, payload.getIssuedAt().getTime());
+
+		claims.put("exp", "tomorrow");
+		assertThrows(IncorrectJwtException.class, () -> repository.getPlayload(SECRET, mac(claims), false));
+	}
+
+	private static String mac(Map<Object, Object> claims) throws Exception {
+		CoseMac0 mac0 = new CoseMac0(CoseAlgorithm.HMAC_256, null, new CborWriter(128).writeObject(claims).toByteArray());
+		mac0.mac(CwtUtils.secretKey(SECRET, CoseAlgorithm.HMAC_256));
+		return CwtUtils.encode(mac0.serialize());
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyPair;
+import java.util.Collections;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+
+/**
+ * {@link SignedWithKeyPairAndEncryptedWithAESCWTRepository} 测试：嵌套的 COSE_Sign1 同样校验算法与公钥匹配
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class SignedWithKeyPairAndEncryptedWithAESCWTRepositoryTest {
+
+	private final SecretKey secretKey = new SecretKeySpec(new byte[32], "AES");
+
+	private String issue(SignedWithKeyPairAndEncryptedWithAESCWTRepository repository, KeyPair keyPair, String algorithm) {
+		return repository.issueJwt(keyPair, secretKey, "7f3c2a9e", "alice", "issuer", Collections.singleton("app"), "admin",
+				"user:read", algorithm, 60_000);
+	}
+
+	@Test
+	public void issuedTokenRoundTrips() throws Exception {
+		SignedWithKeyPairAndEncryptedWithAESCWTRepository repository = new SignedWithKeyPairAndEncryptedWithAESCWTRepository();
+		KeyPair keyPair = SignedWithKeyPairCWTRepositoryTest.keyPair("EC", "secp384r1");
+		String token = this.issue(repository, keyPair, "ES384");
+		assertTrue(repository.verify(keyPair, secretKey, token, true));
+		assertEquals("alice", repository.getPlayload(keyPair, secretKey, token, true).getSubject());
+	}
+
+	@Test
+	public void algorithmMustMatchTheKey() throws Exception {
+		SignedWithKeyPairAndEncryptedWithAESCWTRepository repository = new SignedWithKeyPairAndEncryptedWithAESCWTRepository();
+		KeyPair keyPair = SignedWithKeyPairCWTRepositoryTest.keyPair("EC", "secp256r1");
+		String token = this.issue(repository, keyPair, "ES512");
+		assertThrows(InvalidJwtToken.class, () -> repository.verify(keyPair, secretKey, token, true));
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECPrivateKeySpec;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.cose.CoseMessageTest;
+import com.github.hiwepy.jwt.exception.ExpiredJwtException;
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+import com.github.hiwepy.jwt.utils.CwtUtils;
+
+/**
+ * {@link SignedWithKeyPairCWTRepository} 测试：签发与解析、RFC 8392 示例、算法与公钥匹配、算法锁定与篡改
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class SignedWithKeyPairCWTRepositoryTest {
+
+	static KeyPair keyPair(String algorithm, Object parameter) throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+		if (parameter instanceof Integer) {
+			generator.initialize((Integer) parameter);
+		} else {
+			generator.initialize(new ECGenParameterSpec((String) parameter));
+		}
+		return generator.generateKeyPair();
+	}
+
+	private static String issue(SignedWithKeyPairCWTRepository repository, KeyPair keyPair, String algorithm) {
+		return repository.issueJwt(keyPair, "7f3c2a9e", "alice", "issuer", Collections.singleton("app"), "admin", "user:read",
+				algorithm, 60_000);
+	}
+
+	@Test
+	public void issuedTokenRoundTrips() throws Exception {
+		SignedWithKeyPairCWTRepository repository = new SignedWithKeyPairCWTRepository();
+		KeyPair keyPair = keyPair("EC", "secp256r1");
+		String token = issue(repository, keyPair, "ES256");
+		assertTrue(repository.verify(keyPair, token, true));
+		assertEquals("alice", repository.getPlayload(keyPair, token, true).getSubject());
+	}
+
+	@Test
+	public void algorithmMustMatchTheCurve() throws Exception {
+		SignedWithKeyPairCWTRepository repository = new SignedWithKeyPairCWTRepository();
+		KeyPair keyPair = keyPair("EC", "secp256r1");
+		// JCA signs SHA384withECDSA with a P-256 key, the header must not be trusted
+		String token = issue(repository, keyPair, "ES384");
+		assertThrows(InvalidJwtToken.class, () -> repository.verify(keyPair, token, true));
+		assertThrows(InvalidJwtToken.class, () -> repository.getPlayload(keyPair, token, true));
+	}
+
+	@Test
+	public void algorithmIsPinned() throws Exception {
+		SignedWithKeyPairCWTRepository repository = new SignedWithKeyPairCWTRepository();
+		KeyPair keyPair = keyPair("RSA", 2048);
+		String token = issue(repository, keyPair, "RS256");
+		assertTrue(repository.verify(keyPair, token, true));
+
+		repository.setAlgorithms(Collections.singleton("PS256"));
+		assertThrows(InvalidJwtToken.class, () -> repository.verify(keyPair, token, true));
+		assertTrue(repository.verify(keyPair, issue(repository, keyPair, "PS256"), true));
+	}
+
+	@Test
+	public void tamperedTokenIsRejected() throws Exception {
+		SignedWithKeyPairCWTRepository repository = new SignedWithKeyPairCWTRepository();
+		KeyPair keyPair = keyPair("EC", "secp256r1");
+		String token = issue(repository, keyPair, "ES256");
+		assertFalse(repository.verify(keyPair, SignedWithHmacCWTRepositoryTest.tamper(token, -1), true));
+		assertFalse(repository.verify(keyPair, SignedWithHmacCWTRepositoryTest.tamper(token, -67), true));
+		assertFalse(repository.verify(keyPair("EC", "secp256r1"), token, true));
+	}
+
+	/**
+	 * RFC 8392 A.3, signed with the A.2.3 P-256 key in 2015
+	 */
+	@Test
+	public void rfc8392SignedCwtIsVerified() throws Exception {
+		PublicKey publicKey = CoseMessageTest.a23PublicKey();
+		KeyPair keyPair = new KeyPair(publicKey, KeyFactory.getInstance("EC").generatePrivate(
+				new ECPrivateKeySpec(new BigInteger(1, CoseMessageTest.hex(CoseMessageTest.A2_3_D)), ((ECPublicKey) publicKey).getParams())));
+		SignedWithKeyPairCWTRepository repository = new SignedWithKeyPairCWTRepository();
+		String token = CwtUtils.encode(CoseMessageTest.hex(CoseMessageTest.A3_SIGNED_CWT));
+		assertTrue(repository.verify(keyPair, token, false));
+		assertThrows(ExpiredJwtException.class, () -> repository.verify(keyPair, token, true));
+
+		JwtPayload payload = repository.getPlayload(keyPair, token, false);
+		assertEquals("coap://as.example.com", payload.getIssuer());
+		assertEquals("erikw", payload.getSubject());
+		assertEquals(Collections.singleton("coap://light.example.com"), payload.getAudience());
+		assertEquals(1444064944_000L, payload.getExpiration().getTime());
+
+		repository.setAlgorithms(Collections.singleton("ES384"));
+		assertThrows(InvalidJwtToken.class, () -> repository.verify(keyPair, token, false));
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.cbor.CborException;
+import com.github.hiwepy.jwt.cbor.CborWriter;
+import com.github.hiwepy.jwt.cose.CoseAlgorithm;
+import com.github.hiwepy.jwt.cose.CoseException;
+import com.github.hiwepy.jwt.cose.CoseMessageTest;
+
+/**
+ * {@link CwtUtils} 测试：RFC 8392 A.1 声明集的解码与映射、声明集编码、日期与算法校验
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CwtUtilsTest {
+
+	@Test
+	public void rfc8392ClaimsSetIsMapped() {
+		Map<Object, Object> claims = CwtUtils.claims(CoseMessageTest.hex(CoseMessageTest.A1_CLAIMS_SET));
+		assertEquals(7, claims.size());
+		assertEquals(1444064944, claims.get(CwtUtils.EXPIRATION));
+		assertArrayEquals(new byte[] { 0x0b, 0x71 }, (byte[]) claims.get(CwtUtils.CWT_ID));
+
+		JwtPayload payload = CwtUtils.payload(claims);
+		assertEquals("coap://as.example.com", payload.getIssuer());
+		assertEquals("erikw", payload.getSubject());
+		assertEquals(Collections.singleton("coap://light.example.com"), payload.getAudience());
+		assertEquals(1444064944_000L, payload.getExpiration().getTime());
+		assertEquals(1443944944_000L, payload.getNotBefore().getTime());
+		assertEquals(1443944944_000L, payload.getIssuedAt().getTime());
+		assertEquals("\u000bq", payload.getTokenId());
+	}
+
+	/**
+	 * The claims of A.1 are encoded like the example, except the order of the map entries and the text cti
+	 */
+	@Test
+	public void claimsSetIsEncoded() {
+		byte[] claimsSet = CwtUtils.claimsSet("\u000bq", "erikw", "coap://as.example.com", Collections.singleton("coap://light.example.com"),
+				(String) null, null, 1443944944_000L, 120_000_000L);
+		assertEquals(CwtUtils.claims(CoseMessageTest.hex(CoseMessageTest.A1_CLAIMS_SET)).keySet(), CwtUtils.claims(claimsSet).keySet());
+		assertEquals(CwtUtils.payload(CwtUtils.claims(CoseMessageTest.hex(CoseMessageTest.A1_CLAIMS_SET))).getExpiration(),
+				CwtUtils.payload(CwtUtils.claims(claimsSet)).getExpiration());
+		assertEquals(CoseMessageTest.hex(CoseMessageTest.A1_CLAIMS_SET).length, claimsSet.length);
+	}
+
+	@Test
+	public void malformedClaimsSetIsRejected() {
+		assertThrows(CborException.class, () -> CwtUtils.claims(new CborWriter(8).writeObject(Arrays.asList(1, 2)).toByteArray()));
+		assertThrows(CborException.class, () -> CwtUtils.claims(CoseMessageTest.hex("a10401ff")));
+		Map<Object, Object> claims = new LinkedHashMap<>();
+		claims.put(CwtUtils.EXPIRATION, "tomorrow");
+		assertThrows(CborException.class, () -> CwtUtils.getDate(claims, CwtUtils.EXPIRATION));
+	}
+
+	@Test
+	public void algorithmIsChecked() throws Exception {
+		CwtUtils.checkAlgorithm(CoseAlgorithm.HMAC_256, CwtUtils.DEFAULT_MAC_ALGORITHMS, null);
+		assertThrows(CoseException.class, () -> CwtUtils.checkAlgorithm(CoseAlgorithm.HMAC_256_64, CwtUtils.DEFAULT_MAC_ALGORITHMS, null));
+		CwtUtils.checkAlgorithm(CoseAlgorithm.ES256, null, CoseMessageTest.a23PublicKey());
+		assertThrows(CoseException.class, () -> CwtUtils.checkAlgorithm(CoseAlgorithm.ES512, null, CoseMessageTest.a23PublicKey()));
+		assertThrows(CoseException.class, () -> CwtUtils.checkAlgorithm(CoseAlgorithm.RS256, null, CoseMessageTest.a23PublicKey()));
+	}
+
+}
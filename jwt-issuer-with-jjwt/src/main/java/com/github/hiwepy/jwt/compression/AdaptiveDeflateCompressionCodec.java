@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import com.github.hiwepy.jwt.JwtClaims;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.CompressionCodec;
+import io.jsonwebtoken.CompressionException;
+
+/**
+ * 自适应的 DEFLATE 压缩：载荷小于阈值或压缩后没有变短时原样存储，否则使用预置字典压缩（字典由常用的声明名称、角色键与签发者构成），
+ * Deflater/Inflater 由 {@link DeflateCompressor} 池化复用。
+ * <p>压缩结果的第一个字节标识存储方式（{@link #STORED} 或 {@link #DEFLATED}），因此使用独立的算法标识
+ * {@value #ID}，只能由注册了同一字典的解析器解压（字典不一致时抛出 {@link CompressionException}）；
+ * 签发与验证两端须使用相同的参数创建。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@SuppressWarnings("deprecation")
+public class AdaptiveDeflateCompressionCodec implements CompressionCodec {
+
+	/**
+	 * 压缩算法标识（JWT 头部 zip 的值）
+	 */
+	public static final String ID = "DEF+D";
+	/**
+	 * 默认的压缩阈值（字节）：更小的载荷即使有预置字典也几乎无法压缩
+	 */
+	public static final int DEFAULT_THRESHOLD = 64;
+	/**
+	 * 载荷原样存储
+	 */
+	public static final byte STORED = 0;
+	/**
+	 * 载荷使用预置字典压缩，其后两个字节为字典 Id 的低 16 位
+	 */
+	public static final byte DEFLATED = 1;
+
+	private final int threshold;
+	private final DeflateCompressor compressor;
+
+	public AdaptiveDeflateCompressionCodec() {
+		this((String) null);
+	}
+
+	public AdaptiveDeflateCompressionCodec(String issuer, String... values) {
+		this(DEFAULT_THRESHOLD, dictionary(issuer, values));
+	}
+
+	/**
+	 * @param threshold 	: The payloads shorter than the threshold are stored uncompressed
+	 * @param dictionary 	: The preset dictionary, see {@link #dictionary(String, String...)}
+	 */
+	public AdaptiveDeflateCompressionCodec(int threshold, byte[] dictionary) {
+		this(threshold, new DeflateCompressor(dictionary, Deflater.DEFAULT_COMPRESSION,
+				DeflateCompressor.DEFAULT_MAX_INFLATED_SIZE, DeflateCompressor.DEFAULT_POOL_SIZE));
+	}
+
+	public AdaptiveDeflateCompressionCodec(int threshold, DeflateCompressor compressor) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("The threshold must not be negative: " + threshold);
+		}
+		this.threshold = threshold;
+		this.compressor = compressor;
+	}
+
+	/**
+	 * Build the preset dictionary of the JSON claims, the most frequent fragments are placed last as DEFLATE
+	 * encodes the nearer matches with the shorter distances
+	 * @param issuer 	: Jwt Issuer, or null
+	 * @param values 	: The other frequent claim names or values, e.g. the role keys
+	 * @return The preset dictionary
+	 */
+	public static byte[] dictionary(String issuer, String... values) {
+		return dictionary(issuer, values == null ? null : Arrays.asList(values));
+	}
+
+	public static byte[] dictionary(String issuer, Collection<String> values) {
+		List<String> fragments = new ArrayList<>();
+		if (values != null) {
+			for (String value : values) {
+				if (value != null && !value.isEmpty()) {
+					fragments.add(value);
+				}
+			}
+		}
+		for (String name : new String[] { JwtClaims.SIGN, JwtClaims.LATITUDE, JwtClaims.LONGITUDE, JwtClaims.VERIFY,
+				JwtClaims.INITIAL, JwtClaims.BOUND, JwtClaims.SECRET, JwtClaims.SALT, JwtClaims.RCODE, JwtClaims.RKEY,
+				JwtClaims.RID, JwtClaims.UCODE, JwtClaims.UKEY, JwtClaims.UNAME, JwtClaims.UUID, JwtClaims.UID,
+				JwtClaims.ID, JwtClaims.PROFILE, JwtClaims.PERMS, JwtClaims.ROLES }) {
+			fragments.add("\"" + name + "\":");
+		}
+		if (issuer != null && !issuer.isEmpty()) {
+			fragments.add(",\"" + Claims.ISSUER + "\":\"" + issuer + "\"");
+		}
+		fragments.add(",\"" + Claims.AUDIENCE + "\":[\"");
+		fragments.add("\",\"" + Claims.SUBJECT + "\":\"");
+		fragments.add(",\"" + Claims.NOT_BEFORE + "\":");
+		fragments.add(",\"" + Claims.ISSUED_AT + "\":");
+		fragments.add(",\"" + Claims.EXPIRATION + "\":");
+		fragments.add("{\"" + Claims.ID + "\":\"");
+		StringBuilder builder = new StringBuilder();
+		for (String fragment : fragments) {
+			builder.append(fragment);
+		}
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Whether the payload of the given length would be compressed
+	 * @param length 	: The payload length in bytes
+	 * @return true if the payload reaches the threshold
+	 */
+	public boolean isCompressible(int length) {
+		return length >= threshold;
+	}
+
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	@Override
+	public String getAlgorithmName() {
+		return ID;
+	}
+
+	@Override
+	public byte[] compress(byte[] content) throws CompressionException {
+		return compress(content, 0, content.length);
+	}
+
+	private byte[] compress(byte[] content, int offset, int length) {
+		if (isCompressible(length)) {
+			byte[] ret = compressor.deflate(content, offset, length, 3);
+			// 压缩后没有变短时原样存储
+			if (ret.length <= length) {
+				int dictionaryId = compressor.getDictionaryId();
+				ret[0] = DEFLATED;
+				ret[1] = (byte) (dictionaryId >>> 8);
+				ret[2] = (byte) dictionaryId;
+				return ret;
+			}
+		}
+		byte[] ret = new byte[length + 1];
+		ret[0] = STORED;
+		System.arraycopy(content, offset, ret, 1, length);
+		return ret;
+	}
+
+	@Override
+	public byte[] decompress(byte[] compressed) throws CompressionException {
+		if (compressed == null || compressed.length == 0) {
+			throw new CompressionException("The compressed payload is empty");
+		}
+		switch (compressed[0]) {
+		case STORED:
+			return Arrays.copyOfRange(compressed, 1, compressed.length);
+		case DEFLATED:
+			int dictionaryId = compressor.getDictionaryId();
+			if (compressed.length < 3 || compressed[1] != (byte) (dictionaryId >>> 8) || compressed[2] != (byte) dictionaryId) {
+				throw new CompressionException("The payload was compressed with another dictionary");
+			}
+			try {
+				return compressor.inflate(compressed, 3, compressed.length - 3);
+			} catch (DataFormatException e) {
+				throw new CompressionException("Unable to decompress the payload: " + e.getMessage(), e);
+			}
+		default:
+			throw new CompressionException("Unknown payload format: " + compressed[0]);
+		}
+	}
+
+	/**
+	 * The payload is buffered, the threshold needs the total length before writing
+	 */
+	@Override
+	public OutputStream compress(OutputStream out) {
+		return new ByteArrayOutputStream(threshold + 64) {
+
+			private boolean closed;
+
+			@Override
+			public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				try {
+					out.write(AdaptiveDeflateCompressionCodec.this.compress(buf, 0, count));
+				} finally {
+					out.close();
+				}
+			}
+
+		};
+	}
+
+	@Override
+	public InputStream decompress(InputStream in) {
+		try {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			byte[] chunk = new byte[1024];
+			int count;
+			while ((count = in.read(chunk)) != -1) {
+				buffer.write(chunk, 0, count);
+			}
+			return new ByteArrayInputStream(decompress(buffer.toByteArray()));
+		} catch (IOException e) {
+			throw new CompressionException("Unable to read the compressed payload: " + e.getMessage(), e);
+		}
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public DeflateCompressor getCompressor() {
+		return compressor;
+	}
+
+}
@@ -15,10 +15,12 @@
  */
 package com.github.hiwepy.jwt.token;
 
+import com.github.hiwepy.jwt.ClaimsTemplate;
 import com.github.hiwepy.jwt.JwtPayload;
 import com.github.hiwepy.jwt.exception.ExpiredJwtException;
 import com.github.hiwepy.jwt.exception.JwtException;
 import com.github.hiwepy.jwt.exception.*;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
 import com.github.hiwepy.jwt.utils.JJwtUtils;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.InvalidKeyException;
@@ -45,11 +47,12 @@ public class SignedWithSecretKeyJWTRepository implements JwtRepository<Key> {
 	private CompressionCodec compressWith = CompressionCodecs.DEFLATE;
     private CompressionCodecResolver compressionCodecResolver;
     private Clock clock = new JwtClock();
+    private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
     private static final Map<String, JwtParser> PARSER_CONTEXT = new ConcurrentHashMap<>();
 
 	public JwtParser getJwtParser(Key secretKey, boolean checkExpiry) {
 
-		String key = String.format("%s-%s", secretKey.hashCode() , checkExpiry);
+		String key = String.format("%s-%s-%s", secretKey.hashCode() , checkExpiry, System.identityHashCode(getCompressWith()));
 		JwtParser ret = PARSER_CONTEXT.get(key);
 		if (ret != null) {
 			return ret;
@@ -65,6 +68,9 @@ public class SignedWithSecretKeyJWTRepository implements JwtRepository<Key> {
 		// 压缩方式解析器
 		if(null != getCompressionCodecResolver() ) {
 			jwtParserBuilder.setCompressionCodecResolver(getCompressionCodecResolver());
+		} else if (null != getCompressWith() && !Jwts.ZIP.get().containsKey(getCompressWith().getId())) {
+			// 自定义的压缩方式需要注册后才能解压
+			jwtParserBuilder.zip().add(getCompressWith()).and();
 		}
 		ret = jwtParserBuilder.build();
 		PARSER_CONTEXT.put( key, ret);
@@ -143,25 +149,47 @@ public class SignedWithSecretKeyJWTRepository implements JwtRepository<Key> {
 
 		try {
 			JwtBuilder builder = JJwtUtils
-					.jwtBuilder(jwtId, subject, issuer, audience, claims, period)
-					// 压缩类型
-					.compressWith(getCompressWith())
+					.jwtBuilder(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getClock().now(), period);
+			// 压缩类型，小于阈值的载荷不压缩
+			return JJwtUtils.compressWith(builder, getCompressWith())
 					// 设置算法（必须）
-					.signWith(secretKey, SignatureAlgorithm.forName(algorithm));
-
-			// 签发时间
-			Date now = this.getClock().now();
-			builder.setIssuedAt(now);
-			// 有效期起始时间
-			//builder.setNotBefore(now);
-			// Token过期时间
-			if (period >= 0) {
-				// 有效时间
-				Date expiration = new Date(now.getTime() + period);
-				builder.setExpiration(expiration);
-			}
+					.signWith(secretKey, SignatureAlgorithm.forName(algorithm))
+					.compact();
+		} catch (InvalidKeyException e) {
+			throw new JwtException(e);
+		} catch (SignatureException e) {
+			throw new JwtException(e);
+		}
+	}
 
-			return builder.compact();
+	/**
+	 * Issue JSON Web Token (JWT) with the claims template, only the per-token claims are serialized
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param secretKey		: Signing key
+	 * @param template		: The claims template compiled by {@link JJwtUtils#claimsTemplate(String, Set, Map)}
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param algorithm		: Supported algorithms, see {@link #issueJwt(Key,  String, String, String, Set, Map, String, long)}
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(Key secretKey, ClaimsTemplate template, String jwtId, String subject, String algorithm, long period) throws JwtException {
+		// The template of other implementations is not guaranteed equivalent here, build the claims the original way
+		if (!JJwtUtils.DIALECT.equals(template.getDialect())) {
+			return this.issueJwt(secretKey, jwtId, subject, template.getIssuer(), template.getAudience(), template.getClaims(), algorithm, period);
+		}
+		try {
+			// Render the claims, the static claims are pre-serialized
+			byte[] content = template.toBytes(this.getIdGenerator().getOrGenerate(jwtId), subject, this.getClock().now().getTime(), period);
+			JwtBuilder builder = Jwts.builder().setHeaderParam("typ", "JWT")
+					.content(content);
+			// 压缩类型，小于阈值的载荷不压缩
+			return JJwtUtils.compressWith(builder, getCompressWith(), content.length)
+					// 设置算法（必须）
+					.signWith(secretKey, SignatureAlgorithm.forName(algorithm))
+					.compact();
 		} catch (InvalidKeyException e) {
 			throw new JwtException(e);
 		} catch (SignatureException e) {
@@ -210,7 +238,7 @@ public class SignedWithSecretKeyJWTRepository implements JwtRepository<Key> {
 				throw new NotObtainedJwtException(String.format("JWT was not obtained before this timestamp : [%s].", notBefore));
 			}
 			if(expiration != null && expiration.getTime() < now.getTime()) {
-				throw new ExpiredJwtException("Expired JWT value. ");
+				throw ExpiredJwtException.expired();
 			}
 			return true;
 
@@ -309,4 +337,12 @@ public class SignedWithSecretKeyJWTRepository implements JwtRepository<Key> {
 		this.clock = clock;
 	}
 
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
 }
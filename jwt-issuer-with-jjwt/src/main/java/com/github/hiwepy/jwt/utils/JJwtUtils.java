@@ -15,11 +15,16 @@
  */
 package com.github.hiwepy.jwt.utils;
 
+import com.github.hiwepy.jwt.ClaimsTemplate;
 import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.VerificationResult.Status;
+import com.github.hiwepy.jwt.compression.AdaptiveDeflateCompressionCodec;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.lang.Classes;
 import org.apache.commons.lang3.StringUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.text.ParseException;
 import java.util.*;
@@ -38,6 +43,10 @@ public class JJwtUtils {
 	public static final String CLAIM_KEY_ACCOUNT_ENABLED = "enabled";
 	public static final String CLAIM_KEY_ACCOUNT_NON_LOCKED = "non_locked";
 	public static final String CLAIM_KEY_ACCOUNT_NON_EXPIRED = "non_expired";
+	/**
+	 * 本实现编译的声明模板标识
+	 */
+	public static final String DIALECT = "jjwt";
 
 	/**
      * Returns a new JwtParserBuilder instance that can be configured to create an immutable/thread-safe JwtParserBuilder.
@@ -50,9 +59,23 @@ public class JJwtUtils {
 
 	public static JwtBuilder jwtBuilder(String jwtId, String subject, String issuer, Set<String> audience, Map<String, Object> claims,
 			long period) {
+		return jwtBuilder(jwtId, subject, issuer, audience, claims, new Date(), period);
+	}
+
+	/**
+	 * Prepare the builder with the issue time read once by the caller, e.g. from the {@link io.jsonwebtoken.JwtClock}
+	 * @param jwtId 	: Jwt Id
+	 * @param subject 	: Jwt Subject
+	 * @param issuer 	: Jwt Issuer
+	 * @param audience 	: Jwt Audience
+	 * @param claims 	: Jwt Claims
+	 * @param now 		: The issue time
+	 * @param period 	: Jwt Expiration Cycle
+	 * @return The JWT builder
+	 */
+	public static JwtBuilder jwtBuilder(String jwtId, String subject, String issuer, Set<String> audience, Map<String, Object> claims,
+			Date now, long period) {
 
-		// 当前时间戳
-		long currentTimeMillis = System.currentTimeMillis();
 		JwtBuilder builder = Jwts.builder().setHeaderParam("typ", "JWT");
 		// 声明信息：调用setClaims需要在其他设置之前，不然会丢失数据
 		if(claims != null) {
@@ -77,14 +100,13 @@ public class JJwtUtils {
 			builder.claim(Claims.ISSUER, issuer);
 		}
 		// 默认签发时间
-		Date now = new Date(currentTimeMillis);
 		builder.setIssuedAt(now);
 		// 默认有效期起始时间
 		//builder.setNotBefore(now);
 		// Token过期时间
 		if (period >= 0) {
 			// 有效时间
-			Date expiration = new Date(currentTimeMillis + period);
+			Date expiration = new Date(now.getTime() + period);
 			builder.setExpiration(expiration);
 		}
 
@@ -125,6 +147,58 @@ public class JJwtUtils {
 		return builder;
 	}
 
+	/**
+	 * 设置压缩方式：{@link AdaptiveDeflateCompressionCodec} 在载荷小于阈值时不压缩，头部也不再携带 zip
+	 * @param builder 	: The JWT builder
+	 * @param zip 		: The compression codec, or null
+	 * @param length 	: The payload length in bytes
+	 * @return The JWT builder
+	 */
+	public static JwtBuilder compressWith(JwtBuilder builder, CompressionCodec zip, int length) {
+		if (zip == null || (zip instanceof AdaptiveDeflateCompressionCodec
+				&& !((AdaptiveDeflateCompressionCodec) zip).isCompressible(length))) {
+			return builder;
+		}
+		return builder.compressWith(zip);
+	}
+
+	/**
+	 * 设置压缩方式，载荷长度未知时使用：仅 {@link AdaptiveDeflateCompressionCodec} 需要先以不签名、不压缩的方式序列化一次声明取得长度
+	 * @param builder 	: The JWT builder with the claims set, not signed yet
+	 * @param zip 		: The compression codec, or null
+	 * @return The JWT builder
+	 */
+	public static JwtBuilder compressWith(JwtBuilder builder, CompressionCodec zip) {
+		if (!(zip instanceof AdaptiveDeflateCompressionCodec)) {
+			return compressWith(builder, zip, 0);
+		}
+		String unsecured = builder.compact();
+		int start = unsecured.indexOf('.') + 1;
+		// 无填充的 Base64URL：每 4 个字符 3 个字节
+		int encoded = unsecured.lastIndexOf('.') - start;
+		return compressWith(builder, zip, encoded * 3 / 4);
+	}
+
+	/**
+	 * 编译声明模板：以 {@link #jwtBuilder(String, String, String, Set, Map, long)} 构建样例声明，静态声明只序列化一次
+	 * @param issuer 签发者
+	 * @param audience 接收者
+	 * @param claims 声明
+	 * @return 声明模板
+	 * @throws IllegalArgumentException 声明覆盖了 jti、sub、iat、exp 等签发时拼接的声明
+	 */
+	public static ClaimsTemplate claimsTemplate(String issuer, Set<String> audience, Map<String, Object> claims) {
+		String sample = jwtBuilder(ClaimsTemplate.SAMPLE_JWT_ID, ClaimsTemplate.SAMPLE_SUBJECT, issuer, audience, claims, ClaimsTemplate.SAMPLE_PERIOD)
+				.setIssuedAt(new Date(ClaimsTemplate.SAMPLE_ISSUED_AT))
+				.setExpiration(new Date(ClaimsTemplate.SAMPLE_ISSUED_AT + ClaimsTemplate.SAMPLE_PERIOD))
+				// 不签名、不压缩，只取载荷部分
+				.compact();
+		String payload = sample.substring(sample.indexOf('.') + 1, sample.lastIndexOf('.'));
+		// jjwt 省略空白的 sub
+		return ClaimsTemplate.compile(DIALECT, issuer, audience, claims,
+				new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8), false);
+	}
+
 	public static JwtPayload payload(Claims claims) throws ParseException {
 
 		JwtPayload payload = new JwtPayload();
@@ -148,6 +222,35 @@ public class JJwtUtils {
 		return claims;
 	}
 
+	/**
+	 * 一次性解析、验证JWT令牌，结果可被 getXxxFromToken、isTokenExpired、canTokenBeRefreshed 的重载复用，避免重复解析与验签
+	 * @param secretKey 签名密钥
+	 * @param token 令牌
+	 * @return 验证结果（过期或未生效时仍包含载荷）
+	 */
+	public static VerificationResult verifyJWT(Key secretKey, String token) {
+		try {
+			Jws<Claims> jws = Jwts.parser().setSigningKey(secretKey).build().parseClaimsJws(token);
+			return result(Status.VALID, null, jws.getBody(), jws.getHeader(), null);
+		} catch (ExpiredJwtException e) {
+			return result(Status.EXPIRED, e.getMessage(), e.getClaims(), e.getHeader(), e);
+		} catch (PrematureJwtException e) {
+			return result(Status.NOT_YET_VALID, e.getMessage(), e.getClaims(), e.getHeader(), e);
+		} catch (MalformedJwtException | UnsupportedJwtException | IllegalArgumentException e) {
+			return result(Status.MALFORMED, e.getMessage(), null, null, e);
+		} catch (JwtException e) {
+			return result(Status.INVALID, e.getMessage(), null, null, e);
+		}
+	}
+
+	private static VerificationResult result(Status status, String reason, Claims claims, Map<String, Object> header, Throwable cause) {
+		try {
+			return VerificationResult.of(status, reason, claims == null ? null : payload(claims), header, cause);
+		} catch (ParseException e) {
+			return VerificationResult.of(Status.MALFORMED, e.getMessage(), null, header, e);
+		}
+	}
+
 	public String genAccessToken(Key secretKey, String uid, String subject,
 								 String issuer, Set<String> audience, Map<String, Object> claims, long access_token_expiration) {
 		return jwtBuilder(uid, subject, issuer, audience, claims, access_token_expiration)
@@ -167,8 +270,12 @@ public class JJwtUtils {
 	}
 
 	public Boolean canTokenBeRefreshed(Key secretKey, String token, Date lastPasswordReset) {
-		final Date created = getCreatedDateFromToken(secretKey, token);
-		return !isCreatedBeforeLastPasswordReset(created, lastPasswordReset) && (!isTokenExpired(secretKey, token));
+		return canTokenBeRefreshed(verifyJWT(secretKey, token), lastPasswordReset);
+	}
+
+	public Boolean canTokenBeRefreshed(VerificationResult result, Date lastPasswordReset) {
+		final Date created = getCreatedDateFromToken(result);
+		return created != null && !isCreatedBeforeLastPasswordReset(created, lastPasswordReset) && !isTokenExpired(result);
 	}
 
 	public String refreshToken(Key secretKey, String token, long access_token_expiration) {
@@ -202,42 +309,39 @@ public class JJwtUtils {
 	}
 
 	public String getUsernameFromToken(Key secretKey, String token) {
-		String username;
-		try {
-			final Claims claims = parseJWT(secretKey, token);
-			username = claims.getSubject();
-		} catch (Exception e) {
-			username = null;
-		}
-		return username;
+		return getUsernameFromToken(verifyJWT(secretKey, token));
+	}
+
+	public String getUsernameFromToken(VerificationResult result) {
+		return result.isValid() ? result.getPayload().getSubject() : null;
 	}
 
 	public Date getCreatedDateFromToken(Key secretKey, String token) {
-		Date created;
-		try {
-			final Claims claims = parseJWT(secretKey, token);
-			created = claims.getIssuedAt();
-		} catch (Exception e) {
-			created = null;
-		}
-		return created;
+		return getCreatedDateFromToken(verifyJWT(secretKey, token));
+	}
+
+	public Date getCreatedDateFromToken(VerificationResult result) {
+		return result.isValid() ? result.getPayload().getIssuedAt() : null;
 	}
 
 	public static Date getExpirationDateFromToken(Key secretKey, String token) {
-		Date expiration;
-		try {
-			final Claims claims = parseJWT(secretKey, token);
-			expiration = claims.getExpiration();
-		} catch (Exception e) {
-			expiration = null;
-		}
-		return expiration;
+		return getExpirationDateFromToken(verifyJWT(secretKey, token));
 	}
 
+	public static Date getExpirationDateFromToken(VerificationResult result) {
+		return result.isValid() ? result.getPayload().getExpiration() : null;
+	}
 
 	public static Boolean isTokenExpired(Key secretKey, String token) {
-		final Date expiration = getExpirationDateFromToken(secretKey, token);
-		return expiration.before(new Date());
+		return isTokenExpired(verifyJWT(secretKey, token));
+	}
+
+	public static Boolean isTokenExpired(VerificationResult result) {
+		if (result.getStatus() == Status.EXPIRED) {
+			return true;
+		}
+		final Date expiration = getExpirationDateFromToken(result);
+		return expiration != null && expiration.before(new Date());
 	}
 
 	public static Boolean isCreatedBeforeLastPasswordReset(Date created, Date lastPasswordReset) {
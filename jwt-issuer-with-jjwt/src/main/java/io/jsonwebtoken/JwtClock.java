@@ -27,8 +27,7 @@ public class JwtClock implements Clock {
 	
 	@Override
 	public Date now() {
-		long currentTimeMillis = this.getTimeProvider().now();
-		return new Date(currentTimeMillis);
+		return this.getTimeProvider().nowDate();
 	}
 
 	public JwtTimeProvider getTimeProvider() {
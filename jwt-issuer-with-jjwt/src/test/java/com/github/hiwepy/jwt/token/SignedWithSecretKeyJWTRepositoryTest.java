@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.compression.AdaptiveDeflateCompressionCodec;
+import com.github.hiwepy.jwt.utils.JJwtUtils;
+
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * {@link SignedWithSecretKeyJWTRepository} 测试：Map 方式与模板方式签发时，小于阈值的载荷不压缩、头部不携带 zip
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class SignedWithSecretKeyJWTRepositoryTest {
+
+	private final Key secretKey = Keys.hmacShaKeyFor(new byte[32]);
+
+	static String header(String token) {
+		return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+	}
+
+	static Map<String, Object> claims() {
+		Map<String, Object> claims = new HashMap<>();
+		claims.put("roles", "admin,user");
+		return claims;
+	}
+
+	private SignedWithSecretKeyJWTRepository repository(int threshold) {
+		SignedWithSecretKeyJWTRepository repository = new SignedWithSecretKeyJWTRepository();
+		repository.setCompressWith(new AdaptiveDeflateCompressionCodec(threshold, (byte[]) null));
+		return repository;
+	}
+
+	@Test
+	public void smallClaimsMapIsNotCompressed() {
+		SignedWithSecretKeyJWTRepository repository = this.repository(4096);
+		String token = repository.issueJwt(secretKey, "jti", "user", "issuer", Collections.singleton("api"), claims(), "HS256", 60_000);
+		assertFalse(header(token).contains("\"zip\""), header(token));
+		assertTrue(repository.verify(secretKey, token, true));
+		assertEquals("user", repository.getPlayload(secretKey, token, true).getSubject());
+	}
+
+	@Test
+	public void claimsMapReachingTheThresholdIsCompressed() {
+		SignedWithSecretKeyJWTRepository repository = this.repository(16);
+		String token = repository.issueJwt(secretKey, "jti", "user", "issuer", Collections.singleton("api"), claims(), "HS256", 60_000);
+		assertTrue(header(token).contains("\"zip\":\"" + AdaptiveDeflateCompressionCodec.ID + "\""), header(token));
+		assertTrue(repository.verify(secretKey, token, true));
+		assertEquals("user", repository.getPlayload(secretKey, token, true).getSubject());
+	}
+
+	@Test
+	public void templateAndClaimsMapAgreeOnCompression() {
+		SignedWithSecretKeyJWTRepository repository = this.repository(4096);
+		String token = repository.issueJwt(secretKey, JJwtUtils.claimsTemplate("issuer", Collections.singleton("api"), claims()),
+				"jti", "user", "HS256", 60_000);
+		assertFalse(header(token).contains("\"zip\""), header(token));
+		assertTrue(repository.verify(secretKey, token, true));
+	}
+
+}
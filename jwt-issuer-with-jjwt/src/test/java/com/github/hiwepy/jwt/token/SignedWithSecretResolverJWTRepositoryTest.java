@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.Key;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.compression.AdaptiveDeflateCompressionCodec;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * {@link SignedWithSecretResolverJWTRepository} 测试：Map 方式签发时，小于阈值的载荷不压缩、头部不携带 zip，
+ * 因而仍可通过 SigningKeyResolver 验证
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class SignedWithSecretResolverJWTRepositoryTest {
+
+	private final Key secretKey = Keys.hmacShaKeyFor(new byte[32]);
+
+	private SignedWithSecretResolverJWTRepository repository(int threshold) {
+		SignedWithSecretResolverJWTRepository repository = new SignedWithSecretResolverJWTRepository(new SigningKeyResolverAdapter() {
+
+			@Override
+			public Key resolveSigningKey(JwsHeader header, Claims claims) {
+				return secretKey;
+			}
+
+		});
+		repository.setCompressWith(new AdaptiveDeflateCompressionCodec(threshold, (byte[]) null));
+		return repository;
+	}
+
+	@Test
+	public void smallClaimsMapIsNotCompressed() {
+		SignedWithSecretResolverJWTRepository repository = this.repository(4096);
+		String token = repository.issueJwt(secretKey, "k1", "jti", "user", "issuer", Collections.singleton("api"),
+				SignedWithSecretKeyJWTRepositoryTest.claims(), "HS256", 60_000);
+		String header = SignedWithSecretKeyJWTRepositoryTest.header(token);
+		assertFalse(header.contains("\"zip\""), header);
+		assertTrue(header.contains("\"kid\":\"k1\""), header);
+		assertTrue(repository.verify(token, true));
+		assertEquals("user", repository.getPlayload(token, true).getSubject());
+	}
+
+	@Test
+	public void claimsMapReachingTheThresholdIsCompressed() {
+		SignedWithSecretResolverJWTRepository repository = this.repository(16);
+		String token = repository.issueJwt(secretKey, "k1", "jti", "user", "issuer", Collections.singleton("api"),
+				SignedWithSecretKeyJWTRepositoryTest.claims(), "HS256", 60_000);
+		String header = SignedWithSecretKeyJWTRepositoryTest.header(token);
+		assertTrue(header.contains("\"zip\":\"" + AdaptiveDeflateCompressionCodec.ID + "\""), header);
+		// jjwt 0.12 解压载荷先于 SigningKeyResolver 验签，默认拒绝这类令牌
+		assertThrows(UnsupportedJwtException.class, () -> repository.verify(token, true));
+	}
+
+}
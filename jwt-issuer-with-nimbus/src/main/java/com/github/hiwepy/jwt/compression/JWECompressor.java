@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.compression;
+
+import java.util.Set;
+import java.util.zip.DataFormatException;
+
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWECryptoParts;
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.JWEEncrypter;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.crypto.impl.AAD;
+import com.nimbusds.jose.jca.JWEJCAContext;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * JWE 载荷压缩（RFC 7516 zip=DEF）：载荷达到阈值时在 JWE 头部声明 zip=DEF，
+ * 由 {@link DeflateCompressor} 池化的 Deflater/Inflater 完成压缩与解压，代替 nimbus 每个令牌新建的 Deflater。
+ * <p>ECDH-ES、AES-GCMKW、PBES2 的加密器会在加密时向头部追加参数（epk、iv/tag、p2s/p2c）并据此计算 AAD，
+ * 这些算法签发时仍由 nimbus 自行压缩；解压对所有算法均走池化路径，并限制解压后的长度。</p>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWECompressor {
+
+	/**
+	 * 默认实例：签发时不压缩，验证时池化解压其他签发方压缩的令牌
+	 */
+	public static final JWECompressor DEFAULT_COMPRESSOR = new JWECompressor(-1);
+
+	/**
+	 * 默认的压缩阈值（字节），嵌套 JWT 达到该长度时压缩
+	 */
+	public static final int DEFAULT_THRESHOLD = 512;
+
+	private final int threshold;
+	private final DeflateCompressor compressor;
+
+	public JWECompressor() {
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * @param threshold : The payloads shorter than the threshold are not compressed, negative to disable the compression
+	 */
+	public JWECompressor(int threshold) {
+		this(threshold, new DeflateCompressor());
+	}
+
+	public JWECompressor(int threshold, DeflateCompressor compressor) {
+		this.threshold = threshold;
+		this.compressor = compressor;
+	}
+
+	/**
+	 * Get the compression algorithm of the JWE header
+	 * @param length 	: The payload length in bytes
+	 * @return {@link CompressionAlgorithm#DEF} if the payload reaches the threshold, otherwise null
+	 */
+	public CompressionAlgorithm getCompressionAlgorithm(int length) {
+		return threshold >= 0 && length >= threshold ? CompressionAlgorithm.DEF : null;
+	}
+
+	/**
+	 * Wrap the encrypter to compress the payload with the pooled deflaters when the header declares zip=DEF
+	 * @param encrypter : The encrypter
+	 * @return The compressing encrypter
+	 */
+	public JWEEncrypter encrypter(JWEEncrypter encrypter) {
+		return new DeflateEncrypter(encrypter);
+	}
+
+	/**
+	 * Wrap the decrypter to decompress the payload with the pooled inflaters when the header declares zip=DEF
+	 * @param decrypter : The decrypter
+	 * @return The decompressing decrypter
+	 */
+	public JWEDecrypter decrypter(JWEDecrypter decrypter) {
+		return new InflateDecrypter(decrypter);
+	}
+
+	/**
+	 * The key management algorithms whose encrypters leave the header unchanged
+	 */
+	private static boolean isHeaderPreserved(JWEAlgorithm algorithm) {
+		return JWEAlgorithm.DIR.equals(algorithm) || JWEAlgorithm.Family.RSA.contains(algorithm)
+				|| JWEAlgorithm.Family.AES_KW.contains(algorithm);
+	}
+
+	private static boolean isDeflated(JWEHeader header) {
+		return CompressionAlgorithm.DEF.equals(header.getCompressionAlgorithm());
+	}
+
+	/**
+	 * The header without zip, so that nimbus does not compress / decompress the content again
+	 */
+	private static JWEHeader uncompressed(JWEHeader header) {
+		return new JWEHeader.Builder(header).compressionAlgorithm(null).build();
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public DeflateCompressor getCompressor() {
+		return compressor;
+	}
+
+	private final class DeflateEncrypter implements JWEEncrypter {
+
+		private final JWEEncrypter delegate;
+
+		DeflateEncrypter(JWEEncrypter delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public JWECryptoParts encrypt(JWEHeader header, byte[] clearText, byte[] aad) throws JOSEException {
+			if (!isDeflated(header) || !isHeaderPreserved(header.getAlgorithm())) {
+				return delegate.encrypt(header, clearText, aad);
+			}
+			// The AAD binds the header declaring zip=DEF, the content is compressed here
+			byte[] compressed = compressor.deflate(clearText);
+			JWECryptoParts parts = delegate.encrypt(uncompressed(header), compressed, aad != null ? aad : AAD.compute(header));
+			return new JWECryptoParts(header, parts.getEncryptedKey(), parts.getInitializationVector(),
+					parts.getCipherText(), parts.getAuthenticationTag());
+		}
+
+		@Override
+		public Set<JWEAlgorithm> supportedJWEAlgorithms() {
+			return delegate.supportedJWEAlgorithms();
+		}
+
+		@Override
+		public Set<EncryptionMethod> supportedEncryptionMethods() {
+			return delegate.supportedEncryptionMethods();
+		}
+
+		@Override
+		public JWEJCAContext getJCAContext() {
+			return delegate.getJCAContext();
+		}
+
+	}
+
+	private final class InflateDecrypter implements JWEDecrypter {
+
+		private final JWEDecrypter delegate;
+
+		InflateDecrypter(JWEDecrypter delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public byte[] decrypt(JWEHeader header, Base64URL encryptedKey, Base64URL iv, Base64URL cipherText,
+				Base64URL authTag, byte[] aad) throws JOSEException {
+			if (!isDeflated(header)) {
+				return delegate.decrypt(header, encryptedKey, iv, cipherText, authTag, aad);
+			}
+			byte[] compressed = delegate.decrypt(uncompressed(header), encryptedKey, iv, cipherText, authTag,
+					aad != null ? aad : AAD.compute(header));
+			try {
+				return compressor.inflate(compressed);
+			} catch (DataFormatException e) {
+				throw new JOSEException("Couldn't decompress plain text: " + e.getMessage(), e);
+			}
+		}
+
+		@Override
+		public Set<JWEAlgorithm> supportedJWEAlgorithms() {
+			return delegate.supportedJWEAlgorithms();
+		}
+
+		@Override
+		public Set<EncryptionMethod> supportedEncryptionMethods() {
+			return delegate.supportedEncryptionMethods();
+		}
+
+		@Override
+		public JWEJCAContext getJCAContext() {
+			return delegate.getJCAContext();
+		}
+
+	}
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.decrypter;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.SecretKey;
+
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.NimbusdsUtils;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.RSADecrypter;
+import com.nimbusds.jose.crypto.impl.ContentCryptoProvider;
+import com.nimbusds.jose.crypto.impl.CriticalHeaderParamsDeferral;
+import com.nimbusds.jose.crypto.impl.RSA_OAEP;
+import com.nimbusds.jose.crypto.impl.RSA_OAEP_SHA2;
+import com.nimbusds.jose.jca.JWEJCAContext;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.DeflateUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * 缓存内容加密密钥（CEK）的 RSA 解密器：以 JWE 的 encrypted key 段为键缓存解包后的 CEK，
+ * 同一个 JWE 再次出现时跳过 RSA 私钥运算，只做 AES-GCM 解密。
+ * <p>只有 AES-GCM 认证解密成功后才写入缓存；条目在解密得到的（嵌套）JWT 的 exp、JWE 头部的 exp
+ * （见 {@link NimbusdsUtils#temporalParams}）与 maximumTtl 中最早的时间失效，超出容量时按 LRU 淘汰。RSA1_5 不做缓存。</p>
+ * <p>CEK 缓存按私钥共享，时钟可按调用方指定，见 {@link #decrypter(JwtTimeProvider)}。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CachingRSADecrypter extends RSADecrypter {
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+	public static final long DEFAULT_MAXIMUM_TTL = TimeUnit.MINUTES.toMillis(10);
+
+	private final CriticalHeaderParamsDeferral critPolicy = new CriticalHeaderParamsDeferral();
+	private final Map<String, CacheEntry> cekCache;
+	private final long maximumTtl;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+
+	public CachingRSADecrypter(RSAKey rsaJWK) throws JOSEException {
+		this(rsaJWK, DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_TTL);
+	}
+
+	/**
+	 * @param rsaJWK 		: The RSA JSON Web Key, must contain the private part
+	 * @param maximumSize 	: 最大缓存条目数
+	 * @param maximumTtl 	: CEK 的最长缓存时间（毫秒）
+	 * @throws JOSEException If the private key could not be extracted
+	 */
+	@SuppressWarnings("serial")
+	public CachingRSADecrypter(RSAKey rsaJWK, final int maximumSize, long maximumTtl) throws JOSEException {
+		super(rsaJWK);
+		this.maximumTtl = maximumTtl;
+		this.cekCache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				return size() > maximumSize;
+			}
+		};
+	}
+
+	@Override
+	public byte[] decrypt(final JWEHeader header, final Base64URL encryptedKey, final Base64URL iv,
+			final Base64URL cipherText, final Base64URL authTag, final byte[] aad) throws JOSEException {
+		return this.decrypt(header, encryptedKey, iv, cipherText, authTag, aad, this.getTimeProvider());
+	}
+
+	/**
+	 * Get the decrypter sharing the CEK cache of this decrypter, with the clock of the repository
+	 * @param timeProvider : The time provider of the repository
+	 * @return This decrypter if the time provider is the same, else a view using the time provider
+	 */
+	public JWEDecrypter decrypter(JwtTimeProvider timeProvider) {
+		if (timeProvider == null || timeProvider == this.getTimeProvider()) {
+			return this;
+		}
+		return new TimedDecrypter(timeProvider);
+	}
+
+	private byte[] decrypt(final JWEHeader header, final Base64URL encryptedKey, final Base64URL iv,
+			final Base64URL cipherText, final Base64URL authTag, final byte[] aad, final JwtTimeProvider timeProvider)
+			throws JOSEException {
+
+		JWEAlgorithm alg = header.getAlgorithm();
+		int shaBitSize = shaBitSize(alg);
+		if (encryptedKey == null || iv == null || authTag == null || shaBitSize < 0) {
+			// 交由父类校验并处理（含 RSA1_5）
+			return super.decrypt(header, encryptedKey, iv, cipherText, authTag, aad);
+		}
+		critPolicy.ensureHeaderPasses(header);
+
+		String cacheKey = encryptedKey.toString();
+		long now = timeProvider.now();
+		SecretKey cek = this.getCachedCEK(cacheKey, now);
+		if (cek != null) {
+			hitCount.increment();
+			return ContentCryptoProvider.decrypt(header, aad, encryptedKey, iv, cipherText, authTag, cek, getJCAContext());
+		}
+		missCount.increment();
+
+		// Unwrap the CEK with the RSA private key
+		if (shaBitSize == 0) {
+			cek = RSA_OAEP.decryptCEK(getPrivateKey(), encryptedKey.decode(), getJCAContext().getKeyEncryptionProvider());
+		} else {
+			cek = RSA_OAEP_SHA2.decryptCEK(getPrivateKey(), encryptedKey.decode(), shaBitSize, getJCAContext().getKeyEncryptionProvider());
+		}
+		byte[] clearText = ContentCryptoProvider.decrypt(header, aad, encryptedKey, iv, cipherText, authTag, cek, getJCAContext());
+
+		// Cache the CEK only after the authenticated decryption succeeded
+		long expiresAt = now + maximumTtl;
+		Object exp = header.getCustomParam(NimbusdsUtils.EXPIRATION);
+		if (exp instanceof Number) {
+			expiresAt = Math.min(expiresAt, ((Number) exp).longValue() * 1000L);
+		}
+		Date expiration = expirationOf(clearText);
+		if (expiration != null) {
+			expiresAt = Math.min(expiresAt, expiration.getTime());
+		}
+		if (expiresAt > now) {
+			synchronized (cekCache) {
+				cekCache.put(cacheKey, new CacheEntry(cek, expiresAt));
+			}
+		}
+		return clearText;
+	}
+
+	public void clear() {
+		synchronized (cekCache) {
+			cekCache.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (cekCache) {
+			return cekCache.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public JwtTimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	public void setTimeProvider(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	private SecretKey getCachedCEK(String cacheKey, long now) {
+		synchronized (cekCache) {
+			CacheEntry entry = cekCache.get(cacheKey);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expiresAt <= now) {
+				cekCache.remove(cacheKey);
+				return null;
+			}
+			return entry.cek;
+		}
+	}
+
+	/**
+	 * The expiration time of the decrypted (nested) JWT, the content may still be deflated when the
+	 * decrypter is wrapped by the JWE compressor
+	 * @return The exp claim, or null if absent or the content is not a JWT
+	 */
+	private static Date expirationOf(byte[] clearText) {
+		Date expiration = parseExpiration(clearText);
+		if (expiration == null && clearText.length > 0 && clearText[0] != '{' && clearText[0] != 'e') {
+			try {
+				expiration = parseExpiration(DeflateUtils.decompress(clearText));
+			} catch (Exception e) {
+				return null;
+			}
+		}
+		return expiration;
+	}
+
+	private static Date parseExpiration(byte[] clearText) {
+		try {
+			Payload payload = new Payload(clearText);
+			SignedJWT signedJWT = payload.toSignedJWT();
+			JWTClaimsSet claimsSet = signedJWT != null ? signedJWT.getJWTClaimsSet()
+					: JWTClaimsSet.parse(new String(clearText, StandardCharsets.UTF_8));
+			return claimsSet.getExpirationTime();
+		} catch (ParseException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return 0 for RSA-OAEP (SHA-1), the SHA-2 bit size for RSA-OAEP-256/384/512, -1 if not cacheable
+	 */
+	private static int shaBitSize(JWEAlgorithm alg) {
+		if (JWEAlgorithm.RSA_OAEP.equals(alg)) {
+			return 0;
+		}
+		if (JWEAlgorithm.RSA_OAEP_256.equals(alg)) {
+			return 256;
+		}
+		if (JWEAlgorithm.RSA_OAEP_384.equals(alg)) {
+			return 384;
+		}
+		if (JWEAlgorithm.RSA_OAEP_512.equals(alg)) {
+			return 512;
+		}
+		return -1;
+	}
+
+	private static final class CacheEntry {
+
+		private final SecretKey cek;
+		private final long expiresAt;
+
+		CacheEntry(SecretKey cek, long expiresAt) {
+			this.cek = cek;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	private final class TimedDecrypter implements JWEDecrypter {
+
+		private final JwtTimeProvider timeProvider;
+
+		TimedDecrypter(JwtTimeProvider timeProvider) {
+			this.timeProvider = timeProvider;
+		}
+
+		@Override
+		public byte[] decrypt(JWEHeader header, Base64URL encryptedKey, Base64URL iv, Base64URL cipherText,
+				Base64URL authTag, byte[] aad) throws JOSEException {
+			return CachingRSADecrypter.this.decrypt(header, encryptedKey, iv, cipherText, authTag, aad, timeProvider);
+		}
+
+		@Override
+		public Set<JWEAlgorithm> supportedJWEAlgorithms() {
+			return CachingRSADecrypter.this.supportedJWEAlgorithms();
+		}
+
+		@Override
+		public Set<EncryptionMethod> supportedEncryptionMethods() {
+			return CachingRSADecrypter.this.supportedEncryptionMethods();
+		}
+
+		@Override
+		public JWEJCAContext getJCAContext() {
+			return CachingRSADecrypter.this.getJCAContext();
+		}
+
+	}
+
+}
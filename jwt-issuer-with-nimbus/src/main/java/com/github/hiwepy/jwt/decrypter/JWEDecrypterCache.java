@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.decrypter;
+
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.KeyedCache;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.crypto.ECDHDecrypter;
+import com.nimbusds.jose.crypto.X25519Decrypter;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+
+/**
+ * JWEDecrypter 缓存：以密钥标识（kid + thumbprint）为键，每个私钥只构建一次解密器；
+ * RSA 私钥使用 {@link CachingRSADecrypter} 从而共享其 CEK 缓存，EC / X25519 私钥使用 ECDH-ES 解密器
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWEDecrypterCache {
+
+	public static final JWEDecrypterCache DEFAULT_DECRYPTER_CACHE = new JWEDecrypterCache();
+
+	private final KeyedCache<JWEDecrypter> decrypters;
+
+	public JWEDecrypterCache() {
+		this(KeyedCache.DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public JWEDecrypterCache(int maximumSize) {
+		this.decrypters = new KeyedCache<>(maximumSize);
+	}
+
+	/**
+	 * Get the cached RSA decrypter of the private key
+	 * @param rsaJWK : The RSA JSON Web Key, must contain the private part
+	 * @return The shared {@link CachingRSADecrypter}
+	 * @throws JOSEException If the private key could not be extracted
+	 */
+	public CachingRSADecrypter getDecrypter(RSAKey rsaJWK) throws JOSEException {
+		return (CachingRSADecrypter) this.getDecrypter((JWK) rsaJWK);
+	}
+
+	/**
+	 * Get the cached decrypter of the private key
+	 * @param jwk : The RSA, EC or X25519 JSON Web Key, must contain the private part
+	 * @return The shared decrypter
+	 * @throws JOSEException If the key type is not supported or the private key could not be extracted
+	 */
+	public JWEDecrypter getDecrypter(JWK jwk) throws JOSEException {
+		return decrypters.get(jwk, this::newDecrypter);
+	}
+
+	/**
+	 * Get the cached decrypter of the private key, using the clock of the repository for the CEK cache expiry
+	 * @param jwk 			: The RSA, EC or X25519 JSON Web Key, must contain the private part
+	 * @param timeProvider 	: The time provider of the repository
+	 * @return The shared decrypter
+	 * @throws JOSEException If the key type is not supported or the private key could not be extracted
+	 */
+	public JWEDecrypter getDecrypter(JWK jwk, JwtTimeProvider timeProvider) throws JOSEException {
+		JWEDecrypter decrypter = this.getDecrypter(jwk);
+		if (decrypter instanceof CachingRSADecrypter) {
+			return ((CachingRSADecrypter) decrypter).decrypter(timeProvider);
+		}
+		return decrypter;
+	}
+
+	/**
+	 * Remove the decrypters (and their CEK caches) of the key id, e.g. when the key is rotated
+	 * @param keyId : The key id, must match exactly
+	 */
+	public void invalidate(String keyId) {
+		decrypters.invalidate(keyId);
+	}
+
+	/**
+	 * Remove all the cached decrypters
+	 */
+	public void clear() {
+		decrypters.clear();
+	}
+
+	public int size() {
+		return decrypters.size();
+	}
+
+	/**
+	 * Create the decrypter of the key, override to change the CEK cache size or TTL
+	 * @param jwk : The JSON Web Key
+	 * @return The new decrypter
+	 * @throws JOSEException If the key type is not supported or the private key could not be extracted
+	 */
+	protected JWEDecrypter newDecrypter(JWK jwk) throws JOSEException {
+		if (jwk instanceof RSAKey) {
+			return new CachingRSADecrypter((RSAKey) jwk);
+		}
+		if (jwk instanceof ECKey) {
+			return new ECDHDecrypter((ECKey) jwk);
+		}
+		if (jwk instanceof OctetKeyPair) {
+			return new X25519Decrypter((OctetKeyPair) jwk);
+		}
+		throw new JOSEException("Unsupported JWE decryption key type: " + jwk.getKeyType());
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.encrypter;
+
+import com.github.hiwepy.jwt.utils.KeyedCache;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEEncrypter;
+import com.nimbusds.jose.crypto.ECDHEncrypter;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+import com.nimbusds.jose.crypto.X25519Encrypter;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+
+/**
+ * JWEEncrypter 缓存：以密钥标识（kid + thumbprint）为键，公钥只转换一次，签发时直接复用已构建好的加密器。
+ * <p>ECDH-ES 加密器每次加密都会生成新的临时密钥对，可在多线程间共享。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWEEncrypterCache {
+
+	public static final JWEEncrypterCache DEFAULT_ENCRYPTER_CACHE = new JWEEncrypterCache();
+
+	private final KeyedCache<JWEEncrypter> encrypters;
+
+	public JWEEncrypterCache() {
+		this(KeyedCache.DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public JWEEncrypterCache(int maximumSize) {
+		this.encrypters = new KeyedCache<>(maximumSize);
+	}
+
+	/**
+	 * Get the cached encrypter of the (public part of the) key
+	 * @param jwk : The RSA, EC (P-256/P-384/P-521) or X25519 JSON Web Key
+	 * @return The shared {@link RSAEncrypter}, {@link ECDHEncrypter} or {@link X25519Encrypter}
+	 * @throws JOSEException If the key type or curve is not supported
+	 */
+	public JWEEncrypter getEncrypter(JWK jwk) throws JOSEException {
+		return encrypters.get(jwk, this::newEncrypter);
+	}
+
+	/**
+	 * Remove the encrypters of the key id, e.g. when the key is rotated
+	 * @param keyId : The key id, must match exactly
+	 */
+	public void invalidate(String keyId) {
+		encrypters.invalidate(keyId);
+	}
+
+	/**
+	 * Remove all the cached encrypters
+	 */
+	public void clear() {
+		encrypters.clear();
+	}
+
+	public int size() {
+		return encrypters.size();
+	}
+
+	protected JWEEncrypter newEncrypter(JWK jwk) throws JOSEException {
+		if (jwk instanceof RSAKey) {
+			return new RSAEncrypter(((RSAKey) jwk).toPublicJWK());
+		}
+		if (jwk instanceof ECKey) {
+			return new ECDHEncrypter(((ECKey) jwk).toPublicJWK());
+		}
+		if (jwk instanceof OctetKeyPair) {
+			return new X25519Encrypter(((OctetKeyPair) jwk).toPublicJWK());
+		}
+		throw new JOSEException("Unsupported JWE encryption key type: " + jwk.getKeyType());
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.header;
+
+import java.text.ParseException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+
+/**
+ * JOSE 头部缓存：以 (alg, kid, typ, enc, zip) 为键缓存已编码的 JWS/JWE 头部。
+ * <p>缓存的头部由其 Base64URL 形式解析而来，nimbus 在组装签名输入、AAD 及序列化时直接复用该 Base64URL，
+ * 签发时只需编码 claims 段并计算签名；头部对象不可变，可在多线程间共享。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JOSEHeaderCache {
+
+	public static final JOSEHeaderCache DEFAULT_HEADER_CACHE = new JOSEHeaderCache();
+
+	/**
+	 * 缓存的最大头部数量，超过后清空重建，避免 kid 无限增长时占用内存
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+	private final ConcurrentMap<HeaderKey, JWSHeader> jwsHeaders = new ConcurrentHashMap<>();
+	private final ConcurrentMap<HeaderKey, JWEHeader> jweHeaders = new ConcurrentHashMap<>();
+	private final int maximumSize;
+
+	public JOSEHeaderCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public JOSEHeaderCache(int maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Get the pre-encoded JWS header
+	 * @param algorithm : The JWS algorithm
+	 * @param keyId 	: The key id, or null
+	 * @return The shared JWS header
+	 */
+	public JWSHeader getJWSHeader(JWSAlgorithm algorithm, String keyId) {
+		return this.getJWSHeader(algorithm, keyId, null);
+	}
+
+	/**
+	 * Get the pre-encoded JWS header
+	 * @param algorithm : The JWS algorithm
+	 * @param keyId 	: The key id, or null
+	 * @param type 		: The type, or null
+	 * @return The shared JWS header
+	 */
+	public JWSHeader getJWSHeader(JWSAlgorithm algorithm, String keyId, JOSEObjectType type) {
+		HeaderKey key = new HeaderKey(algorithm.getName(), keyId, type, null, null);
+		JWSHeader ret = jwsHeaders.get(key);
+		if (ret != null) {
+			return ret;
+		}
+		JWSHeader header = new JWSHeader.Builder(algorithm).keyID(keyId).type(type).build();
+		try {
+			ret = JWSHeader.parse(header.toBase64URL());
+		} catch (ParseException e) {
+			throw new IllegalStateException(e);
+		}
+		this.ensureCapacity(jwsHeaders);
+		JWSHeader existing = jwsHeaders.putIfAbsent(key, ret);
+		return existing != null ? existing : ret;
+	}
+
+	/**
+	 * Get the pre-encoded JWE header
+	 * @param algorithm : The JWE key management algorithm
+	 * @param method 	: The content encryption method
+	 * @param keyId 	: The key id, or null
+	 * @return The shared JWE header
+	 */
+	public JWEHeader getJWEHeader(JWEAlgorithm algorithm, EncryptionMethod method, String keyId) {
+		return this.getJWEHeader(algorithm, method, keyId, null);
+	}
+
+	/**
+	 * Get the pre-encoded JWE header
+	 * @param algorithm : The JWE key management algorithm
+	 * @param method 	: The content encryption method
+	 * @param keyId 	: The key id, or null
+	 * @param type 		: The type, or null
+	 * @return The shared JWE header
+	 */
+	public JWEHeader getJWEHeader(JWEAlgorithm algorithm, EncryptionMethod method, String keyId, JOSEObjectType type) {
+		return this.getJWEHeader(algorithm, method, keyId, type, null);
+	}
+
+	/**
+	 * Get the pre-encoded JWE header
+	 * @param algorithm : The JWE key management algorithm
+	 * @param method 	: The content encryption method
+	 * @param keyId 	: The key id, or null
+	 * @param type 		: The type, or null
+	 * @param zip 		: The compression algorithm, or null
+	 * @return The shared JWE header
+	 */
+	public JWEHeader getJWEHeader(JWEAlgorithm algorithm, EncryptionMethod method, String keyId, JOSEObjectType type,
+			CompressionAlgorithm zip) {
+		HeaderKey key = new HeaderKey(algorithm.getName(), keyId, type, method.getName(), zip);
+		JWEHeader ret = jweHeaders.get(key);
+		if (ret != null) {
+			return ret;
+		}
+		JWEHeader header = new JWEHeader.Builder(algorithm, method).keyID(keyId).type(type).compressionAlgorithm(zip).build();
+		try {
+			ret = JWEHeader.parse(header.toBase64URL());
+		} catch (ParseException e) {
+			throw new IllegalStateException(e);
+		}
+		this.ensureCapacity(jweHeaders);
+		JWEHeader existing = jweHeaders.putIfAbsent(key, ret);
+		return existing != null ? existing : ret;
+	}
+
+	/**
+	 * Remove all the cached headers
+	 */
+	public void clear() {
+		jwsHeaders.clear();
+		jweHeaders.clear();
+	}
+
+	public int size() {
+		return jwsHeaders.size() + jweHeaders.size();
+	}
+
+	private void ensureCapacity(ConcurrentMap<HeaderKey, ?> headers) {
+		if (headers.size() >= maximumSize) {
+			headers.clear();
+		}
+	}
+
+	/**
+	 * The cache key, a null parameter is distinct from an empty one, e.g. no kid and an empty kid
+	 */
+	private static final class HeaderKey {
+
+		private final String algorithm;
+		private final String keyId;
+		private final String type;
+		private final String method;
+		private final String zip;
+
+		HeaderKey(String algorithm, String keyId, JOSEObjectType type, String method, CompressionAlgorithm zip) {
+			this.algorithm = algorithm;
+			this.keyId = keyId;
+			this.type = type != null ? type.getType() : null;
+			this.method = method;
+			this.zip = zip != null ? zip.getName() : null;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof HeaderKey)) {
+				return false;
+			}
+			HeaderKey other = (HeaderKey) obj;
+			return algorithm.equals(other.algorithm) && Objects.equals(keyId, other.keyId) && Objects.equals(type, other.type)
+					&& Objects.equals(method, other.method) && Objects.equals(zip, other.zip);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(algorithm, keyId, type, method, zip);
+		}
+
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.resolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * 不可变的密钥环：以 kid 为索引保存当前有效的密钥，以及处于宽限期内的已退役密钥。
+ * <p>轮换时生成新的密钥环（见 {@link #rotate(Collection, long, long)}），旧实例保持不变，读取方无需加锁。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public final class JWKRing {
+
+	public static final JWKRing EMPTY = new JWKRing(Collections.emptyMap(), Collections.emptyMap());
+
+	/**
+	 * kid -> 当前有效的密钥
+	 */
+	private final Map<String, JWK> keys;
+	/**
+	 * kid -> 已退役但仍在宽限期内的密钥
+	 */
+	private final Map<String, RetiredKey> retired;
+
+	private JWKRing(Map<String, JWK> keys, Map<String, RetiredKey> retired) {
+		this.keys = keys;
+		this.retired = retired;
+	}
+
+	/**
+	 * Create the key ring of the keys, every key must have a unique kid
+	 * @param keys : The keys
+	 * @return The key ring
+	 */
+	public static JWKRing of(Collection<? extends JWK> keys) {
+		return new JWKRing(index(keys), Collections.emptyMap());
+	}
+
+	public static JWKRing of(JWKSet jwkSet) {
+		return of(jwkSet.getKeys());
+	}
+
+	/**
+	 * Create a new key ring with the keys, the keys of this ring that are no longer present are retired
+	 * and can still be resolved until the grace window has elapsed
+	 * @param newKeys 		: The new current keys
+	 * @param now 			: The current time in milliseconds
+	 * @param graceWindow 	: The grace window of the retired keys in milliseconds
+	 * @return The new key ring, this ring is not changed
+	 */
+	public JWKRing rotate(Collection<? extends JWK> newKeys, long now, long graceWindow) {
+		Map<String, JWK> current = index(newKeys);
+		Map<String, RetiredKey> retiring = new HashMap<>();
+		for (Map.Entry<String, RetiredKey> entry : retired.entrySet()) {
+			if (!current.containsKey(entry.getKey()) && entry.getValue().expiresAt > now) {
+				retiring.put(entry.getKey(), entry.getValue());
+			}
+		}
+		if (graceWindow > 0) {
+			for (Map.Entry<String, JWK> entry : keys.entrySet()) {
+				if (!current.containsKey(entry.getKey())) {
+					retiring.put(entry.getKey(), new RetiredKey(entry.getValue(), now + graceWindow));
+				}
+			}
+		}
+		return new JWKRing(current, retiring.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(retiring));
+	}
+
+	/**
+	 * Get the kids of this ring whose key can no longer be resolved from the next ring: removed without grace window,
+	 * retired keys whose grace window has elapsed, or keys replaced under the same kid
+	 * @param next : The key ring that replaces this ring
+	 * @return The kids whose cached signers, verifiers and decrypters should be invalidated
+	 */
+	public Set<String> removedKeyIds(JWKRing next) {
+		Set<String> removed = new HashSet<>();
+		for (Map.Entry<String, JWK> entry : keys.entrySet()) {
+			if (!next.contains(entry.getKey(), entry.getValue())) {
+				removed.add(entry.getKey());
+			}
+		}
+		for (Map.Entry<String, RetiredKey> entry : retired.entrySet()) {
+			if (!next.contains(entry.getKey(), entry.getValue().key)) {
+				removed.add(entry.getKey());
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Get the key of the kid, O(1)
+	 * @param keyId : The key id
+	 * @param now 	: The current time in milliseconds
+	 * @return The current key, or the retired key within its grace window, or null
+	 */
+	public JWK get(String keyId, long now) {
+		if (keyId == null) {
+			return null;
+		}
+		JWK key = keys.get(keyId);
+		if (key != null) {
+			return key;
+		}
+		RetiredKey retiredKey = retired.get(keyId);
+		return retiredKey != null && retiredKey.expiresAt > now ? retiredKey.key : null;
+	}
+
+	/**
+	 * @return The current keys
+	 */
+	public List<JWK> getKeys() {
+		return Collections.unmodifiableList(new ArrayList<>(keys.values()));
+	}
+
+	public boolean isRetired(String keyId) {
+		return !keys.containsKey(keyId) && retired.containsKey(keyId);
+	}
+
+	public int size() {
+		return keys.size();
+	}
+
+	private boolean contains(String keyId, JWK key) {
+		JWK current = keys.get(keyId);
+		if (current != null) {
+			return current.equals(key);
+		}
+		RetiredKey retiredKey = retired.get(keyId);
+		return retiredKey != null && retiredKey.key.equals(key);
+	}
+
+	private static Map<String, JWK> index(Collection<? extends JWK> keys) {
+		Map<String, JWK> index = new HashMap<>(Math.max(16, keys.size() * 2));
+		for (JWK key : keys) {
+			if (key.getKeyID() == null) {
+				throw new IllegalArgumentException("Every key of the key ring must have a kid");
+			}
+			if (index.put(key.getKeyID(), key) != null) {
+				throw new IllegalArgumentException(String.format("Duplicate kid in the key ring : %s", key.getKeyID()));
+			}
+		}
+		return Collections.unmodifiableMap(index);
+	}
+
+	private static final class RetiredKey {
+
+		private final JWK key;
+		private final long expiresAt;
+
+		RetiredKey(JWK key, long expiresAt) {
+			this.key = key;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
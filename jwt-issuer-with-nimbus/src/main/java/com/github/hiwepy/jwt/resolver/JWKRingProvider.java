@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.resolver;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.hiwepy.jwt.decrypter.JWEDecrypterCache;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.nimbusds.jose.jwk.JWK;
+
+/**
+ * 密钥环持有者：以 {@link AtomicReference} 保存当前的 {@link JWKRing}，轮换时原子替换整个密钥环，
+ * 读取（按 kid 解析密钥）无锁且为 O(1)。
+ * <p>密钥被移除、离开宽限期或在同一 kid 下被替换时，按 kid 清除签名器、校验器与解密器缓存中的对应条目。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWKRingProvider {
+
+	public static final long DEFAULT_GRACE_WINDOW = TimeUnit.MINUTES.toMillis(10);
+
+	private final AtomicReference<JWKRing> ring;
+	/**
+	 * 已退役密钥的宽限期（毫秒），在此期间仍可校验旧密钥签发的令牌
+	 */
+	private long graceWindow = DEFAULT_GRACE_WINDOW;
+	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JWSVerifierCache verifierCache = JWSVerifierCache.DEFAULT_VERIFIER_CACHE;
+	private JWEDecrypterCache decrypterCache = JWEDecrypterCache.DEFAULT_DECRYPTER_CACHE;
+
+	public JWKRingProvider() {
+		this(JWKRing.EMPTY);
+	}
+
+	public JWKRingProvider(Collection<? extends JWK> keys) {
+		this(JWKRing.of(keys));
+	}
+
+	public JWKRingProvider(JWKRing ring) {
+		this.ring = new AtomicReference<>(ring);
+	}
+
+	/**
+	 * Get the key of the kid
+	 * @param keyId : The key id
+	 * @return The current key, or the retired key within the grace window, or null
+	 */
+	public JWK getKey(String keyId) {
+		return ring.get().get(keyId, this.getTimeProvider().now());
+	}
+
+	/**
+	 * Replace the current keys atomically, the removed keys are retired for the grace window;
+	 * the keys that can no longer be resolved are invalidated from the caches
+	 * @param keys : The new current keys
+	 * @return The new key ring
+	 */
+	public JWKRing rotate(Collection<? extends JWK> keys) {
+		long now = this.getTimeProvider().now();
+		long window = this.getGraceWindow();
+		JWKRing[] previous = new JWKRing[1];
+		JWKRing next = ring.updateAndGet(current -> {
+			previous[0] = current;
+			return current.rotate(keys, now, window);
+		});
+		for (String keyId : previous[0].removedKeyIds(next)) {
+			this.invalidate(keyId);
+		}
+		return next;
+	}
+
+	/**
+	 * Remove the cached signers, verifiers and decrypters of the key id
+	 * @param keyId : The key id
+	 */
+	protected void invalidate(String keyId) {
+		if (this.getSignerCache() != null) {
+			this.getSignerCache().invalidate(keyId);
+		}
+		if (this.getVerifierCache() != null) {
+			this.getVerifierCache().invalidate(keyId);
+		}
+		if (this.getDecrypterCache() != null) {
+			this.getDecrypterCache().invalidate(keyId);
+		}
+	}
+
+	public JWKRing getRing() {
+		return ring.get();
+	}
+
+	public long getGraceWindow() {
+		return graceWindow;
+	}
+
+	public void setGraceWindow(long graceWindow) {
+		this.graceWindow = graceWindow;
+	}
+
+	public JwtTimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	public void setTimeProvider(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+	}
+
+	public JWSVerifierCache getVerifierCache() {
+		return verifierCache;
+	}
+
+	public void setVerifierCache(JWSVerifierCache verifierCache) {
+		this.verifierCache = verifierCache;
+	}
+
+	public JWEDecrypterCache getDecrypterCache() {
+		return decrypterCache;
+	}
+
+	public void setDecrypterCache(JWEDecrypterCache decrypterCache) {
+		this.decrypterCache = decrypterCache;
+	}
+
+}
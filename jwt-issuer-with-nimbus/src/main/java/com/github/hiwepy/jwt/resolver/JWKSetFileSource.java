@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.resolver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.ParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * 本地 JWKS 文件密钥源：以内存映射方式读取 JWKS 文件并解析为 {@link JWKSet}，按固定间隔轮询文件的修改时间与大小，
+ * 变化时在后台线程中重新解析并通过 {@link JWKRingProvider#rotate(java.util.Collection)} 原子发布新的密钥环。
+ * <p>校验请求只读取已发布的密钥环，从不等待文件 I/O；文件不完整或解析失败时保留当前密钥环，并在下次轮询时重试。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWKSetFileSource implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JWKSetFileSource.class);
+
+	public static final long DEFAULT_POLL_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+	private final Path file;
+	private final JWKRingProvider keyRingProvider;
+	/**
+	 * 最近一次成功加载的密钥集合
+	 */
+	private volatile JWKSet jwkSet;
+	/**
+	 * 最近一次成功加载时文件的修改时间与大小，用于变化检测
+	 */
+	private long lastModified = -1;
+	private long lastSize = -1;
+	/**
+	 * 轮询间隔（毫秒）
+	 */
+	private long pollInterval = DEFAULT_POLL_INTERVAL;
+	private ScheduledExecutorService scheduler;
+	private boolean shutdownScheduler;
+	private ScheduledFuture<?> pollTask;
+
+	public JWKSetFileSource(Path file) {
+		this(file, new JWKRingProvider());
+	}
+
+	public JWKSetFileSource(Path file, JWKRingProvider keyRingProvider) {
+		this.file = file;
+		this.keyRingProvider = keyRingProvider;
+	}
+
+	/**
+	 * Load the file, then poll it for changes in the background
+	 * @throws IOException If the file could not be read
+	 * @throws ParseException If the file is not a valid JWK set
+	 */
+	public synchronized void start() throws IOException, ParseException {
+		this.load();
+		if (pollTask != null) {
+			return;
+		}
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "jwks-file-source");
+				thread.setDaemon(true);
+				return thread;
+			});
+			shutdownScheduler = true;
+		}
+		pollTask = scheduler.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reload the file if its modification time or size changed since the last successful load
+	 * @return True if a new key set was published
+	 * @throws IOException If the file could not be read
+	 * @throws ParseException If the file is not a valid JWK set
+	 */
+	public synchronized boolean reload() throws IOException, ParseException {
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		if (attributes.lastModifiedTime().toMillis() == lastModified && attributes.size() == lastSize) {
+			return false;
+		}
+		this.load();
+		return true;
+	}
+
+	/**
+	 * Read and parse the file unconditionally, then publish the keys to the key ring
+	 * @throws IOException If the file could not be read
+	 * @throws ParseException If the file is not a valid JWK set
+	 */
+	public synchronized void load() throws IOException, ParseException {
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		JWKSet loaded = JWKSet.parse(this.read());
+		keyRingProvider.rotate(loaded.getKeys());
+		this.jwkSet = loaded;
+		this.lastModified = attributes.lastModifiedTime().toMillis();
+		this.lastSize = attributes.size();
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Loaded {} keys from {}", loaded.getKeys().size(), file);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (pollTask != null) {
+			pollTask.cancel(false);
+			pollTask = null;
+		}
+		if (shutdownScheduler && scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Read the whole file through a read-only memory mapping
+	 */
+	protected String read() throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size == 0) {
+				throw new IOException("Empty JWK set file: " + file);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			return StandardCharsets.UTF_8.decode(buffer).toString();
+		}
+	}
+
+	private void poll() {
+		try {
+			this.reload();
+		} catch (IOException | ParseException | RuntimeException e) {
+			// 文件可能正在写入，保留当前密钥环，下次轮询时重试
+			LOG.warn("Failed to reload the JWK set file {} : {}", file, e.getMessage());
+		}
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public JWKRingProvider getKeyRingProvider() {
+		return keyRingProvider;
+	}
+
+	public JWKSet getJWKSet() {
+		return jwkSet;
+	}
+
+	public long getPollInterval() {
+		return pollInterval;
+	}
+
+	public void setPollInterval(long pollInterval) {
+		this.pollInterval = pollInterval;
+	}
+
+	public ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	public void setScheduler(ScheduledExecutorService scheduler) {
+		this.scheduler = scheduler;
+		this.shutdownScheduler = false;
+	}
+
+}
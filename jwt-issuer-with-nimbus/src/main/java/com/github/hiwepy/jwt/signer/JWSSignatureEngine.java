@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.signer;
+
+import java.io.ByteArrayOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.github.hiwepy.jwt.stream.SigningSink;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.impl.ECDSA;
+import com.nimbusds.jose.crypto.impl.RSAKeyUtils;
+import com.nimbusds.jose.crypto.impl.RSASSA;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+
+/**
+ * 增量签名引擎：签名输入分块到达时直接更新 JCA 的 {@link Signature} / {@link Mac}，无需先拼接完整的签名输入。
+ * <p>RSA（RS/PS）、EC（ES）与 HMAC（HS）使用 JCA 引擎增量签名，其他密钥（如 Ed25519）退回到
+ * {@link JWSSignerCache} 缓存的签名器，先收集签名输入再签名。JCA 引擎按线程复用，转换后的私钥按密钥缓存。</p>
+ * <p>缓存私钥前执行与 nimbus 签名器相同的密钥校验：HMAC 密钥不短于哈希长度，RSA 密钥不少于 2048 位，EC 曲线与算法匹配。</p>
+ * <p>同一线程连续使用同一密钥签名时不再重新初始化引擎，HMAC 签名写入引擎复用的输出数组。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public abstract class JWSSignatureEngine implements SigningSink {
+
+	/**
+	 * JWK -> JCA 私钥/密钥，避免每次签名都重新转换
+	 */
+	private static final ConcurrentMap<JWK, Key> KEYS = new ConcurrentHashMap<>();
+	private static final int MAXIMUM_KEYS = 1024;
+	/**
+	 * 与 {@link com.nimbusds.jose.crypto.RSASSASigner} 一致的 RSA 最小密钥长度
+	 */
+	private static final int MIN_RSA_KEY_SIZE_BITS = 2048;
+	private static final ThreadLocal<Map<String, JWSSignatureEngine>> ENGINES = ThreadLocal.withInitial(HashMap::new);
+
+	/**
+	 * Get an engine ready to sign with the key
+	 * @param jwk 			: The RSA, EC, oct or OKP JSON Web Key, must contain the private part
+	 * @param algorithm 	: The JWS algorithm
+	 * @param signerCache 	: The signer cache used for the keys without a JCA engine
+	 * @return The engine, valid on the current thread until the next call
+	 * @throws JOSEException If the key is not supported or could not be converted
+	 */
+	public static JWSSignatureEngine of(JWK jwk, JWSAlgorithm algorithm, JWSSignerCache signerCache) throws JOSEException {
+		if (jwk instanceof RSAKey && JWSAlgorithm.Family.RSA.contains(algorithm)) {
+			return signatureEngine(jwk, algorithm, 0);
+		}
+		if (jwk instanceof ECKey && JWSAlgorithm.Family.EC.contains(algorithm)) {
+			return signatureEngine(jwk, algorithm, ECDSA.getSignatureByteArrayLength(algorithm));
+		}
+		if (jwk instanceof OctetSequenceKey && JWSAlgorithm.Family.HMAC_SHA.contains(algorithm)) {
+			return macEngine(jwk, algorithm);
+		}
+		return new BufferingEngine(algorithm, signerCache.getSigner(jwk));
+	}
+
+	/**
+	 * Compute the signature over the bytes received so far
+	 * @return The JWS signature, the array may be reused by the engine on the current thread
+	 * @throws JOSEException If the signature could not be computed
+	 */
+	public abstract byte[] sign() throws JOSEException;
+
+	private static Key key(JWK jwk, JWSAlgorithm algorithm) throws JOSEException {
+		// EC 曲线与算法的匹配在每次取用时检查，缓存的私钥与算法无关
+		if (jwk instanceof ECKey && !algorithm.equals(ECDSA.resolveAlgorithm(((ECKey) jwk).getCurve()))) {
+			throw new JOSEException("The EC key curve " + ((ECKey) jwk).getCurve() + " doesn't match the JWS algorithm " + algorithm);
+		}
+		Key ret = KEYS.get(jwk);
+		// HMAC 密钥的最小长度取决于算法，换用其他 HS 算法时重新校验
+		if (ret != null && (!(ret instanceof SecretKey) || ret.getAlgorithm().equals(macAlgorithm(algorithm)))) {
+			return ret;
+		}
+		if (jwk instanceof RSAKey) {
+			ret = ((RSAKey) jwk).toPrivateKey();
+			int keyBitLength = ret == null ? -1 : RSAKeyUtils.keyBitLength((PrivateKey) ret);
+			if (keyBitLength > 0 && keyBitLength < MIN_RSA_KEY_SIZE_BITS) {
+				throw new KeyLengthException("The RSA key size must be at least " + MIN_RSA_KEY_SIZE_BITS + " bits: " + jwk.getKeyID());
+			}
+		} else if (jwk instanceof ECKey) {
+			ret = ((ECKey) jwk).toPrivateKey();
+		} else {
+			byte[] secret = ((OctetSequenceKey) jwk).toByteArray();
+			if (secret.length * 8 < MACSigner.getMinRequiredSecretLength(algorithm)) {
+				throw new KeyLengthException("The secret length for " + algorithm + " must be at least "
+						+ MACSigner.getMinRequiredSecretLength(algorithm) + " bits: " + jwk.getKeyID());
+			}
+			ret = new SecretKeySpec(secret, macAlgorithm(algorithm));
+		}
+		if (ret == null) {
+			throw new JOSEException("The JWK doesn't contain a private part: " + jwk.getKeyID());
+		}
+		if (KEYS.size() >= MAXIMUM_KEYS) {
+			KEYS.clear();
+		}
+		KEYS.put(jwk, ret);
+		return ret;
+	}
+
+	private static JWSSignatureEngine signatureEngine(JWK jwk, JWSAlgorithm algorithm, int concatLength) throws JOSEException {
+		Map<String, JWSSignatureEngine> engines = ENGINES.get();
+		SignatureEngine engine = (SignatureEngine) engines.get(algorithm.getName());
+		if (engine == null) {
+			Signature signature = JWSAlgorithm.Family.RSA.contains(algorithm) ? RSASSA.getSignerAndVerifier(algorithm, null)
+					: ECDSA.getSignerAndVerifier(algorithm, null);
+			engine = new SignatureEngine(algorithm, signature, concatLength);
+			engines.put(algorithm.getName(), engine);
+		}
+		engine.init(jwk);
+		return engine;
+	}
+
+	private static JWSSignatureEngine macEngine(JWK jwk, JWSAlgorithm algorithm) throws JOSEException {
+		Map<String, JWSSignatureEngine> engines = ENGINES.get();
+		MacEngine engine = (MacEngine) engines.get(algorithm.getName());
+		if (engine == null) {
+			try {
+				engine = new MacEngine(algorithm, Mac.getInstance(macAlgorithm(algorithm)));
+			} catch (GeneralSecurityException e) {
+				throw new JOSEException("Unsupported HMAC algorithm: " + e.getMessage(), e);
+			}
+			engines.put(algorithm.getName(), engine);
+		}
+		engine.init(jwk);
+		return engine;
+	}
+
+	private static String macAlgorithm(JWSAlgorithm algorithm) throws JOSEException {
+		if (JWSAlgorithm.HS256.equals(algorithm)) {
+			return "HmacSHA256";
+		}
+		if (JWSAlgorithm.HS384.equals(algorithm)) {
+			return "HmacSHA384";
+		}
+		if (JWSAlgorithm.HS512.equals(algorithm)) {
+			return "HmacSHA512";
+		}
+		throw new JOSEException("Unsupported HMAC algorithm: " + algorithm);
+	}
+
+	private static final class SignatureEngine extends JWSSignatureEngine {
+
+		private final JWSAlgorithm algorithm;
+		private final Signature signature;
+		/**
+		 * ECDSA 签名从 DER 转为 R || S 的长度，RSA 为 0
+		 */
+		private final int concatLength;
+		/**
+		 * 已初始化的密钥，以及是否有未完成签名的输入
+		 */
+		private JWK jwk;
+		private boolean dirty;
+
+		SignatureEngine(JWSAlgorithm algorithm, Signature signature, int concatLength) {
+			this.algorithm = algorithm;
+			this.signature = signature;
+			this.concatLength = concatLength;
+		}
+
+		void init(JWK jwk) throws JOSEException {
+			if (jwk == this.jwk && !dirty) {
+				return;
+			}
+			this.jwk = null;
+			try {
+				signature.initSign((PrivateKey) key(jwk, algorithm));
+			} catch (GeneralSecurityException e) {
+				throw new JOSEException("Invalid private key: " + e.getMessage(), e);
+			}
+			this.jwk = jwk;
+			this.dirty = false;
+		}
+
+		@Override
+		public void update(byte[] input, int offset, int length) {
+			try {
+				this.dirty = true;
+				signature.update(input, offset, length);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public byte[] sign() throws JOSEException {
+			try {
+				byte[] ret = signature.sign();
+				this.dirty = false;
+				return concatLength > 0 ? ECDSA.transcodeSignatureToConcat(ret, concatLength) : ret;
+			} catch (GeneralSecurityException e) {
+				throw new JOSEException(algorithm + " signature failed: " + e.getMessage(), e);
+			}
+		}
+
+	}
+
+	private static final class MacEngine extends JWSSignatureEngine {
+
+		private final JWSAlgorithm algorithm;
+		private final Mac mac;
+		private final byte[] output;
+		private JWK jwk;
+
+		MacEngine(JWSAlgorithm algorithm, Mac mac) {
+			this.algorithm = algorithm;
+			this.mac = mac;
+			this.output = new byte[mac.getMacLength()];
+		}
+
+		void init(JWK jwk) throws JOSEException {
+			if (jwk == this.jwk) {
+				// 丢弃上次未完成签名的输入
+				mac.reset();
+				return;
+			}
+			this.jwk = null;
+			try {
+				mac.init((SecretKey) key(jwk, algorithm));
+			} catch (GeneralSecurityException e) {
+				throw new JOSEException("Invalid HMAC key: " + e.getMessage(), e);
+			}
+			this.jwk = jwk;
+		}
+
+		@Override
+		public void update(byte[] input, int offset, int length) {
+			mac.update(input, offset, length);
+		}
+
+		@Override
+		public byte[] sign() throws JOSEException {
+			try {
+				mac.doFinal(output, 0);
+				return output;
+			} catch (GeneralSecurityException e) {
+				throw new JOSEException("HMAC signature failed: " + e.getMessage(), e);
+			}
+		}
+
+	}
+
+	private static final class BufferingEngine extends JWSSignatureEngine {
+
+		private final JWSAlgorithm algorithm;
+		private final JWSSigner signer;
+		private final ByteArrayOutputStream input = new ByteArrayOutputStream(1024);
+
+		BufferingEngine(JWSAlgorithm algorithm, JWSSigner signer) {
+			this.algorithm = algorithm;
+			this.signer = signer;
+		}
+
+		@Override
+		public void update(byte[] bytes, int offset, int length) {
+			input.write(bytes, offset, length);
+		}
+
+		@Override
+		public byte[] sign() throws JOSEException {
+			return signer.sign(new JWSHeader(algorithm), input.toByteArray()).decode();
+		}
+
+	}
+
+}
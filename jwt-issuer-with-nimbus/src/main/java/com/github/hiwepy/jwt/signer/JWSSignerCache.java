@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.signer;
+
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.hiwepy.jwt.utils.KeyedCache;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.Ed25519Signer;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+
+/**
+ * JWSSigner 缓存：以密钥标识（kid + thumbprint）为键，密钥只转换一次（JWK -> PrivateKey、Base64 -> byte[]），
+ * 签发时直接复用已构建好的签名器。
+ * <p>Nimbus 的 JWSSigner 实现均为线程安全（每次签名时创建新的 Signature/Mac 实例），可在多线程间共享。</p>
+ * <p>共享密钥以其摘要为键，缓存中不保留明文密钥；缓存数量有上限。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWSSignerCache {
+
+	public static final JWSSignerCache DEFAULT_SIGNER_CACHE = new JWSSignerCache();
+
+	private final KeyedCache<JWSSigner> signers;
+	/**
+	 * 算法名称 -> JWSAlgorithm
+	 */
+	private final ConcurrentMap<String, JWSAlgorithm> algorithms = new ConcurrentHashMap<>();
+
+	public JWSSignerCache() {
+		this(KeyedCache.DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public JWSSignerCache(int maximumSize) {
+		this.signers = new KeyedCache<>(maximumSize);
+	}
+
+	/**
+	 * Get the cached RSA signer of the private key
+	 * @param rsaJWK : The RSA JSON Web Key, must contain the private part
+	 * @return The shared {@link RSASSASigner}
+	 * @throws JOSEException If the private key could not be extracted
+	 */
+	public JWSSigner getSigner(RSAKey rsaJWK) throws JOSEException {
+		return signers.get(rsaJWK, key -> new RSASSASigner(key));
+	}
+
+	/**
+	 * Get the cached EC signer of the private key
+	 * @param ecJWK : The EC JSON Web Key, must contain the private part
+	 * @return The shared {@link ECDSASigner}
+	 * @throws JOSEException If the private key could not be extracted
+	 */
+	public JWSSigner getSigner(ECKey ecJWK) throws JOSEException {
+		return signers.get(ecJWK, key -> new ECDSASigner(key));
+	}
+
+	/**
+	 * Get the cached Ed25519 signer of the private key
+	 * @param octetKeyPair : The Octet Key Pair, must contain the private part
+	 * @return The shared {@link Ed25519Signer}
+	 * @throws JOSEException If the private key could not be extracted
+	 */
+	public JWSSigner getSigner(OctetKeyPair octetKeyPair) throws JOSEException {
+		return signers.get(octetKeyPair, key -> new Ed25519Signer(key));
+	}
+
+	/**
+	 * Get the cached HMAC signer of the key
+	 * @param octJWK : The Octet Sequence JSON Web Key
+	 * @return The shared {@link MACSigner}
+	 * @throws JOSEException If the secret is too short
+	 */
+	public JWSSigner getSigner(OctetSequenceKey octJWK) throws JOSEException {
+		return signers.get(octJWK, key -> new MACSigner(key));
+	}
+
+	/**
+	 * Get the cached HMAC signer of the Base64 encoded secret
+	 * @param base64Secret : The Base64 encoded shared secret
+	 * @return The shared {@link MACSigner}
+	 * @throws JOSEException If the secret is too short
+	 */
+	public JWSSigner getSigner(String base64Secret) throws JOSEException {
+		return signers.get(Base64.getDecoder().decode(base64Secret), MACSigner::new);
+	}
+
+	/**
+	 * Get the cached signer of the JSON Web Key
+	 * @param jwk : The RSA, EC, OKP or OCT JSON Web Key
+	 * @return The shared {@link JWSSigner}
+	 * @throws JOSEException If the key type is not supported or the key could not be converted
+	 */
+	public JWSSigner getSigner(JWK jwk) throws JOSEException {
+		if (jwk instanceof RSAKey) {
+			return this.getSigner((RSAKey) jwk);
+		}
+		if (jwk instanceof ECKey) {
+			return this.getSigner((ECKey) jwk);
+		}
+		if (jwk instanceof OctetKeyPair) {
+			return this.getSigner((OctetKeyPair) jwk);
+		}
+		if (jwk instanceof OctetSequenceKey) {
+			return this.getSigner((OctetSequenceKey) jwk);
+		}
+		throw new JOSEException(String.format("Unsupported JWK type : %s", jwk == null ? null : jwk.getKeyType()));
+	}
+
+	/**
+	 * Get the pre-resolved JWS algorithm of the name
+	 * @param algorithm : The algorithm name, e.g. RS256
+	 * @return The {@link JWSAlgorithm}
+	 */
+	public JWSAlgorithm getAlgorithm(String algorithm) {
+		JWSAlgorithm ret = algorithms.get(algorithm);
+		if (ret != null) {
+			return ret;
+		}
+		ret = JWSAlgorithm.parse(algorithm);
+		JWSAlgorithm existing = algorithms.putIfAbsent(algorithm, ret);
+		return existing != null ? existing : ret;
+	}
+
+	/**
+	 * Remove all the signers of the key id, e.g. when the key is rotated
+	 * @param keyId : The key id, must match exactly
+	 */
+	public void invalidate(String keyId) {
+		signers.invalidate(keyId);
+	}
+
+	/**
+	 * Remove all the cached signers
+	 */
+	public void clear() {
+		signers.clear();
+	}
+
+	public int size() {
+		return signers.size();
+	}
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.stream;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections4.CollectionUtils;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.github.hiwepy.jwt.IssueRequest;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.header.JOSEHeaderCache;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.signer.JWSSignatureEngine;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.StringUtils;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jwt.JWTClaimNames;
+
+/**
+ * 流式签发：声明从调用方的 Map 或 POJO 直接以 Base64URL 编码的 JSON 写入线程复用的缓冲区，
+ * 签名输入在写出的同时分块交给签名引擎，最终在同一缓冲区内一次写出紧凑序列化的令牌。
+ * <p>输出的声明与 {@link com.github.hiwepy.jwt.utils.NimbusdsUtils#claimsSet(String, String, String, Set, Map, long)}
+ * 加上各仓库设置的 iat/nbf/exp 等价：claims 中的 jti、sub、aud、iss 覆盖参数，iat、nbf、exp 始终取签发时间，值为 null 的声明不输出。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWSStreamingIssuer {
+
+	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JOSEHeaderCache headerCache = JOSEHeaderCache.DEFAULT_HEADER_CACHE;
+	private final ThreadLocal<IssueContext> contexts = ThreadLocal.withInitial(IssueContext::new);
+
+	/**
+	 * Issue JSON Web Token (JWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key, RSAKey, ECKey, OctetSequenceKey (HMAC) or OctetKeyPair (Ed25519)
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param claims		: Jwt Claims, a Map or a POJO
+	 * @param algorithm		: Supported algorithms：
+	 * <p> HS256, HS384, HS512, RS256, RS384, RS512, PS256, PS384, PS512, ES256, ES384, ES512, EdDSA </p>
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	public String issueJwt(JWK signingKey, String jwtId, String subject, String issuer, Set<String> audience,
+			Object claims, String algorithm, long period) throws JwtException {
+		try {
+			//-------------------- Step 1：Header --------------------
+
+			IssueContext context = this.getContext(signingKey, algorithm);
+			JwtStreamWriter writer = context.begin();
+
+			//-------------------- Step 2：Claims --------------------
+
+			this.writeClaims(writer, this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, toMap(claims), period);
+
+			//-------------------- Step 3：Signature --------------------
+
+			return context.end(writer);
+		} catch (JOSEException e) {
+			throw new IncorrectJwtException(e);
+		} catch (IllegalArgumentException e) {
+			throw new IncorrectJwtException(e);
+		}
+	}
+
+	/**
+	 * Issue JSON Web Token (JWT) from a reusable request, e.g. {@link IssueRequest#current()}
+	 * <p>The roles and permissions are written directly, the claims template is rendered into the token buffer,
+	 * no intermediate claims map, claims set or header object is created.</p>
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param request : The issue request, the claims are taken from the template, the claims or the roles and permissions in that order
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	public String issueJwt(IssueRequest<? extends JWK, ?> request) throws JwtException {
+		try {
+			IssueContext context = this.getContext(request.getSigningKey(), request.getAlgorithm());
+			JwtStreamWriter writer = context.begin();
+			String jwtId = this.getIdGenerator().getOrGenerate(request.getJwtId());
+			if (request.getTemplate() != null) {
+				request.getTemplate().writeTo(writer, jwtId, request.getSubject(), this.getTimeProvider().now(), request.getPeriod());
+			} else if (request.getClaims() != null) {
+				this.writeClaims(writer, jwtId, request.getSubject(), request.getIssuer(), request.getAudience(), request.getClaims(), request.getPeriod());
+			} else {
+				this.writeRegisteredClaims(writer, jwtId, request.getSubject(), request.getIssuer(), request.getAudience(), Collections.emptyMap());
+				// 角色与权限，与 Map 方式一致，值为 null 时不输出
+				if (request.getRoles() != null) {
+					writer.member("roles", request.getRoles());
+				}
+				if (request.getPermissions() != null) {
+					writer.member("perms", request.getPermissions());
+				}
+				this.writeTimes(writer, request.getPeriod());
+			}
+			return context.end(writer);
+		} catch (JOSEException e) {
+			throw new IncorrectJwtException(e);
+		} catch (IllegalArgumentException e) {
+			throw new IncorrectJwtException(e);
+		}
+	}
+
+	protected void writeClaims(JwtStreamWriter writer, String jwtId, String subject, String issuer, Set<String> audience,
+			Map<?, ?> claims, long period) {
+		this.writeRegisteredClaims(writer, jwtId, subject, issuer, audience, claims);
+		// 声明信息
+		for (Map.Entry<?, ?> entry : claims.entrySet()) {
+			String name = String.valueOf(entry.getKey());
+			if (entry.getValue() == null || JWTClaimNames.ISSUED_AT.equals(name) || JWTClaimNames.NOT_BEFORE.equals(name)
+					|| JWTClaimNames.EXPIRATION_TIME.equals(name)) {
+				continue;
+			}
+			writer.member(name, entry.getValue());
+		}
+		this.writeTimes(writer, period);
+	}
+
+	/**
+	 * jti、sub、aud、iss，claims 中已有的以 claims 为准
+	 */
+	private void writeRegisteredClaims(JwtStreamWriter writer, String jwtId, String subject, String issuer, Set<String> audience,
+			Map<?, ?> claims) {
+		// Jwt主键ID
+		if (StringUtils.isNoneBlank(jwtId) && !claims.containsKey(JWTClaimNames.JWT_ID)) {
+			writer.member(JWTClaimNames.JWT_ID, jwtId);
+		}
+		// 用户名主题
+		if (subject != null && !claims.containsKey(JWTClaimNames.SUBJECT)) {
+			writer.member(JWTClaimNames.SUBJECT, subject);
+		}
+		// 接收对象：单个接收者写为字符串
+		if (CollectionUtils.isNotEmpty(audience) && !claims.containsKey(JWTClaimNames.AUDIENCE)) {
+			writer.member(JWTClaimNames.AUDIENCE, audience.size() == 1 ? audience.iterator().next() : audience);
+		}
+		// 签发者
+		if (StringUtils.isNoneBlank(issuer) && !claims.containsKey(JWTClaimNames.ISSUER)) {
+			writer.member(JWTClaimNames.ISSUER, issuer);
+		}
+	}
+
+	/**
+	 * 签发时间、有效期起始时间、过期时间
+	 */
+	private void writeTimes(JwtStreamWriter writer, long period) {
+		long currentTimeMillis = this.getTimeProvider().now();
+		writer.member(JWTClaimNames.ISSUED_AT, currentTimeMillis / 1000L);
+		writer.member(JWTClaimNames.NOT_BEFORE, currentTimeMillis / 1000L);
+		if (period >= 0) {
+			writer.member(JWTClaimNames.EXPIRATION_TIME, (currentTimeMillis + period) / 1000L);
+		}
+	}
+
+	private static Map<?, ?> toMap(Object claims) {
+		if (claims == null) {
+			return Collections.emptyMap();
+		}
+		if (claims instanceof Map) {
+			return (Map<?, ?>) claims;
+		}
+		return JSONObject.from(claims);
+	}
+
+	/**
+	 * Get the issue context of the current thread, ready to sign with the key
+	 */
+	private IssueContext getContext(JWK signingKey, String algorithm) throws JOSEException {
+		IssueContext context = contexts.get();
+		if (signingKey != context.signingKey || !algorithm.equals(context.algorithm) || this.getHeaderCache() != context.headerCache) {
+			JWSAlgorithm jwsAlgorithm = this.getSignerCache().getAlgorithm(algorithm);
+			context.signingKey = null;
+			context.header = this.getHeaderCache().getJWSHeader(jwsAlgorithm, signingKey.getKeyID()).toBase64URL().toString();
+			context.jwsAlgorithm = jwsAlgorithm;
+			context.algorithm = algorithm;
+			context.headerCache = this.getHeaderCache();
+			context.signingKey = signingKey;
+		}
+		context.engine = JWSSignatureEngine.of(signingKey, context.jwsAlgorithm, this.getSignerCache());
+		return context;
+	}
+
+	public JwtTimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	public void setTimeProvider(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+	}
+
+	public JOSEHeaderCache getHeaderCache() {
+		return headerCache;
+	}
+
+	public void setHeaderCache(JOSEHeaderCache headerCache) {
+		this.headerCache = headerCache;
+	}
+
+	/**
+	 * 线程复用的签发上下文：最近一次签发所用的密钥、算法及其已编码的头部，连续使用同一密钥签发时不再查找头部缓存
+	 */
+	private static final class IssueContext {
+
+		private JWK signingKey;
+		private String algorithm;
+		private JOSEHeaderCache headerCache;
+		private JWSAlgorithm jwsAlgorithm;
+		private String header;
+		private JWSSignatureEngine engine;
+
+		/**
+		 * Write the header and open the claims object
+		 */
+		JwtStreamWriter begin() {
+			JwtStreamWriter writer = JwtStreamWriter.current().reset(engine);
+			writer.writeAscii(header).writeAscii('.');
+			return writer.beginBase64().beginObject();
+		}
+
+		/**
+		 * Close the claims object and append the signature
+		 */
+		String end(JwtStreamWriter writer) throws JOSEException {
+			writer.endObject().endBase64().endSigningInput();
+			writer.writeAscii('.');
+			writer.writeBase64(engine.sign());
+			return writer.toString();
+		}
+
+	}
+
+}
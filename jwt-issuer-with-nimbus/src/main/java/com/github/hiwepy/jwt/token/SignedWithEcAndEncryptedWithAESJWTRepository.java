@@ -16,7 +16,6 @@
 package com.github.hiwepy.jwt.token;
 
 import java.text.ParseException;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -24,11 +23,17 @@ import java.util.Set;
 import javax.crypto.SecretKey;
 
 import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.compression.JWECompressor;
 import com.github.hiwepy.jwt.exception.IncorrectJwtException;
 import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.header.JOSEHeaderCache;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
 import com.github.hiwepy.jwt.time.JwtTimeProvider;
 import com.github.hiwepy.jwt.utils.NimbusdsUtils;
-import com.github.hiwepy.jwt.verifier.ExtendedECDSAVerifier;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.github.hiwepy.jwt.verifier.JWTClaimsTimeVerifier;
+import com.nimbusds.jose.CompressionAlgorithm;
 import com.nimbusds.jose.EncryptionMethod;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWEAlgorithm;
@@ -43,8 +48,6 @@ import com.nimbusds.jose.KeyLengthException;
 import com.nimbusds.jose.Payload;
 import com.nimbusds.jose.crypto.DirectDecrypter;
 import com.nimbusds.jose.crypto.DirectEncrypter;
-import com.nimbusds.jose.crypto.ECDSASigner;
-import com.nimbusds.jose.crypto.ECDSAVerifier;
 import com.nimbusds.jose.jwk.ECKey;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
@@ -58,6 +61,15 @@ import com.nimbusds.jwt.SignedJWT;
 public class SignedWithEcAndEncryptedWithAESJWTRepository implements JwtKeyPairRepository<ECKey,SecretKey> {
 
 	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JWSVerifierCache verifierCache = JWSVerifierCache.DEFAULT_VERIFIER_CACHE;
+	private JOSEHeaderCache headerCache = JOSEHeaderCache.DEFAULT_HEADER_CACHE;
+	private JWECompressor compressor = JWECompressor.DEFAULT_COMPRESSOR;
+	/**
+	 * 是否在签名校验、解密之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
 
 	/**
 	 * Issue JSON Web Token (JWT)
@@ -117,46 +129,42 @@ public class SignedWithEcAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 			//-------------------- Step 1：Get ClaimsSet --------------------
 
 			// Prepare JWT with claims set
-			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(jwtId, subject, issuer, audience, claims, period);
-			// 签发时间
-			long currentTimeMillis = this.getTimeProvider().now();
-			Date now = new Date(currentTimeMillis);
-			builder.issueTime(now);
-			// 有效期起始时间
-			builder.notBeforeTime(now);
-			// Token过期时间
-			if (period >= 0) {
-				// 有效时间
-				Date expiration = new Date(currentTimeMillis + period );
-				builder.expirationTime(expiration);
-			}
+			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().nowDate(), period);
 			JWTClaimsSet claimsSet = builder.build();
 
 			//-------------------- Step 2：ECDSA Signature --------------------
 
-			// Request JWS Header with JWSAlgorithm
-			JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.parse(algorithm)).build();
+			// Get the pre-encoded JWS Header with JWSAlgorithm
+			JWSHeader jwsHeader = this.getHeaderCache().getJWSHeader(this.getSignerCache().getAlgorithm(algorithm), null);
 			SignedJWT signedJWT = new SignedJWT(jwsHeader, claimsSet);
 
-			// Create the EC signer
-			JWSSigner signer = new ECDSASigner(signingKey);
+			// Get the cached EC signer
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
 
 			// Compute the EC signature
 			signedJWT.sign(signer);
 
 			//-------------------- Step 3：AES Encrypt ----------------------
 
+			// Serialise the signed JWT, compressed with zip=DEF once it reaches the threshold
+			String nestedJWT = signedJWT.serialize();
+			CompressionAlgorithm zip = this.getCompressor().getCompressionAlgorithm(nestedJWT.length());
+
 			// Request JWT encrypted with DIR and 128-bit AES/GCM
-			JWEHeader jweHeader = new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM);
+			JWEHeader jweHeader = this.isTemporalPreCheck()
+					// Replicate the nbf/exp claims into the JWE header for the temporal pre-check
+					? new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A128GCM).compressionAlgorithm(zip).customParams(NimbusdsUtils.temporalParams(claimsSet)).build()
+					// Otherwise reuse the pre-encoded header, only the payload is encrypted per token
+					: this.getHeaderCache().getJWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM, null, null, zip);
 
 			// Create JWE object with signed JWT as payload
-			JWEObject jweObject = new JWEObject( jweHeader, new Payload(signedJWT));
+			JWEObject jweObject = new JWEObject( jweHeader, new Payload(nestedJWT));
 
 			// Create an encrypter with the specified public AES key
 			JWEEncrypter encrypter = new DirectEncrypter(secretKey);
 
-			// Do the actual encryption
-			jweObject.encrypt(encrypter);
+			// Do the actual encryption, the payload is compressed with the pooled deflaters
+			jweObject.encrypt(this.getCompressor().encrypter(encrypter));
 
 			// Serialise to JWE compact form
 			return jweObject.serialize();
@@ -193,19 +201,37 @@ public class SignedWithEcAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 			// Parse the JWE string
 			JWEObject jweObject = JWEObject.parse(token);
 
+			// Reject expired/not-yet-valid tokens before the decryption, using the nbf/exp header parameters
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+			}
+
 			// Decrypt with AES key
-			jweObject.decrypt(new DirectDecrypter(secretKey));
+			jweObject.decrypt(this.getCompressor().decrypter(new DirectDecrypter(secretKey)));
 
 			// Extract payload
 			SignedJWT signedJWT = jweObject.getPayload().toSignedJWT();
 
 			//-------------------- Step 2：ECDSA Verify --------------------
 
-			// Create EC verifier
-			JWSVerifier verifier = checkExpiry ? new ExtendedECDSAVerifier(signingKey, signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new ECDSAVerifier(signingKey) ;
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached EC verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 
 			// Retrieve / verify the JWT claims according to the app requirements
-			return signedJWT.verify(verifier);
+			if(!signedJWT.verify(verifier)) {
+				return false;
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+			return true;
 		} catch (IllegalStateException e) {
 			throw new JwtException(e);
 		} catch (NumberFormatException e) {
@@ -241,22 +267,37 @@ public class SignedWithEcAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 			// Parse the JWE string
 			JWEObject jweObject = JWEObject.parse(token);
 
+			// Reject expired/not-yet-valid tokens before the decryption, using the nbf/exp header parameters
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+			}
+
 			// Decrypt with AES key
-			jweObject.decrypt(new DirectDecrypter(secretKey));
+			jweObject.decrypt(this.getCompressor().decrypter(new DirectDecrypter(secretKey)));
 
 			// Extract payload
 			SignedJWT signedJWT = jweObject.getPayload().toSignedJWT();
 
 			//-------------------- Step 2：ECDSA Verify --------------------
 
-			// Create EC verifier
-			JWSVerifier verifier = checkExpiry ? new ExtendedECDSAVerifier(signingKey, signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new ECDSAVerifier(signingKey) ;
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached EC verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 
 			// Retrieve / verify the JWT claims according to the app requirements
 			if(!signedJWT.verify(verifier)) {
 				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
 			}
 
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
 			//-------------------- Step 3：Gets The Claims ---------------
 
 			// Retrieve JWT claims
@@ -281,4 +322,52 @@ public class SignedWithEcAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 		this.timeProvider = timeProvider;
 	}
 
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+	}
+
+	public JWSVerifierCache getVerifierCache() {
+		return verifierCache;
+	}
+
+	public void setVerifierCache(JWSVerifierCache verifierCache) {
+		this.verifierCache = verifierCache;
+	}
+
+	public JOSEHeaderCache getHeaderCache() {
+		return headerCache;
+	}
+
+	public void setHeaderCache(JOSEHeaderCache headerCache) {
+		this.headerCache = headerCache;
+	}
+
+	public JWECompressor getCompressor() {
+		return compressor;
+	}
+
+	public void setCompressor(JWECompressor compressor) {
+		this.compressor = compressor;
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
+
 }
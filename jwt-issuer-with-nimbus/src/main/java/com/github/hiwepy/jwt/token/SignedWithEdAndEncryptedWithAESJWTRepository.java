@@ -16,23 +16,36 @@
 package com.github.hiwepy.jwt.token;
 
 import java.text.ParseException;
-import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.crypto.SecretKey;
 
 import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.batch.JwtBatchVerifier;
+import com.github.hiwepy.jwt.compression.JWECompressor;
 import com.github.hiwepy.jwt.exception.IncorrectJwtException;
 import com.github.hiwepy.jwt.exception.InvalidJwtToken;
 import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.header.JOSEHeaderCache;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
 import com.github.hiwepy.jwt.time.JwtTimeProvider;
 import com.github.hiwepy.jwt.utils.NimbusdsUtils;
-import com.github.hiwepy.jwt.verifier.ExtendedEd25519Verifier;
+import com.github.hiwepy.jwt.verifier.Ed25519ChunkVerification;
+import com.github.hiwepy.jwt.verifier.Ed25519ChunkVerification.SignedJWTParser;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.github.hiwepy.jwt.verifier.JWTClaimsTimeVerifier;
+import com.nimbusds.jose.CompressionAlgorithm;
 import com.nimbusds.jose.EncryptionMethod;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEDecrypter;
 import com.nimbusds.jose.JWEEncrypter;
 import com.nimbusds.jose.JWEHeader;
 import com.nimbusds.jose.JWEObject;
@@ -44,8 +57,6 @@ import com.nimbusds.jose.KeyLengthException;
 import com.nimbusds.jose.Payload;
 import com.nimbusds.jose.crypto.DirectDecrypter;
 import com.nimbusds.jose.crypto.DirectEncrypter;
-import com.nimbusds.jose.crypto.Ed25519Signer;
-import com.nimbusds.jose.crypto.Ed25519Verifier;
 import com.nimbusds.jose.jwk.OctetKeyPair;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
@@ -59,6 +70,19 @@ import com.nimbusds.jwt.SignedJWT;
 public class SignedWithEdAndEncryptedWithAESJWTRepository implements JwtKeyPairRepository<OctetKeyPair, SecretKey> {
 
 	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JWSVerifierCache verifierCache = JWSVerifierCache.DEFAULT_VERIFIER_CACHE;
+	private JOSEHeaderCache headerCache = JOSEHeaderCache.DEFAULT_HEADER_CACHE;
+	private JWECompressor compressor = JWECompressor.DEFAULT_COMPRESSOR;
+	/**
+	 * 是否在签名校验、解密之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
+	/**
+	 * 批量 API（verifyAll、getPayloadsAll）每个分块的令牌数
+	 */
+	private int chunkSize = Ed25519ChunkVerification.DEFAULT_CHUNK_SIZE;
 
 	/**
 	 * Issue JSON Web Token (JWT)
@@ -111,46 +135,42 @@ public class SignedWithEdAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 		try {
 
 			// Prepare JWT with claims set
-			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(jwtId, subject, issuer, audience, claims, period);
-			// 签发时间
-			long currentTimeMillis = this.getTimeProvider().now();
-			Date now = new Date(currentTimeMillis);
-			builder.issueTime(now);
-			// 有效期起始时间
-			builder.notBeforeTime(now);
-			// Token过期时间
-			if (period >= 0) {
-				// 有效时间
-				Date expiration = new Date(currentTimeMillis + period );
-				builder.expirationTime(expiration);
-			}
+			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().nowDate(), period);
 			JWTClaimsSet claimsSet = builder.build();
 
 			//-------------------- Step 1：EdDSA Signature --------------------
 
-			// Request JWS Header with EdDSA JWSAlgorithm
-			JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID(signingKey.getKeyID()).build();
+			// Get the pre-encoded JWS Header with EdDSA JWSAlgorithm
+			JWSHeader jwsHeader = this.getHeaderCache().getJWSHeader(JWSAlgorithm.EdDSA, signingKey.getKeyID());
 			SignedJWT signedJWT = new SignedJWT(jwsHeader, claimsSet);
 
-			// Create the EdDSA signer
-			JWSSigner signer = new Ed25519Signer(signingKey);
+			// Get the cached EdDSA signer
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
 
 			// Compute the EC signature
 			signedJWT.sign(signer);
 
 			//-------------------- Step 2：AES Encrypt ----------------------
 
+			// Serialise the signed JWT, compressed with zip=DEF once it reaches the threshold
+			String nestedJWT = signedJWT.serialize();
+			CompressionAlgorithm zip = this.getCompressor().getCompressionAlgorithm(nestedJWT.length());
+
 			// Request JWT encrypted with DIR and 128-bit AES/GCM
-			JWEHeader jweHeader = new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM);
+			JWEHeader jweHeader = this.isTemporalPreCheck()
+					// Replicate the nbf/exp claims into the JWE header for the temporal pre-check
+					? new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A128GCM).compressionAlgorithm(zip).customParams(NimbusdsUtils.temporalParams(claimsSet)).build()
+					// Otherwise reuse the pre-encoded header, only the payload is encrypted per token
+					: this.getHeaderCache().getJWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM, null, null, zip);
 
 			// Create JWE object with signed JWT as payload
-			JWEObject jweObject = new JWEObject( jweHeader, new Payload(signedJWT));
+			JWEObject jweObject = new JWEObject( jweHeader, new Payload(nestedJWT));
 
 			// Create an encrypter with the specified public AES key
 			JWEEncrypter encrypter = new DirectEncrypter(secretKey);
 
-			// Do the actual encryption
-			jweObject.encrypt(encrypter);
+			// Do the actual encryption, the payload is compressed with the pooled deflaters
+			jweObject.encrypt(this.getCompressor().encrypter(encrypter));
 
 			// Serialise to JWE compact form
 			return jweObject.serialize();
@@ -187,26 +207,37 @@ public class SignedWithEdAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 			// Parse the JWE string
 			JWEObject jweObject = JWEObject.parse(token);
 
+			// Reject expired/not-yet-valid tokens before the decryption, using the nbf/exp header parameters
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+			}
+
 			// Decrypt with AES key
-			jweObject.decrypt(new DirectDecrypter(secretKey));
+			jweObject.decrypt(this.getCompressor().decrypter(new DirectDecrypter(secretKey)));
 
 			// Extract payload
 			SignedJWT signedJWT = jweObject.getPayload().toSignedJWT();
 
 			//-------------------- Step 2：EdDSA Verify --------------------
 
-			// Create Ed25519 verifier
-			JWSVerifier verifier = checkExpiry ? new ExtendedEd25519Verifier(signingKey.toPublicJWK(), signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new Ed25519Verifier(signingKey.toPublicJWK());
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached Ed25519 verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 
 			// Retrieve / verify the JWT claims according to the app requirements
 			if(!signedJWT.verify(verifier)) {
-				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
+				return false;
 			}
 
-			//-------------------- Step 3：Gets The Claims ---------------
-
-			// Retrieve JWT claims
-			return signedJWT.verify(verifier);
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+			return true;
 		} catch (IllegalStateException e) {
 			throw new IncorrectJwtException(e);
 		} catch (NumberFormatException e) {
@@ -242,13 +273,38 @@ public class SignedWithEdAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 			// Parse the JWE string
 			JWEObject jweObject = JWEObject.parse(token);
 
+			// Reject expired/not-yet-valid tokens before the decryption, using the nbf/exp header parameters
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+			}
+
 			// Decrypt with AES key
-			jweObject.decrypt(new DirectDecrypter(secretKey));
+			jweObject.decrypt(this.getCompressor().decrypter(new DirectDecrypter(secretKey)));
 
 			// Extract payload
 			SignedJWT signedJWT = jweObject.getPayload().toSignedJWT();
 
-			//-------------------- Step 2：Gets The Claims ---------------
+			//-------------------- Step 2：EdDSA Verify --------------------
+
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached Ed25519 verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
+
+			// Retrieve / verify the JWT claims according to the app requirements
+			if(!signedJWT.verify(verifier)) {
+				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			//-------------------- Step 3：Gets The Claims ---------------
 
 			// Retrieve JWT claims
 			return NimbusdsUtils.payload(signedJWT.getJWTClaimsSet());
@@ -264,6 +320,56 @@ public class SignedWithEdAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 
 	}
 
+	/**
+	 * Verify the validity of the JWTs in parallel chunks, each chunk shares the cached Ed25519 verifier and checks
+	 * the signatures one by one, see {@link Ed25519ChunkVerification}
+	 * @param signingKey 	: The Ed25519 key
+	 * @param secretKey 	: The decryption key
+	 * @param tokens  		: JSON Web Tokens (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @param pool 			: The fork/join pool to run the chunks in
+	 * @return The results, in the order of the input tokens
+	 */
+	@Override
+	public List<VerificationResult> verifyAll(OctetKeyPair signingKey, SecretKey secretKey, Collection<String> tokens, boolean checkExpiry, ForkJoinPool pool) {
+		return this.verifyChunks(signingKey, secretKey, tokens, checkExpiry, pool, false);
+	}
+
+	/**
+	 * Parser the JWTs in parallel chunks, see {@link #verifyAll(OctetKeyPair, SecretKey, Collection, boolean, ForkJoinPool)}
+	 * @param signingKey 	: The Ed25519 key
+	 * @param secretKey 	: The decryption key
+	 * @param tokens  		: JSON Web Tokens (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @param pool 			: The fork/join pool to run the chunks in
+	 * @return The results with the payloads, in the order of the input tokens
+	 */
+	@Override
+	public List<VerificationResult> getPayloadsAll(OctetKeyPair signingKey, SecretKey secretKey, Collection<String> tokens, boolean checkExpiry, ForkJoinPool pool) {
+		return this.verifyChunks(signingKey, secretKey, tokens, checkExpiry, pool, true);
+	}
+
+	protected List<VerificationResult> verifyChunks(OctetKeyPair signingKey, SecretKey secretKey, Collection<String> tokens, boolean checkExpiry,
+			ForkJoinPool pool, boolean withPayload) {
+		try {
+			JWEDecrypter decrypter = this.getCompressor().decrypter(new DirectDecrypter(secretKey));
+			Ed25519ChunkVerification verification = new Ed25519ChunkVerification(this.getVerifierCache().getVerifier(signingKey),
+					this.getTimeProvider(), this.isTemporalPreCheck());
+			SignedJWTParser parser = token -> {
+				JWEObject jweObject = JWEObject.parse(token);
+				if(checkExpiry && this.isTemporalPreCheck()) {
+					JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+				}
+				jweObject.decrypt(decrypter);
+				return jweObject.getPayload().toSignedJWT();
+			};
+			return JwtBatchVerifier.invokeAll(pool, tokens, this.getChunkSize(),
+					chunk -> verification.verify(chunk, parser, checkExpiry, withPayload));
+		} catch (JOSEException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
 	public JwtTimeProvider getTimeProvider() {
 		return timeProvider;
 	}
@@ -272,4 +378,60 @@ public class SignedWithEdAndEncryptedWithAESJWTRepository implements JwtKeyPairR
 		this.timeProvider = timeProvider;
 	}
 
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+	}
+
+	public JWSVerifierCache getVerifierCache() {
+		return verifierCache;
+	}
+
+	public void setVerifierCache(JWSVerifierCache verifierCache) {
+		this.verifierCache = verifierCache;
+	}
+
+	public JOSEHeaderCache getHeaderCache() {
+		return headerCache;
+	}
+
+	public void setHeaderCache(JOSEHeaderCache headerCache) {
+		this.headerCache = headerCache;
+	}
+
+	public JWECompressor getCompressor() {
+		return compressor;
+	}
+
+	public void setCompressor(JWECompressor compressor) {
+		this.compressor = compressor;
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
 }
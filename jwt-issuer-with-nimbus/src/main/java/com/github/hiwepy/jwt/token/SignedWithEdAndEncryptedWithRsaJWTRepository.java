@@ -16,21 +16,36 @@
 package com.github.hiwepy.jwt.token;
 
 import java.text.ParseException;
-import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.batch.JwtBatchVerifier;
+import com.github.hiwepy.jwt.compression.JWECompressor;
+import com.github.hiwepy.jwt.decrypter.JWEDecrypterCache;
+import com.github.hiwepy.jwt.encrypter.JWEEncrypterCache;
 import com.github.hiwepy.jwt.exception.IncorrectJwtException;
 import com.github.hiwepy.jwt.exception.InvalidJwtToken;
 import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.header.JOSEHeaderCache;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
 import com.github.hiwepy.jwt.time.JwtTimeProvider;
 import com.github.hiwepy.jwt.utils.NimbusdsUtils;
-import com.github.hiwepy.jwt.verifier.ExtendedEd25519Verifier;
+import com.github.hiwepy.jwt.verifier.Ed25519ChunkVerification;
+import com.github.hiwepy.jwt.verifier.Ed25519ChunkVerification.SignedJWTParser;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.github.hiwepy.jwt.verifier.JWTClaimsTimeVerifier;
+import com.nimbusds.jose.CompressionAlgorithm;
 import com.nimbusds.jose.EncryptionMethod;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEDecrypter;
 import com.nimbusds.jose.JWEEncrypter;
 import com.nimbusds.jose.JWEHeader;
 import com.nimbusds.jose.JWEObject;
@@ -40,10 +55,6 @@ import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.KeyLengthException;
 import com.nimbusds.jose.Payload;
-import com.nimbusds.jose.crypto.Ed25519Signer;
-import com.nimbusds.jose.crypto.Ed25519Verifier;
-import com.nimbusds.jose.crypto.RSADecrypter;
-import com.nimbusds.jose.crypto.RSAEncrypter;
 import com.nimbusds.jose.jwk.OctetKeyPair;
 import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jwt.JWTClaimsSet;
@@ -58,6 +69,21 @@ import com.nimbusds.jwt.SignedJWT;
 public class SignedWithEdAndEncryptedWithRsaJWTRepository implements JwtKeyPairRepository<OctetKeyPair,RSAKey> {
 
 	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JWSVerifierCache verifierCache = JWSVerifierCache.DEFAULT_VERIFIER_CACHE;
+	private JOSEHeaderCache headerCache = JOSEHeaderCache.DEFAULT_HEADER_CACHE;
+	private JWEEncrypterCache encrypterCache = JWEEncrypterCache.DEFAULT_ENCRYPTER_CACHE;
+	private JWEDecrypterCache decrypterCache = JWEDecrypterCache.DEFAULT_DECRYPTER_CACHE;
+	private JWECompressor compressor = JWECompressor.DEFAULT_COMPRESSOR;
+	/**
+	 * 是否在签名校验、解密之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
+	/**
+	 * 批量 API（verifyAll、getPayloadsAll）每个分块的令牌数
+	 */
+	private int chunkSize = Ed25519ChunkVerification.DEFAULT_CHUNK_SIZE;
 
 	/**
 	 * Issue JSON Web Token (JWT)
@@ -111,46 +137,42 @@ public class SignedWithEdAndEncryptedWithRsaJWTRepository implements JwtKeyPairR
 			//-------------------- Step 1：Get ClaimsSet --------------------
 
 			// Prepare JWT with claims set
-			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(jwtId, subject, issuer, audience, claims, period);
-			// 签发时间
-			long currentTimeMillis = this.getTimeProvider().now();
-			Date now = new Date(currentTimeMillis);
-			builder.issueTime(now);
-			// 有效期起始时间
-			builder.notBeforeTime(now);
-			// Token过期时间
-			if (period >= 0) {
-				// 有效时间
-				Date expiration = new Date(currentTimeMillis + period );
-				builder.expirationTime(expiration);
-			}
+			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().nowDate(), period);
 			JWTClaimsSet claimsSet = builder.build();
 
 			//-------------------- Step 2：EdDSA Signature --------------------
 
-			// Request JWS Header with EdDSA JWSAlgorithm
-			JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID(signingKey.getKeyID()).build();
+			// Get the pre-encoded JWS Header with EdDSA JWSAlgorithm
+			JWSHeader jwsHeader = this.getHeaderCache().getJWSHeader(JWSAlgorithm.EdDSA, signingKey.getKeyID());
 			SignedJWT signedJWT = new SignedJWT(jwsHeader, claimsSet);
 
-			// Create the EdDSA signer
-			JWSSigner signer = new Ed25519Signer(signingKey);
+			// Get the cached EdDSA signer
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
 
 			// Compute the EC signature
 			signedJWT.sign(signer);
 
 			//-------------------- Step 3：RSA Encrypt ----------------------
 
+			// Serialise the signed JWT, compressed with zip=DEF once it reaches the threshold
+			String nestedJWT = signedJWT.serialize();
+			CompressionAlgorithm zip = this.getCompressor().getCompressionAlgorithm(nestedJWT.length());
+
 			// Request JWT encrypted with RSA-OAEP-256 and 256-bit AES/GCM
-			JWEHeader jweHeader = new JWEHeader(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A256GCM);
+			JWEHeader jweHeader = this.isTemporalPreCheck()
+					// Replicate the nbf/exp claims into the JWE header for the temporal pre-check
+					? new JWEHeader.Builder(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A256GCM).compressionAlgorithm(zip).customParams(NimbusdsUtils.temporalParams(claimsSet)).build()
+					// Otherwise reuse the pre-encoded header, only the payload is encrypted per token
+					: this.getHeaderCache().getJWEHeader(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A256GCM, null, null, zip);
 
 			// Create JWE object with signed JWT as payload
-			JWEObject jweObject = new JWEObject( jweHeader, new Payload(signedJWT));
+			JWEObject jweObject = new JWEObject( jweHeader, new Payload(nestedJWT));
 
-			// Create an encrypter with the specified public RSA key
-			JWEEncrypter encrypter = new RSAEncrypter(secretKey.toPublicJWK());
+			// Get the cached encrypter of the public RSA key
+			JWEEncrypter encrypter = this.getEncrypterCache().getEncrypter(secretKey);
 
-			// Do the actual encryption
-			jweObject.encrypt(encrypter);
+			// Do the actual encryption, the payload is compressed with the pooled deflaters
+			jweObject.encrypt(this.getCompressor().encrypter(encrypter));
 
 			// Serialise to JWE compact form
 			return jweObject.serialize();
@@ -187,19 +209,37 @@ public class SignedWithEdAndEncryptedWithRsaJWTRepository implements JwtKeyPairR
 			// Parse the JWE string
 			JWEObject jweObject = JWEObject.parse(token);
 
+			// Reject expired/not-yet-valid tokens before the decryption, using the nbf/exp header parameters
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+			}
+
 			// Decrypt with private key
-			jweObject.decrypt(new RSADecrypter(secretKey));
+			jweObject.decrypt(this.getCompressor().decrypter(this.getDecrypterCache().getDecrypter(secretKey, this.getTimeProvider())));
 
 			// Extract payload
 			SignedJWT signedJWT = jweObject.getPayload().toSignedJWT();
 
 			//-------------------- Step 2：EdDSA Verify --------------------
 
-			// Create Ed25519 verifier
-			JWSVerifier verifier = checkExpiry ? new ExtendedEd25519Verifier(signingKey.toPublicJWK(), signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new Ed25519Verifier(signingKey.toPublicJWK());
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached Ed25519 verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 
 			// Retrieve / verify the JWT claims according to the app requirements
-			return signedJWT.verify(verifier);
+			if(!signedJWT.verify(verifier)) {
+				return false;
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+			return true;
 		} catch (IllegalStateException e) {
 			throw new IncorrectJwtException(e);
 		} catch (NumberFormatException e) {
@@ -235,8 +275,13 @@ public class SignedWithEdAndEncryptedWithRsaJWTRepository implements JwtKeyPairR
 			// Parse the JWE string
 			JWEObject jweObject = JWEObject.parse(token);
 
+			// Reject expired/not-yet-valid tokens before the decryption, using the nbf/exp header parameters
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+			}
+
 			// Decrypt with private key
-			jweObject.decrypt(new RSADecrypter(secretKey));
+			jweObject.decrypt(this.getCompressor().decrypter(this.getDecrypterCache().getDecrypter(secretKey, this.getTimeProvider())));
 
 			// Extract payload
 			SignedJWT signedJWT = jweObject.getPayload().toSignedJWT();
@@ -244,14 +289,24 @@ public class SignedWithEdAndEncryptedWithRsaJWTRepository implements JwtKeyPairR
 
 			//-------------------- Step 2：EdDSA Verify --------------------
 
-			// Create Ed25519 verifier
-			JWSVerifier verifier = checkExpiry ? new ExtendedEd25519Verifier(signingKey.toPublicJWK(), signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new Ed25519Verifier(signingKey.toPublicJWK());
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached Ed25519 verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 
 			// Retrieve / verify the JWT claims according to the app requirements
 			if(!signedJWT.verify(verifier)) {
 				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
 			}
 
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
 			//-------------------- Step 3：Gets The Claims ---------------
 
 			// Retrieve JWT claims
@@ -268,6 +323,56 @@ public class SignedWithEdAndEncryptedWithRsaJWTRepository implements JwtKeyPairR
 
 	}
 
+	/**
+	 * Verify the validity of the JWTs in parallel chunks, each chunk shares the cached Ed25519 verifier and checks
+	 * the signatures one by one, see {@link Ed25519ChunkVerification}
+	 * @param signingKey 	: The Ed25519 key
+	 * @param secretKey 	: The decryption key
+	 * @param tokens  		: JSON Web Tokens (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @param pool 			: The fork/join pool to run the chunks in
+	 * @return The results, in the order of the input tokens
+	 */
+	@Override
+	public List<VerificationResult> verifyAll(OctetKeyPair signingKey, RSAKey secretKey, Collection<String> tokens, boolean checkExpiry, ForkJoinPool pool) {
+		return this.verifyChunks(signingKey, secretKey, tokens, checkExpiry, pool, false);
+	}
+
+	/**
+	 * Parser the JWTs in parallel chunks, see {@link #verifyAll(OctetKeyPair, RSAKey, Collection, boolean, ForkJoinPool)}
+	 * @param signingKey 	: The Ed25519 key
+	 * @param secretKey 	: The decryption key
+	 * @param tokens  		: JSON Web Tokens (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @param pool 			: The fork/join pool to run the chunks in
+	 * @return The results with the payloads, in the order of the input tokens
+	 */
+	@Override
+	public List<VerificationResult> getPayloadsAll(OctetKeyPair signingKey, RSAKey secretKey, Collection<String> tokens, boolean checkExpiry, ForkJoinPool pool) {
+		return this.verifyChunks(signingKey, secretKey, tokens, checkExpiry, pool, true);
+	}
+
+	protected List<VerificationResult> verifyChunks(OctetKeyPair signingKey, RSAKey secretKey, Collection<String> tokens, boolean checkExpiry,
+			ForkJoinPool pool, boolean withPayload) {
+		try {
+			JWEDecrypter decrypter = this.getCompressor().decrypter(this.getDecrypterCache().getDecrypter(secretKey, this.getTimeProvider()));
+			Ed25519ChunkVerification verification = new Ed25519ChunkVerification(this.getVerifierCache().getVerifier(signingKey),
+					this.getTimeProvider(), this.isTemporalPreCheck());
+			SignedJWTParser parser = token -> {
+				JWEObject jweObject = JWEObject.parse(token);
+				if(checkExpiry && this.isTemporalPreCheck()) {
+					JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+				}
+				jweObject.decrypt(decrypter);
+				return jweObject.getPayload().toSignedJWT();
+			};
+			return JwtBatchVerifier.invokeAll(pool, tokens, this.getChunkSize(),
+					chunk -> verification.verify(chunk, parser, checkExpiry, withPayload));
+		} catch (JOSEException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
 	public JwtTimeProvider getTimeProvider() {
 		return timeProvider;
 	}
@@ -276,4 +381,76 @@ public class SignedWithEdAndEncryptedWithRsaJWTRepository implements JwtKeyPairR
 		this.timeProvider = timeProvider;
 	}
 
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+	}
+
+	public JWSVerifierCache getVerifierCache() {
+		return verifierCache;
+	}
+
+	public void setVerifierCache(JWSVerifierCache verifierCache) {
+		this.verifierCache = verifierCache;
+	}
+
+	public JOSEHeaderCache getHeaderCache() {
+		return headerCache;
+	}
+
+	public void setHeaderCache(JOSEHeaderCache headerCache) {
+		this.headerCache = headerCache;
+	}
+
+	public JWEEncrypterCache getEncrypterCache() {
+		return encrypterCache;
+	}
+
+	public void setEncrypterCache(JWEEncrypterCache encrypterCache) {
+		this.encrypterCache = encrypterCache;
+	}
+
+	public JWEDecrypterCache getDecrypterCache() {
+		return decrypterCache;
+	}
+
+	public void setDecrypterCache(JWEDecrypterCache decrypterCache) {
+		this.decrypterCache = decrypterCache;
+	}
+
+	public JWECompressor getCompressor() {
+		return compressor;
+	}
+
+	public void setCompressor(JWECompressor compressor) {
+		this.compressor = compressor;
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
 }
@@ -16,26 +16,37 @@
 package com.github.hiwepy.jwt.token;
 
 import java.text.ParseException;
-import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
+import com.github.hiwepy.jwt.ClaimsTemplate;
 import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.batch.JwtBatchVerifier;
 import com.github.hiwepy.jwt.exception.IncorrectJwtException;
 import com.github.hiwepy.jwt.exception.InvalidJwtToken;
 import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.header.JOSEHeaderCache;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
 import com.github.hiwepy.jwt.time.JwtTimeProvider;
 import com.github.hiwepy.jwt.utils.NimbusdsUtils;
-import com.github.hiwepy.jwt.verifier.ExtendedEd25519Verifier;
+import com.github.hiwepy.jwt.verifier.Ed25519ChunkVerification;
+import com.github.hiwepy.jwt.verifier.Ed25519ChunkVerification.SignedJWTParser;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.github.hiwepy.jwt.verifier.JWTClaimsTimeVerifier;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
 import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.KeyLengthException;
-import com.nimbusds.jose.crypto.Ed25519Signer;
-import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.Payload;
 import com.nimbusds.jose.jwk.OctetKeyPair;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
@@ -47,6 +58,18 @@ import com.nimbusds.jwt.SignedJWT;
 public class SignedWithEdJWTRepository implements JwtRepository<OctetKeyPair> {
 
 	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JWSVerifierCache verifierCache = JWSVerifierCache.DEFAULT_VERIFIER_CACHE;
+	private JOSEHeaderCache headerCache = JOSEHeaderCache.DEFAULT_HEADER_CACHE;
+	/**
+	 * 是否在签名校验之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
+	/**
+	 * 批量 API（verifyAll、getPayloadsAll）每个分块的令牌数
+	 */
+	private int chunkSize = Ed25519ChunkVerification.DEFAULT_CHUNK_SIZE;
 
 	/**
 	 * Issue JSON Web Token (JWT)
@@ -98,29 +121,17 @@ public class SignedWithEdJWTRepository implements JwtRepository<OctetKeyPair> {
 			//-------------------- Step 1：Get ClaimsSet --------------------
 
 			// Prepare JWT with claims set
-			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(jwtId, subject, issuer, audience, claims, period);
-			// 签发时间
-			long currentTimeMillis = this.getTimeProvider().now();
-			Date now = new Date(currentTimeMillis);
-			builder.issueTime(now);
-			// 有效期起始时间
-			builder.notBeforeTime(now);
-			// Token过期时间
-			if (period >= 0) {
-				// 有效时间
-				Date expiration = new Date(currentTimeMillis + period );
-				builder.expirationTime(expiration);
-			}
+			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().nowDate(), period);
 			JWTClaimsSet claimsSet = builder.build();
 
 			//-------------------- Step 2：EdDSA Signature --------------------
 
-			// Request JWS Header with EdDSA JWSAlgorithm
-			JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID(signingKey.getKeyID()).build();
+			// Get the pre-encoded JWS Header with EdDSA JWSAlgorithm
+			JWSHeader jwsHeader = this.getHeaderCache().getJWSHeader(JWSAlgorithm.EdDSA, signingKey.getKeyID());
 			SignedJWT signedJWT = new SignedJWT(jwsHeader, claimsSet);
 
-			// Create the EdDSA signer
-			JWSSigner signer = new Ed25519Signer(signingKey);
+			// Get the cached EdDSA signer
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
 
 			// Compute the EC signature
 			signedJWT.sign(signer);
@@ -136,6 +147,42 @@ public class SignedWithEdJWTRepository implements JwtRepository<OctetKeyPair> {
 		}
 	}
 
+	/**
+	 * Issue JSON Web Token (JWT) with the claims template, only the per-token claims are serialized
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key
+	 * @param template		: The claims template compiled by {@link NimbusdsUtils#claimsTemplate(String, Set, Map)}
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param algorithm		: Supported algorithms, see {@link #issueJwt(OctetKeyPair, String, String, String, Set, Map, String, long)}
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(OctetKeyPair signingKey, ClaimsTemplate template, String jwtId, String subject, String algorithm, long period) throws JwtException {
+		// The template of other implementations is not guaranteed equivalent here, build the claims set the original way
+		if (!NimbusdsUtils.DIALECT.equals(template.getDialect())) {
+			return this.issueJwt(signingKey, jwtId, subject, template.getIssuer(), template.getAudience(), template.getClaims(), algorithm, period);
+		}
+		try {
+
+			// Render the claims set, the static claims are pre-serialized
+			Payload payload = new Payload(template.toJson(this.getIdGenerator().getOrGenerate(jwtId), subject, this.getTimeProvider().now(), period));
+
+			// Get the cached EdDSA signer
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
+
+			// Compute the EdDSA signature over the pre-encoded header and the rendered claims
+			JWSObject jwsObject = new JWSObject(this.getHeaderCache().getJWSHeader(JWSAlgorithm.EdDSA, signingKey.getKeyID()), payload);
+			jwsObject.sign(signer);
+
+			return jwsObject.serialize();
+		} catch (JOSEException e) {
+			throw new IncorrectJwtException(e);
+		}
+	}
+
 	/**
 	 * Verify the validity of JWT
 	 * @author 				: <a href="https://github.com/hiwepy">hiwepy</a>
@@ -159,11 +206,24 @@ public class SignedWithEdJWTRepository implements JwtRepository<OctetKeyPair> {
 
 			//-------------------- Step 2：EdDSA Verify --------------------
 
-			// Create Ed25519 verifier
-			JWSVerifier verifier = checkExpiry ? new ExtendedEd25519Verifier(signingKey.toPublicJWK(), signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new Ed25519Verifier(signingKey.toPublicJWK());
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached Ed25519 verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 
 			// Retrieve / verify the JWT claims according to the app requirements
-			return signedJWT.verify(verifier);
+			if(!signedJWT.verify(verifier)) {
+				return false;
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+			return true;
 		} catch (IllegalStateException e) {
 			throw new IncorrectJwtException(e);
 		} catch (NumberFormatException e) {
@@ -197,14 +257,24 @@ public class SignedWithEdJWTRepository implements JwtRepository<OctetKeyPair> {
 
 			//-------------------- Step 2：EdDSA Verify --------------------
 
-			// Create Ed25519 verifier
-			JWSVerifier verifier = checkExpiry ? new ExtendedEd25519Verifier(signingKey.toPublicJWK(), signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new Ed25519Verifier(signingKey.toPublicJWK());
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached Ed25519 verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 
 			// Retrieve / verify the JWT claims according to the app requirements
 			if(!signedJWT.verify(verifier)) {
 				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
 			}
 
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
 			//-------------------- Step 3：Gets The Claims ---------------
 
 			// Retrieve JWT claims
@@ -220,6 +290,46 @@ public class SignedWithEdJWTRepository implements JwtRepository<OctetKeyPair> {
 		}
 	}
 
+	/**
+	 * Verify the validity of the JWTs in parallel chunks, each chunk shares the cached Ed25519 verifier and checks
+	 * the signatures one by one, see {@link Ed25519ChunkVerification}
+	 * @param signingKey 	: The Ed25519 key
+	 * @param tokens  		: JSON Web Tokens (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @param pool 			: The fork/join pool to run the chunks in
+	 * @return The results, in the order of the input tokens
+	 */
+	@Override
+	public List<VerificationResult> verifyAll(OctetKeyPair signingKey, Collection<String> tokens, boolean checkExpiry, ForkJoinPool pool) {
+		return this.verifyChunks(signingKey, tokens, checkExpiry, pool, false);
+	}
+
+	/**
+	 * Parser the JWTs in parallel chunks, see {@link #verifyAll(OctetKeyPair, Collection, boolean, ForkJoinPool)}
+	 * @param signingKey 	: The Ed25519 key
+	 * @param tokens  		: JSON Web Tokens (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @param pool 			: The fork/join pool to run the chunks in
+	 * @return The results with the payloads, in the order of the input tokens
+	 */
+	@Override
+	public List<VerificationResult> getPayloadsAll(OctetKeyPair signingKey, Collection<String> tokens, boolean checkExpiry, ForkJoinPool pool) {
+		return this.verifyChunks(signingKey, tokens, checkExpiry, pool, true);
+	}
+
+	protected List<VerificationResult> verifyChunks(OctetKeyPair signingKey, Collection<String> tokens, boolean checkExpiry,
+			ForkJoinPool pool, boolean withPayload) {
+		try {
+			Ed25519ChunkVerification verification = new Ed25519ChunkVerification(this.getVerifierCache().getVerifier(signingKey),
+					this.getTimeProvider(), this.isTemporalPreCheck());
+			SignedJWTParser parser = SignedJWT::parse;
+			return JwtBatchVerifier.invokeAll(pool, tokens, this.getChunkSize(),
+					chunk -> verification.verify(chunk, parser, checkExpiry, withPayload));
+		} catch (JOSEException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
 	public JwtTimeProvider getTimeProvider() {
 		return timeProvider;
 	}
@@ -228,4 +338,52 @@ public class SignedWithEdJWTRepository implements JwtRepository<OctetKeyPair> {
 		this.timeProvider = timeProvider;
 	}
 
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+	}
+
+	public JWSVerifierCache getVerifierCache() {
+		return verifierCache;
+	}
+
+	public void setVerifierCache(JWSVerifierCache verifierCache) {
+		this.verifierCache = verifierCache;
+	}
+
+	public JOSEHeaderCache getHeaderCache() {
+		return headerCache;
+	}
+
+	public void setHeaderCache(JOSEHeaderCache headerCache) {
+		this.headerCache = headerCache;
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
 }
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import java.text.ParseException;
+import java.util.*;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.compression.JWECompressor;
+import com.github.hiwepy.jwt.decrypter.JWEDecrypterCache;
+import com.github.hiwepy.jwt.encrypter.JWEEncrypterCache;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.header.JOSEHeaderCache;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.NimbusdsUtils;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.github.hiwepy.jwt.verifier.JWTClaimsTimeVerifier;
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEEncrypter;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * <b> JSON Web Token (JWT) with HMAC signature and ECDH-ES encryption </b>
+ * <p> https://www.connect2id.com/products/nimbus-jose-jwt/examples/jwt-with-hmac  </p>
+ * <p> https://www.connect2id.com/products/nimbus-jose-jwt/examples/signed-and-encrypted-jwt </p>
+ * <p> The content encryption key is derived by ECDH-ES key agreement with the recipient EC (P-256/P-384/P-521) or X25519 key,
+ * instead of the RSA private key operation of the RSA-OAEP variants. </p>
+ */
+public class SignedWithHamcAndEncryptedWithEcdhJWTRepository implements JwtKeyPairRepository<String, JWK> {
+
+	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JWSVerifierCache verifierCache = JWSVerifierCache.DEFAULT_VERIFIER_CACHE;
+	private JOSEHeaderCache headerCache = JOSEHeaderCache.DEFAULT_HEADER_CACHE;
+	private JWEEncrypterCache encrypterCache = JWEEncrypterCache.DEFAULT_ENCRYPTER_CACHE;
+	private JWEDecrypterCache decrypterCache = JWEDecrypterCache.DEFAULT_DECRYPTER_CACHE;
+	/**
+	 * 密钥管理算法：ECDH-ES+A256KW（默认，CEK 随机生成并经派生密钥包装）或 ECDH-ES（派生密钥直接作为 CEK）
+	 */
+	private JWEAlgorithm keyManagementAlgorithm = JWEAlgorithm.ECDH_ES_A256KW;
+	private JWECompressor compressor = JWECompressor.DEFAULT_COMPRESSOR;
+	/**
+	 * 是否在签名校验、解密之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
+	
+	/**
+	 * Issue JSON Web Token (JWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key
+	 * @param secretKey		: Encryption key, EC (P-256/P-384/P-521) or X25519 JSON Web Key
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param roles			: The Roles
+	 * @param permissions	: The Perms
+	 * @param algorithm		: Supported algorithms：
+	 * <p> HS256 - HMAC with SHA-256, requires 256+ bit secret </p>
+	 * <p> HS384 - HMAC with SHA-384, requires 384+ bit secret </p>
+	 * <p> HS512 - HMAC with SHA-512, requires 512+ bit secret </p>
+     * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(String signingKey, JWK secretKey, String jwtId, String subject, String issuer, Set<String> audience,
+			String roles, String permissions, String algorithm, long period)  throws JwtException {
+
+		Map<String, Object> claims =  new HashMap<String, Object>();
+		claims.put("roles", roles);
+		claims.put("perms", permissions);
+		
+		return this.issueJwt(signingKey, secretKey, jwtId, subject, issuer, audience, claims, algorithm, period);
+		
+	}
+	
+	
+	/**
+	 * Issue JSON Web Token (JWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key
+	 * @param secretKey		: Encryption key, EC (P-256/P-384/P-521) or X25519 JSON Web Key
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param claims		: Jwt Claims
+	 * @param algorithm		: Supported algorithms：
+	 * <p> HS256 - HMAC with SHA-256, requires 256+ bit secret </p>
+	 * <p> HS384 - HMAC with SHA-384, requires 384+ bit secret </p>
+	 * <p> HS512 - HMAC with SHA-512, requires 512+ bit secret </p>
+     * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(String signingKey, JWK secretKey, String jwtId, String subject, String issuer, Set<String> audience,
+			Map<String, Object> claims, String algorithm, long period) throws JwtException {
+		try {
+			
+			//-------------------- Step 1：Get ClaimsSet --------------------
+			
+			// Prepare JWT with claims set
+			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().nowDate(), period);
+			JWTClaimsSet claimsSet = builder.build();
+			
+			//-------------------- Step 2：Hamc Signature --------------------
+			
+			// Get the pre-encoded JWS Header with HMAC JWSAlgorithm
+			JWSHeader jwsHeader = this.getHeaderCache().getJWSHeader(this.getSignerCache().getAlgorithm(algorithm), null);
+			SignedJWT signedJWT = new SignedJWT(jwsHeader, claimsSet);
+			
+			// Get the cached HMAC signer
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
+			
+			// Compute the HMAC signature
+			signedJWT.sign(signer);
+			
+			//-------------------- Step 3：ECDH-ES Encrypt ----------------------
+			
+			// Serialise the signed JWT, compressed with zip=DEF once it reaches the threshold
+			String nestedJWT = signedJWT.serialize();
+			CompressionAlgorithm zip = this.getCompressor().getCompressionAlgorithm(nestedJWT.length());
+
+			// Request JWT encrypted with ECDH-ES key agreement and 256-bit AES/GCM
+			JWEHeader jweHeader = this.isTemporalPreCheck()
+					// Replicate the nbf/exp claims into the JWE header for the temporal pre-check
+					? new JWEHeader.Builder(this.getKeyManagementAlgorithm(), EncryptionMethod.A256GCM).compressionAlgorithm(zip).customParams(NimbusdsUtils.temporalParams(claimsSet)).build()
+					// Otherwise reuse the pre-encoded header, only the payload is encrypted per token
+					: this.getHeaderCache().getJWEHeader(this.getKeyManagementAlgorithm(), EncryptionMethod.A256GCM, null, null, zip);
+			
+			// Create JWE object with signed JWT as payload
+			JWEObject jweObject = new JWEObject( jweHeader, new Payload(nestedJWT));
+			
+			// Get the cached ECDH-ES encrypter of the public EC/X25519 key
+			JWEEncrypter encrypter = this.getEncrypterCache().getEncrypter(secretKey);
+						
+			// Do the actual encryption, the payload is compressed with the pooled deflaters
+			jweObject.encrypt(this.getCompressor().encrypter(encrypter));
+			
+			// Serialise to JWE compact form
+			return jweObject.serialize();
+		} catch (IllegalStateException e) {
+			throw new IncorrectJwtException(e);
+		} catch (KeyLengthException e) {
+			throw new IncorrectJwtException(e);
+		} catch (JOSEException e) {
+			throw new IncorrectJwtException(e);
+		}
+		
+	}
+	
+	/**
+	 * Verify the validity of JWT
+	 * @author 				: <a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey 	: 
+	 * <p>If the jws was signed with a SecretKey, the same SecretKey should be specified on the JwtParser. </p>
+	 * <p>If the jws was signed with a PrivateKey, that key's corresponding PublicKey (not the PrivateKey) should be specified on the JwtParser.</p>
+	 * @param secretKey 	: 
+	 * <p>If the jws was encrypted with a SecretKey, the same SecretKey should be specified on the JwtParser. </p>
+	 * <p>If the jws was encrypted with a PrivateKey, that key's corresponding PublicKey (not the PrivateKey) should be specified on the JwtParser.</p> 
+	 * @param token  		: JSON Web Token (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @return If Validity
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public boolean verify(String signingKey, JWK secretKey, String token, boolean checkExpiry) throws JwtException {
+
+		try {
+			
+			//-------------------- Step 1：ECDH-ES Decrypt ----------------------
+			
+			// Parse the JWE string
+			JWEObject jweObject = JWEObject.parse(token);
+			
+			// Reject expired/not-yet-valid tokens before the decryption, using the nbf/exp header parameters
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+			}
+			
+			// Decrypt with private key
+			jweObject.decrypt(this.getCompressor().decrypter(this.getDecrypterCache().getDecrypter(secretKey, this.getTimeProvider())));
+			
+			// Extract payload
+			SignedJWT signedJWT = jweObject.getPayload().toSignedJWT();
+			
+			//-------------------- Step 2：Hamc Verify --------------------
+			
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached HMAC verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
+			
+			// Retrieve / verify the JWT claims according to the app requirements
+			if(!signedJWT.verify(verifier)) {
+				return false;
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+			return true;
+		} catch (IllegalStateException e) {
+			throw new IncorrectJwtException(e);
+		} catch (NumberFormatException e) {
+			throw new IncorrectJwtException(e);
+		} catch (ParseException e) {
+			throw new IncorrectJwtException(e);
+		} catch (JOSEException e) {
+			throw new InvalidJwtToken(e);
+		}
+		
+	}
+	
+	/**
+	 * Parser JSON Web Token (JWT)
+	 * @author 		：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey 	: 
+	 * <p>If the jws was signed with a SecretKey, the same SecretKey should be specified on the JwtParser. </p>
+	 * <p>If the jws was signed with a PrivateKey, that key's corresponding PublicKey (not the PrivateKey) should be specified on the JwtParser.</p>
+	 * @param secretKey 	: 
+	 * <p>If the jws was encrypted with a SecretKey, the same SecretKey should be specified on the JwtParser. </p>
+	 * <p>If the jws was encrypted with a PrivateKey, that key's corresponding PublicKey (not the PrivateKey) should be specified on the JwtParser.</p>
+	 * @param token  		: JSON Web Token (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @return JwtPlayload {@link JwtPayload}
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public JwtPayload getPlayload(String signingKey, JWK secretKey, String token, boolean checkExpiry)  throws JwtException {
+		try {
+			
+			//-------------------- Step 1：ECDH-ES Decrypt ----------------------
+			
+			// Parse the JWE string
+			JWEObject jweObject = JWEObject.parse(token);
+			
+			// Reject expired/not-yet-valid tokens before the decryption, using the nbf/exp header parameters
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(jweObject.getHeader(), this.getTimeProvider());
+			}
+			
+			// Decrypt with private key
+			jweObject.decrypt(this.getCompressor().decrypter(this.getDecrypterCache().getDecrypter(secretKey, this.getTimeProvider())));
+			
+			// Extract payload
+			SignedJWT signedJWT = jweObject.getPayload().toSignedJWT();
+			
+			//-------------------- Step 2：Hamc Verify --------------------
+			
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached HMAC verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
+						
+			// Retrieve / verify the JWT claims according to the app requirements
+			if(!signedJWT.verify(verifier)) {
+				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+			
+			//-------------------- Step 3：Gets The Claims ---------------
+			
+			// Retrieve JWT claims
+			return NimbusdsUtils.payload(signedJWT.getJWTClaimsSet());
+		} catch (IllegalStateException e) {
+			throw new IncorrectJwtException(e);
+		} catch (NumberFormatException e) {
+			throw new IncorrectJwtException(e);
+		} catch (ParseException e) {
+			throw new IncorrectJwtException(e);
+		} catch (JOSEException e) {
+			throw new InvalidJwtToken(e);
+		}
+		
+	}
+
+	public JwtTimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	public void setTimeProvider(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+	}
+
+	public JWSVerifierCache getVerifierCache() {
+		return verifierCache;
+	}
+
+	public void setVerifierCache(JWSVerifierCache verifierCache) {
+		this.verifierCache = verifierCache;
+	}
+
+	public JOSEHeaderCache getHeaderCache() {
+		return headerCache;
+	}
+
+	public void setHeaderCache(JOSEHeaderCache headerCache) {
+		this.headerCache = headerCache;
+	}
+
+	public JWEEncrypterCache getEncrypterCache() {
+		return encrypterCache;
+	}
+
+	public void setEncrypterCache(JWEEncrypterCache encrypterCache) {
+		this.encrypterCache = encrypterCache;
+	}
+
+	public JWEDecrypterCache getDecrypterCache() {
+		return decrypterCache;
+	}
+
+	public void setDecrypterCache(JWEDecrypterCache decrypterCache) {
+		this.decrypterCache = decrypterCache;
+	}
+
+	public JWEAlgorithm getKeyManagementAlgorithm() {
+		return keyManagementAlgorithm;
+	}
+
+	public void setKeyManagementAlgorithm(JWEAlgorithm keyManagementAlgorithm) {
+		this.keyManagementAlgorithm = keyManagementAlgorithm;
+	}
+
+	public JWECompressor getCompressor() {
+		return compressor;
+	}
+
+	public void setCompressor(JWECompressor compressor) {
+		this.compressor = compressor;
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
+ 
+}
@@ -18,21 +18,26 @@ package com.github.hiwepy.jwt.token;
 import java.text.ParseException;
 import java.util.*;
 
+import com.github.hiwepy.jwt.ClaimsTemplate;
 import com.github.hiwepy.jwt.JwtPayload;
 import com.github.hiwepy.jwt.exception.IncorrectJwtException;
 import com.github.hiwepy.jwt.exception.InvalidJwtToken;
 import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.header.JOSEHeaderCache;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
 import com.github.hiwepy.jwt.time.JwtTimeProvider;
 import com.github.hiwepy.jwt.utils.NimbusdsUtils;
-import com.github.hiwepy.jwt.verifier.ExtendedMACVerifier;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.github.hiwepy.jwt.verifier.JWTClaimsTimeVerifier;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
 import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.KeyLengthException;
-import com.nimbusds.jose.crypto.MACSigner;
-import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.Payload;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
@@ -43,6 +48,14 @@ import com.nimbusds.jwt.SignedJWT;
 public class SignedWithHamcJWTRepository implements JwtRepository<String> {
 
 	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JWSVerifierCache verifierCache = JWSVerifierCache.DEFAULT_VERIFIER_CACHE;
+	private JOSEHeaderCache headerCache = JOSEHeaderCache.DEFAULT_HEADER_CACHE;
+	/**
+	 * 是否在签名校验之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
 	
 	/**
 	 * Issue JSON Web Token (JWT)
@@ -99,29 +112,16 @@ public class SignedWithHamcJWTRepository implements JwtRepository<String> {
 			//-------------------- Step 1：Get ClaimsSet --------------------
 			
 			// Prepare JWT with claims set
-			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(jwtId, subject, issuer, audience, claims, period);
-			// 签发时间
-			long currentTimeMillis = this.getTimeProvider().now();
-			Date now = new Date(currentTimeMillis);
-			builder.issueTime(now);
-			// 有效期起始时间
-			builder.notBeforeTime(now);
-			// Token过期时间
-			if (period >= 0) {
-				// 有效时间
-				Date expiration = new Date(currentTimeMillis + period );
-				builder.expirationTime(expiration);
-			}
+			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().nowDate(), period);
 			JWTClaimsSet claimsSet = builder.build();
 			
 			//-------------------- Step 2：Hamc Signature --------------------
 			
-			// Create HMAC signer
-			byte[] secret = Base64.getDecoder().decode(signingKey);
-			JWSSigner signer = new MACSigner(secret);
+			// Get the cached HMAC signer
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
 			
-			// Request JWS Header with HMAC JWSAlgorithm
-			JWSHeader jwsHeader = new JWSHeader(JWSAlgorithm.parse(algorithm));
+			// Get the pre-encoded JWS Header with HMAC JWSAlgorithm
+			JWSHeader jwsHeader = this.getHeaderCache().getJWSHeader(this.getSignerCache().getAlgorithm(algorithm), null);
 			SignedJWT signedJWT = new SignedJWT(jwsHeader, claimsSet);
 			
 			// Compute the HMAC signature
@@ -139,6 +139,41 @@ public class SignedWithHamcJWTRepository implements JwtRepository<String> {
 		}
 	}
 
+	/**
+	 * Issue JSON Web Token (JWT) with the claims template, only the per-token claims are serialized
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key
+	 * @param template		: The claims template compiled by {@link NimbusdsUtils#claimsTemplate(String, Set, Map)}
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param algorithm		: Supported algorithms, see {@link #issueJwt(String, String, String, String, Set, Map, String, long)}
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(String signingKey, ClaimsTemplate template, String jwtId, String subject, String algorithm, long period) throws JwtException {
+		// The template of other implementations is not guaranteed equivalent here, build the claims set the original way
+		if (!NimbusdsUtils.DIALECT.equals(template.getDialect())) {
+			return this.issueJwt(signingKey, jwtId, subject, template.getIssuer(), template.getAudience(), template.getClaims(), algorithm, period);
+		}
+		try {
+
+			// Render the claims set, the static claims are pre-serialized
+			Payload payload = new Payload(template.toJson(this.getIdGenerator().getOrGenerate(jwtId), subject, this.getTimeProvider().now(), period));
+
+			// Get the cached HMAC signer
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
+
+			// Compute the HMAC signature over the pre-encoded header and the rendered claims
+			JWSObject jwsObject = new JWSObject(this.getHeaderCache().getJWSHeader(this.getSignerCache().getAlgorithm(algorithm), null), payload);
+			jwsObject.sign(signer);
+
+			return jwsObject.serialize();
+		} catch (JOSEException e) {
+			throw new IncorrectJwtException(e);
+		}
+	}
 
 	/**
 	 * Verify the validity of JWT
@@ -163,12 +198,24 @@ public class SignedWithHamcJWTRepository implements JwtRepository<String> {
 			
 			//-------------------- Step 2：Hamc Verify --------------------
 			
-			// Create HMAC verifier
-			byte[] secret = Base64.getDecoder().decode(signingKey);
-			JWSVerifier verifier = checkExpiry ? new ExtendedMACVerifier(secret, signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new MACVerifier(secret) ;
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached HMAC verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 			
 			// Retrieve / verify the JWT claims according to the app requirements
-			return signedJWT.verify(verifier);
+			if(!signedJWT.verify(verifier)) {
+				return false;
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+			return true;
 		} catch (IllegalStateException e) {
 			throw new IncorrectJwtException(e);
 		} catch (NumberFormatException e) {
@@ -202,14 +249,23 @@ public class SignedWithHamcJWTRepository implements JwtRepository<String> {
 			
 			//-------------------- Step 2：Hamc Verify --------------------
 			
-			// Create HMAC verifier
-			byte[] secret = Base64.getDecoder().decode(signingKey);
-			JWSVerifier verifier = checkExpiry ? new ExtendedMACVerifier(secret, signedJWT.getJWTClaimsSet(), this.getTimeProvider()) : new MACVerifier(secret) ;
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached HMAC verifier
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(signingKey);
 						
 			// Retrieve / verify the JWT claims according to the app requirements
 			if(!signedJWT.verify(verifier)) {
 				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
 			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
 			
 			//-------------------- Step 3：Gets The Claims ---------------
 			
@@ -233,5 +289,45 @@ public class SignedWithHamcJWTRepository implements JwtRepository<String> {
 	public void setTimeProvider(JwtTimeProvider timeProvider) {
 		this.timeProvider = timeProvider;
 	}
+
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+	}
+
+	public JWSVerifierCache getVerifierCache() {
+		return verifierCache;
+	}
+
+	public void setVerifierCache(JWSVerifierCache verifierCache) {
+		this.verifierCache = verifierCache;
+	}
+
+	public JOSEHeaderCache getHeaderCache() {
+		return headerCache;
+	}
+
+	public void setHeaderCache(JOSEHeaderCache headerCache) {
+		this.headerCache = headerCache;
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
 	
 }
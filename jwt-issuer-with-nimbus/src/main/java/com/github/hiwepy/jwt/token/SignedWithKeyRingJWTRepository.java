@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.hiwepy.jwt.ClaimsTemplate;
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.header.JOSEHeaderCache;
+import com.github.hiwepy.jwt.id.JwtIdGenerator;
+import com.github.hiwepy.jwt.resolver.JWKRingProvider;
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.NimbusdsUtils;
+import com.github.hiwepy.jwt.utils.StringUtils;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.github.hiwepy.jwt.verifier.JWTClaimsTimeVerifier;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * <b> JSON Web Token (JWT) with signature, the verification key is resolved by the kid header </b>
+ * <p> 校验时按 JWS 头部的 kid 从 {@link JWKRingProvider} 的密钥环中解析密钥（RSAKey、ECKey、OctetKeyPair、OctetSequenceKey），
+ * 密钥轮换原子替换整个密钥环，读取无锁；已退役的密钥在宽限期内仍可用于校验。 </p>
+ * https://www.connect2id.com/products/nimbus-jose-jwt/examples/validating-jwt-access-tokens
+ */
+public class SignedWithKeyRingJWTRepository implements JwtKeyResolverRepository<JWK> {
+
+	private JwtTimeProvider timeProvider = JwtTimeProvider.DEFAULT_TIME_PROVIDER;
+	private JwtIdGenerator idGenerator = JwtIdGenerator.NONE;
+	private JWSSignerCache signerCache = JWSSignerCache.DEFAULT_SIGNER_CACHE;
+	private JWSVerifierCache verifierCache = JWSVerifierCache.DEFAULT_VERIFIER_CACHE;
+	private JOSEHeaderCache headerCache = JOSEHeaderCache.DEFAULT_HEADER_CACHE;
+	private JWKRingProvider keyRingProvider;
+	/**
+	 * 是否在签名校验之前先校验有效期（nbf/exp），过期令牌不再消耗密码运算
+	 */
+	private boolean temporalPreCheck = false;
+
+	public SignedWithKeyRingJWTRepository() {
+		this(new JWKRingProvider());
+	}
+
+	public SignedWithKeyRingJWTRepository(JWKRingProvider keyRingProvider) {
+		this.keyRingProvider = keyRingProvider;
+	}
+
+	/**
+	 * Issue JSON Web Token (JWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key, RSAKey, ECKey, OctetKeyPair (Ed25519) or OctetSequenceKey (HMAC)
+	 * @param keyId			: Key Id, defaults to the kid of the signing key
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param roles			: The Roles
+	 * @param permissions	: The Perms
+	 * @param algorithm		: Supported algorithms：
+	 * <p> HS256, HS384, HS512, RS256, RS384, RS512, PS256, PS384, PS512, ES256, ES384, ES512, EdDSA </p>
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(JWK signingKey, String keyId, String jwtId, String subject, String issuer, Set<String> audience,
+			String roles, String permissions, String algorithm, long period) throws JwtException {
+
+		Map<String, Object> claims = new HashMap<String, Object>();
+		claims.put("roles", roles);
+		claims.put("perms", permissions);
+
+		return this.issueJwt(signingKey, keyId, jwtId, subject, issuer, audience, claims, algorithm, period);
+	}
+
+	/**
+	 * Issue JSON Web Token (JWT)
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key, RSAKey, ECKey, OctetKeyPair (Ed25519) or OctetSequenceKey (HMAC)
+	 * @param keyId			: Key Id, defaults to the kid of the signing key
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param issuer 		: Jwt Issuer
+	 * @param audience 		: Jwt Audience
+	 * @param claims		: Jwt Claims
+	 * @param algorithm		: Supported algorithms：
+	 * <p> HS256, HS384, HS512, RS256, RS384, RS512, PS256, PS384, PS512, ES256, ES384, ES512, EdDSA </p>
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(JWK signingKey, String keyId, String jwtId, String subject, String issuer, Set<String> audience,
+			Map<String, Object> claims, String algorithm, long period) throws JwtException {
+		try {
+
+			//-------------------- Step 1：Get ClaimsSet --------------------
+
+			// Prepare JWT with claims set
+			JWTClaimsSet.Builder builder = NimbusdsUtils.claimsSet(this.getIdGenerator().getOrGenerate(jwtId), subject, issuer, audience, claims, this.getTimeProvider().nowDate(), period);
+			JWTClaimsSet claimsSet = builder.build();
+
+			//-------------------- Step 2：Signature --------------------
+
+			// 指定KeyID以便进行验证时，从密钥环中获取该ID对应的Key
+			String kid = StringUtils.isNotBlank(keyId) ? keyId : signingKey.getKeyID();
+			if (StringUtils.isBlank(kid)) {
+				throw new IncorrectJwtException("The kid is required to resolve the key on verification.");
+			}
+
+			// Get the cached signer of the private key
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
+
+			// Get the pre-encoded JWS Header with JWSAlgorithm and kid
+			JWSHeader header = this.getHeaderCache().getJWSHeader(this.getSignerCache().getAlgorithm(algorithm), kid);
+			SignedJWT signedJWT = new SignedJWT(header, claimsSet);
+
+			// Compute the signature
+			signedJWT.sign(signer);
+
+			return signedJWT.serialize();
+		} catch (KeyLengthException e) {
+			throw new IncorrectJwtException(e);
+		} catch (JOSEException e) {
+			throw new IncorrectJwtException(e);
+		}
+	}
+
+	/**
+	 * Issue JSON Web Token (JWT) with the claims template, only the per-token claims are serialized
+	 * @author ：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param signingKey	: Signing key, RSAKey, ECKey, OctetKeyPair (Ed25519) or OctetSequenceKey (HMAC)
+	 * @param keyId			: Key Id, defaults to the kid of the signing key
+	 * @param template		: The claims template compiled by {@link NimbusdsUtils#claimsTemplate(String, Set, Map)}
+	 * @param jwtId			: Jwt Id
+	 * @param subject		: Jwt Subject
+	 * @param algorithm		: Supported algorithms：
+	 * <p> HS256, HS384, HS512, RS256, RS384, RS512, PS256, PS384, PS512, ES256, ES384, ES512, EdDSA </p>
+	 * @param period 		: Jwt Expiration Cycle
+	 * @return JSON Web Token (JWT)
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public String issueJwt(JWK signingKey, String keyId, ClaimsTemplate template, String jwtId, String subject, String algorithm, long period) throws JwtException {
+		// The template of other implementations is not guaranteed equivalent here, build the claims set the original way
+		if (!NimbusdsUtils.DIALECT.equals(template.getDialect())) {
+			return this.issueJwt(signingKey, keyId, jwtId, subject, template.getIssuer(), template.getAudience(), template.getClaims(), algorithm, period);
+		}
+		try {
+
+			// Render the claims set, the static claims are pre-serialized
+			Payload payload = new Payload(template.toJson(this.getIdGenerator().getOrGenerate(jwtId), subject, this.getTimeProvider().now(), period));
+
+			// 指定KeyID以便进行验证时，从密钥环中获取该ID对应的Key
+			String kid = StringUtils.isNotBlank(keyId) ? keyId : signingKey.getKeyID();
+			if (StringUtils.isBlank(kid)) {
+				throw new IncorrectJwtException("The kid is required to resolve the key on verification.");
+			}
+
+			// Get the cached signer of the private key
+			JWSSigner signer = this.getSignerCache().getSigner(signingKey);
+
+			// Compute the signature over the pre-encoded header and the rendered claims
+			JWSObject jwsObject = new JWSObject(this.getHeaderCache().getJWSHeader(this.getSignerCache().getAlgorithm(algorithm), kid), payload);
+			jwsObject.sign(signer);
+
+			return jwsObject.serialize();
+		} catch (JOSEException e) {
+			throw new IncorrectJwtException(e);
+		}
+	}
+
+	/**
+	 * Verify the validity of JWT
+	 * @author 				: <a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param token  		: JSON Web Token (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @return If Validity
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public boolean verify(String token, boolean checkExpiry) throws JwtException {
+		try {
+
+			//-------------------- Step 1：JWT Parse --------------------
+
+			// On the consumer side, parse the JWS
+			SignedJWT signedJWT = SignedJWT.parse(token);
+
+			//-------------------- Step 2：Resolve Key & Verify --------------------
+
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached verifier of the key resolved by the kid
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(this.resolveKey(signedJWT));
+
+			// Retrieve / verify the JWT claims according to the app requirements
+			if(!signedJWT.verify(verifier)) {
+				return false;
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+			return true;
+		} catch (IllegalStateException e) {
+			throw new IncorrectJwtException(e);
+		} catch (NumberFormatException e) {
+			throw new IncorrectJwtException(e);
+		} catch (ParseException e) {
+			throw new IncorrectJwtException(e);
+		} catch (JOSEException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
+	/**
+	 * Parser JSON Web Token (JWT)
+	 * @author 		：<a href="https://github.com/hiwepy">hiwepy</a>
+	 * @param token  		: JSON Web Token (JWT)
+	 * @param checkExpiry 	: If Check validity.
+	 * @return JwtPlayload {@link JwtPayload}
+	 * @throws JwtException When Authentication Exception
+	 */
+	@Override
+	public JwtPayload getPlayload(String token, boolean checkExpiry) throws JwtException {
+		try {
+
+			//-------------------- Step 1：JWT Parse --------------------
+
+			// On the consumer side, parse the JWS
+			SignedJWT signedJWT = SignedJWT.parse(token);
+
+			//-------------------- Step 2：Resolve Key & Verify --------------------
+
+			// Reject expired/not-yet-valid tokens before the signature verification
+			if(checkExpiry && this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			// Get the cached verifier of the key resolved by the kid
+			JWSVerifier verifier = this.getVerifierCache().getVerifier(this.resolveKey(signedJWT));
+
+			// Retrieve / verify the JWT claims according to the app requirements
+			if(!signedJWT.verify(verifier)) {
+				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
+			}
+
+			// Check the validity period of the JWT
+			if(checkExpiry && !this.isTemporalPreCheck()) {
+				JWTClaimsTimeVerifier.verify(signedJWT.getJWTClaimsSet(), this.getTimeProvider());
+			}
+
+			//-------------------- Step 3：Gets The Claims ---------------
+
+			// Retrieve JWT claims
+			return NimbusdsUtils.payload(signedJWT.getJWTClaimsSet());
+		} catch (IllegalStateException e) {
+			throw new IncorrectJwtException(e);
+		} catch (NumberFormatException e) {
+			throw new IncorrectJwtException(e);
+		} catch (ParseException e) {
+			throw new IncorrectJwtException(e);
+		} catch (JOSEException e) {
+			throw new InvalidJwtToken(e);
+		}
+	}
+
+	/**
+	 * Resolve the verification key by the kid of the JWS header
+	 * @param signedJWT : The signed JWT
+	 * @return The key
+	 * @throws InvalidJwtToken If no current or retired (within the grace window) key has the kid
+	 */
+	protected JWK resolveKey(SignedJWT signedJWT) {
+		String kid = signedJWT.getHeader().getKeyID();
+		JWK key = this.getKeyRingProvider().getKey(kid);
+		if (key == null) {
+			throw new InvalidJwtToken(String.format("No key found for kid : %s", kid));
+		}
+		return key;
+	}
+
+	public JwtTimeProvider getTimeProvider() {
+		return timeProvider;
+	}
+
+	public void setTimeProvider(JwtTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	public JwtIdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	public void setIdGenerator(JwtIdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+	}
+
+	public JWSSignerCache getSignerCache() {
+		return signerCache;
+	}
+
+	public void setSignerCache(JWSSignerCache signerCache) {
+		this.signerCache = signerCache;
+		// 轮换密钥时由密钥环持有者清除同一缓存中的条目
+		if (keyRingProvider != null) {
+			keyRingProvider.setSignerCache(signerCache);
+		}
+	}
+
+	public JWSVerifierCache getVerifierCache() {
+		return verifierCache;
+	}
+
+	public void setVerifierCache(JWSVerifierCache verifierCache) {
+		this.verifierCache = verifierCache;
+		// 轮换密钥时由密钥环持有者清除同一缓存中的条目
+		if (keyRingProvider != null) {
+			keyRingProvider.setVerifierCache(verifierCache);
+		}
+	}
+
+	public JOSEHeaderCache getHeaderCache() {
+		return headerCache;
+	}
+
+	public void setHeaderCache(JOSEHeaderCache headerCache) {
+		this.headerCache = headerCache;
+	}
+
+	public JWKRingProvider getKeyRingProvider() {
+		return keyRingProvider;
+	}
+
+	public void setKeyRingProvider(JWKRingProvider keyRingProvider) {
+		this.keyRingProvider = keyRingProvider;
+		if (keyRingProvider != null) {
+			keyRingProvider.setSignerCache(this.getSignerCache());
+			keyRingProvider.setVerifierCache(this.getVerifierCache());
+		}
+	}
+
+	public boolean isTemporalPreCheck() {
+		return temporalPreCheck;
+	}
+
+	public void setTemporalPreCheck(boolean temporalPreCheck) {
+		this.temporalPreCheck = temporalPreCheck;
+	}
+
+}
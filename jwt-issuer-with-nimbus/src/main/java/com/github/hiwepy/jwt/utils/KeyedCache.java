@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.utils;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWK;
+
+/**
+ * 按密钥缓存的对象（签名器、校验器、加密器、解密器）：以密钥标识（kid + SHA-256 thumbprint）为键，每个密钥只构建一次。
+ * <p>共享密钥以其摘要为键，缓存中不保留明文密钥；缓存数量超过上限后清空重建，避免密钥无限增长时占用内存。</p>
+ * @param <V> 缓存的对象类型
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class KeyedCache<V> {
+
+	/**
+	 * 缓存的最大密钥数量
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+	/**
+	 * 由密钥构建缓存对象
+	 * @param <K> 密钥类型
+	 * @param <V> 缓存的对象类型
+	 */
+	@FunctionalInterface
+	public interface Loader<K, V> {
+
+		V load(K key) throws JOSEException;
+
+	}
+
+	/**
+	 * 密钥对象 -> 密钥标识，避免每次重新计算 thumbprint
+	 */
+	private final ConcurrentMap<JWK, KeyIdentity> identities = new ConcurrentHashMap<>();
+	/**
+	 * 密钥标识 -> 缓存对象
+	 */
+	private final ConcurrentMap<KeyIdentity, V> values = new ConcurrentHashMap<>();
+	private final int maximumSize;
+
+	public KeyedCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public KeyedCache(int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be positive");
+		}
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Get the cached value of the JSON Web Key, build it with the loader on the first access
+	 * @param <K> 		: The key type
+	 * @param jwk 		: The JSON Web Key
+	 * @param loader 	: The loader of the value
+	 * @return The shared value
+	 * @throws JOSEException If the thumbprint could not be computed or the value could not be built
+	 */
+	public <K extends JWK> V get(K jwk, Loader<? super K, ? extends V> loader) throws JOSEException {
+		KeyIdentity identity = identities.get(jwk);
+		if (identity == null) {
+			identity = new KeyIdentity(jwk.getKeyID(), jwk.computeThumbprint().toString());
+			this.ensureCapacity(identities);
+			identities.putIfAbsent(jwk, identity);
+		}
+		return this.get(identity, jwk, loader);
+	}
+
+	/**
+	 * Get the cached value of the shared secret, keyed by the SHA-256 digest of the secret
+	 * @param secret 	: The shared secret
+	 * @param loader 	: The loader of the value
+	 * @return The shared value
+	 * @throws JOSEException If the value could not be built
+	 */
+	public V get(byte[] secret, Loader<byte[], ? extends V> loader) throws JOSEException {
+		return this.get(new KeyIdentity(null, NimbusdsUtils.thumbprint(secret)), secret, loader);
+	}
+
+	/**
+	 * Remove the values of the key id, e.g. when the key is rotated; the key id must match exactly
+	 * @param keyId : The key id, null removes the values of the keys without key id
+	 */
+	public void invalidate(String keyId) {
+		values.keySet().removeIf(identity -> identity.matches(keyId));
+		identities.values().removeIf(identity -> identity.matches(keyId));
+	}
+
+	/**
+	 * Remove all the cached values
+	 */
+	public void clear() {
+		values.clear();
+		identities.clear();
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	private <K> V get(KeyIdentity identity, K key, Loader<? super K, ? extends V> loader) throws JOSEException {
+		V ret = values.get(identity);
+		if (ret != null) {
+			return ret;
+		}
+		ret = loader.load(key);
+		this.ensureCapacity(values);
+		V existing = values.putIfAbsent(identity, ret);
+		return existing != null ? existing : ret;
+	}
+
+	private void ensureCapacity(ConcurrentMap<?, ?> map) {
+		if (map.size() >= maximumSize) {
+			map.clear();
+		}
+	}
+
+	/**
+	 * 密钥标识：kid + thumbprint
+	 */
+	private static final class KeyIdentity {
+
+		private final String keyId;
+		private final String thumbprint;
+
+		KeyIdentity(String keyId, String thumbprint) {
+			this.keyId = keyId;
+			this.thumbprint = thumbprint;
+		}
+
+		boolean matches(String keyId) {
+			return Objects.equals(this.keyId, keyId);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof KeyIdentity)) {
+				return false;
+			}
+			KeyIdentity other = (KeyIdentity) obj;
+			return thumbprint.equals(other.thumbprint) && Objects.equals(keyId, other.keyId);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * thumbprint.hashCode() + Objects.hashCode(keyId);
+		}
+
+	}
+
+}
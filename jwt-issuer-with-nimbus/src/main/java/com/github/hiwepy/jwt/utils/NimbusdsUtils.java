@@ -15,10 +15,14 @@
  */
 package com.github.hiwepy.jwt.utils;
 
+import com.github.hiwepy.jwt.ClaimsTemplate;
 import com.github.hiwepy.jwt.JwtPayload;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimsSet;
 import org.apache.commons.collections4.CollectionUtils;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.*;
 import java.util.Map.Entry;
@@ -29,11 +33,34 @@ import java.util.Map.Entry;
  */
 public class NimbusdsUtils {
 
+	/**
+	 * 复制到 JWE 头部的有效期参数名称
+	 */
+	public static final String NOT_BEFORE = "nbf";
+	public static final String EXPIRATION = "exp";
+	/**
+	 * 本实现编译的声明模板标识
+	 */
+	public static final String DIALECT = "nimbus";
+
 	public static JWTClaimsSet.Builder claimsSet(String jwtId, String subject, String issuer, Set<String> audience, Map<String, Object> claims,
 												 long period) {
+		return claimsSet(jwtId, subject, issuer, audience, claims, new Date(), period);
+	}
 
-		// Current TimeMillis
-		long currentTimeMillis = System.currentTimeMillis();
+	/**
+	 * Prepare the claims set with the issue time read once by the caller, e.g. from the {@link com.github.hiwepy.jwt.time.JwtTimeProvider}
+	 * @param jwtId 	: Jwt Id
+	 * @param subject 	: Jwt Subject
+	 * @param issuer 	: Jwt Issuer
+	 * @param audience 	: Jwt Audience
+	 * @param claims 	: Jwt Claims
+	 * @param now 		: The issue time, also the not-before time
+	 * @param period 	: Jwt Expiration Cycle
+	 * @return The claims set builder
+	 */
+	public static JWTClaimsSet.Builder claimsSet(String jwtId, String subject, String issuer, Set<String> audience, Map<String, Object> claims,
+												 Date now, long period) {
 
 		// Prepare JWT with claims set
 		JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
@@ -61,14 +88,13 @@ public class NimbusdsUtils {
 			}
 		}
 		// 默认签发时间
-		Date now = new Date(currentTimeMillis);
 		builder.issueTime(now);
 		// 默认有效期起始时间
 		builder.notBeforeTime(now);
 		// Token过期时间
 		if (period >= 0) {
 			// 有效时间
-			Date expiration = new Date(currentTimeMillis + period );
+			Date expiration = new Date(now.getTime() + period );
 			builder.expirationTime(expiration);
 		}
 		return builder;
@@ -77,9 +103,11 @@ public class NimbusdsUtils {
 
 	public static JWTClaimsSet.Builder claimsSet(String jwtId, String subject, String issuer, Set<String> audience, String roles,
 			String permissions, long period) {
+		return claimsSet(jwtId, subject, issuer, audience, roles, permissions, new Date(), period);
+	}
 
-		// Current TimeMillis
-		long currentTimeMillis = System.currentTimeMillis();
+	public static JWTClaimsSet.Builder claimsSet(String jwtId, String subject, String issuer, Set<String> audience, String roles,
+			String permissions, Date now, long period) {
 
 		// Prepare JWT with claims set
 		JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
@@ -107,19 +135,36 @@ public class NimbusdsUtils {
 			builder.claim("perms", permissions);
 		}
 		// 默认签发时间
-		Date now = new Date(currentTimeMillis);
 		builder.issueTime(now);
 		// 默认有效期起始时间
 		builder.notBeforeTime(now);
 		// Token过期时间
 		if (period >= 0) {
 			// 有效时间
-			Date expiration = new Date(currentTimeMillis + period );
+			Date expiration = new Date(now.getTime() + period );
 			builder.expirationTime(expiration);
 		}
 		return builder;
 	}
 
+	/**
+	 * 编译声明模板：以 {@link #claimsSet(String, String, String, Set, Map, long)} 构建样例声明，静态声明只序列化一次
+	 * @param issuer 签发者
+	 * @param audience 接收者
+	 * @param claims 声明
+	 * @return 声明模板
+	 * @throws IllegalArgumentException 声明覆盖了 jti、sub、iat、nbf、exp 等签发时拼接的声明
+	 */
+	public static ClaimsTemplate claimsTemplate(String issuer, Set<String> audience, Map<String, Object> claims) {
+		JWTClaimsSet.Builder builder = claimsSet(ClaimsTemplate.SAMPLE_JWT_ID, ClaimsTemplate.SAMPLE_SUBJECT, issuer, audience, claims,
+				ClaimsTemplate.SAMPLE_PERIOD);
+		Date now = new Date(ClaimsTemplate.SAMPLE_ISSUED_AT);
+		builder.issueTime(now);
+		builder.notBeforeTime(now);
+		builder.expirationTime(new Date(ClaimsTemplate.SAMPLE_ISSUED_AT + ClaimsTemplate.SAMPLE_PERIOD));
+		return ClaimsTemplate.compile(DIALECT, issuer, audience, claims, builder.build().toString());
+	}
+
 	public static JwtPayload payload(JWTClaimsSet jwtClaims) throws ParseException {
 
 		JwtPayload payload = new JwtPayload();
@@ -135,4 +180,33 @@ public class NimbusdsUtils {
 		return payload;
 	}
 
+	/**
+	 * 共享密钥的 SHA-256 指纹（Base64URL编码），避免以明文密钥作为缓存键
+	 * @param secret 共享密钥
+	 * @return 密钥指纹
+	 */
+	public static String thumbprint(byte[] secret) {
+		try {
+			return Base64URL.encode(MessageDigest.getInstance("SHA-256").digest(secret)).toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 将 nbf/exp 声明复制为 JWE 头部参数（RFC 7519 5.3），解密前即可判断令牌是否过期
+	 * @param claimsSet JWT 声明
+	 * @return 头部参数（单位：秒）
+	 */
+	public static Map<String, Object> temporalParams(JWTClaimsSet claimsSet) {
+		Map<String, Object> params = new HashMap<>(4);
+		if (claimsSet.getNotBeforeTime() != null) {
+			params.put(NOT_BEFORE, claimsSet.getNotBeforeTime().getTime() / 1000L);
+		}
+		if (claimsSet.getExpirationTime() != null) {
+			params.put(EXPIRATION, claimsSet.getExpirationTime().getTime() / 1000L);
+		}
+		return params;
+	}
+
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.verifier;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.hiwepy.jwt.JwtPayload;
+import com.github.hiwepy.jwt.VerificationResult;
+import com.github.hiwepy.jwt.exception.IncorrectJwtException;
+import com.github.hiwepy.jwt.exception.InvalidJwtToken;
+import com.github.hiwepy.jwt.exception.JwtException;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.JwtHeaderUtils;
+import com.github.hiwepy.jwt.utils.NimbusdsUtils;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * EdDSA 令牌的分块校验：批量 API 将令牌分块后在 fork/join 线程池中并行处理，每个分块共用同一个缓存的 Ed25519 校验器，
+ * 逐个解析（及解密）令牌、做有效期预检并校验签名，失败的令牌只影响其自身的结果。
+ * <p>签名仍逐个校验：Nimbus 所依赖的 Tink 只提供单个签名的校验，这里不做多标量乘法的批量签名校验。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class Ed25519ChunkVerification {
+
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+
+	/**
+	 * 令牌解析：JWS 直接解析，JWE 嵌套令牌先解密再取出内层 JWS
+	 */
+	@FunctionalInterface
+	public interface SignedJWTParser {
+
+		SignedJWT parse(String token) throws ParseException, JOSEException;
+
+	}
+
+	private final JWSVerifier verifier;
+	private final JwtTimeProvider timeProvider;
+	private final boolean temporalPreCheck;
+
+	/**
+	 * @param verifier 			: The (cached) signature verifier of the Ed25519 key
+	 * @param timeProvider 		: The time provider
+	 * @param temporalPreCheck 	: If check the validity period before the signature verification
+	 */
+	public Ed25519ChunkVerification(JWSVerifier verifier, JwtTimeProvider timeProvider, boolean temporalPreCheck) {
+		this.verifier = verifier;
+		this.timeProvider = timeProvider;
+		this.temporalPreCheck = temporalPreCheck;
+	}
+
+	/**
+	 * Verify a chunk of tokens
+	 * @param tokens 		: The tokens
+	 * @param parser 		: The parser of the (inner) signed JWT
+	 * @param checkExpiry 	: If Check validity.
+	 * @param withPayload 	: If the valid results carry the payload
+	 * @return The results, in the order of the input tokens
+	 */
+	public List<VerificationResult> verify(List<String> tokens, SignedJWTParser parser, boolean checkExpiry, boolean withPayload) {
+		VerificationResult[] results = new VerificationResult[tokens.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = this.verify(tokens.get(i), parser, checkExpiry, withPayload);
+		}
+		return Arrays.asList(results);
+	}
+
+	private VerificationResult verify(String token, SignedJWTParser parser, boolean checkExpiry, boolean withPayload) {
+		try {
+
+			//-------------------- Step 1：Parse & Pre-check --------------------
+
+			SignedJWT jwt = parser.parse(token);
+			if (checkExpiry && temporalPreCheck) {
+				JWTClaimsTimeVerifier.verify(jwt.getJWTClaimsSet(), timeProvider);
+			}
+
+			//-------------------- Step 2：Signature Verify --------------------
+
+			if (!jwt.verify(verifier)) {
+				throw new JwtException(String.format("Invalid JSON Web Token (JWT) : %s", token));
+			}
+			if (checkExpiry && !temporalPreCheck) {
+				JWTClaimsTimeVerifier.verify(jwt.getJWTClaimsSet(), timeProvider);
+			}
+
+			//-------------------- Step 3：Gets The Claims ---------------
+
+			JwtPayload payload = withPayload ? NimbusdsUtils.payload(jwt.getJWTClaimsSet()) : null;
+			return VerificationResult.valid(payload, JwtHeaderUtils.header(token));
+		} catch (Exception e) {
+			return this.failure(token, e);
+		}
+	}
+
+	/**
+	 * Convert the exception into the failed result, the same way the repositories translate them
+	 */
+	private VerificationResult failure(String token, Exception e) {
+		RuntimeException ex;
+		if (e instanceof JwtException) {
+			ex = (JwtException) e;
+		} else if (e instanceof JOSEException) {
+			ex = new InvalidJwtToken(e);
+		} else if (e instanceof RuntimeException && !(e instanceof IllegalStateException) && !(e instanceof NumberFormatException)) {
+			ex = (RuntimeException) e;
+		} else {
+			ex = new IncorrectJwtException(e);
+		}
+		return VerificationResult.failure(ex, JwtHeaderUtils.header(token));
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.verifier;
+
+import java.util.Base64;
+
+import com.github.hiwepy.jwt.utils.KeyedCache;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+
+/**
+ * JWSVerifier 缓存：以密钥标识（kid + thumbprint）为键，每个密钥只构建一次校验器。
+ * <p>Nimbus 的 JWSVerifier 实现均为线程安全，且有效期校验已移至 {@link JWTClaimsTimeVerifier}，
+ * 因此同一个校验器实例可被该密钥签发的所有令牌共享。</p>
+ * <p>公钥与私钥形式的同一密钥具有相同的 thumbprint，会命中同一个校验器；共享密钥以其摘要为键，缓存数量有上限。</p>
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWSVerifierCache {
+
+	public static final JWSVerifierCache DEFAULT_VERIFIER_CACHE = new JWSVerifierCache();
+
+	private final KeyedCache<JWSVerifier> verifiers;
+
+	public JWSVerifierCache() {
+		this(KeyedCache.DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public JWSVerifierCache(int maximumSize) {
+		this.verifiers = new KeyedCache<>(maximumSize);
+	}
+
+	/**
+	 * Get the cached RSA verifier of the key
+	 * @param rsaJWK : The RSA JSON Web Key
+	 * @return The shared {@link RSASSAVerifier}
+	 * @throws JOSEException If the key could not be converted
+	 */
+	public JWSVerifier getVerifier(RSAKey rsaJWK) throws JOSEException {
+		return verifiers.get(rsaJWK, key -> new RSASSAVerifier(key));
+	}
+
+	/**
+	 * Get the cached EC verifier of the key
+	 * @param ecJWK : The EC JSON Web Key
+	 * @return The shared {@link ECDSAVerifier}
+	 * @throws JOSEException If the key could not be converted
+	 */
+	public JWSVerifier getVerifier(ECKey ecJWK) throws JOSEException {
+		return verifiers.get(ecJWK, key -> new ECDSAVerifier(key));
+	}
+
+	/**
+	 * Get the cached Ed25519 verifier of the key
+	 * @param octetKeyPair : The Octet Key Pair
+	 * @return The shared {@link Ed25519Verifier}
+	 * @throws JOSEException If the key could not be converted
+	 */
+	public JWSVerifier getVerifier(OctetKeyPair octetKeyPair) throws JOSEException {
+		return verifiers.get(octetKeyPair, key -> new Ed25519Verifier(key.toPublicJWK()));
+	}
+
+	/**
+	 * Get the cached HMAC verifier of the key
+	 * @param octJWK : The Octet Sequence JSON Web Key
+	 * @return The shared {@link MACVerifier}
+	 * @throws JOSEException If the key could not be converted
+	 */
+	public JWSVerifier getVerifier(OctetSequenceKey octJWK) throws JOSEException {
+		return verifiers.get(octJWK, key -> new MACVerifier(key));
+	}
+
+	/**
+	 * Get the cached HMAC verifier of the Base64 encoded secret
+	 * @param base64Secret : The Base64 encoded shared secret
+	 * @return The shared {@link MACVerifier}
+	 * @throws JOSEException If the secret is too short
+	 */
+	public JWSVerifier getVerifier(String base64Secret) throws JOSEException {
+		return verifiers.get(Base64.getDecoder().decode(base64Secret), MACVerifier::new);
+	}
+
+	/**
+	 * Get the cached verifier of the JSON Web Key
+	 * @param jwk : The RSA, EC, OKP or OCT JSON Web Key
+	 * @return The shared {@link JWSVerifier}
+	 * @throws JOSEException If the key type is not supported or the key could not be converted
+	 */
+	public JWSVerifier getVerifier(JWK jwk) throws JOSEException {
+		if (jwk instanceof RSAKey) {
+			return this.getVerifier((RSAKey) jwk);
+		}
+		if (jwk instanceof ECKey) {
+			return this.getVerifier((ECKey) jwk);
+		}
+		if (jwk instanceof OctetKeyPair) {
+			return this.getVerifier((OctetKeyPair) jwk);
+		}
+		if (jwk instanceof OctetSequenceKey) {
+			return this.getVerifier((OctetSequenceKey) jwk);
+		}
+		throw new JOSEException(String.format("Unsupported JWK type : %s", jwk == null ? null : jwk.getKeyType()));
+	}
+
+	/**
+	 * Remove all the verifiers of the key id, e.g. when the key is rotated
+	 * @param keyId : The key id, must match exactly
+	 */
+	public void invalidate(String keyId) {
+		verifiers.invalidate(keyId);
+	}
+
+	/**
+	 * Remove all the cached verifiers
+	 */
+	public void clear() {
+		verifiers.clear();
+	}
+
+	public int size() {
+		return verifiers.size();
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.verifier;
+
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hiwepy.jwt.exception.ExpiredJwtException;
+import com.github.hiwepy.jwt.exception.NotObtainedJwtException;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.github.hiwepy.jwt.utils.NimbusdsUtils;
+import com.nimbusds.jose.Header;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * JWT 有效期校验（nbf/exp），与签名校验解耦，使同一个 JWSVerifier 可以被所有令牌共享
+ * @author ： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWTClaimsTimeVerifier {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JWTClaimsTimeVerifier.class);
+
+	/**
+	 * Check the validity period of the JWT claims set
+	 * @param claimsSet 	: The JWT claims set
+	 * @param timeProvider 	: The time provider
+	 * @throws NotObtainedJwtException If the JWT is used before the not-before time
+	 * @throws ExpiredJwtException If the JWT is expired
+	 */
+	public static void verify(JWTClaimsSet claimsSet, JwtTimeProvider timeProvider) {
+		verify(claimsSet, timeProvider.now());
+	}
+
+	/**
+	 * Check the validity period of the JWT claims set
+	 * @param claimsSet 		: The JWT claims set
+	 * @param currentTimeMillis : The current time in milliseconds
+	 * @throws NotObtainedJwtException If the JWT is used before the not-before time
+	 * @throws ExpiredJwtException If the JWT is expired
+	 */
+	public static void verify(JWTClaimsSet claimsSet, long currentTimeMillis) {
+
+		Date issuedAt = claimsSet.getIssueTime();
+		Date notBefore = claimsSet.getNotBeforeTime();
+		Date expiration = claimsSet.getExpirationTime();
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("JWT IssuedAt:" + issuedAt);
+			LOG.debug("JWT NotBefore:" + notBefore);
+			LOG.debug("JWT Expiration:" + expiration);
+			LOG.debug("JWT Now:" + new Date(currentTimeMillis));
+		}
+
+		verify(notBefore, expiration, currentTimeMillis);
+	}
+
+	/**
+	 * Check the validity period replicated into the JOSE header (the nbf/exp header parameters, RFC 7519 section 5.3),
+	 * so that an encrypted JWT can be rejected before the decryption. Headers without these parameters are accepted.
+	 * @param header 		: The JOSE header
+	 * @param timeProvider 	: The time provider
+	 * @throws NotObtainedJwtException If the JWT is used before the not-before time
+	 * @throws ExpiredJwtException If the JWT is expired
+	 */
+	public static void verify(Header header, JwtTimeProvider timeProvider) {
+		Date notBefore = toDate(header.getCustomParam(NimbusdsUtils.NOT_BEFORE));
+		Date expiration = toDate(header.getCustomParam(NimbusdsUtils.EXPIRATION));
+		if(notBefore == null && expiration == null) {
+			return;
+		}
+		verify(notBefore, expiration, timeProvider.now());
+	}
+
+	private static void verify(Date notBefore, Date expiration, long currentTimeMillis) {
+		if(notBefore != null && currentTimeMillis <= notBefore.getTime()) {
+			throw new NotObtainedJwtException(String.format("JWT was not obtained before this timestamp : [%s].", notBefore));
+		}
+		if(expiration != null && expiration.getTime() < currentTimeMillis) {
+			throw ExpiredJwtException.expired();
+		}
+	}
+
+	private static Date toDate(Object seconds) {
+		return seconds instanceof Number ? new Date(((Number) seconds).longValue() * 1000L) : null;
+	}
+
+}
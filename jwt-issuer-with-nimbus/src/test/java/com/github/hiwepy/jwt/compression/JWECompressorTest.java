@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.compression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWECryptoParts;
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.JWEEncrypter;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.crypto.ECDHDecrypter;
+import com.nimbusds.jose.crypto.ECDHEncrypter;
+import com.nimbusds.jose.crypto.RSADecrypter;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+import com.nimbusds.jose.jca.JWEJCAContext;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * {@link JWECompressor} 测试：池化压缩的 zip=DEF 令牌与 nimbus 互通、阈值以下不压缩、解压长度上限，
+ * 以及会改写头部的密钥管理算法不做预压缩
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWECompressorTest {
+
+	private static final String TEXT = String.join(",", Collections.nCopies(200, "{\"sub\":\"user\",\"roles\":\"admin\"}"));
+
+	private static byte[] secret;
+	private static RSAKey rsaJWK;
+	private static ECKey ecJWK;
+
+	private final JWECompressor compressor = new JWECompressor();
+
+	@BeforeAll
+	public static void generateKeys() throws Exception {
+		secret = new byte[32];
+		new SecureRandom().nextBytes(secret);
+		rsaJWK = new RSAKeyGenerator(2048).generate();
+		ecJWK = new ECKeyGenerator(Curve.P_256).generate();
+	}
+
+	@Test
+	public void pooledTokensDecryptWithNimbus() throws Exception {
+		JWEHeader dir = header(JWEAlgorithm.DIR, TEXT.length());
+		String token = encrypt(dir, TEXT, compressor.encrypter(new DirectEncrypter(secret)));
+		assertEquals(TEXT, decrypt(token, new DirectDecrypter(secret)));
+		assertTrue(token.length() < TEXT.length());
+
+		JWEHeader rsa = header(JWEAlgorithm.RSA_OAEP_256, TEXT.length());
+		token = encrypt(rsa, TEXT, compressor.encrypter(new RSAEncrypter(rsaJWK)));
+		assertEquals(TEXT, decrypt(token, new RSADecrypter(rsaJWK)));
+	}
+
+	@Test
+	public void nimbusTokensDecryptPooled() throws Exception {
+		String token = encrypt(header(JWEAlgorithm.DIR, TEXT.length()), TEXT, new DirectEncrypter(secret));
+		assertEquals(TEXT, decrypt(token, compressor.decrypter(new DirectDecrypter(secret))));
+
+		token = encrypt(header(JWEAlgorithm.RSA_OAEP_256, TEXT.length()), TEXT, new RSAEncrypter(rsaJWK));
+		assertEquals(TEXT, decrypt(token, compressor.decrypter(new RSADecrypter(rsaJWK))));
+
+		// 未压缩的令牌原样交给被包装的解密器
+		token = encrypt(header(JWEAlgorithm.DIR, 0), TEXT, new DirectEncrypter(secret));
+		assertEquals(TEXT, decrypt(token, compressor.decrypter(new DirectDecrypter(secret))));
+	}
+
+	@Test
+	public void belowThresholdIsNotCompressed() throws Exception {
+		assertNull(compressor.getCompressionAlgorithm(JWECompressor.DEFAULT_THRESHOLD - 1));
+		assertEquals(CompressionAlgorithm.DEF, compressor.getCompressionAlgorithm(JWECompressor.DEFAULT_THRESHOLD));
+		assertNull(JWECompressor.DEFAULT_COMPRESSOR.getCompressionAlgorithm(Integer.MAX_VALUE));
+
+		String text = TEXT.substring(0, JWECompressor.DEFAULT_THRESHOLD - 1);
+		JWEHeader header = header(JWEAlgorithm.DIR, text.length());
+		assertNull(header.getCompressionAlgorithm());
+		String token = encrypt(header, text, compressor.encrypter(new DirectEncrypter(secret)));
+		JWEObject jwe = JWEObject.parse(token);
+		// AES-GCM 密文与明文等长
+		assertEquals(text.length(), jwe.getCipherText().decode().length);
+		assertEquals(text, decrypt(token, new DirectDecrypter(secret)));
+	}
+
+	@Test
+	public void inflatedSizeIsCapped() throws Exception {
+		int max = DeflateCompressor.DEFAULT_MAX_INFLATED_SIZE;
+		JWEDecrypter decrypter = compressor.decrypter(new DirectDecrypter(secret));
+
+		char[] chars = new char[max];
+		Arrays.fill(chars, 'a');
+		String atLimit = new String(chars);
+		String token = encrypt(header(JWEAlgorithm.DIR, max), atLimit, new DirectEncrypter(secret));
+		assertEquals(atLimit, decrypt(token, decrypter));
+
+		String overLimit = atLimit + "a";
+		String bomb = encrypt(header(JWEAlgorithm.DIR, max + 1), overLimit, new DirectEncrypter(secret));
+		JOSEException ex = assertThrows(JOSEException.class, () -> decrypt(bomb, decrypter));
+		assertTrue(ex.getMessage().contains("exceeds " + max), ex.getMessage());
+	}
+
+	@Test
+	public void headerAlteringAlgorithmsAreNotPreCompressed() throws Exception {
+		byte[] clearText = TEXT.getBytes(StandardCharsets.UTF_8);
+		for (JWEAlgorithm algorithm : new JWEAlgorithm[] { JWEAlgorithm.ECDH_ES, JWEAlgorithm.ECDH_ES_A128KW,
+				JWEAlgorithm.A128GCMKW, JWEAlgorithm.PBES2_HS256_A128KW }) {
+			RecordingEncrypter recorder = new RecordingEncrypter();
+			compressor.encrypter(recorder).encrypt(header(algorithm, clearText.length), clearText, null);
+			// nimbus 自行压缩：明文与 zip=DEF 的头部原样交给被包装的加密器
+			assertArrayEquals(clearText, recorder.clearText, algorithm.getName());
+			assertEquals(CompressionAlgorithm.DEF, recorder.header.getCompressionAlgorithm(), algorithm.getName());
+		}
+
+		RecordingEncrypter recorder = new RecordingEncrypter();
+		JWECryptoParts parts = compressor.encrypter(recorder).encrypt(header(JWEAlgorithm.RSA_OAEP_256, clearText.length), clearText, null);
+		assertFalse(Arrays.equals(clearText, recorder.clearText));
+		assertNull(recorder.header.getCompressionAlgorithm());
+		assertEquals(CompressionAlgorithm.DEF, parts.getHeader().getCompressionAlgorithm());
+
+		// ECDH-ES 由 nimbus 压缩后，池化与非池化的解密器均可解密
+		String token = encrypt(header(JWEAlgorithm.ECDH_ES, TEXT.length()), TEXT, compressor.encrypter(new ECDHEncrypter(ecJWK.toECPublicKey())));
+		assertEquals(TEXT, decrypt(token, new ECDHDecrypter(ecJWK)));
+		assertEquals(TEXT, decrypt(token, compressor.decrypter(new ECDHDecrypter(ecJWK))));
+	}
+
+	private JWEHeader header(JWEAlgorithm algorithm, int length) {
+		EncryptionMethod enc = JWEAlgorithm.DIR.equals(algorithm) ? EncryptionMethod.A256GCM : EncryptionMethod.A128GCM;
+		return new JWEHeader.Builder(algorithm, enc).compressionAlgorithm(compressor.getCompressionAlgorithm(length)).build();
+	}
+
+	private static String encrypt(JWEHeader header, String text, JWEEncrypter encrypter) throws JOSEException {
+		JWEObject jwe = new JWEObject(header, new Payload(text));
+		jwe.encrypt(encrypter);
+		return jwe.serialize();
+	}
+
+	private static String decrypt(String token, JWEDecrypter decrypter) throws Exception {
+		JWEObject jwe = JWEObject.parse(token);
+		jwe.decrypt(decrypter);
+		return jwe.getPayload().toString();
+	}
+
+	/**
+	 * 记录加密输入的加密器，输出固定的密文
+	 */
+	private static final class RecordingEncrypter implements JWEEncrypter {
+
+		private JWEHeader header;
+		private byte[] clearText;
+
+		@Override
+		public JWECryptoParts encrypt(JWEHeader header, byte[] clearText, byte[] aad) {
+			this.header = header;
+			this.clearText = clearText;
+			return new JWECryptoParts(header, null, null, Base64URL.encode(new byte[1]), null);
+		}
+
+		@Override
+		public Set<JWEAlgorithm> supportedJWEAlgorithms() {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public Set<EncryptionMethod> supportedEncryptionMethods() {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public JWEJCAContext getJCAContext() {
+			return new JWEJCAContext();
+		}
+
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.decrypter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.compression.JWECompressor;
+import com.github.hiwepy.jwt.time.JwtTimeProvider;
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * {@link CachingRSADecrypter} 测试：CEK 缓存命中、按嵌套 JWT 的 exp 失效、调用方时钟及认证失败不缓存
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class CachingRSADecrypterTest {
+
+	private static RSAKey rsaJWK;
+
+	private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+	private final JwtTimeProvider timeProvider = clock::get;
+
+	@BeforeAll
+	public static void generateKey() throws Exception {
+		rsaJWK = new RSAKeyGenerator(2048).keyID("enc").generate();
+	}
+
+	private String encrypt(long expiration, CompressionAlgorithm zip) throws Exception {
+		JWTClaimsSet claimsSet = new JWTClaimsSet.Builder().subject("user").expirationTime(new Date(expiration)).build();
+		SignedJWT signedJWT = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claimsSet);
+		signedJWT.sign(new MACSigner(new byte[32]));
+		JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A128GCM)
+				.contentType("JWT").compressionAlgorithm(zip).build();
+		JWEObject jweObject = new JWEObject(header, new Payload(signedJWT));
+		jweObject.encrypt(new RSAEncrypter(rsaJWK.toRSAPublicKey()));
+		return jweObject.serialize();
+	}
+
+	private static String decrypt(String token, JWEDecrypter decrypter) throws Exception {
+		JWEObject jweObject = JWEObject.parse(token);
+		jweObject.decrypt(decrypter);
+		return jweObject.getPayload().toSignedJWT().getJWTClaimsSet().getSubject();
+	}
+
+	@Test
+	public void cachesCEKUntilNestedExpiration() throws Exception {
+		CachingRSADecrypter decrypter = new CachingRSADecrypter(rsaJWK, 16, TimeUnit.HOURS.toMillis(1));
+		decrypter.setTimeProvider(timeProvider);
+		String token = this.encrypt(clock.get() + 5_000, null);
+
+		assertEquals("user", decrypt(token, decrypter));
+		assertEquals("user", decrypt(token, decrypter));
+		assertEquals(1, decrypter.getMissCount());
+		assertEquals(1, decrypter.getHitCount());
+
+		// 没有头部 exp 时，条目仍在嵌套 JWT 过期时失效，而不是 maximumTtl
+		clock.addAndGet(5_000);
+		assertEquals("user", decrypt(token, decrypter));
+		assertEquals(2, decrypter.getMissCount());
+		assertEquals(0, decrypter.size());
+	}
+
+	@Test
+	public void deflatedContentIsBoundedByNestedExpiration() throws Exception {
+		CachingRSADecrypter decrypter = new CachingRSADecrypter(rsaJWK, 16, TimeUnit.HOURS.toMillis(1));
+		decrypter.setTimeProvider(timeProvider);
+		JWEDecrypter inflating = JWECompressor.DEFAULT_COMPRESSOR.decrypter(decrypter);
+		String token = this.encrypt(clock.get() + 5_000, CompressionAlgorithm.DEF);
+
+		assertEquals("user", decrypt(token, inflating));
+		clock.addAndGet(5_000);
+		assertEquals("user", decrypt(token, inflating));
+		assertEquals(2, decrypter.getMissCount());
+	}
+
+	@Test
+	public void usesTheClockOfTheCaller() throws Exception {
+		JWEDecrypterCache cache = new JWEDecrypterCache();
+		String token = this.encrypt(clock.get() + 5_000, null);
+		CachingRSADecrypter shared = cache.getDecrypter(rsaJWK);
+		assertSame(shared, cache.getDecrypter(rsaJWK, JwtTimeProvider.DEFAULT_TIME_PROVIDER));
+
+		JWEDecrypter decrypter = cache.getDecrypter(rsaJWK, timeProvider);
+		decrypt(token, decrypter);
+		decrypt(token, decrypter);
+		assertEquals(1, shared.getHitCount());
+
+		clock.addAndGet(10_000);
+		decrypt(token, decrypter);
+		assertEquals(1, shared.getHitCount());
+		assertEquals(2, shared.getMissCount());
+	}
+
+	@Test
+	public void tamperedTokenIsNotCached() throws Exception {
+		CachingRSADecrypter decrypter = new CachingRSADecrypter(rsaJWK);
+		String[] parts = this.encrypt(clock.get() + 60_000, null).split("\\.");
+		char c = parts[3].charAt(0);
+		parts[3] = (c == 'A' ? 'B' : 'A') + parts[3].substring(1);
+		String tampered = String.join(".", parts);
+
+		assertThrows(JOSEException.class, () -> decrypt(tampered, decrypter));
+		assertEquals(0, decrypter.size());
+	}
+
+	@Test
+	public void evictsAtMaximumSize() throws Exception {
+		CachingRSADecrypter decrypter = new CachingRSADecrypter(rsaJWK, 2, TimeUnit.HOURS.toMillis(1));
+		for (int i = 0; i < 5; i++) {
+			decrypt(this.encrypt(clock.get() + 60_000, null), decrypter);
+		}
+		assertEquals(2, decrypter.size());
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.header;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+
+/**
+ * {@link JOSEHeaderCache} 测试：相同参数共享头部实例，未设置的参数与空字符串参数互不混淆
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JOSEHeaderCacheTest {
+
+	private final JOSEHeaderCache cache = new JOSEHeaderCache();
+
+	@Test
+	public void sameParametersShareTheHeader() {
+		JWSHeader header = cache.getJWSHeader(JWSAlgorithm.HS256, "k1", JOSEObjectType.JWT);
+		assertSame(header, cache.getJWSHeader(JWSAlgorithm.HS256, "k1", new JOSEObjectType("JWT")));
+		assertEquals("k1", header.getKeyID());
+		assertNotSame(header, cache.getJWSHeader(JWSAlgorithm.HS384, "k1", JOSEObjectType.JWT));
+		JWEHeader jwe = cache.getJWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM, "k1", null, CompressionAlgorithm.DEF);
+		assertSame(jwe, cache.getJWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM, "k1", null, new CompressionAlgorithm("DEF")));
+		assertNotSame(jwe, cache.getJWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM, "k1", null, CompressionAlgorithm.DEF));
+		assertEquals(4, cache.size());
+	}
+
+	@Test
+	public void nullKeyIdIsNotTheEmptyKeyId() {
+		JWSHeader absent = cache.getJWSHeader(JWSAlgorithm.HS256, null);
+		JWSHeader empty = cache.getJWSHeader(JWSAlgorithm.HS256, "");
+		assertNotSame(absent, empty);
+		assertNull(absent.getKeyID());
+		assertEquals("", empty.getKeyID());
+		assertSame(absent, cache.getJWSHeader(JWSAlgorithm.HS256, null));
+		assertSame(empty, cache.getJWSHeader(JWSAlgorithm.HS256, ""));
+
+		JWEHeader jweAbsent = cache.getJWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM, null);
+		JWEHeader jweEmpty = cache.getJWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM, "");
+		assertNull(jweAbsent.getKeyID());
+		assertEquals("", jweEmpty.getKeyID());
+	}
+
+	@Test
+	public void nullTypeIsNotTheEmptyType() {
+		JWSHeader absent = cache.getJWSHeader(JWSAlgorithm.HS256, "k1", null);
+		JWSHeader empty = cache.getJWSHeader(JWSAlgorithm.HS256, "k1", new JOSEObjectType(""));
+		assertNull(absent.getType());
+		assertEquals(new JOSEObjectType(""), empty.getType());
+	}
+
+}
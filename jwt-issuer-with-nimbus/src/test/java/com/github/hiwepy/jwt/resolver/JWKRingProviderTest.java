@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.resolver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
+import com.github.hiwepy.jwt.token.SignedWithKeyRingJWTRepository;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+
+/**
+ * {@link JWKRingProvider} 测试：宽限期内仍可解析已退役密钥，密钥离开密钥环时按 kid 清除缓存
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWKRingProviderTest {
+
+	private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+	private final JWSSignerCache signerCache = new JWSSignerCache();
+	private final JWSVerifierCache verifierCache = new JWSVerifierCache();
+
+	private static OctetSequenceKey key(String keyId) throws Exception {
+		return new OctetSequenceKeyGenerator(256).keyID(keyId).generate();
+	}
+
+	private JWKRingProvider provider(OctetSequenceKey... keys) {
+		JWKRingProvider provider = new JWKRingProvider(Arrays.asList(keys));
+		provider.setTimeProvider(clock::get);
+		provider.setGraceWindow(1_000);
+		provider.setSignerCache(signerCache);
+		provider.setVerifierCache(verifierCache);
+		provider.setDecrypterCache(null);
+		return provider;
+	}
+
+	@Test
+	public void retiredKeyIsInvalidatedWhenItLeavesTheGraceWindow() throws Exception {
+		OctetSequenceKey k1 = key("k1");
+		OctetSequenceKey k2 = key("k2");
+		JWKRingProvider provider = this.provider(k1, k2);
+		verifierCache.getVerifier(k1);
+		verifierCache.getVerifier(k2);
+		signerCache.getSigner(k1);
+
+		provider.rotate(Collections.singletonList(k2));
+		assertSame(k1, provider.getKey("k1"));
+		assertEquals(2, verifierCache.size());
+		assertEquals(1, signerCache.size());
+
+		clock.addAndGet(1_000);
+		assertNull(provider.getKey("k1"));
+		provider.rotate(Collections.singletonList(k2));
+		assertEquals(1, verifierCache.size());
+		assertEquals(0, signerCache.size());
+		assertSame(k2, provider.getKey("k2"));
+	}
+
+	@Test
+	public void keyRemovedWithoutGraceWindowIsInvalidatedImmediately() throws Exception {
+		OctetSequenceKey k1 = key("k1");
+		OctetSequenceKey k10 = key("k10");
+		JWKRingProvider provider = this.provider(k1, k10);
+		provider.setGraceWindow(0);
+		verifierCache.getVerifier(k1);
+		verifierCache.getVerifier(k10);
+
+		provider.rotate(Collections.singletonList(k10));
+		assertNull(provider.getKey("k1"));
+		// the kid is matched exactly, k10 is kept
+		assertEquals(1, verifierCache.size());
+	}
+
+	@Test
+	public void keyReplacedUnderTheSameKidIsInvalidated() throws Exception {
+		OctetSequenceKey k1 = key("k1");
+		JWKRingProvider provider = this.provider(k1);
+		verifierCache.getVerifier(k1);
+
+		OctetSequenceKey replacement = key("k1");
+		provider.rotate(Collections.singletonList(replacement));
+		assertEquals(0, verifierCache.size());
+		assertSame(replacement, provider.getKey("k1"));
+	}
+
+	@Test
+	public void unchangedKeysAreKept() throws Exception {
+		OctetSequenceKey k1 = key("k1");
+		JWKRingProvider provider = this.provider(k1);
+		verifierCache.getVerifier(k1);
+
+		provider.rotate(Collections.singletonList(k1));
+		assertEquals(1, verifierCache.size());
+		assertTrue(provider.getRing().removedKeyIds(provider.getRing()).isEmpty());
+	}
+
+	@Test
+	public void repositoryCachesArePropagated() throws Exception {
+		JWKRingProvider provider = new JWKRingProvider();
+		SignedWithKeyRingJWTRepository repository = new SignedWithKeyRingJWTRepository(provider);
+		repository.setVerifierCache(verifierCache);
+		repository.setSignerCache(signerCache);
+		assertSame(verifierCache, provider.getVerifierCache());
+		assertSame(signerCache, provider.getSignerCache());
+	}
+
+	@Test
+	public void keysWithoutKidAreRejected() throws Exception {
+		OctetSequenceKey noKid = new OctetSequenceKeyGenerator(256).generate();
+		assertThrows(IllegalArgumentException.class, () -> JWKRing.of(Collections.singletonList(noKid)));
+		assertThrows(IllegalArgumentException.class, () -> JWKRing.of(Arrays.asList(key("k1"), key("k1"))));
+	}
+
+}
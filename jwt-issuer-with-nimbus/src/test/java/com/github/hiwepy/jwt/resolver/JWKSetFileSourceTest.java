@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.resolver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+
+/**
+ * {@link JWKSetFileSource} 测试：按修改时间与大小检测变化、写入不完整时保留当前密钥环并重试、
+ * 新密钥发布到 {@link JWKRingProvider}，以及关闭时只停止自建的调度器
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWKSetFileSourceTest {
+
+	private static final long MTIME = 1_700_000_000_000L;
+
+	@TempDir
+	Path dir;
+
+	private final AtomicLong clock = new AtomicLong(MTIME);
+
+	private static OctetSequenceKey key(String keyId) throws Exception {
+		return new OctetSequenceKeyGenerator(256).keyID(keyId).generate();
+	}
+
+	private static String json(OctetSequenceKey key) {
+		return new JWKSet(key).toString(false);
+	}
+
+	private static void write(Path file, String content, long lastModified) throws IOException {
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+	}
+
+	private JWKSetFileSource source(Path file) {
+		JWKRingProvider provider = new JWKRingProvider();
+		provider.setTimeProvider(clock::get);
+		provider.setGraceWindow(1_000);
+		return new JWKSetFileSource(file, provider);
+	}
+
+	@Test
+	public void changesAreDetectedByModificationTimeAndSize() throws Exception {
+		Path file = dir.resolve("jwks.json");
+		OctetSequenceKey k1 = key("k1");
+		write(file, json(k1), MTIME);
+		JWKSetFileSource source = this.source(file);
+		source.load();
+		assertEquals(k1, source.getKeyRingProvider().getKey("k1"));
+		assertFalse(source.reload());
+
+		// 大小与修改时间均未变化：不重新读取
+		OctetSequenceKey k2 = key("k2");
+		assertEquals(json(k1).length(), json(k2).length());
+		write(file, json(k2), MTIME);
+		assertFalse(source.reload());
+		assertNull(source.getKeyRingProvider().getKey("k2"));
+
+		// 修改时间变化
+		Files.setLastModifiedTime(file, FileTime.fromMillis(MTIME + 1_000));
+		assertTrue(source.reload());
+		assertEquals(k2, source.getKeyRingProvider().getKey("k2"));
+		assertFalse(source.reload());
+
+		// 大小变化
+		OctetSequenceKey k3 = key("k3-longer");
+		write(file, json(k3), MTIME + 1_000);
+		assertTrue(source.reload());
+		assertEquals(k3, source.getKeyRingProvider().getKey("k3-longer"));
+		assertEquals(1, source.getJWKSet().getKeys().size());
+	}
+
+	@Test
+	public void failedReloadKeepsTheRingAndRetries() throws Exception {
+		Path file = dir.resolve("jwks.json");
+		OctetSequenceKey k1 = key("k1");
+		write(file, json(k1), MTIME);
+		JWKSetFileSource source = this.source(file);
+		source.load();
+		JWKSet loaded = source.getJWKSet();
+
+		// 写入一半
+		OctetSequenceKey k2 = key("k2");
+		String content = json(k2);
+		write(file, content.substring(0, content.length() / 2), MTIME + 1_000);
+		assertThrows(ParseException.class, source::reload);
+		assertSame(loaded, source.getJWKSet());
+		assertEquals(k1, source.getKeyRingProvider().getKey("k1"));
+		assertNull(source.getKeyRingProvider().getKey("k2"));
+
+		// 截断为空文件
+		write(file, "", MTIME + 2_000);
+		assertThrows(IOException.class, source::reload);
+		assertSame(loaded, source.getJWKSet());
+
+		// 写入完成后下次轮询重试成功，即使修改时间与失败时相同
+		write(file, content, MTIME + 2_000);
+		assertTrue(source.reload());
+		assertEquals(k2, source.getKeyRingProvider().getKey("k2"));
+	}
+
+	@Test
+	public void rotationKeepsRetiredKeysForTheGraceWindow() throws Exception {
+		Path file = dir.resolve("jwks.json");
+		OctetSequenceKey k1 = key("k1");
+		write(file, json(k1), MTIME);
+		JWKSetFileSource source = this.source(file);
+		source.load();
+
+		OctetSequenceKey k2 = key("k2");
+		write(file, json(k2), MTIME + 1_000);
+		assertTrue(source.reload());
+		JWKRingProvider provider = source.getKeyRingProvider();
+		assertEquals(k2, provider.getKey("k2"));
+		assertEquals(k1, provider.getKey("k1"));
+
+		clock.addAndGet(1_000);
+		assertNull(provider.getKey("k1"));
+		assertEquals(k2, provider.getKey("k2"));
+	}
+
+	@Test
+	public void closeOnlyShutsDownTheOwnedScheduler() throws Exception {
+		Path file = dir.resolve("jwks.json");
+		write(file, json(key("k1")), MTIME);
+
+		ScheduledThreadPoolExecutor injected = new ScheduledThreadPoolExecutor(1);
+		injected.setRemoveOnCancelPolicy(true);
+		try {
+			JWKSetFileSource source = this.source(file);
+			source.setScheduler(injected);
+			source.start();
+			assertEquals(1, injected.getQueue().size());
+			source.close();
+			// 轮询任务已取消，注入的调度器仍可使用
+			assertTrue(injected.getQueue().isEmpty());
+			assertFalse(injected.isShutdown());
+			assertSame(injected, source.getScheduler());
+		} finally {
+			injected.shutdownNow();
+		}
+
+		JWKSetFileSource source = this.source(file);
+		source.start();
+		ScheduledExecutorService owned = source.getScheduler();
+		assertFalse(owned.isShutdown());
+		source.close();
+		assertTrue(owned.isShutdown());
+		assertNull(source.getScheduler());
+		// 关闭后可重新启动
+		source.start();
+		assertFalse(source.getScheduler().isShutdown());
+		source.close();
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.signer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * {@link JWSSignatureEngine} 测试：JCA 快速路径与 nimbus 签名器执行相同的密钥校验
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWSSignatureEngineTest {
+
+	private static final byte[] INPUT = "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJhZG1pbiJ9".getBytes(StandardCharsets.US_ASCII);
+	private final JWSSignerCache signerCache = new JWSSignerCache();
+
+	private byte[] sign(JWK jwk, JWSAlgorithm algorithm) throws JOSEException {
+		JWSSignatureEngine engine = JWSSignatureEngine.of(jwk, algorithm, signerCache);
+		engine.update(INPUT, 0, INPUT.length);
+		return engine.sign().clone();
+	}
+
+	@Test
+	public void shortHmacSecretIsRejected() throws Exception {
+		OctetSequenceKey secret = new OctetSequenceKeyGenerator(128).keyID("short").generate();
+		assertThrows(KeyLengthException.class, () -> this.sign(secret, JWSAlgorithm.HS256));
+	}
+
+	@Test
+	public void hmacSecretIsCheckedAgainstEveryAlgorithm() throws Exception {
+		OctetSequenceKey secret = new OctetSequenceKeyGenerator(256).keyID("hs256").generate();
+		byte[] signature = this.sign(secret, JWSAlgorithm.HS256);
+		assertTrue(new MACVerifier(secret).verify(new JWSHeader(JWSAlgorithm.HS256), INPUT, Base64URL.encode(signature)));
+		// the key cached for HS256 is too short for HS512
+		assertThrows(KeyLengthException.class, () -> this.sign(secret, JWSAlgorithm.HS512));
+	}
+
+	@Test
+	public void weakRsaKeyIsRejected() throws Exception {
+		RSAKey weak = new RSAKeyGenerator(1024, true).keyID("rsa-1024").generate();
+		assertThrows(KeyLengthException.class, () -> this.sign(weak, JWSAlgorithm.RS256));
+	}
+
+	@Test
+	public void rsaKeySignsWithTheJcaEngine() throws Exception {
+		RSAKey rsaKey = new RSAKeyGenerator(2048).keyID("rsa-2048").generate();
+		byte[] signature = this.sign(rsaKey, JWSAlgorithm.PS256);
+		assertTrue(new RSASSAVerifier(rsaKey).verify(new JWSHeader(JWSAlgorithm.PS256), INPUT, Base64URL.encode(signature)));
+	}
+
+	@Test
+	public void ecCurveMustMatchTheAlgorithm() throws Exception {
+		ECKey ecKey = new ECKeyGenerator(Curve.P_256).keyID("p-256").generate();
+		assertThrows(JOSEException.class, () -> this.sign(ecKey, JWSAlgorithm.ES384));
+		byte[] signature = this.sign(ecKey, JWSAlgorithm.ES256);
+		assertTrue(new ECDSAVerifier(ecKey).verify(new JWSHeader(JWSAlgorithm.ES256), INPUT, Base64URL.encode(signature)));
+	}
+
+	@Test
+	public void ecCurveIsCheckedForCachedKeys() throws Exception {
+		ECKey ecKey = new ECKeyGenerator(Curve.P_256).keyID("p-256-cached").generate();
+		// the private key is cached by the ES256 signature, then requested for ES384 and ES512
+		this.sign(ecKey, JWSAlgorithm.ES256);
+		assertThrows(JOSEException.class, () -> this.sign(ecKey, JWSAlgorithm.ES384));
+		assertThrows(JOSEException.class, () -> this.sign(ecKey, JWSAlgorithm.ES512));
+		assertEquals(64, this.sign(ecKey, JWSAlgorithm.ES256).length);
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.stream;
+
+import java.lang.management.ManagementFactory;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.hiwepy.jwt.ClaimsTemplate;
+import com.github.hiwepy.jwt.IssueRequest;
+import com.github.hiwepy.jwt.token.SignedWithHamcJWTRepository;
+import com.github.hiwepy.jwt.utils.NimbusdsUtils;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+
+/**
+ * HS256 签发的每令牌堆分配字节数与耗时：仓库的 {@link com.nimbusds.jwt.JWTClaimsSet} 方式、声明模板方式，
+ * 与 {@link JWSStreamingIssuer} 的 Map 方式、复用 {@link IssueRequest} 的方式对比
+ * <p>分配字节数取自当前线程的 {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}，
+ * 包含返回的令牌字符串本身；JVM 不支持时只输出耗时。</p>
+ * <pre>
+ * java -cp ... com.github.hiwepy.jwt.stream.JWSStreamingIssuerBenchmark [iterations]
+ * </pre>
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JWSStreamingIssuerBenchmark {
+
+	private static final byte[] SECRET = new byte[32];
+	private static final String BASE64_SECRET = Base64.getEncoder().encodeToString(SECRET);
+	private static final Set<String> AUDIENCE = Collections.singleton("api");
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+		SignedWithHamcJWTRepository repository = new SignedWithHamcJWTRepository();
+		JWSStreamingIssuer issuer = new JWSStreamingIssuer();
+		OctetSequenceKey signingKey = new OctetSequenceKey.Builder(SECRET).build();
+		Map<String, Object> claims = new HashMap<>();
+		claims.put("roles", "admin,user");
+		claims.put("perms", "user:read,user:write");
+		ClaimsTemplate nimbusTemplate = NimbusdsUtils.claimsTemplate("issuer", AUDIENCE, claims);
+
+		System.out.printf("%-40s %8s %12s %10s%n", "HS256 issuance", "length", "bytes/op", "ns/op");
+		run("repository (JWTClaimsSet)", repository, iterations,
+				() -> repository.issueJwt(BASE64_SECRET, "jti", "user", "issuer", AUDIENCE, "admin,user", "user:read,user:write", "HS256", 60_000));
+		run("repository (claims template)", repository, iterations,
+				() -> repository.issueJwt(BASE64_SECRET, nimbusTemplate, "jti", "user", "HS256", 60_000));
+		run("streaming issuer (claims map)", repository, iterations,
+				() -> issuer.issueJwt(signingKey, "jti", "user", "issuer", AUDIENCE, claims, "HS256", 60_000));
+		run("streaming issuer (IssueRequest)", repository, iterations, () -> {
+			IssueRequest<OctetSequenceKey, Object> request = IssueRequest.current();
+			request.setSigningKey(signingKey);
+			request.setJwtId("jti");
+			request.setSubject("user");
+			request.setIssuer("issuer");
+			request.setAudience(AUDIENCE);
+			request.setRoles("admin,user");
+			request.setPermissions("user:read,user:write");
+			request.setAlgorithm("HS256");
+			request.setPeriod(60_000);
+			return issuer.issueJwt(request);
+		});
+		run("streaming issuer (IssueRequest template)", repository, iterations, () -> {
+			IssueRequest<OctetSequenceKey, Object> request = IssueRequest.current();
+			request.setSigningKey(signingKey);
+			request.setJwtId("jti");
+			request.setSubject("user");
+			request.setTemplate(nimbusTemplate);
+			request.setAlgorithm("HS256");
+			request.setPeriod(60_000);
+			return issuer.issueJwt(request);
+		});
+	}
+
+	private static void run(String name, SignedWithHamcJWTRepository repository, int iterations, Issuance issuance) {
+		// every variant must produce a token the repository accepts
+		if (!repository.verify(BASE64_SECRET, issuance.issue(), true)) {
+			throw new IllegalStateException("Verification failed: " + name);
+		}
+		for (int i = 0; i < Math.min(iterations, 50_000); i++) {
+			issuance.issue();
+		}
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		int length = 0;
+		for (int i = 0; i < iterations; i++) {
+			length += issuance.issue().length();
+		}
+		long nanos = System.nanoTime() - start;
+		long allocated = allocatedBytes() - bytes;
+		System.out.printf("%-40s %8d %12s %10.0f%n", name, length / iterations, bytes < 0 ? "n/a" : String.valueOf(allocated / iterations),
+				nanos / (double) iterations);
+	}
+
+	/**
+	 * Bytes allocated by the current thread, -1 if the JVM doesn't support it
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (mxBean.isThreadAllocatedMemorySupported() && mxBean.isThreadAllocatedMemoryEnabled()) {
+				return mxBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	private interface Issuance {
+
+		String issue();
+
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.token;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+/**
+ * 签名并加密的仓库在 RSA-OAEP-256 与 ECDH-ES（P-256 / X25519）密钥管理下的签发、验证耗时对比
+ * <p>验证使用互不相同的令牌，避免命中 {@link com.github.hiwepy.jwt.decrypter.CachingRSADecrypter} 的 CEK 缓存，
+ * 测量的是每个新令牌的密钥解包/协商成本。</p>
+ * <p>Nimbus 的 X25519 加解密依赖 com.google.crypto.tink:tink，类路径中没有时跳过仓库级的 X25519 测量，
+ * 只测量 JDK (11+) XDH 实现的密钥协商原语。</p>
+ * <pre>
+ * java -cp ... com.github.hiwepy.jwt.token.EcdhEncryptionBenchmark [iterations]
+ * </pre>
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class EcdhEncryptionBenchmark {
+
+	private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+	private static final Map<String, Object> CLAIMS = Collections.singletonMap("roles", "admin,user");
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+		System.out.println("== repository (HS256 signature + key management), us/op");
+		System.out.printf("%-32s %10s %10s%n", "key management", "issue", "verify");
+
+		SignedWithHamcAndEncryptedWithRsaJWTRepository rsaRepository = new SignedWithHamcAndEncryptedWithRsaJWTRepository();
+		run("RSA-OAEP-256 (2048)", rsaRepository, new RSAKeyGenerator(2048).generate(), iterations);
+		run("RSA-OAEP-256 (3072)", rsaRepository, new RSAKeyGenerator(3072).generate(), iterations);
+
+		SignedWithHamcAndEncryptedWithEcdhJWTRepository ecdhRepository = new SignedWithHamcAndEncryptedWithEcdhJWTRepository();
+		SignedWithHamcAndEncryptedWithEcdhJWTRepository directRepository = new SignedWithHamcAndEncryptedWithEcdhJWTRepository();
+		directRepository.setKeyManagementAlgorithm(JWEAlgorithm.ECDH_ES);
+		JWK p256 = new ECKeyGenerator(Curve.P_256).generate();
+		run("ECDH-ES+A256KW (P-256)", ecdhRepository, p256, iterations);
+		run("ECDH-ES (P-256)", directRepository, p256, iterations);
+
+		if (isTinkAvailable()) {
+			JWK x25519 = new OctetKeyPairGenerator(Curve.X25519).generate();
+			run("ECDH-ES+A256KW (X25519)", ecdhRepository, x25519, iterations);
+			run("ECDH-ES (X25519)", directRepository, x25519, iterations);
+		} else {
+			System.out.printf("%-32s %s%n", "ECDH-ES (X25519)", "skipped, com.google.crypto.tink:tink is not on the classpath");
+		}
+
+		System.out.println();
+		System.out.println("== recipient key operation per token (JCA), us/op");
+		primitives(iterations);
+	}
+
+	private static <E> void run(String name, JwtKeyPairRepository<String, E> repository, E secretKey, int iterations) {
+		String[] tokens = new String[iterations];
+		// warm up
+		for (int i = 0; i < Math.min(iterations, 500); i++) {
+			repository.verify(SECRET, secretKey, repository.issueJwt(SECRET, secretKey, "jti-" + i, "user", "issuer",
+					null, CLAIMS, "HS256", 60_000), true);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			tokens[i] = repository.issueJwt(SECRET, secretKey, "jti-" + i, "user", "issuer", null, CLAIMS, "HS256", 60_000);
+		}
+		long issued = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			if (!repository.verify(SECRET, secretKey, tokens[i], true)) {
+				throw new IllegalStateException("Verification failed: " + name);
+			}
+		}
+		long verified = System.nanoTime();
+		System.out.printf("%-32s %10.1f %10.1f%n", name, micros(issued - start, iterations), micros(verified - issued, iterations));
+	}
+
+	private static void primitives(int iterations) throws Exception {
+		KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+		rsaGenerator.initialize(2048);
+		KeyPair rsa = rsaGenerator.generateKeyPair();
+		Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-256AndMGF1Padding");
+		cipher.init(Cipher.ENCRYPT_MODE, rsa.getPublic());
+		byte[] wrapped = cipher.doFinal(new byte[32]);
+		Cipher decipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-256AndMGF1Padding");
+		System.out.printf("%-32s %10.1f%n", "RSA-OAEP-256 unwrap (2048)", time(iterations, () -> {
+			decipher.init(Cipher.DECRYPT_MODE, rsa.getPrivate());
+			decipher.doFinal(wrapped);
+		}));
+
+		KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+		ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+		System.out.printf("%-32s %10.1f%n", "ECDH agreement (P-256)", agreement(ecGenerator, "ECDH", iterations));
+
+		KeyPairGenerator xdhGenerator;
+		try {
+			// XDH is available since Java 11, looked up by name so that the module still builds for Java 8
+			xdhGenerator = KeyPairGenerator.getInstance("X25519");
+		} catch (Exception e) {
+			System.out.printf("%-32s %s%n", "XDH agreement (X25519)", "skipped, requires Java 11+");
+			return;
+		}
+		System.out.printf("%-32s %10.1f%n", "XDH agreement (X25519)", agreement(xdhGenerator, "XDH", iterations));
+	}
+
+	/**
+	 * The recipient side of ECDH-ES: agree on the shared secret with the ephemeral public key of each token
+	 */
+	private static double agreement(KeyPairGenerator generator, String algorithm, int iterations) throws Exception {
+		KeyPair recipient = generator.generateKeyPair();
+		KeyPair[] ephemeral = new KeyPair[Math.min(iterations, 256)];
+		for (int i = 0; i < ephemeral.length; i++) {
+			ephemeral[i] = generator.generateKeyPair();
+		}
+		KeyAgreement agreement = KeyAgreement.getInstance(algorithm);
+		int[] index = { 0 };
+		return time(iterations, () -> {
+			agreement.init(recipient.getPrivate());
+			agreement.doPhase(ephemeral[index[0]++ % ephemeral.length].getPublic(), true);
+			agreement.generateSecret();
+		});
+	}
+
+	private static double time(int iterations, Operation operation) throws Exception {
+		for (int i = 0; i < Math.min(iterations, 500); i++) {
+			operation.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			operation.run();
+		}
+		return micros(System.nanoTime() - start, iterations);
+	}
+
+	private static double micros(long nanos, int iterations) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos) / (double) iterations;
+	}
+
+	private static boolean isTinkAvailable() {
+		try {
+			Class.forName("com.google.crypto.tink.subtle.X25519");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private interface Operation {
+
+		void run() throws Exception;
+
+	}
+
+}
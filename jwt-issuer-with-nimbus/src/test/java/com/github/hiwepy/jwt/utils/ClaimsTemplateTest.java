@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.github.hiwepy.jwt.ClaimsTemplate;
+
+/**
+ * {@link NimbusdsUtils#claimsTemplate(String, Set, Map)} 测试：模板输出与 {@link NimbusdsUtils#claimsSet} 构建的声明等价
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class ClaimsTemplateTest {
+
+	private static final long NOW = 1700000000789L;
+	private static final String[] JWT_IDS = { "id-1", null, "", "  " };
+	private static final String[] SUBJECTS = { "user", null, "", "  " };
+	private static final long[] PERIODS = { 60000L, 0L, -1L };
+
+	@Test
+	public void jwtIdSubjectAndPeriod() {
+		Map<String, Object> claims = new LinkedHashMap<>();
+		claims.put("roles", "admin");
+		assertEquivalent("issuer", Collections.singleton("app"), claims);
+		assertEquivalent(null, null, null);
+		assertEquivalent("", Collections.emptySet(), Collections.emptyMap());
+	}
+
+	@Test
+	public void escapesAndNonAscii() {
+		Map<String, Object> claims = new LinkedHashMap<>();
+		claims.put("name", "张三 \"quoted\" \\ / \t\r\n \u0001   é 😀");
+		claims.put("键\"", "值");
+		claims.put("list", Arrays.asList("a\"b", "中文", 1, true));
+		claims.put("nested", Collections.singletonMap("k\n", "v\\"));
+		claims.put("decimal", 1.5D);
+		assertEquivalent("签发者 \"iss\" \\", new LinkedHashSet<>(Arrays.asList("客户端\n", "app ")), claims);
+		for (String subject : new String[] { "用户 \"sub\" \\ \u0000 \u001f \u007f 😀", " " }) {
+			ClaimsTemplate template = NimbusdsUtils.claimsTemplate(null, null, claims);
+			assertEquals(expected("id", subject, null, null, claims, 60000L), JSON.parseObject(template.toJson("id", subject, NOW, 60000L)));
+		}
+	}
+
+	@Test
+	public void dateClaims() {
+		Map<String, Object> claims = new LinkedHashMap<>();
+		claims.put("login", new Date(1600000000123L));
+		claims.put("epoch", new Date(0L));
+		assertEquivalent("issuer", null, claims);
+	}
+
+	private static void assertEquivalent(String issuer, Set<String> audience, Map<String, Object> claims) {
+		ClaimsTemplate template = NimbusdsUtils.claimsTemplate(issuer, audience, claims);
+		for (String jwtId : JWT_IDS) {
+			for (String subject : SUBJECTS) {
+				for (long period : PERIODS) {
+					JSONObject expected = expected(jwtId, subject, issuer, audience, claims, period);
+					JSONObject actual = JSON.parseObject(template.toJson(jwtId, subject, NOW, period));
+					assertEquals(expected, actual, String.format("jti=%s, sub=%s, period=%d", jwtId, subject, period));
+					assertFalse(period < 0 && actual.containsKey("exp"));
+				}
+			}
+		}
+	}
+
+	private static JSONObject expected(String jwtId, String subject, String issuer, Set<String> audience,
+			Map<String, Object> claims, long period) {
+		return JSON.parseObject(NimbusdsUtils.claimsSet(jwtId, subject, issuer, audience, claims, new Date(NOW), period).build().toString());
+	}
+
+}
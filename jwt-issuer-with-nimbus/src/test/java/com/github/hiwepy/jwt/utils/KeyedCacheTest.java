@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Base64;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.signer.JWSSignerCache;
+import com.github.hiwepy.jwt.verifier.JWSVerifierCache;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+
+/**
+ * {@link KeyedCache} 测试：容量上限、按 kid 精确失效、共享密钥以摘要为键
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class KeyedCacheTest {
+
+	@Test
+	public void sameKeySharesValue() throws Exception {
+		KeyedCache<Object> cache = new KeyedCache<>();
+		ECKey ecJWK = new ECKeyGenerator(Curve.P_256).keyID("k1").generate();
+		Object value = cache.get(ecJWK, key -> new Object());
+		assertSame(value, cache.get(ecJWK, key -> new Object()));
+		// 公钥与私钥形式的同一密钥具有相同的 thumbprint
+		assertSame(value, cache.get(ecJWK.toPublicJWK(), key -> new Object()));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void evictsAtMaximumSize() throws Exception {
+		KeyedCache<Object> cache = new KeyedCache<>(4);
+		for (int i = 0; i < 20; i++) {
+			cache.get(new OctetSequenceKeyGenerator(256).keyID("k" + i).generate(), key -> new Object());
+			assertTrue(cache.size() <= 4);
+		}
+		for (int i = 0; i < 20; i++) {
+			cache.get(new byte[] { (byte) i }, key -> new Object());
+			assertTrue(cache.size() <= 4);
+		}
+	}
+
+	@Test
+	public void invalidateMatchesKeyIdExactly() throws Exception {
+		KeyedCache<Object> cache = new KeyedCache<>();
+		OctetSequenceKey k1 = new OctetSequenceKeyGenerator(256).keyID("k1").generate();
+		OctetSequenceKey k10 = new OctetSequenceKeyGenerator(256).keyID("k10").generate();
+		Object v1 = cache.get(k1, key -> new Object());
+		Object v10 = cache.get(k10, key -> new Object());
+
+		cache.invalidate("k1");
+		assertEquals(1, cache.size());
+		assertSame(v10, cache.get(k10, key -> new Object()));
+		assertNotSame(v1, cache.get(k1, key -> new Object()));
+	}
+
+	@Test
+	public void loaderErrorIsNotCached() throws Exception {
+		KeyedCache<Object> cache = new KeyedCache<>();
+		byte[] secret = new byte[32];
+		assertThrows(JOSEException.class, () -> cache.get(secret, key -> {
+			throw new JOSEException("failed");
+		}));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void rejectsNonPositiveMaximumSize() {
+		assertThrows(IllegalArgumentException.class, () -> new KeyedCache<>(0));
+	}
+
+	@Test
+	public void secretIsNotUsedAsCacheKey() throws Exception {
+		String base64Secret = Base64.getEncoder().encodeToString(new byte[32]);
+		JWSVerifierCache verifierCache = new JWSVerifierCache();
+		JWSVerifier verifier = verifierCache.getVerifier(base64Secret);
+		assertSame(verifier, verifierCache.getVerifier(base64Secret));
+
+		JWSSignerCache signerCache = new JWSSignerCache();
+		signerCache.getSigner(base64Secret);
+		assertEquals(1, signerCache.size());
+
+		for (Object cache : new Object[] { verifierCache, signerCache }) {
+			for (Field field : cache.getClass().getDeclaredFields()) {
+				if (KeyedCache.class.equals(field.getType())) {
+					field.setAccessible(true);
+					for (Field inner : KeyedCache.class.getDeclaredFields()) {
+						if (Map.class.isAssignableFrom(inner.getType())) {
+							inner.setAccessible(true);
+							Map<?, ?> map = (Map<?, ?>) inner.get(field.get(cache));
+							assertTrue(map.keySet().stream().noneMatch(base64Secret::equals));
+							assertTrue(map.keySet().stream().map(String::valueOf).noneMatch(k -> k.contains(base64Secret)));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void shortSecretIsRejected() {
+		String base64Secret = Base64.getEncoder().encodeToString(new byte[4]);
+		assertThrows(JOSEException.class, () -> new JWSSignerCache().getSigner(base64Secret));
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.hiwepy.jwt.verifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.hiwepy.jwt.VerificationResult;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * {@link Ed25519ChunkVerification} 测试：分块内逐个校验签名，失败只影响自身结果，有效期预检先于签名校验
+ * @author <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class Ed25519ChunkVerificationTest {
+
+	private static final long NOW = 1_700_000_000_500L;
+
+	private final AtomicInteger verifications = new AtomicInteger();
+
+	/**
+	 * Stands for the Ed25519 verifier, accepts the signatures starting with 1
+	 */
+	private final JWSVerifier verifier = new JWSVerifier() {
+
+		@Override
+		public boolean verify(JWSHeader header, byte[] signingInput, Base64URL signature) {
+			verifications.incrementAndGet();
+			return signature.decode()[0] == 1;
+		}
+
+		@Override
+		public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+			return Collections.singleton(JWSAlgorithm.EdDSA);
+		}
+
+		@Override
+		public JCAContext getJCAContext() {
+			return new JCAContext();
+		}
+
+	};
+
+	private static String token(long exp, int signature) {
+		Base64URL header = Base64URL.encode("{\"alg\":\"EdDSA\"}".getBytes(StandardCharsets.UTF_8));
+		Base64URL claims = Base64URL.encode(("{\"sub\":\"user\",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8));
+		byte[] bytes = new byte[64];
+		bytes[0] = (byte) signature;
+		return header + "." + claims + "." + Base64URL.encode(bytes);
+	}
+
+	private List<VerificationResult> verify(boolean temporalPreCheck, String... tokens) {
+		Ed25519ChunkVerification verification = new Ed25519ChunkVerification(verifier, () -> NOW, temporalPreCheck);
+		return verification.verify(Arrays.asList(tokens), SignedJWT::parse, true, true);
+	}
+
+	@Test
+	public void failuresOnlyAffectTheirOwnResults() {
+		long exp = NOW / 1000 + 60;
+		List<VerificationResult> results = this.verify(false, token(exp, 1), token(exp, 0), "not.a.jwt", token(exp, 1));
+
+		assertEquals(VerificationResult.Status.VALID, results.get(0).getStatus());
+		assertEquals("user", results.get(0).getPayload().getSubject());
+		assertEquals(VerificationResult.Status.INVALID, results.get(1).getStatus());
+		assertEquals(VerificationResult.Status.MALFORMED, results.get(2).getStatus());
+		assertEquals(VerificationResult.Status.VALID, results.get(3).getStatus());
+		assertEquals(3, verifications.get());
+	}
+
+	@Test
+	public void temporalPreCheckSkipsTheSignature() {
+		String expired = token(NOW / 1000 - 60, 1);
+
+		assertEquals(VerificationResult.Status.EXPIRED, this.verify(true, expired).get(0).getStatus());
+		assertEquals(0, verifications.get());
+
+		assertEquals(VerificationResult.Status.EXPIRED, this.verify(false, expired).get(0).getStatus());
+		assertEquals(1, verifications.get());
+	}
+
+}